@@ -0,0 +1,56 @@
+package org.valkyrienskies.mod.common.collision;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling, shuffling and reading a reused {@link CollisionContactBuffer} once per physics tick. After the first tick
+ * this should allocate nothing, which the GC profiler's gc.alloc.rate.norm shows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionContactBufferBenchmark {
+
+    @Param({"100", "10000"})
+    public int contactCount;
+
+    private CollisionContactBuffer buffer;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        buffer = new CollisionContactBuffer();
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public long physicsTick() {
+        buffer.clear();
+        for (int i = 0; i < contactCount; i++) {
+            buffer.add(i, i >> 4, -i, i + 1, (i >> 4) + 1, -i - 1);
+        }
+        buffer.shuffle(random);
+        long sum = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            sum += buffer.getInWorldX(i) + buffer.getInWorldY(i) + buffer.getInWorldZ(i);
+            sum += buffer.getInLocalX(i) + buffer.getInLocalY(i) + buffer.getInLocalZ(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,119 @@
+package org.valkyrienskies.mod.common.ships;
+
+import com.googlecode.cqengine.resultset.ResultSet;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.googlecode.cqengine.query.QueryFactory.equal;
+
+/**
+ * Looking up the ship claiming a chunk in {@link QueryableShipData}, which happens on every block change in the
+ * shipyard. Also runs the cqengine query on {@link ShipData#CHUNKS} that the lookup used to be, to compare against.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryableShipDataBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    @Param({"1", "64", "1024"})
+    public int shipCount;
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    private QueryableShipData queryableShipData;
+    private ShipData[] ships;
+    // Half of these are claimed by a ship, the other half are in the shipyard but not claimed
+    private long[] chunksToLookUp;
+
+    @Setup
+    public void setup() {
+        final SyntheticShip ship = new SyntheticShip(blockCount);
+        final ShipChunkAllocator allocator = new ShipChunkAllocator();
+        queryableShipData = new QueryableShipData();
+        ships = new ShipData[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            final VSChunkClaim chunkClaim = allocator.allocateNextChunkClaim();
+            final Vector3d position = new Vector3d(chunkClaim.getRegionCenter().getX(), 64,
+                chunkClaim.getRegionCenter().getZ());
+            ships[i] = ShipData.createData(queryableShipData.getAllShips(), "Benchmark " + i, chunkClaim,
+                new UUID(0, i), new ShipTransform(position, position), new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+            queryableShipData.addShip(ships[i]);
+            // Claim the chunks the synthetic ship would be in
+            final int minChunkX = (chunkClaim.getRegionCenter().getX() - ship.getSideLength() / 2) >> 4;
+            final int minChunkZ = (chunkClaim.getRegionCenter().getZ() - ship.getSideLength() / 2) >> 4;
+            final int chunkLength = (ship.getSideLength() + 15) / 16 + 1;
+            for (int chunkX = minChunkX; chunkX < minChunkX + chunkLength; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ < minChunkZ + chunkLength; chunkZ++) {
+                    queryableShipData.claimChunk(ships[i], chunkX, chunkZ);
+                }
+            }
+        }
+
+        final Random random = new Random(42);
+        chunksToLookUp = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            final VSChunkClaim chunkClaim = ships[random.nextInt(shipCount)].getChunkClaim();
+            final ChunkPos centerPos = chunkClaim.getCenterPos();
+            if (i % 2 == 0) {
+                final ChunkPos[] claimed = chunkClaim.stream().toArray(ChunkPos[]::new);
+                final ChunkPos chunk = claimed[random.nextInt(claimed.length)];
+                chunksToLookUp[i] = ChunkPos.asLong(chunk.x, chunk.z);
+            } else {
+                // Far enough from the center to not be claimed, but still in the region
+                chunksToLookUp[i] = ChunkPos.asLong(centerPos.x - 20 - random.nextInt(10), centerPos.z + 20);
+            }
+        }
+    }
+
+    @Benchmark
+    public int getShipFromChunk() {
+        int found = 0;
+        for (long chunk : chunksToLookUp) {
+            if (queryableShipData.getShipFromChunk(chunk).isPresent()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public int queryChunksIndex() {
+        int found = 0;
+        for (long chunk : chunksToLookUp) {
+            try (ResultSet<ShipData> resultSet = queryableShipData.getAllShips()
+                .retrieve(equal(ShipData.CHUNKS, chunk))) {
+                if (!resultSet.isEmpty()) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,68 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import gnu.trove.set.hash.TIntHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every block of a ship with {@link SpatialDetector}, starting from one of its corners.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialDetectorBenchmark {
+
+    private static final BlockPos START = new BlockPos(1000, 64, -1000);
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    @Param({"false", "true"})
+    public boolean corners;
+
+    private SyntheticShip ship;
+
+    @Setup
+    public void setup() {
+        ship = new SyntheticShip(blockCount);
+    }
+
+    @Benchmark
+    public TIntHashSet detect() {
+        final SpatialDetector detector = new SyntheticShipDetector(ship, corners);
+        detector.startDetection();
+        return detector.foundSet;
+    }
+
+    private static class SyntheticShipDetector extends SpatialDetector {
+
+        private final SyntheticShip ship;
+
+        SyntheticShipDetector(SyntheticShip ship, boolean checkCorners) {
+            super(START, null, Integer.MAX_VALUE, checkCorners, null, new ExtendedBlockStorage[17 * 17][16]);
+            this.ship = ship;
+        }
+
+        @Override
+        public boolean isValidExpansion(int x, int y, int z) {
+            return ship.contains(x - START.getX(), y - START.getY(), z - START.getZ());
+        }
+    }
+}
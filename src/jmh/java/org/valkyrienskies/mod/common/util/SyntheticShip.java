@@ -0,0 +1,68 @@
+package org.valkyrienskies.mod.common.util;
+
+/**
+ * The block positions of a made up ship, for benchmarks. The same block count always gives the same ship, so results
+ * can be compared between runs.
+ */
+public class SyntheticShip {
+
+    /**
+     * The block counts benchmarks are run against, as a JMH param.
+     */
+    public static final String BLOCK_COUNTS = "1000,10000,100000";
+
+    private final int[] positions;
+    private final int sideLength;
+
+    /**
+     * Makes a ship of blockCount blocks, filling a cube layer by layer starting from (0, 0, 0).
+     */
+    public SyntheticShip(int blockCount) {
+        this.sideLength = (int) Math.ceil(Math.cbrt(blockCount));
+        this.positions = new int[blockCount * 3];
+        int i = 0;
+        for (int y = 0; y < sideLength && i < positions.length; y++) {
+            for (int x = 0; x < sideLength && i < positions.length; x++) {
+                for (int z = 0; z < sideLength && i < positions.length; z++) {
+                    positions[i++] = x;
+                    positions[i++] = y;
+                    positions[i++] = z;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return positions.length / 3;
+    }
+
+    /**
+     * @return The length of the sides of the cube the ship fits in.
+     */
+    public int getSideLength() {
+        return sideLength;
+    }
+
+    public int getX(int index) {
+        return positions[index * 3];
+    }
+
+    public int getY(int index) {
+        return positions[index * 3 + 1];
+    }
+
+    public int getZ(int index) {
+        return positions[index * 3 + 2];
+    }
+
+    /**
+     * @return True if the block at (x, y, z) is part of the ship.
+     */
+    public boolean contains(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= sideLength || y >= sideLength || z >= sideLength) {
+            return false;
+        }
+        // Blocks are added layer by layer, so a block is in the ship if it comes before the last one
+        return (y * sideLength + x) * sideLength + z < size();
+    }
+}
@@ -0,0 +1,110 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding, finding and iterating the blocks of a ship with {@link SmallBlockPosSet} and {@link SmallBlockPosSetAABB}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockPosSetBenchmark {
+
+    // Somewhere in the shipyard, like a real ship
+    private static final int CENTER_X = 5_120_000, CENTER_Z = 2048;
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    private SyntheticShip ship;
+    private int offsetX, offsetY, offsetZ;
+    private SmallBlockPosSet filledSet;
+    private SmallBlockPosSetAABB filledSetAABB;
+
+    @Setup
+    public void setup() {
+        ship = new SyntheticShip(blockCount);
+        offsetX = CENTER_X - ship.getSideLength() / 2;
+        offsetY = 64;
+        offsetZ = CENTER_Z - ship.getSideLength() / 2;
+        filledSet = new SmallBlockPosSet(CENTER_X, CENTER_Z);
+        filledSetAABB = new SmallBlockPosSetAABB(CENTER_X, 0, CENTER_Z, 1024, 1024, 1024);
+        addAll(filledSet);
+        addAll(filledSetAABB);
+    }
+
+    @Benchmark
+    public IBlockPosSet addSmallBlockPosSet() {
+        final SmallBlockPosSet set = new SmallBlockPosSet(CENTER_X, CENTER_Z);
+        addAll(set);
+        return set;
+    }
+
+    @Benchmark
+    public IBlockPosSet addSmallBlockPosSetAABB() {
+        final SmallBlockPosSetAABB set = new SmallBlockPosSetAABB(CENTER_X, 0, CENTER_Z, 1024, 1024, 1024);
+        addAll(set);
+        return set;
+    }
+
+    @Benchmark
+    public int containsSmallBlockPosSet() {
+        return countContained(filledSet);
+    }
+
+    @Benchmark
+    public int containsSmallBlockPosSetAABB() {
+        return countContained(filledSetAABB);
+    }
+
+    @Benchmark
+    public long forEachSmallBlockPosSet() {
+        final long[] sum = new long[1];
+        filledSet.forEach((x, y, z) -> sum[0] += x + y + z);
+        return sum[0];
+    }
+
+    @Benchmark
+    public long forEachSmallBlockPosSetAABB() {
+        final long[] sum = new long[1];
+        filledSetAABB.forEach((x, y, z) -> sum[0] += x + y + z);
+        return sum[0];
+    }
+
+    private void addAll(IBlockPosSet set) {
+        for (int i = 0; i < ship.size(); i++) {
+            set.add(ship.getX(i) + offsetX, ship.getY(i) + offsetY, ship.getZ(i) + offsetZ);
+        }
+    }
+
+    // Looks up every block of the ship, and as many blocks next to it that aren't
+    private int countContained(IBlockPosSet set) {
+        int count = 0;
+        for (int i = 0; i < ship.size(); i++) {
+            final int x = ship.getX(i) + offsetX, y = ship.getY(i) + offsetY, z = ship.getZ(i) + offsetZ;
+            if (set.contains(x, y, z)) {
+                count++;
+            }
+            if (set.contains(x + ship.getSideLength(), y, z)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
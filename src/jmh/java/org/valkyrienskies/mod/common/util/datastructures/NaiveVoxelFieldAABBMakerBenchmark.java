@@ -0,0 +1,67 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeping the AABB of a ship up to date with {@link NaiveVoxelFieldAABBMaker} while it's built and taken apart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NaiveVoxelFieldAABBMakerBenchmark {
+
+    private static final int CENTER_X = 5_120_000, CENTER_Z = 2048;
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    private SyntheticShip ship;
+    private int offsetX, offsetY, offsetZ;
+
+    @Setup
+    public void setup() {
+        ship = new SyntheticShip(blockCount);
+        offsetX = CENTER_X - ship.getSideLength() / 2;
+        offsetY = 64;
+        offsetZ = CENTER_Z - ship.getSideLength() / 2;
+    }
+
+    @Benchmark
+    public AxisAlignedBB addVoxels() {
+        final NaiveVoxelFieldAABBMaker aabbMaker = new NaiveVoxelFieldAABBMaker(CENTER_X, CENTER_Z);
+        for (int i = 0; i < ship.size(); i++) {
+            aabbMaker.addVoxel(ship.getX(i) + offsetX, ship.getY(i) + offsetY, ship.getZ(i) + offsetZ);
+        }
+        return aabbMaker.makeVoxelFieldAABB();
+    }
+
+    @Benchmark
+    public AxisAlignedBB addThenRemoveVoxels() {
+        final NaiveVoxelFieldAABBMaker aabbMaker = new NaiveVoxelFieldAABBMaker(CENTER_X, CENTER_Z);
+        for (int i = 0; i < ship.size(); i++) {
+            aabbMaker.addVoxel(ship.getX(i) + offsetX, ship.getY(i) + offsetY, ship.getZ(i) + offsetZ);
+        }
+        // Remove from the top down, so the AABB shrinks with almost every removal
+        for (int i = ship.size() - 1; i > 0; i--) {
+            aabbMaker.removeVoxel(ship.getX(i) + offsetX, ship.getY(i) + offsetY, ship.getZ(i) + offsetZ);
+        }
+        return aabbMaker.makeVoxelFieldAABB();
+    }
+}
@@ -0,0 +1,131 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and reading the {@link SimpleBitOctree}s of every 16x16x16 section a ship is in, like the collision code
+ * does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleBitOctreeBenchmark {
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    private SyntheticShip ship;
+    private int sectionsPerSide;
+    private SimpleBitOctree[] octrees;
+
+    @Setup
+    public void setup() {
+        ship = new SyntheticShip(blockCount);
+        sectionsPerSide = (ship.getSideLength() + 15) / 16;
+        octrees = new SimpleBitOctree[sectionsPerSide * sectionsPerSide * sectionsPerSide];
+        for (int i = 0; i < octrees.length; i++) {
+            octrees[i] = new SimpleBitOctree();
+        }
+        for (int i = 0; i < ship.size(); i++) {
+            final int x = ship.getX(i), y = ship.getY(i), z = ship.getZ(i);
+            getOctree(x >> 4, y >> 4, z >> 4).set(x & 15, y & 15, z & 15, true);
+        }
+    }
+
+    @Benchmark
+    public SimpleBitOctree[] set() {
+        final SimpleBitOctree[] built = new SimpleBitOctree[octrees.length];
+        for (int i = 0; i < built.length; i++) {
+            built[i] = new SimpleBitOctree();
+        }
+        for (int i = 0; i < ship.size(); i++) {
+            final int x = ship.getX(i), y = ship.getY(i), z = ship.getZ(i);
+            built[getSectionIndex(x >> 4, y >> 4, z >> 4)].set(x & 15, y & 15, z & 15, true);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public SimpleBitOctree[] setAll() {
+        final SimpleBitOctree[] built = new SimpleBitOctree[octrees.length];
+        for (int sectionX = 0; sectionX < sectionsPerSide; sectionX++) {
+            for (int sectionY = 0; sectionY < sectionsPerSide; sectionY++) {
+                for (int sectionZ = 0; sectionZ < sectionsPerSide; sectionZ++) {
+                    final int baseX = sectionX << 4, baseY = sectionY << 4, baseZ = sectionZ << 4;
+                    final SimpleBitOctree octree = new SimpleBitOctree();
+                    octree.setAll((x, y, z) -> ship.contains(baseX + x, baseY + y, baseZ + z));
+                    built[getSectionIndex(sectionX, sectionY, sectionZ)] = octree;
+                }
+            }
+        }
+        return built;
+    }
+
+    @Benchmark
+    public int get() {
+        int count = 0;
+        for (SimpleBitOctree octree : octrees) {
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        if (octree.get(x, y, z)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int forEachSetBit() {
+        final int[] count = new int[1];
+        for (SimpleBitOctree octree : octrees) {
+            octree.forEachSetBit((x, y, z, size) -> true, (x, y, z) -> count[0]++);
+        }
+        return count[0];
+    }
+
+    @Benchmark
+    public int isAnySetInRange() {
+        // Like a collision check of a 3x3x3 area around every block
+        int count = 0;
+        for (SimpleBitOctree octree : octrees) {
+            for (int x = 1; x < 15; x += 3) {
+                for (int y = 1; y < 15; y += 3) {
+                    for (int z = 1; z < 15; z += 3) {
+                        if (octree.isAnySetInRange(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private SimpleBitOctree getOctree(int sectionX, int sectionY, int sectionZ) {
+        return octrees[getSectionIndex(sectionX, sectionY, sectionZ)];
+    }
+
+    private int getSectionIndex(int sectionX, int sectionY, int sectionZ) {
+        return (sectionX * sectionsPerSide + sectionY) * sectionsPerSide + sectionZ;
+    }
+}
@@ -0,0 +1,95 @@
+package org.valkyrienskies.mod.common.util.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.SyntheticShip;
+import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSetAABB;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading ships with the {@link VSJacksonUtil} mappers: the whole {@link ShipData} with the packet mapper,
+ * like when a ship is sent to a player, and its block positions with the default mapper, like when they're saved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShipSerializationBenchmark {
+
+    @Param({SyntheticShip.BLOCK_COUNTS})
+    public int blockCount;
+
+    private ObjectMapper defaultMapper;
+    private ObjectMapper packetMapper;
+    private ShipData shipData;
+    private byte[] shipDataBytes;
+    private byte[] blockPositionsBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        defaultMapper = VSJacksonUtil.getDefaultMapper();
+        packetMapper = VSJacksonUtil.getPacketMapper();
+
+        final QueryableShipData queryableShipData = new QueryableShipData();
+        final VSChunkClaim chunkClaim = new ShipChunkAllocator().allocateNextChunkClaim();
+        final Vector3d position = new Vector3d(chunkClaim.getRegionCenter().getX(), 64,
+            chunkClaim.getRegionCenter().getZ());
+        shipData = ShipData.createData(queryableShipData.getAllShips(), "Benchmark", chunkClaim, new UUID(0, 1),
+            new ShipTransform(position, position), new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        queryableShipData.addShip(shipData);
+
+        final SyntheticShip ship = new SyntheticShip(blockCount);
+        final int offsetX = chunkClaim.getRegionCenter().getX() - ship.getSideLength() / 2;
+        final int offsetZ = chunkClaim.getRegionCenter().getZ() - ship.getSideLength() / 2;
+        for (int i = 0; i < ship.size(); i++) {
+            final int x = ship.getX(i) + offsetX, y = ship.getY(i) + 64, z = ship.getZ(i) + offsetZ;
+            shipData.blockPositions.add(x, y, z);
+            queryableShipData.claimChunk(shipData, x >> 4, z >> 4);
+        }
+
+        shipDataBytes = packetMapper.writeValueAsBytes(shipData);
+        blockPositionsBytes = defaultMapper.writeValueAsBytes(shipData.blockPositions);
+    }
+
+    @Benchmark
+    public byte[] writeShipData() throws IOException {
+        return packetMapper.writeValueAsBytes(shipData);
+    }
+
+    @Benchmark
+    public ShipData readShipData() throws IOException {
+        return packetMapper.readValue(shipDataBytes, ShipData.class);
+    }
+
+    @Benchmark
+    public byte[] writeBlockPositions() throws IOException {
+        return defaultMapper.writeValueAsBytes(shipData.blockPositions);
+    }
+
+    @Benchmark
+    public SmallBlockPosSetAABB readBlockPositions() throws IOException {
+        return defaultMapper.readValue(blockPositionsBytes, SmallBlockPosSetAABB.class);
+    }
+}
@@ -1,6 +1,7 @@
 package org.valkyrienskies.mixin.sponge_compatibility;
 
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
@@ -13,6 +14,8 @@ import org.spongepowered.common.bridge.world.chunk.ChunkBridge;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ShipDataMethods;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 
 import java.util.Optional;
 
@@ -27,10 +30,18 @@ public abstract class MixinChunkSponge {
 
     @Inject(method = "bridge$setBlockState", at = @At("HEAD"), remap = false)
     private void onPreSpongeBridgeSetBlockState(BlockPos pos, IBlockState newState, IBlockState currentState, BlockChangeFlag flag, CallbackInfoReturnable<IBlockState> cir) {
-        if (!world.isRemote) {
+        if (!world.isRemote && ShipChunkAllocator.isBlockInShipyard(pos)) {
             QueryableShipData queryableShipData = QueryableShipData.get(world);
             Optional<ShipData> shipDataOptional = queryableShipData.getShipFromChunk(pos.getX() >> 4, pos.getZ() >> 4);
-            shipDataOptional.ifPresent(shipData -> ShipDataMethods.onSetBlockState(shipData, pos, currentState, newState));
+            shipDataOptional.ifPresent(shipData -> {
+                queryableShipData.ensureBlockDataLoaded(shipData);
+                ShipDataMethods.onSetBlockState(shipData, pos, currentState, newState);
+                // Grow the chunk claim so that there's always room to build next to this block, same as MixinChunk
+                if (newState.getBlock() != Blocks.AIR) {
+                    ValkyrienUtils.getServerShipManager(world).claimChunksAround(shipData, pos.getX() >> 4,
+                        pos.getZ() >> 4);
+                }
+            });
         }
     }
 
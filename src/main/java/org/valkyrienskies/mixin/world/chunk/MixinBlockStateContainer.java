@@ -13,7 +13,7 @@ import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
 import org.valkyrienskies.mod.common.util.datastructures.SimpleBitOctree;
 
 @Mixin(BlockStateContainer.class)
-public class MixinBlockStateContainer implements ITerrainOctreeProvider {
+public abstract class MixinBlockStateContainer implements ITerrainOctreeProvider {
 
     @Shadow
     @Final
@@ -25,6 +25,9 @@ public class MixinBlockStateContainer implements ITerrainOctreeProvider {
     @Shadow
     public BitArray storage;
 
+    @Shadow
+    protected abstract IBlockState get(int index);
+
     /**
      * @author thebest108
      */
@@ -46,6 +49,12 @@ public class MixinBlockStateContainer implements ITerrainOctreeProvider {
         liquidOctree.set(x & 15, y & 15, z & 15, isStateLiquid);
     }
 
+    @Override
+    public void rebuildOctrees() {
+        solidOctree.setAll((x, y, z) -> get(x | z << 4 | y << 8).getMaterial().isSolid());
+        liquidOctree.setAll((x, y, z) -> get(x | z << 4 | y << 8).getMaterial().isLiquid());
+    }
+
     @Override
     public IBitOctree getSolidOctree() {
         return solidOctree;
@@ -2,6 +2,7 @@ package org.valkyrienskies.mixin.world.chunk;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
@@ -61,11 +62,19 @@ public abstract class MixinChunk {
      */
     @Inject(method = "setBlockState", at = @At("HEAD"))
     private void pre_setBlockState(BlockPos pos, IBlockState state, CallbackInfoReturnable<IBlockState> cir) {
-        if (!world.isRemote) {
-            IBlockState oldState = getBlockState(pos);
+        // Most chunks aren't in the shipyard, don't bother looking them up
+        if (!world.isRemote && ShipChunkAllocator.isChunkInShipyard(this.x, this.z)) {
             QueryableShipData queryableShipData = QueryableShipData.get(world);
-            Optional<ShipData> shipDataOptional = queryableShipData.getShipFromChunk(pos.getX() >> 4, pos.getZ() >> 4);
-            shipDataOptional.ifPresent(shipData -> ShipDataMethods.onSetBlockState(shipData, pos, oldState, state));
+            Optional<ShipData> shipDataOptional = queryableShipData.getShipFromChunk(this.x, this.z);
+            shipDataOptional.ifPresent(shipData -> {
+                IBlockState oldState = getBlockState(pos);
+                queryableShipData.ensureBlockDataLoaded(shipData);
+                ShipDataMethods.onSetBlockState(shipData, pos, oldState, state);
+                // Grow the chunk claim so that there's always room to build next to this block
+                if (state.getBlock() != Blocks.AIR) {
+                    ValkyrienUtils.getServerShipManager(world).claimChunksAround(shipData, x, z);
+                }
+            });
         }
     }
 
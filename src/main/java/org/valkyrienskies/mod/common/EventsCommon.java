@@ -225,6 +225,34 @@ public class EventsCommon {
             .ifPresent(physicsObject -> event.setResult(Result.ALLOW));
     }
 
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public static void onBlockBreak(BlockEvent.BreakEvent event) {
+        // Don't let players change the blocks of ships that are being assembled
+        if (isLockedByShipSpawn(event.getWorld(), event.getPos())) {
+            event.setCanceled(true);
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public static void onBlockPlace(BlockEvent.PlaceEvent event) {
+        if (isLockedByShipSpawn(event.getWorld(), event.getPos())) {
+            event.setCanceled(true);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onExplosionDetonate(ExplosionEvent.Detonate event) {
+        if (!event.getWorld().isRemote) {
+            event.getAffectedBlocks().removeIf(pos -> isLockedByShipSpawn(event.getWorld(), pos));
+        }
+    }
+
+    private static boolean isLockedByShipSpawn(World world, BlockPos pos) {
+        IPhysObjectWorld physObjectWorld = ((IHasShipManager) world).getManager();
+        return physObjectWorld instanceof WorldServerShipManager
+            && ((WorldServerShipManager) physObjectWorld).isBlockLockedByShipSpawn(pos);
+    }
+
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public static void onExplosionStart(ExplosionEvent.Start event) {
         // Only run on server side
@@ -234,6 +262,7 @@ public class EventsCommon {
             Optional<PhysicsObject> optionalPhysicsObject = ValkyrienUtils.getPhysoManagingBlock(event.getWorld(),
                     new BlockPos(event.getExplosion().getPosition()));
             if (optionalPhysicsObject.isPresent()) {
+                optionalPhysicsObject.get().getPhysicsCalculations().wakeUp();
                 return;
             }
             // Explosion radius
@@ -246,6 +275,7 @@ public class EventsCommon {
                     .getPhysObjectsInAABB(toCheck);
             // Process the explosion on the nearby ships
             for (PhysicsObject ship : shipsNear) {
+                ship.getPhysicsCalculations().wakeUp();
                 Vector3d inLocal = new Vector3d(center);
                 inLocal.mulPosition(ship.getShipTransform().getGlobalToSubspace());
 
@@ -25,6 +25,7 @@ import net.minecraftforge.fml.common.Mod.Instance;
 import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLFingerprintViolationEvent;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLModIdMappingEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
@@ -54,6 +55,7 @@ import org.valkyrienskies.mod.common.network.ShipIndexDataMessageHandler;
 import org.valkyrienskies.mod.common.network.ShipTransformUpdateMessage;
 import org.valkyrienskies.mod.common.network.ShipTransformUpdateMessageHandler;
 import org.valkyrienskies.mod.common.piloting.PilotControlsMessage;
+import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
 import org.valkyrienskies.mod.common.piloting.PilotControlsMessageHandler;
 import org.valkyrienskies.mod.common.ships.deprecated_api.VS_APIPhysicsEntityManager;
 import org.valkyrienskies.mod.common.tileentity.TileEntityBoatChair;
@@ -201,6 +203,14 @@ public class ValkyrienSkiesMod {
     @EventHandler
     public void postInit(FMLPostInitializationEvent event) {
         proxy.postInit(event);
+        // Every block has been registered by now
+        BlockPhysicsDetails.rebuildStateTable();
+    }
+
+    @EventHandler
+    public void onIdMapping(FMLModIdMappingEvent event) {
+        // The block state ids change when joining a server or loading a world with different block ids
+        BlockPhysicsDetails.rebuildStateTable();
     }
 
     @EventHandler
@@ -16,6 +16,7 @@ import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilityPro
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilityProviderTransient;
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilityStorage;
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilityTransientStorage;
+import org.valkyrienskies.mod.common.ships.ShipBlockDataStorage;
 
 import javax.annotation.Nonnull;
 
@@ -30,9 +31,14 @@ public class VSCapabilityRegistry {
 
     @SubscribeEvent
     public static void attachWorldCapabilities(AttachCapabilitiesEvent<World> event) {
+        final VSDefaultCapabilityProvider<VSWorldDataCapability> provider =
+            new VSDefaultCapabilityProvider<>(VS_WORLD_DATA);
+        if (!event.getObject().isRemote) {
+            provider.getCapability(VS_WORLD_DATA, null)
+                .setBlockDataStorage(ShipBlockDataStorage.forWorld(event.getObject()));
+        }
         event.addCapability(
-            new ResourceLocation(ValkyrienSkiesMod.MOD_ID, "world_data_capability"),
-            new VSDefaultCapabilityProvider<>(VS_WORLD_DATA));
+            new ResourceLocation(ValkyrienSkiesMod.MOD_ID, "world_data_capability"), provider);
     }
 
     @SubscribeEvent
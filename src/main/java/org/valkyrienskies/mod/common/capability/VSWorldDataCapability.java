@@ -1,14 +1,27 @@
 package org.valkyrienskies.mod.common.capability;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.util.EnumFacing;
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapability;
+import org.valkyrienskies.mod.common.ships.ShipBlockDataStorage;
 import org.valkyrienskies.mod.common.ships.ship_world.VSWorldData;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import javax.annotation.Nullable;
 
 /**
  * This sort of class basically only exists because Java generics are trash
+ * <p>
+ * The block positions of the ships aren't written with the rest of the world data, they're saved to their own files by
+ * the {@link ShipBlockDataStorage} of the world, which only writes the ships that changed.
  */
 public class VSWorldDataCapability extends VSDefaultCapability<VSWorldData> {
 
+    @Nullable
+    private ShipBlockDataStorage blockDataStorage;
+
     public VSWorldDataCapability(ObjectMapper mapper) {
         super(VSWorldData.class, VSWorldData::new, mapper);
     }
@@ -17,4 +30,35 @@ public class VSWorldDataCapability extends VSDefaultCapability<VSWorldData> {
         super(VSWorldData.class, VSWorldData::new);
     }
 
+    /**
+     * Only set on the server, the client doesn't save anything.
+     */
+    public void setBlockDataStorage(@Nullable ShipBlockDataStorage blockDataStorage) {
+        this.blockDataStorage = blockDataStorage;
+        get().getQueryableShipData().setBlockDataStorage(blockDataStorage);
+    }
+
+    @Nullable
+    @Override
+    public NBTTagByteArray writeNBT(EnumFacing side) {
+        if (blockDataStorage != null) {
+            blockDataStorage.saveChanged(get().getQueryableShipData());
+        }
+        return super.writeNBT(side);
+    }
+
+    @Override
+    protected ObjectMapper getWriteMapper() {
+        // Worlds saved before the block positions were stored separately are still read by the default mapper, and
+        // their block positions get moved to the separate files the first time they're saved.
+        return blockDataStorage != null ? VSJacksonUtil.getWorldIndexMapper() : getMapper();
+    }
+
+    @Override
+    public VSWorldData readNBT(NBTBase base, EnumFacing side) {
+        final VSWorldData worldData = super.readNBT(base, side);
+        worldData.getQueryableShipData().setBlockDataStorage(blockDataStorage);
+        return worldData;
+    }
+
 }
@@ -64,7 +64,7 @@ public abstract class VSDefaultCapability<K> {
         long time = System.currentTimeMillis();
         byte[] value;
         try {
-            value = getMapper().writeValueAsBytes(instance);
+            value = getWriteMapper().writeValueAsBytes(instance);
             log.debug("VS serialization took {} ms. Writing data of size {} KB. ({})",
                 System.currentTimeMillis() - time, value.length / Math.pow(2, 10),
                 instance.getClass().getSimpleName());
@@ -76,6 +76,13 @@ public abstract class VSDefaultCapability<K> {
         return new NBTTagByteArray(value);
     }
 
+    /**
+     * @return The mapper used to write the instance, the normal mapper is still used to read it.
+     */
+    protected ObjectMapper getWriteMapper() {
+        return mapper;
+    }
+
     public K readNBT(NBTBase base, EnumFacing side) {
         long time = System.currentTimeMillis();
 
@@ -0,0 +1,112 @@
+package org.valkyrienskies.mod.common.collision;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A growable list of collision contacts between a block in the world and a block in a ship, stored as a struct of
+ * primitive arrays so that adding and reading contacts never allocates once the buffer has grown large enough. Meant to
+ * be reused across physics ticks.
+ */
+public class CollisionContactBuffer {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] inWorldX, inWorldY, inWorldZ;
+    private int[] inLocalX, inLocalY, inLocalZ;
+    private int size;
+
+    public CollisionContactBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CollisionContactBuffer(int initialCapacity) {
+        this.inWorldX = new int[initialCapacity];
+        this.inWorldY = new int[initialCapacity];
+        this.inWorldZ = new int[initialCapacity];
+        this.inLocalX = new int[initialCapacity];
+        this.inLocalY = new int[initialCapacity];
+        this.inLocalZ = new int[initialCapacity];
+        this.size = 0;
+    }
+
+    public void add(int worldX, int worldY, int worldZ, int localX, int localY, int localZ) {
+        if (size == inWorldX.length) {
+            grow();
+        }
+        inWorldX[size] = worldX;
+        inWorldY[size] = worldY;
+        inWorldZ[size] = worldZ;
+        inLocalX[size] = localX;
+        inLocalY[size] = localY;
+        inLocalZ[size] = localZ;
+        size++;
+    }
+
+    private void grow() {
+        final int newCapacity = Math.max(DEFAULT_CAPACITY, inWorldX.length * 2);
+        inWorldX = Arrays.copyOf(inWorldX, newCapacity);
+        inWorldY = Arrays.copyOf(inWorldY, newCapacity);
+        inWorldZ = Arrays.copyOf(inWorldZ, newCapacity);
+        inLocalX = Arrays.copyOf(inLocalX, newCapacity);
+        inLocalY = Arrays.copyOf(inLocalY, newCapacity);
+        inLocalZ = Arrays.copyOf(inLocalZ, newCapacity);
+    }
+
+    /**
+     * Removes all contacts, but keeps the arrays around to be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shuffles the contacts in place. Processing the contacts in a random order is important to avoid biasing one side
+     * over another, because otherwise one side would slowly sink into the ground.
+     */
+    public void shuffle(Random random) {
+        for (int i = size - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            swap(inWorldX, i, j);
+            swap(inWorldY, i, j);
+            swap(inWorldZ, i, j);
+            swap(inLocalX, i, j);
+            swap(inLocalY, i, j);
+            swap(inLocalZ, i, j);
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        final int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    public int getInWorldX(int index) {
+        return inWorldX[index];
+    }
+
+    public int getInWorldY(int index) {
+        return inWorldY[index];
+    }
+
+    public int getInWorldZ(int index) {
+        return inWorldZ[index];
+    }
+
+    public int getInLocalX(int index) {
+        return inLocalX[index];
+    }
+
+    public int getInLocalY(int index) {
+        return inLocalY[index];
+    }
+
+    public int getInLocalZ(int index) {
+        return inLocalZ[index];
+    }
+}
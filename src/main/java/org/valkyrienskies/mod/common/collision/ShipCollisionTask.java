@@ -1,7 +1,5 @@
 package org.valkyrienskies.mod.common.collision;
 
-import net.minecraft.block.state.IBlockState;
-import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.chunk.Chunk;
@@ -10,17 +8,12 @@ import org.joml.Vector3d;
 import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
-import org.valkyrienskies.mod.common.util.VSIterationUtils;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
 import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
 import valkyrienwarfare.api.TransformType;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ThreadLocalRandom;
 
 public class ShipCollisionTask implements Callable<Void> {
 
@@ -29,60 +22,61 @@ public class ShipCollisionTask implements Callable<Void> {
     private final int taskStartIndex;
     private final int tasksToCheck;
     private final MutableBlockPos mutablePos;
-    private final MutableBlockPos inLocalPos;
     private final Vector3d inWorld;
-    private final List<CollisionInformationHolder> collisionInformationGenerated;
-    private IBlockState inWorldState;
-    // public TIntArrayList foundPairs = new TIntArrayList();
-
-    public ShipCollisionTask(WorldPhysicsCollider toTask, int taskStartIndex) {
+    // Reused across ticks, owned by toTask.
+    private final CollisionContactBuffer collisionInformationGenerated;
+    // Shuffles the contacts, seeded again every tick by the physics thread so that the order is repeatable.
+    private final Random shuffleRandom;
+    private long shuffleSeed;
+    // The time it took to run call(), in nanoseconds. Used by the physics profiler.
+    private long computeTimeNano;
+
+    public ShipCollisionTask(WorldPhysicsCollider toTask, int taskStartIndex, CollisionContactBuffer contactBuffer) {
         this.taskStartIndex = taskStartIndex;
         this.toTask = toTask;
         this.mutablePos = new MutableBlockPos();
-        this.inLocalPos = new MutableBlockPos();
         this.inWorld = new Vector3d();
-        this.collisionInformationGenerated = new ArrayList<>();
-        this.inWorldState = null;
-
-        int size = toTask.getCachedPotentialHitSize();
-        if (taskStartIndex + MAX_TASKS_TO_CHECK > size + 1) {
-            tasksToCheck = size + 1 - taskStartIndex;
-        } else {
-            tasksToCheck = MAX_TASKS_TO_CHECK;
-        }
+        this.collisionInformationGenerated = contactBuffer;
+        this.shuffleRandom = new Random();
+        this.tasksToCheck = Math.min(MAX_TASKS_TO_CHECK, toTask.getCachedPotentialHitSize() - taskStartIndex);
     }
 
     @Override
     public Void call() {
-        for (int index = taskStartIndex; index < tasksToCheck + 1; index++) {
+        final long startTime = System.nanoTime();
+        collisionInformationGenerated.clear();
+        // The potential hits may have been removed since this task was created
+        final int endIndex = Math.min(taskStartIndex + tasksToCheck, toTask.getCachedPotentialHitSize());
+        for (int index = taskStartIndex; index < endIndex; index++) {
             int integer = toTask.getCachedPotentialHit(index);
             processNumber(integer);
         }
 
         // Shuffle this so that WorldPhysicsCollider performs better
-        Collections.shuffle(collisionInformationGenerated, ThreadLocalRandom.current());
+        shuffleRandom.setSeed(shuffleSeed);
+        collisionInformationGenerated.shuffle(shuffleRandom);
 
+        computeTimeNano = System.nanoTime() - startTime;
         return null;
     }
 
-    public List<CollisionInformationHolder> getCollisionInformationGenerated() {
-        return collisionInformationGenerated;
+    /**
+     * Sets the seed of the shuffle of the next {@link #call()}. Must be called before submitting this task.
+     */
+    public void setShuffleSeed(long shuffleSeed) {
+        this.shuffleSeed = shuffleSeed;
     }
 
     /**
-     * Returns an iterator that loops over the collision information in quasi-random order. This is
-     * important to avoid biasing one side over another, because otherwise one side would slowly
-     * sink into the ground.
-     *
-     * @return
+     * The collisions found by the last call of {@link #call()}, in quasi-random order. This is important to avoid
+     * biasing one side over another, because otherwise one side would slowly sink into the ground.
      */
-    public Iterator<CollisionInformationHolder> getCollisionInformationIterator() {
-        return collisionInformationGenerated.iterator();
+    public CollisionContactBuffer getCollisionInformationGenerated() {
+        return collisionInformationGenerated;
     }
 
     private void processNumber(int integer) {
         SpatialDetector.setPosWithRespectTo(integer, toTask.getCenterPotentialHit(), mutablePos);
-        inWorldState = toTask.getParent().getCachedSurroundingChunks().getBlockState(mutablePos);
 
         inWorld.x = mutablePos.getX() + .5;
         inWorld.y = mutablePos.getY() + .5;
@@ -96,13 +90,19 @@ public class ShipCollisionTask implements Callable<Void> {
         int midZ = MathHelper.floor(inWorld.z + .5D);
 
         // Check the 27 possible positions
-        VSIterationUtils.expand3d(midX, midY, midZ, (x, y, z) -> checkPosition(x, y, z, integer));
+        for (int x = midX - 1; x <= midX + 1; x++) {
+            for (int y = midY - 1; y <= midY + 1; y++) {
+                for (int z = midZ - 1; z <= midZ + 1; z++) {
+                    checkPosition(x, y, z);
+                }
+            }
+        }
     }
 
     // Temp variable used in checkPosition()
     private final Vector3d temp0 = new Vector3d();
 
-    public void checkPosition(int x, int y, int z, int positionHash) {
+    public void checkPosition(int x, int y, int z) {
         if (!toTask.getParent().getChunkClaim().containsChunk(x >> 4, z >> 4)) {
             return;
         }
@@ -115,24 +115,15 @@ public class ShipCollisionTask implements Callable<Void> {
             IBitOctree octree = provider.getSolidOctree();
 
             if (octree.get(x & 15, y & 15, z & 15)) {
-                IBlockState inLocalState = chunkIn.getBlockState(x, y, z);
-
-                inLocalPos.setPos(x, y, z);
-
                 final ShipTransform shipTransform = toTask.getParent().getShipTransformationManager().getCurrentPhysicsTransform();
-                final Vector3dc shipBlockInGlobal = shipTransform.transformPositionNew(temp0.set(inLocalPos.getX() + .5, inLocalPos.getY() + .5, inLocalPos.getZ() + .5), TransformType.SUBSPACE_TO_GLOBAL);
+                final Vector3dc shipBlockInGlobal = shipTransform.transformPositionNew(temp0.set(x + .5, y + .5, z + .5), TransformType.SUBSPACE_TO_GLOBAL);
 
                 final double distanceSq = shipBlockInGlobal.distanceSquared(mutablePos.getX() + .5, mutablePos.getY() + .5, mutablePos.getZ() + .5);
 
                 // If the distance between the center of two cubes is greater than sqrt(3) then it is impossible for those cubes to touch.
                 // If it is less than sqrt(3) then collision is possible.
                 if (distanceSq < 3) {
-                    CollisionInformationHolder holder = new CollisionInformationHolder(
-                        mutablePos.getX(),
-                        mutablePos.getY(), mutablePos.getZ(), inLocalPos.getX(), inLocalPos.getY(),
-                        inLocalPos.getZ(), inWorldState, inLocalState);
-
-                    collisionInformationGenerated.add(holder);
+                    collisionInformationGenerated.add(mutablePos.getX(), mutablePos.getY(), mutablePos.getZ(), x, y, z);
                 }
             }
         }
@@ -142,4 +133,8 @@ public class ShipCollisionTask implements Callable<Void> {
         return toTask;
     }
 
+    public long getComputeTimeNano() {
+        return computeTimeNano;
+    }
+
 }
@@ -0,0 +1,297 @@
+package org.valkyrienskies.mod.common.collision;
+
+import gnu.trove.list.array.TIntArrayList;
+import lombok.Getter;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.joml.Matrix3dc;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Finds the colliding blocks between two ships whose AABBs overlap, and then applies collision impulses to both of
+ * them. {@link #call()} is safe to run in parallel with other tasks because it only reads from the ships, the impulses
+ * are applied afterwards by {@link #applyCollisionImpulses()} on the physics thread.
+ */
+public class ShipShipCollisionTask implements Callable<Void> {
+
+    // Determines how 'bouncy' collisions are
+    private static final double COEFFICIENT_OF_RESTITUTION = .3D;
+    // Below this speed our collision coefficient of restitution is zero.
+    private static final double RESTITUTION_SLOP = .5D;
+    // How quickly penetrating blocks are pushed apart, in 1/seconds.
+    private static final double PENETRATION_CORRECTION = 2D;
+    private static final double KINETIC_FRICTION_COEFFICIENT = WorldPhysicsCollider.KINETIC_FRICTION_COEFFICIENT;
+    // The ints stored per contact in contacts, the positions of the block in shipA and the block in shipB.
+    private static final int CONTACT_SIZE = 6;
+
+    // We iterate over the blocks of shipA, so shipA should be the ship with less blocks.
+    @Getter
+    private final PhysicsObject shipA, shipB;
+    private final AxisAlignedBB overlapBB;
+    // Transforms positions from the subspace of shipA into the subspace of shipB
+    private final Matrix4d shipAToShipB;
+    private final TIntArrayList contacts;
+    // The time it took to run call(), in nanoseconds. Used by the physics profiler.
+    @Getter
+    private long computeTimeNano;
+
+    // Temp variables
+    private final Vector3d temp0 = new Vector3d();
+    private final Vector3d temp1 = new Vector3d();
+    private final Vector3d temp2 = new Vector3d();
+    private final Vector3d temp3 = new Vector3d();
+    private final Vector3d temp4 = new Vector3d();
+    private final Vector3d temp5 = new Vector3d();
+
+    public ShipShipCollisionTask(PhysicsObject first, AxisAlignedBB firstBB, PhysicsObject second,
+        AxisAlignedBB secondBB) {
+        if (first.getBlockPositions().size() <= second.getBlockPositions().size()) {
+            this.shipA = first;
+            this.shipB = second;
+        } else {
+            this.shipA = second;
+            this.shipB = first;
+        }
+        this.overlapBB = firstBB.intersect(secondBB);
+        this.shipAToShipB = new Matrix4d(getTransform(shipB).getTransformMatrix(TransformType.GLOBAL_TO_SUBSPACE))
+            .mul(getTransform(shipA).getTransformMatrix(TransformType.SUBSPACE_TO_GLOBAL));
+        this.contacts = new TIntArrayList();
+    }
+
+    @Override
+    public Void call() {
+        final long startTime = System.nanoTime();
+        final AxisAlignedBB shipABlocksBB = shipA.getBlockPositions().makeAABB();
+        if (shipABlocksBB != null) {
+            // Only look at the blocks of shipA that are within the AABB overlap of the two ships.
+            final AxisAlignedBB overlapInShipA = new Polygon(overlapBB, getTransform(shipA), TransformType.GLOBAL_TO_SUBSPACE)
+                .getEnclosedAABB()
+                .grow(1)
+                .intersect(shipABlocksBB.expand(1, 1, 1));
+            findContacts(overlapInShipA);
+        }
+        computeTimeNano = System.nanoTime() - startTime;
+        return null;
+    }
+
+    private void findContacts(AxisAlignedBB region) {
+        final int minX = MathHelper.floor(region.minX);
+        final int minY = Math.max(0, MathHelper.floor(region.minY));
+        final int minZ = MathHelper.floor(region.minZ);
+        final int maxX = MathHelper.floor(region.maxX);
+        final int maxY = Math.min(255, MathHelper.floor(region.maxY));
+        final int maxZ = MathHelper.floor(region.maxZ);
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                if (!shipA.getChunkClaim().containsChunk(chunkX, chunkZ)) {
+                    continue;
+                }
+                final Chunk chunk = shipA.getChunkAt(chunkX, chunkZ);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
+                    final ExtendedBlockStorage storage = chunk.storageArrays[storageY];
+                    if (storage == null) {
+                        continue;
+                    }
+                    final IBitOctree octree = ((ITerrainOctreeProvider) storage.data).getSolidOctree();
+                    final int startX = Math.max(minX, chunkX << 4), endX = Math.min(maxX, (chunkX << 4) + 15);
+                    final int startY = Math.max(minY, storageY << 4), endY = Math.min(maxY, (storageY << 4) + 15);
+                    final int startZ = Math.max(minZ, chunkZ << 4), endZ = Math.min(maxZ, (chunkZ << 4) + 15);
+                    for (int x = startX; x <= endX; x++) {
+                        for (int y = startY; y <= endY; y++) {
+                            for (int z = startZ; z <= endZ; z++) {
+                                if (octree.get(x & 15, y & 15, z & 15)) {
+                                    checkBlock(x, y, z);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkBlock(int x, int y, int z) {
+        // Interior blocks can't touch anything
+        if (isSolid(shipA, x + 1, y, z) && isSolid(shipA, x - 1, y, z) && isSolid(shipA, x, y + 1, z)
+            && isSolid(shipA, x, y - 1, z) && isSolid(shipA, x, y, z + 1) && isSolid(shipA, x, y, z - 1)) {
+            return;
+        }
+        final Vector3d inShipB = shipAToShipB.transformPosition(temp0.set(x + .5, y + .5, z + .5));
+        final int midX = MathHelper.floor(inShipB.x);
+        final int midY = MathHelper.floor(inShipB.y);
+        final int midZ = MathHelper.floor(inShipB.z);
+
+        // Check the 27 possible positions
+        for (int bX = midX - 1; bX <= midX + 1; bX++) {
+            for (int bY = midY - 1; bY <= midY + 1; bY++) {
+                for (int bZ = midZ - 1; bZ <= midZ + 1; bZ++) {
+                    // If the distance between the center of two cubes is greater than sqrt(3) then it is impossible
+                    // for those cubes to touch.
+                    if (inShipB.distanceSquared(bX + .5, bY + .5, bZ + .5) < 3 && isSolid(shipB, bX, bY, bZ)) {
+                        contacts.add(x);
+                        contacts.add(y);
+                        contacts.add(z);
+                        contacts.add(bX);
+                        contacts.add(bY);
+                        contacts.add(bZ);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isSolid(PhysicsObject ship, int x, int y, int z) {
+        if (y < 0 || y > 255 || !ship.getChunkClaim().containsChunk(x >> 4, z >> 4)) {
+            return false;
+        }
+        final Chunk chunk = ship.getChunkAt(x >> 4, z >> 4);
+        if (chunk == null) {
+            return false;
+        }
+        final ExtendedBlockStorage storage = chunk.storageArrays[y >> 4];
+        if (storage == null) {
+            return false;
+        }
+        return ((ITerrainOctreeProvider) storage.data).getSolidOctree().get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Applies the impulses for the contacts found by {@link #call()} to both ships. Must be run on the physics thread
+     * after call() has finished.
+     */
+    public void applyCollisionImpulses() {
+        final int contactCount = contacts.size() / CONTACT_SIZE;
+        if (contactCount == 0) {
+            return;
+        }
+        // Start at a random contact, so that one side doesn't always get resolved first.
+        final int startIndex = shipA.getPhysicsCalculations().getPhysicsRandom().nextInt(contactCount);
+        for (int i = 0; i < contactCount; i++) {
+            final int offset = ((startIndex + i) % contactCount) * CONTACT_SIZE;
+            handleContact(contacts.get(offset), contacts.get(offset + 1), contacts.get(offset + 2),
+                contacts.get(offset + 3), contacts.get(offset + 4), contacts.get(offset + 5));
+        }
+        contacts.resetQuick();
+    }
+
+    private void handleContact(int aX, int aY, int aZ, int bX, int bY, int bZ) {
+        // Find the separating axis in the subspace of shipB, by treating the block of shipA as if it was aligned with
+        // the block of shipB. The axis with the least penetration wins, unless the block of shipB has a neighbor on
+        // that side.
+        final Vector3d inShipB = shipAToShipB.transformPosition(temp0.set(aX + .5, aY + .5, aZ + .5));
+        final double dX = inShipB.x - (bX + .5);
+        final double dY = inShipB.y - (bY + .5);
+        final double dZ = inShipB.z - (bZ + .5);
+
+        double penetration = Double.MAX_VALUE;
+        final Vector3d normal = temp1.zero();
+        if (1 - Math.abs(dX) < penetration && !isSolid(shipB, bX + (dX > 0 ? 1 : -1), bY, bZ)) {
+            penetration = 1 - Math.abs(dX);
+            normal.set(Math.signum(dX), 0, 0);
+        }
+        if (1 - Math.abs(dY) < penetration && !isSolid(shipB, bX, bY + (dY > 0 ? 1 : -1), bZ)) {
+            penetration = 1 - Math.abs(dY);
+            normal.set(0, Math.signum(dY), 0);
+        }
+        if (1 - Math.abs(dZ) < penetration && !isSolid(shipB, bX, bY, bZ + (dZ > 0 ? 1 : -1))) {
+            penetration = 1 - Math.abs(dZ);
+            normal.set(0, 0, Math.signum(dZ));
+        }
+        if (penetration <= 0 || penetration == Double.MAX_VALUE || normal.lengthSquared() == 0) {
+            return;
+        }
+
+        // The normal points from shipB towards shipA, in global coordinates.
+        final ShipTransform transformA = getTransform(shipA);
+        final ShipTransform transformB = getTransform(shipB);
+        transformB.transformDirection(normal, TransformType.SUBSPACE_TO_GLOBAL);
+
+        // Use the midpoint between the two block centers as the contact point.
+        final Vector3d contactPoint = transformA.transformPositionNew(temp2.set(aX + .5, aY + .5, aZ + .5),
+            TransformType.SUBSPACE_TO_GLOBAL);
+        contactPoint.add(transformB.transformPositionNew(temp3.set(bX + .5, bY + .5, bZ + .5),
+            TransformType.SUBSPACE_TO_GLOBAL)).mul(.5);
+
+        final PhysicsCalculations calcA = shipA.getPhysicsCalculations();
+        final PhysicsCalculations calcB = shipB.getPhysicsCalculations();
+        final Vector3d inBodyA = contactPoint.sub(transformA.getPosX(), transformA.getPosY(), transformA.getPosZ(),
+            temp3);
+        final Vector3d inBodyB = contactPoint.sub(transformB.getPosX(), transformB.getPosY(), transformB.getPosZ(),
+            temp4);
+
+        final Vector3d relativeVelocity = calcA.getVelocityAtPoint(inBodyA, temp5)
+            .sub(calcB.getVelocityAtPoint(inBodyB, temp2));
+        final double normalVelocity = relativeVelocity.dot(normal);
+
+        // Aim to separate the ships, bouncing if they hit fast enough, and pushing them apart if they overlap.
+        double targetNormalVelocity = penetration * PENETRATION_CORRECTION;
+        if (normalVelocity < -RESTITUTION_SLOP) {
+            targetNormalVelocity -= normalVelocity * COEFFICIENT_OF_RESTITUTION;
+        }
+        final double impulseMagnitude = (targetNormalVelocity - normalVelocity)
+            / getEffectiveInvMass(calcA, calcB, inBodyA, inBodyB, normal);
+        if (impulseMagnitude <= 0) {
+            return;
+        }
+        applyImpulse(calcA, calcB, inBodyA, inBodyB, normal, impulseMagnitude);
+
+        // Then apply kinetic friction along the tangential velocity, without letting it reverse the tangential velocity.
+        final Vector3d tangent = relativeVelocity.fma(-normalVelocity, normal);
+        final double tangentSpeed = tangent.length();
+        if (tangentSpeed > PhysicsCalculations.EPSILON) {
+            tangent.div(-tangentSpeed);
+            final double frictionMagnitude = Math.min(KINETIC_FRICTION_COEFFICIENT * impulseMagnitude,
+                tangentSpeed / getEffectiveInvMass(calcA, calcB, inBodyA, inBodyB, tangent));
+            applyImpulse(calcA, calcB, inBodyA, inBodyB, tangent, frictionMagnitude);
+        }
+    }
+
+    /**
+     * @return The inverse of the mass the two ships have at the contact point along direction.
+     */
+    private double getEffectiveInvMass(PhysicsCalculations calcA, PhysicsCalculations calcB, Vector3d inBodyA,
+        Vector3d inBodyB, Vector3d direction) {
+        return calcA.getInvMass() + calcB.getInvMass()
+            + getAngularInvMass(calcA.getPhysInvMOITensor(), inBodyA, direction)
+            + getAngularInvMass(calcB.getPhysInvMOITensor(), inBodyB, direction);
+    }
+
+    private double getAngularInvMass(Matrix3dc invMOITensor, Vector3d inBody, Vector3d direction) {
+        final Vector3d cross = inBody.cross(direction, temp0);
+        invMOITensor.transform(cross);
+        return cross.cross(inBody).dot(direction);
+    }
+
+    /**
+     * Applies impulseMagnitude along direction to shipA, and the opposite impulse to shipB.
+     */
+    private void applyImpulse(PhysicsCalculations calcA, PhysicsCalculations calcB, Vector3d inBodyA,
+        Vector3d inBodyB, Vector3d direction, double impulseMagnitude) {
+        calcA.getLinearVelocity().fma(impulseMagnitude * calcA.getInvMass(), direction);
+        calcB.getLinearVelocity().fma(-impulseMagnitude * calcB.getInvMass(), direction);
+
+        final Vector3d angularImpulse = inBodyA.cross(direction, temp0).mul(impulseMagnitude);
+        calcA.getAngularVelocity().add(calcA.getPhysInvMOITensor().transform(angularImpulse));
+        inBodyB.cross(direction, angularImpulse).mul(-impulseMagnitude);
+        calcB.getAngularVelocity().add(calcB.getPhysInvMOITensor().transform(angularImpulse));
+    }
+
+    private static ShipTransform getTransform(PhysicsObject ship) {
+        return ship.getShipTransformationManager().getCurrentPhysicsTransform();
+    }
+}
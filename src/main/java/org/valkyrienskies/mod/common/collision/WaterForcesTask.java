@@ -1,6 +1,7 @@
 package org.valkyrienskies.mod.common.collision;
 
 import gnu.trove.list.TIntList;
+import lombok.Getter;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
@@ -34,11 +35,15 @@ public class WaterForcesTask implements Callable<Void> {
     // The radius, in meters, of the AABB of water blocks and terrain blocks.
     private static final double AABB_RADIUS = .5;
 
+    @Getter
     private final PhysicsObject parent;
     private final BlockPos colliderCenter;
     private final TIntList waterHitsToCheck;
     private final int minHitIndex, maxHitIndex;
     private final Vector3d addedForce, addedTorque;
+    // The time it took to run call(), in nanoseconds. Used by the physics profiler.
+    @Getter
+    private long computeTimeNano;
 
     public WaterForcesTask(final PhysicsObject parent, final BlockPos colliderCenter, final TIntList waterHitsToCheck,
                            final int minHitIndex, final int maxHitIndex) {
@@ -64,6 +69,7 @@ public class WaterForcesTask implements Callable<Void> {
      */
     @Override
     public Void call() {
+        final long startTime = System.nanoTime();
         final BlockPos.MutableBlockPos currentPos = new BlockPos.MutableBlockPos();
         final ShipTransform physicsTransform = parent.getShipTransformationManager().getCurrentPhysicsTransform();
         final PhysicsCalculations physicsEngine = parent.getPhysicsCalculations();
@@ -155,6 +161,7 @@ public class WaterForcesTask implements Callable<Void> {
             }
         }
 
+        computeTimeNano = System.nanoTime() - startTime;
         return null;
     }
 
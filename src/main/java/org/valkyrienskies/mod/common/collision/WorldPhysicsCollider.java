@@ -2,12 +2,9 @@ package org.valkyrienskies.mod.common.collision;
 
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
@@ -18,6 +15,7 @@ import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunks;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
@@ -26,9 +24,8 @@ import valkyrienwarfare.api.TransformType;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Random;
 import java.util.function.Consumer;
 
 /**
@@ -55,9 +52,9 @@ public class WorldPhysicsCollider {
 
     // Greater coefficients result in more friction
     public static final double KINETIC_FRICTION_COEFFICIENT = .15D;
-    // Use ThreadLocalRandom because its much faster than Random.
-    private final ThreadLocalRandom rand;
     private final Collection<ShipCollisionTask> tasks;
+    // One contact buffer per collision task, reused across ticks so that finding contacts doesn't allocate.
+    private final List<CollisionContactBuffer> contactBuffers;
     private final PhysicsCalculations calculator;
     private final PhysicsObject parent;
     private final TIntList cachedPotentialHits;
@@ -72,8 +69,8 @@ public class WorldPhysicsCollider {
         this.parent = calculations.getParent();
         this.cachedPotentialHits = new TIntArrayList();
         this.cachedHitsToRemove = new TIntArrayList();
-        this.rand = ThreadLocalRandom.current();
         this.tasks = new ArrayList<>();
+        this.contactBuffers = new ArrayList<>();
         this.ticksSinceCacheUpdate = 25D;
         this.updateCollisionTasksCache = true;
         this.centerPotentialHit = null;
@@ -98,40 +95,43 @@ public class WorldPhysicsCollider {
             int index = 0;
             int size = cachedPotentialHits.size();
             while (index < size) {
-                ShipCollisionTask task = new ShipCollisionTask(this, index);
+                final int taskIndex = tasks.size();
+                if (taskIndex == contactBuffers.size()) {
+                    contactBuffers.add(new CollisionContactBuffer());
+                }
+                ShipCollisionTask task = new ShipCollisionTask(this, index, contactBuffers.get(taskIndex));
                 index += ShipCollisionTask.MAX_TASKS_TO_CHECK;
                 tasks.add(task);
             }
             updateCollisionTasksCache = false;
         }
-        cachedPotentialHits.shuffle(rand);
+        final Random random = calculator.getPhysicsRandom();
+        cachedPotentialHits.shuffle(random);
+        // The tasks run in parallel, so each of them gets its own seed from here rather than sharing the random
+        for (ShipCollisionTask task : tasks) {
+            task.setShuffleSeed(random.nextLong());
+        }
         toAdd.addAll(tasks);
     }
 
+    /**
+     * Throws away the potential collisions, so that they're found again on the next tick.
+     */
+    public void resetCollisionCache() {
+        cachedPotentialHits.clear();
+        cachedHitsToRemove.resetQuick();
+        ticksSinceCacheUpdate = 25D;
+        updateCollisionTasksCache = true;
+        centerPotentialHit = null;
+    }
+
     public void processCollisionTask(ShipCollisionTask task) {
-        MutableBlockPos inWorldPos = new MutableBlockPos();
-        MutableBlockPos inLocalPos = new MutableBlockPos();
-
-        Iterator<CollisionInformationHolder> collisionIterator = task
-            .getCollisionInformationIterator();
-
-        while (collisionIterator.hasNext()) {
-            CollisionInformationHolder info = collisionIterator.next();
-            inWorldPos.setPos(info.inWorldX, info.inWorldY, info.inWorldZ);
-            inLocalPos.setPos(info.inLocalX, info.inLocalY, info.inLocalZ);
-            handleActualCollision(inWorldPos, inLocalPos, info.inWorldState,
-                info.inLocalState);
+        final CollisionContactBuffer contacts = task.getCollisionInformationGenerated();
+        for (int i = 0; i < contacts.size(); i++) {
+            handleActualCollision(contacts.getInWorldX(i), contacts.getInWorldY(i), contacts.getInWorldZ(i),
+                contacts.getInLocalX(i), contacts.getInLocalY(i), contacts.getInLocalZ(i));
         }
-
-        /*
-         * for (CollisionInformationHolder info :
-         * task.getCollisionInformationGenerated()) { inWorldPos.setPos(info.inWorldX,
-         * info.inWorldY, info.inWorldZ); inLocalPos.setPos(info.inLocalX,
-         * info.inLocalY, info.inLocalZ); handleActualCollision(info.collider,
-         * inWorldPos, inLocalPos, info.inWorldState, info.inLocalState); }
-         */
-
-        task.getCollisionInformationGenerated().clear();
+        contacts.clear();
     }
 
     private static final byte[] combinationsOfOnes = new byte[] {
@@ -145,28 +145,35 @@ public class WorldPhysicsCollider {
             -1, -1, -1
     };
 
-    // Temp variables
+    // Temp variables, so that resolving collisions doesn't allocate. Only used by the physics thread.
     private final Vector3d temp0 = new Vector3d();
     private final Vector3d temp1 = new Vector3d();
     private final Vector3d temp2 = new Vector3d();
     private final Vector3d temp3 = new Vector3d();
+    private final Vector3d inBodyTemp = new Vector3d();
+    private final Vector3d velocityAtPointTemp = new Vector3d();
+    private final Vector3d crossTemp = new Vector3d();
+    private final Vector3d impulseTemp = new Vector3d();
+    private final Vector3d contactNormalTemp = new Vector3d();
+    private final Vector3d frictionTemp = new Vector3d();
+    private final Vector3d deltaVelocityTemp = new Vector3d();
+    private final Vector3d deltaAngularVelocityTemp = new Vector3d();
 
     private static final double SPHERE_RADIUS = .25;
 
     // Takes the collision data along all axes generated prior, and creates the
     // ideal value that is to be followed
-    private boolean handleActualCollision(BlockPos inWorldPos,
-        BlockPos inLocalPos,
-        IBlockState inWorldState, IBlockState inLocalState) {
+    private boolean handleActualCollision(final int inWorldX, final int inWorldY, final int inWorldZ,
+        final int inLocalX, final int inLocalY, final int inLocalZ) {
 
         final ShipTransform parentTransform = parent.getShipTransformationManager().getCurrentPhysicsTransform();
 
-        final boolean isXUpSolid = isBlockInWorldSolidFast(inWorldPos.getX() + 1, inWorldPos.getY(), inWorldPos.getZ());
-        final boolean isXDownSolid = isBlockInWorldSolidFast(inWorldPos.getX() - 1, inWorldPos.getY(), inWorldPos.getZ());
-        final boolean isYUpSolid = isBlockInWorldSolidFast(inWorldPos.getX(), inWorldPos.getY() + 1, inWorldPos.getZ());
-        final boolean isYDownSolid = isBlockInWorldSolidFast(inWorldPos.getX(), inWorldPos.getY() - 1, inWorldPos.getZ());
-        final boolean isZUpSolid = isBlockInWorldSolidFast(inWorldPos.getX(), inWorldPos.getY(), inWorldPos.getZ() + 1);
-        final boolean isZDownSolid = isBlockInWorldSolidFast(inWorldPos.getX(), inWorldPos.getY(), inWorldPos.getZ() - 1);
+        final boolean isXUpSolid = isBlockInWorldSolidFast(inWorldX + 1, inWorldY, inWorldZ);
+        final boolean isXDownSolid = isBlockInWorldSolidFast(inWorldX - 1, inWorldY, inWorldZ);
+        final boolean isYUpSolid = isBlockInWorldSolidFast(inWorldX, inWorldY + 1, inWorldZ);
+        final boolean isYDownSolid = isBlockInWorldSolidFast(inWorldX, inWorldY - 1, inWorldZ);
+        final boolean isZUpSolid = isBlockInWorldSolidFast(inWorldX, inWorldY, inWorldZ + 1);
+        final boolean isZDownSolid = isBlockInWorldSolidFast(inWorldX, inWorldY, inWorldZ - 1);
 
         if (isXUpSolid && isXDownSolid && isYUpSolid && isYDownSolid && isZUpSolid && isZDownSolid) {
             // Interior block, skip
@@ -179,18 +186,18 @@ public class WorldPhysicsCollider {
             final int zAxis = combinationsOfOnes[i * 3 + 2];
 
             // Position of the World's block in global
-            final Vector3dc shipBlockInLocal = temp0.set(inLocalPos.getX() + .5 + xAxis * SPHERE_RADIUS, inLocalPos.getY() + .5 + yAxis * SPHERE_RADIUS, inLocalPos.getZ() + .5 + zAxis * SPHERE_RADIUS);
+            final Vector3dc shipBlockInLocal = temp0.set(inLocalX + .5 + xAxis * SPHERE_RADIUS, inLocalY + .5 + yAxis * SPHERE_RADIUS, inLocalZ + .5 + zAxis * SPHERE_RADIUS);
             // Position of the World's block in local
             final Vector3dc shipBlockInGlobal = parentTransform.transformPositionNew(temp1.set(shipBlockInLocal), TransformType.SUBSPACE_TO_GLOBAL);
 
-            double xUpOffset = .5 - (shipBlockInGlobal.x() - (inWorldPos.getX() + .5)) + SPHERE_RADIUS;
-            double xDownOffset = .5 - ((inWorldPos.getX() + .5) - shipBlockInGlobal.x()) + SPHERE_RADIUS;
+            double xUpOffset = .5 - (shipBlockInGlobal.x() - (inWorldX + .5)) + SPHERE_RADIUS;
+            double xDownOffset = .5 - ((inWorldX + .5) - shipBlockInGlobal.x()) + SPHERE_RADIUS;
 
-            double yUpOffset = .5 - (shipBlockInGlobal.y() - (inWorldPos.getY() + .5)) + SPHERE_RADIUS;
-            double yDownOffset = .5 - ((inWorldPos.getY() + .5) - shipBlockInGlobal.y()) + SPHERE_RADIUS;
+            double yUpOffset = .5 - (shipBlockInGlobal.y() - (inWorldY + .5)) + SPHERE_RADIUS;
+            double yDownOffset = .5 - ((inWorldY + .5) - shipBlockInGlobal.y()) + SPHERE_RADIUS;
 
-            double zUpOffset = .5 - (shipBlockInGlobal.z() - (inWorldPos.getZ() + .5)) + SPHERE_RADIUS;
-            double zDownOffset = .5 - ((inWorldPos.getZ() + .5) - shipBlockInGlobal.z()) + SPHERE_RADIUS;
+            double zUpOffset = .5 - (shipBlockInGlobal.z() - (inWorldZ + .5)) + SPHERE_RADIUS;
+            double zDownOffset = .5 - ((inWorldZ + .5) - shipBlockInGlobal.z()) + SPHERE_RADIUS;
 
 
             if (isXUpSolid) {
@@ -270,31 +277,15 @@ public class WorldPhysicsCollider {
         if (posY < 0 || posY >= 256) {
             return false;
         }
-        final ChunkCache surroundingChunks = parent.getCachedSurroundingChunks();
-        final int relativeChunkX = (posX >> 4) - surroundingChunks.chunkX;
-        final int relativeChunkZ = (posZ >> 4) - surroundingChunks.chunkZ;
-        if (relativeChunkX < 0 || relativeChunkX >= surroundingChunks.chunkArray.length || relativeChunkZ < 0 || relativeChunkZ >= surroundingChunks.chunkArray[relativeChunkX].length) {
-            return false;
-        }
-        final Chunk chunk = surroundingChunks.chunkArray[relativeChunkX][relativeChunkZ];
-        if (chunk == null) {
-            return false;
-        }
-        final ExtendedBlockStorage blockStorage = chunk.storageArrays[posY >> 4];
-        if (blockStorage == null) {
-            return false;
-        }
-        final IBitOctree octree = ITerrainOctreeProvider.class.cast(blockStorage.data).getSolidOctree();
-        return octree.get(posX & 15, posY & 15, posZ & 15);
+        return parent.getCachedSurroundingChunks().isSolid(posX, posY, posZ);
     }
 
     private void handleCollision(final Vector3dc collisionPos, final Vector3dc axis, final Vector3dc offsetVector, final double impulseApplied) {
-        Vector3d inBody = new Vector3d(
+        final Vector3d inBody = inBodyTemp.set(
                 collisionPos.x() - parent.getShipTransform().getPosX(),
                 collisionPos.y() - parent.getShipTransform().getPosY(),
                 collisionPos.z() - parent.getShipTransform().getPosZ());
-        Vector3d momentumAtPoint = calculator
-                .getVelocityAtPoint(inBody);
+        final Vector3d momentumAtPoint = calculator.getVelocityAtPoint(inBody, velocityAtPointTemp);
         calculateCollisionImpulseForce(inBody, momentumAtPoint, axis, offsetVector, false,
                 false, impulseApplied);
     }
@@ -313,13 +304,11 @@ public class WorldPhysicsCollider {
 
         velocityAtPointOfCollision.add(offsetVector.x() * multiplier, offsetVector.y() * multiplier, offsetVector.z() * multiplier);
 
-
-
-        Vector3d firstCross = inBody.cross(axis, new Vector3d());
+        final Vector3d firstCross = inBody.cross(axis, crossTemp);
 
         calculator.getPhysInvMOITensor().transform(firstCross);
 
-        Vector3d secondCross = firstCross.cross(inBody);
+        final Vector3d secondCross = firstCross.cross(inBody);
 
         double impulseMagnitude = -velocityAtPointOfCollision.dot(axis)
             / (calculator.getInvMass() + secondCross.dot(axis));
@@ -334,32 +323,29 @@ public class WorldPhysicsCollider {
             // impulseMagnitude *= .5D;
         }
 
-        Vector3d collisionImpulseForce = axis.mul(impulseMagnitude, new Vector3d());
+        final Vector3d collisionImpulseForce = axis.mul(impulseMagnitude, impulseTemp);
 
         // This is just an optimized way to add this force as quickly as possible.
         // Added collisionImpulseForce.dot(inBody) > 0 to force all collision to move in
         // the direction towards the in body vector.
         if (collisionImpulseForce.dot(offsetVector) < 0 && collisionImpulseForce.dot(inBody) < 0) {
-            // collisionImpulseForce.multiply(1.8D);
-            double collisionVelocity = velocityAtPointOfCollision.dot(axis);
-
             addFrictionToNormalForce(velocityAtPointOfCollision, collisionImpulseForce, inBody);
-            calculator.getLinearVelocity().add(collisionImpulseForce.mul(calculator.getInvMass(), new Vector3d()));
-            Vector3d thirdCross = inBody.cross(collisionImpulseForce, new Vector3d());
+            calculator.getLinearVelocity().fma(calculator.getInvMass(), collisionImpulseForce);
+            final Vector3d thirdCross = inBody.cross(collisionImpulseForce, crossTemp);
 
             calculator.getPhysInvMOITensor().transform(thirdCross);
 
-            calculator.getAngularVelocity().add(thirdCross, calculator.getAngularVelocity());
+            calculator.getAngularVelocity().add(thirdCross);
         }
     }
 
     // Applies the friction force generated by the collision.
     // The magnitude of this vector must be adjusted to minimize energy
     private void addFrictionToNormalForce(Vector3dc momentumAtPoint, Vector3d impulseVector, Vector3dc inBody) {
-        Vector3d contactNormal = new Vector3d(impulseVector);
+        final Vector3d contactNormal = contactNormalTemp.set(impulseVector);
         contactNormal.normalize();
 
-        Vector3d frictionVector = new Vector3d(momentumAtPoint);
+        final Vector3d frictionVector = frictionTemp.set(momentumAtPoint);
         frictionVector.normalize();
         frictionVector.mul(impulseVector.length() * KINETIC_FRICTION_COEFFICIENT);
 
@@ -369,26 +355,25 @@ public class WorldPhysicsCollider {
 
         // Remove all friction components along the impulse vector
         double frictionImpulseDot = frictionVector.dot(contactNormal);
-        Vector3d toRemove = contactNormal.mul(frictionImpulseDot, new Vector3d());
-        frictionVector.sub(toRemove);
+        frictionVector.fma(-frictionImpulseDot, contactNormal);
 
-        double inertiaScalarAlongAxis = parent.getPhysicsCalculations()
-            .getInertiaAlongRotationAxis();
         // The change in velocity vector
-        Vector3dc initialVelocity = parent.getPhysicsCalculations().getLinearVelocity();
+        final Vector3dc initialVelocity = calculator.getLinearVelocity();
+        final Vector3dc initialAngularVelocity = calculator.getAngularVelocity();
+        // Same as PhysicsCalculations.getInertiaAlongRotationAxis(), but without allocating
+        final double inertiaScalarAlongAxis = calculator.getPhysMOITensor()
+            .transform(crossTemp.set(initialAngularVelocity).normalize()).length();
         // Don't forget to multiply by delta t
-        Vector3d deltaVelocity = new Vector3d(frictionVector);
-        deltaVelocity.mul(parent.getPhysicsCalculations().getInvMass() * parent.getPhysicsCalculations()
-                .getDragForPhysTick());
+        final Vector3d deltaVelocity = deltaVelocityTemp.set(frictionVector);
+        deltaVelocity.mul(calculator.getInvMass() * calculator.getDragForPhysTick());
 
         double A = initialVelocity.lengthSquared();
         double B = 2 * initialVelocity.dot(deltaVelocity);
         double C = deltaVelocity.lengthSquared();
 
-        Vector3d initialAngularVelocity = new Vector3d(parent.getPhysicsCalculations().getAngularVelocity());
-        Vector3d deltaAngularVelocity = inBody.cross(frictionVector, new Vector3d());
+        final Vector3d deltaAngularVelocity = inBody.cross(frictionVector, deltaAngularVelocityTemp);
         // This might need to be 1 / inertiaScalarAlongAxis
-        deltaAngularVelocity.mul(parent.getPhysicsCalculations().getDragForPhysTick() / inertiaScalarAlongAxis);
+        deltaAngularVelocity.mul(calculator.getDragForPhysTick() / inertiaScalarAlongAxis);
 
         double D = initialAngularVelocity.lengthSquared();
         double E = 2 * deltaAngularVelocity.dot(initialAngularVelocity);
@@ -402,35 +387,30 @@ public class WorldPhysicsCollider {
 
         // The coefficients of energy as a function of energyScaleFactor in the form (A
         // + B * k + c * k^2)
-        double firstCoefficient =
-            A * parent.getPhysicsCalculations().getMass() + D * inertiaScalarAlongAxis;
-        double secondCoefficient =
-            B * parent.getPhysicsCalculations().getMass() + E * inertiaScalarAlongAxis;
-        double thirdCoefficient =
-            C * parent.getPhysicsCalculations().getMass() + F * inertiaScalarAlongAxis;
+        double firstCoefficient = A * calculator.getMass() + D * inertiaScalarAlongAxis;
+        double secondCoefficient = B * calculator.getMass() + E * inertiaScalarAlongAxis;
+        double thirdCoefficient = C * calculator.getMass() + F * inertiaScalarAlongAxis;
 
         double scaleFactor = -secondCoefficient / (thirdCoefficient * 2);
 
-        if (new Double(scaleFactor).isNaN()) {
+        if (Double.isNaN(scaleFactor)) {
             scaleFactor = 0;
         } else {
             scaleFactor = Math.max(0, Math.min(scaleFactor, 1));
             frictionVector.mul(scaleFactor);
         }
 
-        // System.out.println(scaleFactor);
         // ===== Friction Scaling Code End =====
 
         impulseVector.add(frictionVector);
     }
 
-    // TODO: The greatest physics lag starts here.
     private void updatePotentialCollisionCache() {
         ticksSinceCacheUpdate = 0D;
         // This is being used to occasionally offset the collision cache update, in the
         // hopes this will prevent multiple ships from all updating
         // in the same tick
-        if (Math.random() > .5) {
+        if (calculator.getPhysicsRandom().nextBoolean()) {
             ticksSinceCacheUpdate -= .05D;
         }
         int oldSize = cachedPotentialHits.size();
@@ -445,6 +425,12 @@ public class WorldPhysicsCollider {
         }
 
         final AxisAlignedBB shipBB = shipBBOriginal.grow(3);
+        // The blocks of the ship in subspace, used to skip the octree nodes that are too far from the ship's oriented
+        // bounding box to collide with it.
+        final AxisAlignedBB shipBlocksBB = parent.getBlockPositions().makeAABB();
+        if (shipBlocksBB == null) {
+            return;
+        }
 
         // Use the physics tick collision box instead of the game tick collision box.
         // We are using grow(3) on both because for some reason if we don't then ships start
@@ -471,7 +457,7 @@ public class WorldPhysicsCollider {
             (min.getY() + max.getY()) / 2D,
             (min.getZ() + max.getZ()) / 2D);
 
-        ChunkCache cache = parent.getCachedSurroundingChunks();
+        SurroundingChunks cache = parent.getCachedSurroundingChunks();
 
         if (cache == null) {
             System.err.println(
@@ -509,7 +495,7 @@ public class WorldPhysicsCollider {
                 // i.getSecond(), minX, minY, minZ, maxX, maxY, maxZ);
                 updateCollisionCacheSequential(cache, i.getLeft(), i.getMiddle(), minX, minY, minZ,
                     maxX, maxY, maxZ,
-                    shipBB, i.getRight());
+                    shipBB, shipBlocksBB, i.getRight());
             };
             ValkyrienSkiesMod.getPhysicsThreadPool().submit(
                 () -> tasks.parallelStream().forEach(consumer))
@@ -527,55 +513,68 @@ public class WorldPhysicsCollider {
             for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
                 for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
                     updateCollisionCacheSequential(cache, chunkX, chunkZ, minX, minY, minZ, maxX,
-                        maxY, maxZ, shipBB, cachedPotentialHits);
+                        maxY, maxZ, shipBB, shipBlocksBB, cachedPotentialHits);
                 }
             }
         }
     }
 
-    private void updateCollisionCacheSequential(ChunkCache cache, int chunkX, int chunkZ, int minX,
+    private void updateCollisionCacheSequential(SurroundingChunks cache, int chunkX, int chunkZ, int minX,
         int minY, int minZ,
-        int maxX, int maxY, int maxZ, AxisAlignedBB shipBB, TIntList output) {
-        int arrayChunkX = chunkX - cache.chunkX;
-        int arrayChunkZ = chunkZ - cache.chunkZ;
+        int maxX, int maxY, int maxZ, AxisAlignedBB shipBB, AxisAlignedBB shipBlocksBB, TIntList output) {
+        final Chunk chunk = cache.getChunk(chunkX, chunkZ);
 
-        if (!(arrayChunkX < 0 || arrayChunkZ < 0 || arrayChunkX > cache.chunkArray.length - 1
-            || arrayChunkZ > cache.chunkArray[0].length - 1)
-            && cache.chunkArray[arrayChunkX][arrayChunkZ] != null) {
+        if (chunk != null) {
 
             Vector3d temp1 = new Vector3d();
             Vector3d temp2 = new Vector3d();
             Vector3d temp3 = new Vector3d();
+            Vector3d nodeCenter = new Vector3d();
+            final ShipTransform physicsTransform = parent.getShipTransformationManager().getCurrentPhysicsTransform();
 
-            Chunk chunk = cache.chunkArray[arrayChunkX][arrayChunkZ];
             for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
                 ExtendedBlockStorage extendedblockstorage = chunk.storageArrays[storageY];
                 if (extendedblockstorage != null) {
-                    int minStorageX = chunkX << 4;
-                    int minStorageY = storageY << 4;
-                    int minStorageZ = chunkZ << 4;
-
-                    int maxStorageX = minStorageX + 16;
-                    int maxStorageY = minStorageY + 16;
-                    int maxStorageZ = minStorageZ + 16;
+                    final int minStorageX = chunkX << 4;
+                    final int minStorageY = storageY << 4;
+                    final int minStorageZ = chunkZ << 4;
 
                     final ITerrainOctreeProvider provider = (ITerrainOctreeProvider) extendedblockstorage.data;
                     final IBitOctree octree = provider.getSolidOctree();
 
-                    for (int x = minStorageX; x < maxStorageX; x++) {
-                        for (int y = minStorageY; y < maxStorageY; y++) {
-                            for (int z = minStorageZ; z < maxStorageZ; z++) {
-                                checkForCollision(x, y, z, extendedblockstorage, octree, temp1,
-                                    temp2, temp3,
-                                    shipBB, output);
-                            }
-                        }
-                    }
+                    // Only visit the solid blocks, skipping the empty octree nodes and the nodes that are too far
+                    // from the ship.
+                    octree.forEachSetBit(
+                        (x, y, z, size) -> isOctreeNodeNearShip(minStorageX + x, minStorageY + y, minStorageZ + z,
+                            size, shipBB, shipBlocksBB, physicsTransform, nodeCenter),
+                        (x, y, z) -> checkForCollision(minStorageX + x, minStorageY + y, minStorageZ + z,
+                            extendedblockstorage, octree, temp1, temp2, temp3, shipBB, output));
                 }
             }
         }
     }
 
+    /**
+     * @return False if no block within the cube of the given size at (x, y, z) could possibly collide with the ship.
+     */
+    private static boolean isOctreeNodeNearShip(int x, int y, int z, int size, AxisAlignedBB shipBB,
+        AxisAlignedBB shipBlocksBB, ShipTransform physicsTransform, Vector3d nodeCenter) {
+        // checkForCollision() only considers blocks whose centers are inside shipBB.
+        if (x + size <= shipBB.minX || x >= shipBB.maxX || y + size <= shipBB.minY || y >= shipBB.maxY
+            || z + size <= shipBB.minZ || z >= shipBB.maxZ) {
+            return false;
+        }
+        // Then test the bounding sphere of the node against the blocks of the ship in subspace, padded by how far
+        // checkForCollision() searches around every block.
+        final double halfSize = size / 2D;
+        final double radius = halfSize * Math.sqrt(3) + RANGE_CHECK + 1;
+        nodeCenter.set(x + halfSize, y + halfSize, z + halfSize);
+        physicsTransform.transformPosition(nodeCenter, TransformType.GLOBAL_TO_SUBSPACE);
+        return nodeCenter.x + radius >= shipBlocksBB.minX && nodeCenter.x - radius <= shipBlocksBB.maxX + 1
+            && nodeCenter.y + radius >= shipBlocksBB.minY && nodeCenter.y - radius <= shipBlocksBB.maxY + 1
+            && nodeCenter.z + radius >= shipBlocksBB.minZ && nodeCenter.z - radius <= shipBlocksBB.maxZ + 1;
+    }
+
     private void checkForCollision(int x, int y, int z, ExtendedBlockStorage storage,
         IBitOctree octree, Vector3d inLocal,
         Vector3d inBody,
@@ -2,19 +2,20 @@ package org.valkyrienskies.mod.common.collision;
 
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.Triple;
 import org.joml.Vector3d;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunks;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
 import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
@@ -22,10 +23,13 @@ import valkyrienwarfare.api.TransformType;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Consumer;
 
 /**
  * This collider adds the water buoyancy and drag forces to a ship.
+ * <p>
+ * The water blocks near the ship are cached per chunk section. A cached section is only scanned again once the ship
+ * has moved or rotated enough to change which of its water blocks are near the ship, or once it gets too old, so a ship
+ * floating in place barely scans anything.
  */
 public class WorldWaterCollider {
 
@@ -37,21 +41,35 @@ public class WorldWaterCollider {
     // Time in seconds between collision cache updates. A value of .1 means we
     // update the collision cache every 1/10th of a second.
     private static final double CACHE_UPDATE_PERIOD = .1;
+    // A cached section is scanned again once some point in it moved this many blocks relative to the ship since it was
+    // last scanned. RANGE_CHECK is larger than the range WaterForcesTask actually looks in, this eats into that margin.
+    private static final double CACHE_DRIFT_TOLERANCE = .25;
+    // Cached sections are scanned again after between half of this and this many cache updates, to pick up changes to
+    // the water. The randomness spreads the rescans out over several updates.
+    private static final int MAX_SECTION_AGE = 10;
 
     private static final int MAX_HITS_PER_TASK = 500;
 
     private final PhysicsCalculations calculator;
     private final PhysicsObject parent;
     private final TIntList cachedPotentialHits;
+    // The water blocks near the ship, by chunk section
+    private final TLongObjectMap<CachedSection> sectionCache;
     private double secondsSinceCollisionCacheUpdate;
     private BlockPos centerPotentialHit;
+    private int cacheUpdateIndex;
+    // The blocks of the ship when the section cache was made, it is thrown away when they change.
+    private AxisAlignedBB cachedShipBlocksBB;
+    private int cachedShipBlockCount;
 
     public WorldWaterCollider(PhysicsCalculations calculations) {
         this.calculator = calculations;
         this.parent = calculations.getParent();
         this.cachedPotentialHits = new TIntArrayList();
+        this.sectionCache = new TLongObjectHashMap<>();
         this.secondsSinceCollisionCacheUpdate = 2500; // Any number large than CACHE_UPDATE_PERIOD works
         this.centerPotentialHit = null;
+        this.cacheUpdateIndex = 0;
     }
 
     public void tickUpdatingTheCollisionCache() {
@@ -61,6 +79,19 @@ public class WorldWaterCollider {
         }
     }
 
+    /**
+     * Throws away the cached water blocks and sections, so that they're found again on the next tick.
+     */
+    public void resetCollisionCache() {
+        cachedPotentialHits.clear();
+        sectionCache.clear();
+        secondsSinceCollisionCacheUpdate = 2500;
+        centerPotentialHit = null;
+        cacheUpdateIndex = 0;
+        cachedShipBlocksBB = null;
+        cachedShipBlockCount = 0;
+    }
+
     /**
      * Adds the water buoyancy and water drag forces to the ship.
      */
@@ -69,7 +100,8 @@ public class WorldWaterCollider {
 
         for (int i = 0; i < cachedPotentialHits.size(); i += MAX_HITS_PER_TASK) {
             final int minHitIndex = i;
-            final int maxHitIndex = Math.min(minHitIndex + MAX_HITS_PER_TASK, cachedPotentialHits.size() - 1);
+            // maxHitIndex is inclusive
+            final int maxHitIndex = Math.min(minHitIndex + MAX_HITS_PER_TASK, cachedPotentialHits.size()) - 1;
             final WaterForcesTask waterForcesTask = new WaterForcesTask(parent, centerPotentialHit, cachedPotentialHits, minHitIndex, maxHitIndex);
             waterForcesTasks.add(waterForcesTask);
         }
@@ -81,18 +113,28 @@ public class WorldWaterCollider {
         secondsSinceCollisionCacheUpdate = 0;
         // This is being used to occasionally offset the collision cache update, in the hopes this will prevent multiple
         // ships from all updating in the same tick
-        if (Math.random() > .5) {
+        if (calculator.getPhysicsRandom().nextBoolean()) {
             secondsSinceCollisionCacheUpdate -= .01;
         }
 
         cachedPotentialHits.clear();
 
         AxisAlignedBB shipBBOriginal = parent.getPhysicsTransformAABB();
+        final AxisAlignedBB shipBlocksBB = parent.getBlockPositions().makeAABB();
 
-        if (shipBBOriginal == null) {
+        if (shipBBOriginal == null || shipBlocksBB == null) {
+            sectionCache.clear();
             return;
         }
 
+        // The cached sections only know which water blocks were near the old blocks of the ship
+        final int shipBlockCount = parent.getBlockPositions().size();
+        if (!shipBlocksBB.equals(cachedShipBlocksBB) || shipBlockCount != cachedShipBlockCount) {
+            sectionCache.clear();
+            cachedShipBlocksBB = shipBlocksBB;
+            cachedShipBlockCount = shipBlockCount;
+        }
+
         // We are using grow(3) because its good.
         final AxisAlignedBB shipBB = shipBBOriginal.grow(3);
 
@@ -101,6 +143,7 @@ public class WorldWaterCollider {
 
         // Ship is outside of world blockSpace, just skip this
         if (collisionBB.maxY < 0 || collisionBB.minY > 255) {
+            sectionCache.clear();
             return;
         }
 
@@ -114,7 +157,7 @@ public class WorldWaterCollider {
             (min.getY() + max.getY()) / 2.0,
             (min.getZ() + max.getZ()) / 2.0);
 
-        final ChunkCache cache = parent.getCachedSurroundingChunks();
+        final SurroundingChunks cache = parent.getCachedSurroundingChunks();
 
         if (cache == null) {
             System.err.println(
@@ -127,178 +170,292 @@ public class WorldWaterCollider {
         final int chunkMinZ = min.getZ() >> 4;
         final int chunkMaxZ = (max.getZ() >> 4) + 1;
 
-        final int minX = min.getX();
-        final int minY = min.getY();
-        final int minZ = min.getZ();
-        final int maxX = max.getX();
-        final int maxY = max.getY();
-        final int maxZ = max.getZ();
-
-        // More multithreading!
-        if (VSConfig.MULTITHREADING_SETTINGS.multithreadCollisionCacheUpdate &&
-            parent.getBlockPositions().size() > 100) {
-
-            final List<Triple<Integer, Integer, TIntList>> tasks = new ArrayList<>();
+        // Cast to double to avoid overflow errors
+        final double size = ((double) (chunkMaxX - chunkMinX)) * ((double) (chunkMaxZ - chunkMinZ));
+        if (size > 300000) {
+            // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
+            return;
+        }
 
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    tasks.add(new ImmutableTriple<>(chunkX, chunkZ, new TIntArrayList()));
+        cacheUpdateIndex++;
+        final ShipTransform physicsTransform = parent.getShipTransformationManager().getCurrentPhysicsTransform();
+        final Vector3d temp1 = new Vector3d();
+        final Vector3d temp2 = new Vector3d();
+
+        // Find the sections that have to be scanned again, and keep the rest as they are
+        final List<CachedSection> sectionsToScan = new ArrayList<>();
+        for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
+            for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
+                for (int storageY = min.getY() >> 4; storageY <= max.getY() >> 4; storageY++) {
+                    final long sectionKey = getSectionKey(chunkX, storageY, chunkZ);
+                    CachedSection section = sectionCache.get(sectionKey);
+                    if (section == null) {
+                        section = new CachedSection(chunkX, storageY, chunkZ);
+                        sectionCache.put(sectionKey, section);
+                        sectionsToScan.add(section);
+                    } else if (cacheUpdateIndex >= section.expiresAtUpdateIndex
+                        || hasSectionDrifted(section, physicsTransform, temp1, temp2)) {
+                        sectionsToScan.add(section);
+                    }
+                    section.seenAtUpdateIndex = cacheUpdateIndex;
                 }
             }
+        }
+
+        // Decided here rather than in scanSection(), which may run in parallel, so that the random draws are repeatable
+        for (final CachedSection section : sectionsToScan) {
+            section.expiresAtUpdateIndex = cacheUpdateIndex + MAX_SECTION_AGE / 2
+                + calculator.getPhysicsRandom().nextInt(MAX_SECTION_AGE / 2 + 1);
+        }
 
-            Consumer<Triple<Integer, Integer, TIntList>> consumer = i -> updateCollisionCacheSequential(cache, i.getLeft(), i.getMiddle(), minX, minY, minZ,
-                maxX, maxY, maxZ,
-                shipBB, i.getRight());
+        // More multithreading!
+        if (VSConfig.MULTITHREADING_SETTINGS.multithreadCollisionCacheUpdate &&
+            parent.getBlockPositions().size() > 100 && sectionsToScan.size() > 1) {
             ValkyrienSkiesMod.getPhysicsThreadPool().submit(
-                () -> tasks.parallelStream().forEach(consumer))
+                () -> sectionsToScan.parallelStream().forEach(section -> scanSection(cache, section, shipBB, physicsTransform)))
             .join();
-
-            tasks.forEach(task -> cachedPotentialHits.addAll(task.getRight()));
         } else {
-            // Cast to double to avoid overflow errors
-            final double size = ((double) (chunkMaxX - chunkMinX)) * ((double) (chunkMaxZ - chunkMinZ));
-            if (size > 300000) {
-                // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
-                return;
+            for (final CachedSection section : sectionsToScan) {
+                scanSection(cache, section, shipBB, physicsTransform);
             }
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    updateCollisionCacheSequential(cache, chunkX, chunkZ, minX, minY, minZ, maxX,
-                        maxY, maxZ, shipBB, cachedPotentialHits);
-                }
+        }
+
+        // Forget the sections that are too far from the ship now, then collect the water blocks of the rest
+        sectionCache.retainEntries((sectionKey, section) -> section.seenAtUpdateIndex == cacheUpdateIndex);
+        sectionCache.forEachValue(section -> {
+            final int minSectionX = section.chunkX << 4;
+            final int minSectionY = section.storageY << 4;
+            final int minSectionZ = section.chunkZ << 4;
+            for (int i = 0; i < section.waterHits.size(); i++) {
+                final int localIndex = section.waterHits.get(i);
+                cachedPotentialHits.add(SpatialDetector.getHashWithRespectTo(minSectionX + (localIndex & 15),
+                    minSectionY + ((localIndex >> 4) & 15), minSectionZ + (localIndex >> 8), centerPotentialHit));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @return True if some point in the section moved more than {@link #CACHE_DRIFT_TOLERANCE} relative to the ship
+     * since the section was scanned.
+     */
+    private static boolean hasSectionDrifted(CachedSection section, ShipTransform physicsTransform,
+        Vector3d temp1, Vector3d temp2) {
+        if (section.scannedTransform == physicsTransform) {
+            return false;
+        }
+        // How much a point moves in subspace is an affine function of its position, so it moves the most at one of
+        // the corners of the section.
+        for (int corner = 0; corner < 8; corner++) {
+            temp1.set((section.chunkX << 4) + ((corner & 1) << 4), (section.storageY << 4) + ((corner & 2) << 3),
+                (section.chunkZ << 4) + ((corner & 4) << 2));
+            temp2.set(temp1);
+            section.scannedTransform.transformPosition(temp1, TransformType.GLOBAL_TO_SUBSPACE);
+            physicsTransform.transformPosition(temp2, TransformType.GLOBAL_TO_SUBSPACE);
+            if (temp1.distanceSquared(temp2) > CACHE_DRIFT_TOLERANCE * CACHE_DRIFT_TOLERANCE) {
+                return true;
             }
         }
+        return false;
     }
 
-    private void updateCollisionCacheSequential(ChunkCache cache, int chunkX, int chunkZ, int minX,
-        int minY, int minZ,
-        int maxX, int maxY, int maxZ, AxisAlignedBB shipBB, TIntList output) {
-        int arrayChunkX = chunkX - cache.chunkX;
-        int arrayChunkZ = chunkZ - cache.chunkZ;
+    private void scanSection(SurroundingChunks cache, CachedSection section, AxisAlignedBB shipBB,
+        ShipTransform physicsTransform) {
+        section.waterHits.clear();
+        section.scannedTransform = physicsTransform;
+
+        final ExtendedBlockStorage extendedblockstorage = cache.getSection(section.chunkX, section.storageY,
+            section.chunkZ);
 
-        if (!(arrayChunkX < 0 || arrayChunkZ < 0 || arrayChunkX > cache.chunkArray.length - 1
-            || arrayChunkZ > cache.chunkArray[0].length - 1)
-            && cache.chunkArray[arrayChunkX][arrayChunkZ] != null) {
+        if (extendedblockstorage != null) {
 
             final Vector3d temp1 = new Vector3d();
             final Vector3d temp2 = new Vector3d();
+            final Vector3d nodeCenter = new Vector3d();
+
+            final int minStorageX = section.chunkX << 4;
+            final int minStorageY = section.storageY << 4;
+            final int minStorageZ = section.chunkZ << 4;
+
+            ITerrainOctreeProvider provider = (ITerrainOctreeProvider) extendedblockstorage.data;
+            IBitOctree octree = provider.getLiquidOctree();
+            // Only visit the water blocks, skipping the empty octree nodes and the nodes that have no ship blocks
+            // near them.
+            octree.forEachSetBit(
+                (x, y, z, size) -> isOctreeNodeNearShip(minStorageX + x, minStorageY + y, minStorageZ + z, size,
+                    shipBB, physicsTransform, nodeCenter),
+                (x, y, z) -> {
+                    if (checkIfCollidesWithinRangeCheckRadius(minStorageX + x, minStorageY + y, minStorageZ + z,
+                        physicsTransform, temp1, temp2, shipBB)) {
+                        section.waterHits.add(x | (y << 4) | (z << 8));
+                    }
+                });
+        }
+    }
 
-            Chunk chunk = cache.chunkArray[arrayChunkX][arrayChunkZ];
-            for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
-                ExtendedBlockStorage extendedblockstorage = chunk.storageArrays[storageY];
-                if (extendedblockstorage != null) {
-                    int minStorageX = chunkX << 4;
-                    int minStorageY = storageY << 4;
-                    int minStorageZ = chunkZ << 4;
-
-                    int maxStorageX = minStorageX + 15;
-                    int maxStorageY = Math.min(maxY, minStorageY + 15);
-                    int maxStorageZ = minStorageZ + 15;
-
-                    ITerrainOctreeProvider provider = (ITerrainOctreeProvider) extendedblockstorage.data;
-                    IBitOctree octree = provider.getLiquidOctree();
-                    for (int x = minStorageX; x <= maxStorageX; x++) {
-                        for (int y = minStorageY; y <= maxStorageY; y++) {
-                            for (int z = minStorageZ; z <= maxStorageZ; z++) {
-                                checkIfCollidesWithinRangeCheckRadius(x, y, z, octree, temp1, temp2, shipBB, output);
-                            }
-                        }
+    /**
+     * @return False if none of the water blocks in the cube of the given size at (x, y, z) can be within
+     * {@link #RANGE_CHECK} of a block of the ship.
+     */
+    private boolean isOctreeNodeNearShip(int x, int y, int z, int size, AxisAlignedBB shipBB,
+        ShipTransform physicsTransform, Vector3d nodeCenter) {
+        // checkIfCollidesWithinRangeCheckRadius() only considers water whose centers are inside shipBB.
+        if (x + size <= shipBB.minX || x >= shipBB.maxX || y + size <= shipBB.minY || y >= shipBB.maxY
+            || z + size <= shipBB.minZ || z >= shipBB.maxZ) {
+            return false;
+        }
+        if (size < 4) {
+            // Checking the blocks of a 2x2x2 node one by one is just as fast
+            return true;
+        }
+        // Look for ship blocks in the subspace AABB of the bounding sphere of the node, padded by the range check.
+        // Ocean water mostly comes in full nodes, so this throws away most of the water around a large hull at once.
+        final double halfSize = size / 2D;
+        final double radius = halfSize * Math.sqrt(3) + RANGE_CHECK;
+        nodeCenter.set(x + halfSize, y + halfSize, z + halfSize);
+        physicsTransform.transformPosition(nodeCenter, TransformType.GLOBAL_TO_SUBSPACE);
+        return isShipSolidInRange(MathHelper.floor(nodeCenter.x - radius), MathHelper.floor(nodeCenter.y - radius),
+            MathHelper.floor(nodeCenter.z - radius), MathHelper.floor(nodeCenter.x + radius),
+            MathHelper.floor(nodeCenter.y + radius), MathHelper.floor(nodeCenter.z + radius));
+    }
+
+    /**
+     * @return True if the ship has a solid block in the subspace range from min to max inclusive.
+     */
+    private boolean isShipSolidInRange(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (maxY < 0 || minY > 255) {
+            return false;
+        }
+        minY = Math.max(minY, 0);
+        maxY = Math.min(maxY, 255);
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                if (!parent.getChunkClaim().containsChunk(chunkX, chunkZ)) {
+                    continue;
+                }
+                final Chunk chunk = parent.getChunkAt(chunkX, chunkZ);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
+                    final ExtendedBlockStorage storage = chunk.storageArrays[storageY];
+                    if (storage == null) {
+                        continue;
+                    }
+                    final IBitOctree solidOctree = ((ITerrainOctreeProvider) storage.getData()).getSolidOctree();
+                    if (solidOctree.isAnySetInRange(Math.max(minX - (chunkX << 4), 0),
+                        Math.max(minY - (storageY << 4), 0), Math.max(minZ - (chunkZ << 4), 0),
+                        Math.min(maxX - (chunkX << 4), 15), Math.min(maxY - (storageY << 4), 15),
+                        Math.min(maxZ - (chunkZ << 4), 15))) {
+                        return true;
                     }
                 }
             }
         }
+        return false;
     }
 
     /**
-     * If there is a block within a radius of {@link #RANGE_CHECK}
+     * @return True if there is a ship block within a radius of {@link #RANGE_CHECK} of the water block at (x, y, z)
      */
-    private void checkIfCollidesWithinRangeCheckRadius(final int x, final int y, final int z,
-                                                       final IBitOctree octree, final Vector3d inLocal, final Vector3d inBody,
-                                                       final AxisAlignedBB shipBB, final TIntList output) {
-        if (octree.get(x & 15, y & 15, z & 15)) {
-            inLocal.x = x + .5;
-            inLocal.y = y + .5;
-            inLocal.z = z + .5;
-
-            if (inLocal.x > shipBB.minX && inLocal.x < shipBB.maxX && inLocal.y > shipBB.minY
-                && inLocal.y < shipBB.maxY
-                && inLocal.z > shipBB.minZ && inLocal.z < shipBB.maxZ) {
-                parent.getShipTransformationManager().getCurrentPhysicsTransform()
-                    .transformPosition(inLocal, TransformType.GLOBAL_TO_SUBSPACE);
-
-                inLocal.sub(parent.getCenterCoord(), inBody);
-
-                int minX, minY, minZ, maxX, maxY, maxZ;
-
-                minX = MathHelper.floor(inLocal.x - RANGE_CHECK);
-                maxX = MathHelper.floor(inLocal.x + RANGE_CHECK);
-
-                minY = MathHelper.floor(inLocal.y - RANGE_CHECK);
-                maxY = MathHelper.floor(inLocal.y + RANGE_CHECK);
-
-                minZ = MathHelper.floor(inLocal.z - RANGE_CHECK);
-                maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK);
-
-
-                minY = Math.min(255, Math.max(minY, 0));
-                maxY = Math.min(255, Math.max(maxY, 0));
-
-                // TODO: This loop is crap. Come up with a better way. Please :(
-                final Chunk chunkIn00 = parent.getChunkClaim().containsChunk(minX >> 4, minZ >> 4) ? parent.getChunkAt(minX >> 4, minZ >> 4) : null;
-                final Chunk chunkIn01 = parent.getChunkClaim().containsChunk(minX >> 4, maxZ >> 4) ? parent.getChunkAt(minX >> 4, maxZ >> 4) : null;
-                final Chunk chunkIn10 = parent.getChunkClaim().containsChunk(maxX >> 4, minZ >> 4) ? parent.getChunkAt(maxX >> 4, minZ >> 4) : null;
-                final Chunk chunkIn11 = parent.getChunkClaim().containsChunk(maxX >> 4, maxZ >> 4) ? parent.getChunkAt(maxX >> 4, maxZ >> 4) : null;
-
-                breakThisLoop:
-                for (int localX = minX; localX < maxX; localX++) {
-                    for (int localZ = minZ; localZ < maxZ; localZ++) {
-                        Chunk theChunk;
-                        if (localX >> 4 == minX >> 4) {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn00;
-                            } else {
-                                theChunk = chunkIn01;
-                            }
+    private boolean checkIfCollidesWithinRangeCheckRadius(final int x, final int y, final int z,
+                                                          final ShipTransform physicsTransform, final Vector3d inLocal,
+                                                          final Vector3d inBody, final AxisAlignedBB shipBB) {
+        inLocal.x = x + .5;
+        inLocal.y = y + .5;
+        inLocal.z = z + .5;
+
+        if (inLocal.x > shipBB.minX && inLocal.x < shipBB.maxX && inLocal.y > shipBB.minY
+            && inLocal.y < shipBB.maxY
+            && inLocal.z > shipBB.minZ && inLocal.z < shipBB.maxZ) {
+            physicsTransform.transformPosition(inLocal, TransformType.GLOBAL_TO_SUBSPACE);
+
+            inLocal.sub(parent.getCenterCoord(), inBody);
+
+            int minX, minY, minZ, maxX, maxY, maxZ;
+
+            minX = MathHelper.floor(inLocal.x - RANGE_CHECK);
+            maxX = MathHelper.floor(inLocal.x + RANGE_CHECK);
+
+            minY = MathHelper.floor(inLocal.y - RANGE_CHECK);
+            maxY = MathHelper.floor(inLocal.y + RANGE_CHECK);
+
+            minZ = MathHelper.floor(inLocal.z - RANGE_CHECK);
+            maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK);
+
+
+            minY = Math.min(255, Math.max(minY, 0));
+            maxY = Math.min(255, Math.max(maxY, 0));
+
+            // TODO: This loop is crap. Come up with a better way. Please :(
+            final Chunk chunkIn00 = parent.getChunkClaim().containsChunk(minX >> 4, minZ >> 4) ? parent.getChunkAt(minX >> 4, minZ >> 4) : null;
+            final Chunk chunkIn01 = parent.getChunkClaim().containsChunk(minX >> 4, maxZ >> 4) ? parent.getChunkAt(minX >> 4, maxZ >> 4) : null;
+            final Chunk chunkIn10 = parent.getChunkClaim().containsChunk(maxX >> 4, minZ >> 4) ? parent.getChunkAt(maxX >> 4, minZ >> 4) : null;
+            final Chunk chunkIn11 = parent.getChunkClaim().containsChunk(maxX >> 4, maxZ >> 4) ? parent.getChunkAt(maxX >> 4, maxZ >> 4) : null;
+
+            for (int localX = minX; localX < maxX; localX++) {
+                for (int localZ = minZ; localZ < maxZ; localZ++) {
+                    Chunk theChunk;
+                    if (localX >> 4 == minX >> 4) {
+                        if (localZ >> 4 == minZ >> 4) {
+                            theChunk = chunkIn00;
                         } else {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn10;
-                            } else {
-                                theChunk = chunkIn11;
-                            }
+                            theChunk = chunkIn01;
                         }
-                        if (theChunk == null) {
-                            // No collision here
-                            continue;
+                    } else {
+                        if (localZ >> 4 == minZ >> 4) {
+                            theChunk = chunkIn10;
+                        } else {
+                            theChunk = chunkIn11;
                         }
-                        for (int localY = minY; localY < maxY; localY++) {
-                            boolean result = checkForCollisionFast(theChunk, localX, localY,
-                                localZ, x, y, z, output);
-                            if (result) {
-                                break breakThisLoop;
-                            }
+                    }
+                    if (theChunk == null) {
+                        // No collision here
+                        continue;
+                    }
+                    for (int localY = minY; localY < maxY; localY++) {
+                        if (checkForCollisionFast(theChunk, localX, localY, localZ)) {
+                            return true;
                         }
                     }
                 }
             }
         }
+        return false;
     }
 
-    private boolean checkForCollisionFast(final Chunk chunk, final int localX, final int localY,
-        final int localZ,
-        final int x, final int y, final int z, final TIntList output) {
+    private static boolean checkForCollisionFast(final Chunk chunk, final int localX, final int localY,
+        final int localZ) {
         if (chunk.storageArrays[localY >> 4] != null) {
             ITerrainOctreeProvider provider = (ITerrainOctreeProvider) chunk.storageArrays[localY >> 4]
                 .getData();
             IBitOctree octreeInLocal = provider.getSolidOctree();
-            if (octreeInLocal.get(localX & 15, localY & 15, localZ & 15)) {
-                int hash = SpatialDetector.getHashWithRespectTo(x, y, z, centerPotentialHit);
-                // Sometimes we end up adding to the hits array in multiple threads at once,
-                // crashing the physics.
-                output.add(hash);
-                return true;
-            }
+            return octreeInLocal.get(localX & 15, localY & 15, localZ & 15);
         }
         return false;
     }
 
+    private static long getSectionKey(int chunkX, int storageY, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFL) | (((long) chunkZ & 0xFFFFFFL) << 24) | ((long) storageY << 48);
+    }
+
+    /**
+     * The water blocks of one chunk section that were near the ship the last time it was scanned.
+     */
+    private static class CachedSection {
+        final int chunkX, storageY, chunkZ;
+        // The x | y << 4 | z << 8 index of each water block in the section
+        final TIntList waterHits;
+        // The physics transform of the ship when this section was scanned
+        ShipTransform scannedTransform;
+        int expiresAtUpdateIndex;
+        int seenAtUpdateIndex;
+
+        CachedSection(int chunkX, int storageY, int chunkZ) {
+            this.chunkX = chunkX;
+            this.storageY = storageY;
+            this.chunkZ = chunkZ;
+            this.waterHits = new TIntArrayList();
+        }
+    }
 }
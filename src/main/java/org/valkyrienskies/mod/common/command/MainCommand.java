@@ -2,16 +2,23 @@ package org.valkyrienskies.mod.common.command;
 
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import org.valkyrienskies.mod.common.command.MainCommand.*;
 import org.valkyrienskies.mod.common.command.autocompleters.ShipNameAutocompleter;
 import org.valkyrienskies.mod.common.command.autocompleters.WorldAutocompleter;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.physics.PhysicsProfiler;
+import org.valkyrienskies.mod.common.physics.PhysicsReplay;
+import org.valkyrienskies.mod.common.physics.PhysicsTickPhase;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.load_test.ShipLoadTest;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
@@ -19,11 +26,16 @@ import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject.DeconstructS
 import org.valkyrienskies.mod.common.ships.ship_world.WorldServerShipManager;
 import org.valkyrienskies.mod.common.util.JOML;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
 import org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop;
 import picocli.CommandLine.*;
 import picocli.CommandLine.Model.CommandSpec;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Command(name = "valkyrienskies", aliases = "vs",
@@ -35,6 +47,9 @@ import java.util.stream.Collectors;
         DisableShip.class,
         GC.class,
         TPS.class,
+        Profile.class,
+        PhysicsReplayCommand.class,
+        LoadTestCommand.class,
         TeleportTo.class,
         DeconstructShip.class,
         DeleteShip.class,
@@ -163,7 +178,243 @@ public class MainCommand implements Runnable {
                 double ticksPerSecondTwoDecimals = Math.floor(ticksPerSecond * 100) / 100;
                 sender.sendMessage(new TextComponentString(
                     "Player world: " + ticksPerSecondTwoDecimals + " physics ticks per second"));
+
+                double averageOverrunMillis = worldPhysicsThread.getAveragePhysicsTickOverrunNano() / 1000000D;
+                sender.sendMessage(new TextComponentString(String.format(
+                    "%d ticks overran (by %.2f ms on average), %d ticks dropped",
+                    worldPhysicsThread.getOverrunPhysicsTickCount(), averageOverrunMillis,
+                    worldPhysicsThread.getDroppedPhysicsTickCount())));
+            }
+        }
+    }
+
+    @Command(name = "profile")
+    static class Profile implements Runnable {
+
+        // The number of ships listed when profiling a whole world
+        private static final int SHIPS_TO_LIST = 5;
+
+        @Inject
+        ICommandSender sender;
+
+        @Option(names = {"--world", "-w"}, completionCandidates = WorldAutocompleter.class)
+        World world;
+
+        @Parameters(paramLabel = "name", index = "0", arity = "0..1", completionCandidates = ShipNameAutocompleter.class)
+        ShipData shipData;
+
+        @Override
+        public void run() {
+            if (world == null) {
+                world = sender.getEntityWorld();
+            }
+
+            final WorldServerShipManager shipManager = ValkyrienUtils.getServerShipManager(world);
+
+            if (shipData != null) {
+                final PhysicsObject ship = shipManager.getPhysObjectFromUUID(shipData.getUuid());
+                if (ship == null) {
+                    sender.sendMessage(new TextComponentString("That ship is not loaded"));
+                    return;
+                }
+                sendProfile("Ship " + shipData.getName(), ship.getPhysicsProfiler());
+                return;
+            }
+
+            sendProfile("World " + world.provider.getDimension(), shipManager.getPhysicsLoop().getWorldProfiler());
+
+            // Then list the ships that use the most physics time
+            final List<PhysicsObject> ships = new ArrayList<>();
+            shipManager.getAllLoadedPhysObj().forEach(ships::add);
+            ships.sort(Comparator.comparingLong(
+                (PhysicsObject ship) -> ship.getPhysicsProfiler().getTotalTimes().getPercentile(95)).reversed());
+
+            final StringBuilder message = new StringBuilder("Slowest ships (p95):");
+            for (final PhysicsObject ship : ships.subList(0, Math.min(SHIPS_TO_LIST, ships.size()))) {
+                message.append(String.format("\n  %s: %.3f ms", ship.getShipData().getName(),
+                    ship.getPhysicsProfiler().getTotalTimes().getPercentile(95) / 1000000D));
+            }
+            sender.sendMessage(new TextComponentString(message.toString()));
+        }
+
+        private void sendProfile(String title, PhysicsProfiler profiler) {
+            final StringBuilder message = new StringBuilder(title)
+                .append(" physics tick times over the last ")
+                .append(profiler.getTotalTimes().size())
+                .append(" ticks (p50 / p95 / p99):");
+            for (final PhysicsTickPhase phase : PhysicsTickPhase.values()) {
+                appendPercentiles(message, phase.getDisplayName(), profiler.getPhaseTimes(phase));
+            }
+            appendPercentiles(message, "total", profiler.getTotalTimes());
+            sender.sendMessage(new TextComponentString(message.toString()));
+        }
+
+        private static void appendPercentiles(StringBuilder message, String name, LongRingBuffer times) {
+            final long[] percentiles = times.getPercentiles(50, 95, 99);
+            message.append(String.format("\n  %s: %.3f / %.3f / %.3f ms", name,
+                percentiles[0] / 1000000D, percentiles[1] / 1000000D, percentiles[2] / 1000000D));
+        }
+    }
+
+    @Command(name = "physics-replay")
+    static class PhysicsReplayCommand implements Runnable {
+
+        @Inject
+        ICommandSender sender;
+
+        @Option(names = {"--world", "-w"}, completionCandidates = WorldAutocompleter.class)
+        World world;
+
+        @Option(names = {"--ticks", "-t"})
+        int ticks = 1000;
+
+        @Option(names = {"--seed", "-s"})
+        long seed = 0;
+
+        @Parameters(paramLabel = "name", index = "0", arity = "0..1", completionCandidates = ShipNameAutocompleter.class)
+        ShipData shipData;
+
+        @Override
+        public void run() {
+            if (world == null) {
+                world = sender.getEntityWorld();
+            }
+            if (ticks < 1) {
+                sender.sendMessage(new TextComponentString("Must replay at least one tick"));
+                return;
+            }
+
+            final WorldServerShipManager shipManager = ValkyrienUtils.getServerShipManager(world);
+            final List<PhysicsObject> ships;
+            if (shipData != null) {
+                final PhysicsObject ship = shipManager.getPhysObjectFromUUID(shipData.getUuid());
+                if (ship == null) {
+                    sender.sendMessage(new TextComponentString("That ship is not loaded"));
+                    return;
+                }
+                ships = VSWorldPhysicsLoop.getShipsToTick(Collections.singletonList(ship));
+            } else {
+                ships = VSWorldPhysicsLoop.getShipsToTick(shipManager.getAllLoadedThreadSafe());
+            }
+            if (ships.isEmpty()) {
+                sender.sendMessage(new TextComponentString("There are no ships with physics to replay"));
+                return;
+            }
+
+            for (final PhysicsObject ship : ships) {
+                if (ship.isPhysicsReplaying()) {
+                    sender.sendMessage(new TextComponentString("A replay of these ships is already running"));
+                    return;
+                }
+            }
+
+            // The game doesn't take the transforms of the ships until the replay has put them back, see
+            // PhysicsObject.onTick(). The replay runs on the physics thread while the game keeps ticking, and the
+            // result is handed back to the game thread.
+            for (final PhysicsObject ship : ships) {
+                ship.setPhysicsReplaying(true);
+            }
+            final MinecraftServer server = world.getMinecraftServer();
+            final VSWorldPhysicsLoop physicsLoop = shipManager.getPhysicsLoop();
+            final double timeStep = VSConfig.getTimeSimulatedPerTick();
+            physicsLoop.addScheduledTask(() -> {
+                PhysicsReplay.Result result = null;
+                Throwable failure = null;
+                try {
+                    result = PhysicsReplay.run(physicsLoop, ships, ticks, timeStep, seed);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                final PhysicsReplay.Result finalResult = result;
+                final Throwable finalFailure = failure;
+                server.addScheduledTask(() -> {
+                    for (final PhysicsObject ship : ships) {
+                        ship.setPhysicsReplaying(false);
+                    }
+                    if (finalFailure != null) {
+                        finalFailure.printStackTrace();
+                        sender.sendMessage(new TextComponentString("The replay failed: " + finalFailure.getMessage()));
+                    } else {
+                        sendResult(finalResult, timeStep);
+                    }
+                });
+            });
+            sender.sendMessage(new TextComponentString(String.format(
+                "Replaying %d ticks of %d ships in the background", ticks, ships.size())));
+        }
+
+        private void sendResult(PhysicsReplay.Result result, double timeStep) {
+            final LongRingBuffer tickTimes = result.getTickTimes();
+            final long[] percentiles = tickTimes.getPercentiles(50, 95, 99, 100);
+            sender.sendMessage(new TextComponentString(String.format(
+                "Replayed %d ticks of %d ships, %.4f s each, with seed %d\n"
+                    + "  tick times (p50 / p95 / p99 / max): %.3f / %.3f / %.3f / %.3f ms\n"
+                    + "  final state hash: %016x\n"
+                    + "See /vs profile for the phases of the replayed ticks",
+                ticks, result.getShipCount(), timeStep, seed,
+                percentiles[0] / 1000000D, percentiles[1] / 1000000D, percentiles[2] / 1000000D,
+                percentiles[3] / 1000000D, result.getStateHash())));
+        }
+    }
+
+    @Command(name = "load-test")
+    static class LoadTestCommand implements Runnable {
+
+        @Inject
+        ICommandSender sender;
+
+        @Option(names = {"--world", "-w"}, completionCandidates = WorldAutocompleter.class)
+        World world;
+
+        @Option(names = {"--ships", "-s"})
+        int ships = 20;
+
+        @Option(names = {"--ship-size"})
+        int shipSize = 4;
+
+        @Option(names = {"--players", "-p"})
+        int players = 10;
+
+        @Option(names = {"--radius", "-r"})
+        double radius = 256;
+
+        @Option(names = {"--ticks", "-t"})
+        int ticks = 1200;
+
+        @Option(names = {"--seed"})
+        long seed = 0;
+
+        @Override
+        public void run() {
+            if (world == null) {
+                world = sender.getEntityWorld();
+            }
+            if (ships < 0 || players < 1 || ticks < 1 || radius <= 0) {
+                sender.sendMessage(new TextComponentString(
+                    "Needs at least one player, one tick, a positive radius and no negative ships"));
+                return;
+            }
+            if (shipSize < 1 || ShipLoadTest.HEIGHT + shipSize + 2 > 255) {
+                sender.sendMessage(new TextComponentString("That ship size doesn't fit in the world"));
+                return;
+            }
+
+            // Around the sender if they're in the world, otherwise around the spawn
+            Vec3d center = sender.getPositionVector();
+            if (sender.getEntityWorld() != world || center == Vec3d.ZERO) {
+                center = new Vec3d(world.getSpawnPoint());
+            }
+
+            try {
+                ShipLoadTest.start(sender, (WorldServer) world, center.x, center.z, ships, shipSize, players, radius,
+                    ticks, seed);
+            } catch (IllegalStateException e) {
+                sender.sendMessage(new TextComponentString(e.getMessage()));
+                return;
             }
+            sender.sendMessage(new TextComponentString(String.format(
+                "Started a load test of %d ships and %d players, it will run for %d ticks once the ships are spawned",
+                ships, players, ticks)));
         }
     }
 
@@ -28,6 +28,10 @@ public class VSConfig extends VSConfigTemplate {
     @Name("Enable Physics Blocks")
     public static boolean doPhysicsBlocks = true;
 
+    @Name("Enable Ship Collisions")
+    @Comment("When true ships will collide with each other, instead of passing through each other.")
+    public static boolean doShipCollisions = true;
+
     @Name("Render Ship Chunk Debug Outline")
     @Comment("When true all ship chunks will be rendered with a green outline (in debug rendering mode (f3 + b)).")
     public static boolean renderShipChunkClaimsInDebug = false;
@@ -51,6 +55,26 @@ public class VSConfig extends VSConfigTemplate {
     })
     public static double targetTps = 60;
 
+    @Name("Max Physics Catch-up Ticks")
+    @Comment({
+        "If the physics thread falls behind the target TPS, it will run up to this many ticks back to back to catch up.",
+        "Any time it is behind beyond that is dropped, so a long lag spike doesn't cause ships to fast forward."
+    })
+    @RangeInt(min = 0)
+    public static int maxPhysicsCatchUpTicks = 5;
+
+    @Name("Ship Sleeping")
+    @Comment({
+        "Ships that barely move for a while stop being simulated until something disturbs them, like a block change,",
+        "an explosion, a pilot or another ship touching them."
+    })
+    public static boolean shipSleeping = true;
+
+    @Name("Ship Sleep Delay")
+    @Comment("How many seconds a ship has to barely move for before it falls asleep.")
+    @RangeDouble(min = 0)
+    public static double shipSleepDelay = 2;
+
     // @Name("Use dynamic steps")
     // @Comment("Step physics by time since last tick instead of a fixed number")
     // public static boolean useDynamicSteps = false;
@@ -77,6 +101,15 @@ public class VSConfig extends VSConfigTemplate {
     })
     public static int maxDetectedShipSize = 15000;
 
+    @Name("Ship Assembly Time Per Tick")
+    @Comment({
+            "How many milliseconds per tick the server may spend assembling new ships.",
+            "Big ships take more ticks to assemble, but don't freeze the server.",
+            "Default is 10 milliseconds."
+    })
+    @RangeInt(min = 1)
+    public static int shipAssemblyMillisPerTick = 10;
+
     @Name("Gravity Vector X")
     public static double gravityVecX = 0;
 
@@ -133,6 +166,11 @@ public class VSConfig extends VSConfigTemplate {
     @LangKey("valkyrienskies.general.ship_loading_settings")
     public static final VSConfig.ShipLoadingSettings SHIP_LOADING_SETTINGS = new VSConfig.ShipLoadingSettings();
 
+    @Name("Physics LOD Settings")
+    @ShortName("physicsLodSettings")
+    @Comment("Ships far from players are simulated less often, so that more ships can be loaded at once.")
+    public static final PhysicsLodSettings PHYSICS_LOD_SETTINGS = new PhysicsLodSettings();
+
     @Name("Accurate Rain")
     @Comment("Prevents rain from going inside ships. Warning: mildly laggy")
     public static boolean accurateRain = true;
@@ -148,6 +186,22 @@ public class VSConfig extends VSConfigTemplate {
 
     }
 
+    public static class PhysicsLodSettings {
+
+        @Name("Enabled")
+        @Comment("If false, every ship is simulated every physics tick.")
+        public boolean enabled = true;
+
+        @Name("Full Rate Physics Distance")
+        @Comment({
+            "Ships within this XZ distance of a player watching them are simulated every physics tick.",
+            "Watched ships further away than this are simulated every 2nd tick, and ships no player watches every 4th tick."
+        })
+        @RangeDouble(min = 0)
+        public double fullRateDistance = 64;
+
+    }
+
     public static class ShipLoadingSettings {
 
         @Name("Player Watch Ship Distance")
@@ -170,6 +224,21 @@ public class VSConfig extends VSConfigTemplate {
         @Comment("If there are no players within this XZ distance of a ship, then if that ship is currently loaded, it will unload itself.")
         public double unloadDistance = 192;
 
+        @Name("Full Rate Transform Distance")
+        @Comment({
+            "Players get position updates for ships within this XZ distance at the full rate.",
+            "Ships further away than this are updated half as often, and ships further than the watch distance a quarter as often."
+        })
+        public double fullRateTransformDistance = 64;
+
+        @Name("Ship Chunk Bytes Per Tick")
+        @Comment({
+            "The most bytes of ship chunks sent to each player per tick, when they start watching ships.",
+            "Chunks nearest the center of each ship are sent first, at least one chunk is always sent per tick."
+        })
+        @RangeInt(min = 1)
+        public int shipChunkBytesPerTick = 65536;
+
         @Name("Permanently loaded")
         @Comment("If ships should be permanently. Warning: may have unforseen consequences")
         public boolean permanentlyLoaded = false;
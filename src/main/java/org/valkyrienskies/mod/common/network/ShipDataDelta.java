@@ -0,0 +1,152 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The fields of a ShipData that changed in one tick, as sent by {@link ShipIndexDataMessage}. The server encodes the
+ * delta of each ship once with {@link #encode(ShipData, int)}, and the same bytes are then written to the message of
+ * every player watching that ship.
+ */
+class ShipDataDelta {
+
+    final UUID shipID;
+    final int changedFields;
+    ShipTransform shipTransform, prevTickShipTransform;
+    AxisAlignedBB shipBB;
+    boolean physicsEnabled;
+    double gameTickMass;
+    Vector3dc gameTickCenterOfMass;
+    Matrix3dc gameMoITensor;
+    // ChunkPos.asLong() of every claimed chunk
+    long[] claimedChunks;
+
+    private ShipDataDelta(UUID shipID, int changedFields) {
+        this.shipID = shipID;
+        this.changedFields = changedFields;
+    }
+
+    /**
+     * @param changedFields The ShipData.DIRTY_ bits of the fields to include.
+     */
+    static byte[] encode(@Nonnull ShipData shipData, int changedFields) {
+        final ByteBuf buf = Unpooled.buffer();
+        buf.writeLong(shipData.getUuid().getMostSignificantBits());
+        buf.writeLong(shipData.getUuid().getLeastSignificantBits());
+        buf.writeByte(changedFields);
+        if ((changedFields & ShipData.DIRTY_TRANSFORM) != 0) {
+            ShipTransformUpdateMessage.writeTransform(buf, shipData.getShipTransform());
+            ShipTransformUpdateMessage.writeTransform(buf, shipData.getPrevTickShipTransform());
+            final AxisAlignedBB shipBB = shipData.getShipBB();
+            buf.writeDouble(shipBB.minX);
+            buf.writeDouble(shipBB.minY);
+            buf.writeDouble(shipBB.minZ);
+            buf.writeDouble(shipBB.maxX);
+            buf.writeDouble(shipBB.maxY);
+            buf.writeDouble(shipBB.maxZ);
+        }
+        if ((changedFields & ShipData.DIRTY_PHYSICS_ENABLED) != 0) {
+            buf.writeBoolean(shipData.isPhysicsEnabled());
+        }
+        if ((changedFields & ShipData.DIRTY_INERTIA) != 0) {
+            final ShipInertiaData inertiaData = shipData.getInertiaData();
+            buf.writeDouble(inertiaData.getGameTickMass());
+            final Vector3dc centerOfMass = inertiaData.getGameTickCenterOfMass();
+            buf.writeDouble(centerOfMass.x());
+            buf.writeDouble(centerOfMass.y());
+            buf.writeDouble(centerOfMass.z());
+            final Matrix3dc moITensor = inertiaData.getGameMoITensor();
+            for (int column = 0; column < 3; column++) {
+                for (int row = 0; row < 3; row++) {
+                    buf.writeDouble(moITensor.get(column, row));
+                }
+            }
+        }
+        if ((changedFields & ShipData.DIRTY_CHUNK_CLAIM) != 0) {
+            // Claims are small, so just send all of it. Claims only change on the game thread, same as this.
+            final Set<Long> claimedChunks = shipData.getChunkClaim().getClaimedChunks();
+            buf.writeInt(claimedChunks.size());
+            for (final long chunkPos : claimedChunks) {
+                buf.writeLong(chunkPos);
+            }
+        }
+        final byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    static ShipDataDelta read(ByteBuf buf) {
+        final UUID shipID = new UUID(buf.readLong(), buf.readLong());
+        final ShipDataDelta delta = new ShipDataDelta(shipID, buf.readUnsignedByte());
+        if ((delta.changedFields & ShipData.DIRTY_TRANSFORM) != 0) {
+            delta.shipTransform = ShipTransformUpdateMessage.readTransform(buf);
+            delta.prevTickShipTransform = ShipTransformUpdateMessage.readTransform(buf);
+            delta.shipBB = new AxisAlignedBB(buf.readDouble(), buf.readDouble(), buf.readDouble(),
+                buf.readDouble(), buf.readDouble(), buf.readDouble());
+        }
+        if ((delta.changedFields & ShipData.DIRTY_PHYSICS_ENABLED) != 0) {
+            delta.physicsEnabled = buf.readBoolean();
+        }
+        if ((delta.changedFields & ShipData.DIRTY_INERTIA) != 0) {
+            delta.gameTickMass = buf.readDouble();
+            delta.gameTickCenterOfMass = new Vector3d(buf.readDouble(), buf.readDouble(), buf.readDouble());
+            final Matrix3d moITensor = new Matrix3d();
+            for (int column = 0; column < 3; column++) {
+                for (int row = 0; row < 3; row++) {
+                    moITensor.set(column, row, buf.readDouble());
+                }
+            }
+            delta.gameMoITensor = moITensor;
+        }
+        if ((delta.changedFields & ShipData.DIRTY_CHUNK_CLAIM) != 0) {
+            final int count = buf.readInt();
+            delta.claimedChunks = new long[count];
+            for (int i = 0; i < count; i++) {
+                delta.claimedChunks[i] = buf.readLong();
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Copies the changed fields into the client's ShipData, same as QueryableShipData.addOrUpdateShipPreservingPhysObj()
+     * does for a full update.
+     *
+     * @param hasPhysObj If true the transforms are left alone, because the PhysicsObject updates them from the
+     *                   transform interpolator.
+     */
+    void applyTo(@Nonnull QueryableShipData worldData, @Nonnull ShipData shipData, boolean hasPhysObj) {
+        if ((changedFields & ShipData.DIRTY_TRANSFORM) != 0 && !hasPhysObj) {
+            shipData.setShipTransform(shipTransform);
+            shipData.setPrevTickShipTransform(prevTickShipTransform);
+            shipData.setShipBB(shipBB);
+        }
+        if ((changedFields & ShipData.DIRTY_PHYSICS_ENABLED) != 0) {
+            shipData.setPhysicsEnabled(physicsEnabled);
+        }
+        if ((changedFields & ShipData.DIRTY_INERTIA) != 0) {
+            final ShipInertiaData inertiaData = shipData.getInertiaData();
+            inertiaData.setGameTickMass(gameTickMass);
+            inertiaData.setGameTickCenterOfMass(gameTickCenterOfMass);
+            inertiaData.setGameMoITensor(gameMoITensor);
+        }
+        if ((changedFields & ShipData.DIRTY_CHUNK_CLAIM) != 0) {
+            for (final long chunkPos : claimedChunks) {
+                worldData.claimChunk(shipData, (int) (chunkPos & 4294967295L), (int) ((chunkPos >> 32) & 4294967295L));
+            }
+        }
+    }
+}
@@ -2,38 +2,89 @@ package org.valkyrienskies.mod.common.network;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
 import io.netty.buffer.ByteBuf;
 import net.minecraft.network.PacketBuffer;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
 
 /**
  * Sends ShipData updates to the client, also tells it which ShipData to convert load/unload as PhysicsObject.
+ * <p>
+ * ShipData is either sent in full (for ships a player just started watching, and periodically to resync), or as a
+ * {@link ShipDataDelta} that only has the fields that changed this tick. Both are encoded once per ship by the server
+ * with {@link #encodeShipData(ShipData)} and {@link #encodeShipDataDelta(ShipData, int)}, and the same bytes are
+ * added to the message of every player watching that ship.
  */
 public class ShipIndexDataMessage implements IMessage {
 
     private static final ObjectMapper serializer = VSJacksonUtil.getPacketMapper();
+    // Written by the server
+    final List<byte[]> encodedShipData, encodedDeltas;
+    // Read by the client
     final List<ShipData> indexedData;
+    final List<ShipDataDelta> deltas;
     final List<UUID> shipsToLoad, shipsToUnload;
+    // The session id of each ship in shipsToLoad, used by ShipTransformUpdateMessage to refer to the ship.
+    final TIntList shipsToLoadSessionIds;
     int dimensionID;
 
     public ShipIndexDataMessage() {
+        this.encodedShipData = new ArrayList<>();
+        this.encodedDeltas = new ArrayList<>();
         this.indexedData = new ArrayList<>();
+        this.deltas = new ArrayList<>();
         this.shipsToLoad = new ArrayList<>();
         this.shipsToUnload = new ArrayList<>();
+        this.shipsToLoadSessionIds = new TIntArrayList();
         this.dimensionID = -1;
     }
 
-    public void addData(Collection<ShipData> toSend) {
-        indexedData.addAll(toSend);
+    /**
+     * @return The full ShipData encoded for this message, or null if it couldn't be serialized.
+     */
+    @Nullable
+    public static byte[] encodeShipData(@Nonnull ShipData shipData) {
+        try {
+            return serializer.writeValueAsBytes(shipData);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param changedFields The ShipData.DIRTY_ bits of the fields to send, usually from ShipData.pollDirtyFields()
+     */
+    @Nonnull
+    public static byte[] encodeShipDataDelta(@Nonnull ShipData shipData, int changedFields) {
+        return ShipDataDelta.encode(shipData, changedFields);
+    }
+
+    /**
+     * @param encoded From {@link #encodeShipData(ShipData)}
+     */
+    public void addEncodedData(@Nonnull byte[] encoded) {
+        encodedShipData.add(encoded);
+    }
+
+    /**
+     * @param encoded From {@link #encodeShipDataDelta(ShipData, int)}
+     */
+    public void addEncodedDelta(@Nonnull byte[] encoded) {
+        encodedDeltas.add(encoded);
     }
 
-    public void addLoadUUID(UUID toLoad) {
+    public void addLoadUUID(UUID toLoad, int sessionId) {
         shipsToLoad.add(toLoad);
+        shipsToLoadSessionIds.add(sessionId);
     }
 
     public void addUnloadUUID(UUID toUnload) {
@@ -44,10 +95,16 @@ public class ShipIndexDataMessage implements IMessage {
         this.dimensionID = dimensionID;
     }
 
+    public boolean isEmpty() {
+        return encodedShipData.isEmpty() && encodedDeltas.isEmpty() && shipsToLoad.isEmpty()
+            && shipsToUnload.isEmpty();
+    }
+
     @Override
     public void fromBytes(ByteBuf buf) {
         PacketBuffer packetBuffer = new PacketBuffer(buf);
         int numberOfIndices = packetBuffer.readInt();
+        int numberOfDeltas = packetBuffer.readInt();
         int numberOfUUIDLoad = packetBuffer.readInt();
         int numberOfUUIDUnload = packetBuffer.readInt();
         for (int i = 0; i < numberOfIndices; i++) {
@@ -62,8 +119,12 @@ public class ShipIndexDataMessage implements IMessage {
                 e.printStackTrace();
             }
         }
+        for (int i = 0; i < numberOfDeltas; i++) {
+            deltas.add(ShipDataDelta.read(packetBuffer));
+        }
         for (int i = 0; i < numberOfUUIDLoad; i++) {
             shipsToLoad.add(packetBuffer.readUniqueId());
+            shipsToLoadSessionIds.add(packetBuffer.readUnsignedShort());
         }
         for (int i = 0; i < numberOfUUIDUnload; i++) {
             shipsToUnload.add(packetBuffer.readUniqueId());
@@ -74,22 +135,21 @@ public class ShipIndexDataMessage implements IMessage {
     @Override
     public void toBytes(ByteBuf buf) {
         PacketBuffer packetBuffer = new PacketBuffer(buf);
-        packetBuffer.writeInt(indexedData.size());
+        packetBuffer.writeInt(encodedShipData.size());
+        packetBuffer.writeInt(encodedDeltas.size());
         packetBuffer.writeInt(shipsToLoad.size());
         packetBuffer.writeInt(shipsToUnload.size());
-        for (ShipData data : indexedData) {
-            // Write index data to the byte buffer.
-            try {
-                byte[] dataBytes = serializer.writeValueAsBytes(data);
-                int bytesSize = dataBytes.length;
-                packetBuffer.writeInt(bytesSize);
-                packetBuffer.writeBytes(dataBytes);
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
-            }
+        for (byte[] dataBytes : encodedShipData) {
+            packetBuffer.writeInt(dataBytes.length);
+            packetBuffer.writeBytes(dataBytes);
+        }
+        for (byte[] deltaBytes : encodedDeltas) {
+            // Deltas know their own length
+            packetBuffer.writeBytes(deltaBytes);
         }
-        for (UUID toLoad : shipsToLoad) {
-            packetBuffer.writeUniqueId(toLoad);
+        for (int i = 0; i < shipsToLoad.size(); i++) {
+            packetBuffer.writeUniqueId(shipsToLoad.get(i));
+            packetBuffer.writeShort(shipsToLoadSessionIds.get(i));
         }
         for (UUID toUnload : shipsToUnload) {
             packetBuffer.writeUniqueId(toUnload);
@@ -8,9 +8,12 @@ import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ship_world.IPhysObjectWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldClientShipManager;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 
+import java.util.Optional;
 import java.util.UUID;
 
 public class ShipIndexDataMessageHandler implements IMessageHandler<ShipIndexDataMessage, IMessage> {
@@ -28,12 +31,31 @@ public class ShipIndexDataMessageHandler implements IMessageHandler<ShipIndexDat
                 IPhysObjectWorld physObjectWorld = ValkyrienUtils.getPhysObjWorld(world);
                 QueryableShipData worldData = QueryableShipData.get(world);
                 for (ShipData shipData : message.indexedData) {
-                    worldData.addOrUpdateShipPreservingPhysObj(shipData, world);
+                    ShipData updated = worldData.addOrUpdateShipPreservingPhysObj(shipData, world);
+                    PhysicsObject physicsObject = physObjectWorld.getPhysObjectFromUUID(updated.getUuid());
+                    if (physicsObject != null) {
+                        physicsObject.cacheNewlyClaimedChunks();
+                    }
                 }
-                for (UUID loadID : message.shipsToLoad) {
+                for (ShipDataDelta delta : message.deltas) {
+                    Optional<ShipData> shipData = worldData.getShip(delta.shipID);
+                    // We may not have the ShipData if the delta arrived before the full data, it will be resynced later
+                    if (shipData.isPresent()) {
+                        PhysicsObject physicsObject = physObjectWorld.getPhysObjectFromUUID(delta.shipID);
+                        delta.applyTo(worldData, shipData.get(), physicsObject != null);
+                        if (physicsObject != null && (delta.changedFields & ShipData.DIRTY_CHUNK_CLAIM) != 0) {
+                            physicsObject.cacheNewlyClaimedChunks();
+                        }
+                    }
+                }
+                WorldClientShipManager clientShipManager = (WorldClientShipManager) physObjectWorld;
+                for (int i = 0; i < message.shipsToLoad.size(); i++) {
+                    UUID loadID = message.shipsToLoad.get(i);
+                    clientShipManager.registerSessionId(message.shipsToLoadSessionIds.get(i), loadID);
                     physObjectWorld.queueShipLoad(loadID);
                 }
                 for (UUID unloadID : message.shipsToUnload) {
+                    clientShipManager.unregisterSessionId(unloadID);
                     physObjectWorld.queueShipUnload(unloadID);
                 }
             }
@@ -1,32 +1,53 @@
 package org.valkyrienskies.mod.common.network;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.buffer.ByteBuf;
-import net.minecraft.network.PacketBuffer;
-import net.minecraft.util.Tuple;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
-import org.valkyrienskies.mod.common.ships.ShipData;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
-import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+import org.valkyrienskies.mod.common.util.VSMath;
+import valkyrienwarfare.api.TransformType;
 
-import java.io.IOException;
-import java.util.*;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Sends the latest physics transforms of the ships a player watches to that player. Because this is sent around 20
+ * times a second it uses a fixed binary layout written straight into the buffer, rather than serializing each ship with
+ * Jackson.
+ * <p>
+ * Ships are identified by their session id (see ShipIndexDataMessage) instead of their UUID. The rotation is packed
+ * into a single long, and the ship AABB is only sent as an int subspace block AABB when the server decides the client
+ * needs it; the client computes the world AABB from that and the transform.
+ */
 public class ShipTransformUpdateMessage implements IMessage {
 
-    private static final ObjectMapper serializer = VSJacksonUtil.getPacketMapper();
-    final Map<UUID, Tuple<ShipTransform, AxisAlignedBB>> shipTransforms;
+    // Flags for each ship entry
+    private static final int HAS_SUBSPACE_BB = 1;
+
+    final List<ShipTransformData> shipTransforms;
     int dimensionID;
 
     public ShipTransformUpdateMessage() {
-        this.shipTransforms = new HashMap<>();
+        this.shipTransforms = new ArrayList<>();
         this.dimensionID = -1;
     }
 
-    public void addData(final UUID shipUUID, final ShipTransform shipTransform, final AxisAlignedBB alignedBB) {
-        shipTransforms.put(shipUUID, new Tuple<>(shipTransform, alignedBB));
+    /**
+     * @param subspaceBB The AABB of the ship blocks in subspace, or null to let the client keep using the last one it
+     *                   received.
+     */
+    public void addData(final int sessionId, @Nonnull final ShipTransform shipTransform,
+        @Nullable final AxisAlignedBB subspaceBB) {
+        shipTransforms.add(new ShipTransformData(sessionId, shipTransform, subspaceBB));
+    }
+
+    public boolean isEmpty() {
+        return shipTransforms.isEmpty();
     }
 
     public void setDimensionID(int dimensionID) {
@@ -39,87 +60,75 @@ public class ShipTransformUpdateMessage implements IMessage {
 
     @Override
     public void fromBytes(ByteBuf buf) {
-        PacketBuffer packetBuffer = new PacketBuffer(buf);
-        int numberOfShips = packetBuffer.readInt();
+        dimensionID = buf.readInt();
+        final int numberOfShips = buf.readUnsignedShort();
         for (int i = 0; i < numberOfShips; i++) {
-            UUID shipID = null;
-            ShipTransform shipTransform = null;
-            AxisAlignedBB axisAlignedBB = null;
-            // Read the UUID
-            {
-                int bytesSize = packetBuffer.readInt();
-                byte[] bytes = new byte[bytesSize];
-                packetBuffer.readBytes(bytes);
-                try {
-                    shipID = serializer.readValue(bytes, UUID.class);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            // Read the ship transform
-            {
-                int bytesSize = packetBuffer.readInt();
-                byte[] bytes = new byte[bytesSize];
-                packetBuffer.readBytes(bytes);
-                try {
-                    shipTransform = serializer.readValue(bytes, ShipTransform.class);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            final int sessionId = buf.readUnsignedShort();
+            final byte flags = buf.readByte();
+            final ShipTransform shipTransform = readTransform(buf);
+            AxisAlignedBB subspaceBB = null;
+            if ((flags & HAS_SUBSPACE_BB) != 0) {
+                subspaceBB = new AxisAlignedBB(buf.readInt(), buf.readInt(), buf.readInt(),
+                    buf.readInt(), buf.readInt(), buf.readInt());
             }
-            // Read the ship aabb
-            {
-                int bytesSize = packetBuffer.readInt();
-                byte[] bytes = new byte[bytesSize];
-                packetBuffer.readBytes(bytes);
-                try {
-                    axisAlignedBB = serializer.readValue(bytes, AxisAlignedBB.class);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (shipID == null || shipTransform == null || axisAlignedBB == null) {
-                // corrupt packet
-                shipTransforms.clear();
-                return;
-            }
-            shipTransforms.put(shipID, new Tuple<>(shipTransform, axisAlignedBB));
+            shipTransforms.add(new ShipTransformData(sessionId, shipTransform, subspaceBB));
         }
-        dimensionID = packetBuffer.readInt();
     }
 
     @Override
     public void toBytes(ByteBuf buf) {
-        PacketBuffer packetBuffer = new PacketBuffer(buf);
-        packetBuffer.writeInt(shipTransforms.size());
-        for (Map.Entry<UUID, Tuple<ShipTransform, AxisAlignedBB>> data : shipTransforms.entrySet()) {
-            // Write index data to the byte buffer.
-            try {
-                // Write the UUID
-                {
-                    byte[] dataBytes = serializer.writeValueAsBytes(data.getKey());
-                    int bytesSize = dataBytes.length;
-                    packetBuffer.writeInt(bytesSize);
-                    packetBuffer.writeBytes(dataBytes);
-                }
-                // Write the ship transform
-                {
-                    byte[] dataBytes = serializer.writeValueAsBytes(data.getValue().getFirst());
-                    int bytesSize = dataBytes.length;
-                    packetBuffer.writeInt(bytesSize);
-                    packetBuffer.writeBytes(dataBytes);
-                }
-                // Write the ship aabb
-                {
-                    byte[] dataBytes = serializer.writeValueAsBytes(data.getValue().getSecond());
-                    int bytesSize = dataBytes.length;
-                    packetBuffer.writeInt(bytesSize);
-                    packetBuffer.writeBytes(dataBytes);
-                }
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
+        buf.writeInt(dimensionID);
+        buf.writeShort(shipTransforms.size());
+        for (final ShipTransformData data : shipTransforms) {
+            final ShipTransform shipTransform = data.shipTransform;
+            final AxisAlignedBB subspaceBB = data.subspaceBB;
+            buf.writeShort(data.sessionId);
+            buf.writeByte(subspaceBB != null ? HAS_SUBSPACE_BB : 0);
+            writeTransform(buf, shipTransform);
+            if (subspaceBB != null) {
+                // The subspace AABB is made of block positions, so it fits in ints.
+                buf.writeInt((int) Math.floor(subspaceBB.minX));
+                buf.writeInt((int) Math.floor(subspaceBB.minY));
+                buf.writeInt((int) Math.floor(subspaceBB.minZ));
+                buf.writeInt((int) Math.ceil(subspaceBB.maxX));
+                buf.writeInt((int) Math.ceil(subspaceBB.maxY));
+                buf.writeInt((int) Math.ceil(subspaceBB.maxZ));
             }
         }
-        packetBuffer.writeInt(dimensionID);
+    }
+
+    /**
+     * Writes the position, rotation and center coord of the transform, 56 bytes in total.
+     */
+    static void writeTransform(ByteBuf buf, ShipTransform shipTransform) {
+        buf.writeDouble(shipTransform.getPosX());
+        buf.writeDouble(shipTransform.getPosY());
+        buf.writeDouble(shipTransform.getPosZ());
+        buf.writeLong(VSMath.packQuaternion(shipTransform.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL)));
+        buf.writeDouble(shipTransform.getCenterCoord().x());
+        buf.writeDouble(shipTransform.getCenterCoord().y());
+        buf.writeDouble(shipTransform.getCenterCoord().z());
+    }
+
+    static ShipTransform readTransform(ByteBuf buf) {
+        final double posX = buf.readDouble();
+        final double posY = buf.readDouble();
+        final double posZ = buf.readDouble();
+        final Quaterniond rotation = VSMath.unpackQuaternion(buf.readLong(), new Quaterniond());
+        final Vector3dc centerCoord = new Vector3d(buf.readDouble(), buf.readDouble(), buf.readDouble());
+        return new ShipTransform(posX, posY, posZ, rotation, centerCoord);
+    }
+
+    static class ShipTransformData {
+        final int sessionId;
+        final ShipTransform shipTransform;
+        @Nullable
+        final AxisAlignedBB subspaceBB;
+
+        ShipTransformData(int sessionId, ShipTransform shipTransform, @Nullable AxisAlignedBB subspaceBB) {
+            this.sessionId = sessionId;
+            this.shipTransform = shipTransform;
+            this.subspaceBB = subspaceBB;
+        }
     }
 }
@@ -2,22 +2,19 @@ package org.valkyrienskies.mod.common.network;
 
 import net.minecraft.client.Minecraft;
 import net.minecraft.util.IThreadListener;
-import net.minecraft.util.Tuple;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import org.valkyrienskies.mod.common.ships.QueryableShipData;
-import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.collision.Polygon;
 import org.valkyrienskies.mod.common.ships.interpolation.ITransformInterpolator;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
-import org.valkyrienskies.mod.common.ships.ship_world.IPhysObjectWorld;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldClientShipManager;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import valkyrienwarfare.api.TransformType;
 
-import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
 public class ShipTransformUpdateMessageHandler implements IMessageHandler<ShipTransformUpdateMessage, IMessage> {
@@ -32,20 +29,40 @@ public class ShipTransformUpdateMessageHandler implements IMessageHandler<ShipTr
             @Override
             public void run() {
                 World world = Minecraft.getMinecraft().world;
-                IPhysObjectWorld physObjectWorld = ValkyrienUtils.getPhysObjWorld(world);
-                QueryableShipData worldData = QueryableShipData.get(world);
-
-                for (Map.Entry<UUID, Tuple<ShipTransform, AxisAlignedBB>> transformUpdate : message.shipTransforms.entrySet()) {
-                    final UUID shipID = transformUpdate.getKey();
-                    final ShipTransform shipTransform = transformUpdate.getValue().getFirst();
-                    final AxisAlignedBB shipBB = transformUpdate.getValue().getSecond();
-
-                    final PhysicsObject physicsObject = ValkyrienUtils.getPhysObjWorld(world).getPhysObjectFromUUID(shipID);
-                    if (physicsObject != null) {
-                        // Do not update the transform in ShipData, that will be done by PhysicsObject.tick()
-                        ITransformInterpolator interpolator = physicsObject.getTransformInterpolator();
-                        interpolator.onNewTransformPacket(shipTransform, shipBB);
+                WorldClientShipManager shipManager = (WorldClientShipManager) ValkyrienUtils.getPhysObjWorld(world);
+
+                for (ShipTransformUpdateMessage.ShipTransformData transformUpdate : message.shipTransforms) {
+                    final UUID shipID = shipManager.getShipIdFromSessionId(transformUpdate.sessionId);
+                    if (shipID == null) {
+                        // We haven't been told to load this ship (yet)
+                        continue;
+                    }
+                    final PhysicsObject physicsObject = shipManager.getPhysObjectFromUUID(shipID);
+                    if (physicsObject == null) {
+                        continue;
+                    }
+                    final ShipTransform shipTransform = transformUpdate.shipTransform;
+
+                    // The server only sends the subspace AABB when it changes, otherwise use the last one we got
+                    AxisAlignedBB subspaceBB = transformUpdate.subspaceBB;
+                    if (subspaceBB != null) {
+                        shipManager.setSubspaceBB(transformUpdate.sessionId, subspaceBB);
+                    } else {
+                        subspaceBB = shipManager.getSubspaceBB(transformUpdate.sessionId);
+                    }
+                    final AxisAlignedBB shipBB;
+                    if (subspaceBB != null) {
+                        // Same as PhysicsObject.getPhysicsTransformAABB() on the server
+                        shipBB = new Polygon(subspaceBB.expand(1, 1, 1), shipTransform,
+                            TransformType.SUBSPACE_TO_GLOBAL).getEnclosedAABB();
+                    } else {
+                        // We missed the subspace AABB, keep the old AABB until the server resends it
+                        shipBB = physicsObject.getShipBB();
                     }
+
+                    // Do not update the transform in ShipData, that will be done by PhysicsObject.tick()
+                    ITransformInterpolator interpolator = physicsObject.getTransformInterpolator();
+                    interpolator.onNewTransformPacket(shipTransform, shipBB);
                 }
             }
         });
@@ -37,6 +37,14 @@ public class BlockPhysicsDetails {
      */
     public static final ArrayList<Block> blocksToNotPhysicsInfuse = new ArrayList<>();
 
+    private static final byte FLAG_FORCE_PROVIDER = 1;
+    private static final byte FLAG_TORQUE_PROVIDER = 1 << 1;
+    private static final byte FLAG_NOT_PHYSICS_INFUSABLE = 1 << 2;
+    /**
+     * Everything above for every IBlockState, indexed by the id of the state in {@link Block#BLOCK_STATE_IDS}.
+     */
+    private static volatile StateTable stateTable = new StateTable(0);
+
     static {
         generateBlockMasses();
         generateMaterialMasses();
@@ -52,6 +60,44 @@ public class BlockPhysicsDetails {
             .filter(arr -> arr.length == 2)
             .forEach(arr ->
                 blockToMass.put(Block.getBlockFromName(arr[0]), Double.parseDouble(arr[1])));
+        rebuildStateTable();
+    }
+
+    /**
+     * Rebuilds the table of the physics details of every IBlockState. Must be called whenever the block state ids
+     * change; until then the states that moved are looked up the slow way.
+     */
+    public static void rebuildStateTable() {
+        int maxId = -1;
+        for (final IBlockState state : Block.BLOCK_STATE_IDS) {
+            if (state != null) {
+                maxId = Math.max(maxId, Block.BLOCK_STATE_IDS.get(state));
+            }
+        }
+        final StateTable table = new StateTable(maxId + 1);
+        for (final IBlockState state : Block.BLOCK_STATE_IDS) {
+            if (state == null) {
+                continue;
+            }
+            final int id = Block.BLOCK_STATE_IDS.get(state);
+            final Block block = state.getBlock();
+            table.states[id] = state;
+            table.masses[id] = getMassOfBlock(block);
+            table.flags[id] = getFlagsOfBlock(block);
+        }
+        stateTable = table;
+    }
+
+    /**
+     * @return The index of state in table, or -1 if it isn't in table.
+     */
+    private static int getTableIndex(StateTable table, IBlockState state) {
+        final int id = Block.BLOCK_STATE_IDS.get(state);
+        // The ids may have changed since the table was built
+        if (id >= 0 && id < table.states.length && table.states[id] == state) {
+            return id;
+        }
+        return -1;
     }
 
     private static void generateMaterialMasses() {
@@ -115,7 +161,9 @@ public class BlockPhysicsDetails {
      * Get block mass, in kg.
      */
     public static double getMassFromState(IBlockState state) {
-        return getMassOfBlock(state.getBlock());
+        final StateTable table = stateTable;
+        final int index = getTableIndex(table, state);
+        return index != -1 ? table.masses[index] : getMassOfBlock(state.getBlock());
     }
 
     private static double getMassOfMaterial(Material material) {
@@ -138,9 +186,8 @@ public class BlockPhysicsDetails {
     static void getForceFromState(IBlockState state, BlockPos pos, World world,
         double secondsToApply,
         PhysicsObject obj, Vector3d toSet) {
-        Block block = state.getBlock();
-        if (block instanceof IBlockForceProvider) {
-            Vector3dc forceVector = ((IBlockForceProvider) block).getBlockForceInWorldSpace(world, pos, state,
+        if (isBlockForceProvider(state)) {
+            Vector3dc forceVector = ((IBlockForceProvider) state.getBlock()).getBlockForceInWorldSpace(world, pos, state,
                     obj, secondsToApply);
             if (forceVector == null) {
                 toSet.zero();
@@ -156,8 +203,62 @@ public class BlockPhysicsDetails {
      * Returns true if the given IBlockState can create force; otherwise it returns false.
      */
     public static boolean isBlockProvidingForce(IBlockState state) {
-        Block block = state.getBlock();
-        return block instanceof IBlockForceProvider || block instanceof IBlockTorqueProvider;
+        return (getFlags(state) & (FLAG_FORCE_PROVIDER | FLAG_TORQUE_PROVIDER)) != 0;
+    }
+
+    /**
+     * @return True if the block of state is an {@link IBlockForceProvider}.
+     */
+    public static boolean isBlockForceProvider(IBlockState state) {
+        return (getFlags(state) & FLAG_FORCE_PROVIDER) != 0;
+    }
+
+    /**
+     * @return True if the block of state is an {@link IBlockTorqueProvider}.
+     */
+    public static boolean isBlockTorqueProvider(IBlockState state) {
+        return (getFlags(state) & FLAG_TORQUE_PROVIDER) != 0;
+    }
+
+    /**
+     * @return False if state is in {@link #blocksToNotPhysicsInfuse}.
+     */
+    public static boolean isBlockPhysicsInfusable(IBlockState state) {
+        return (getFlags(state) & FLAG_NOT_PHYSICS_INFUSABLE) == 0;
+    }
+
+    private static byte getFlags(IBlockState state) {
+        final StateTable table = stateTable;
+        final int index = getTableIndex(table, state);
+        return index != -1 ? table.flags[index] : getFlagsOfBlock(state.getBlock());
+    }
+
+    private static byte getFlagsOfBlock(Block block) {
+        byte flags = 0;
+        if (block instanceof IBlockForceProvider) {
+            flags |= FLAG_FORCE_PROVIDER;
+        }
+        if (block instanceof IBlockTorqueProvider) {
+            flags |= FLAG_TORQUE_PROVIDER;
+        }
+        if (blocksToNotPhysicsInfuse.contains(block)) {
+            flags |= FLAG_NOT_PHYSICS_INFUSABLE;
+        }
+        return flags;
+    }
+
+    private static class StateTable {
+
+        // The state each id was given when the table was built, to catch ids that changed since.
+        final IBlockState[] states;
+        final double[] masses;
+        final byte[] flags;
+
+        StateTable(int size) {
+            this.states = new IBlockState[size];
+            this.masses = new double[size];
+            this.flags = new byte[size];
+        }
     }
 
 }
@@ -15,6 +15,15 @@ public interface IPhysicsBlockController extends Comparable<IPhysicsBlockControl
     void onPhysicsTick(PhysicsObject object, PhysicsCalculations calculations,
         double secondsToSimulate);
 
+    /**
+     * A ship only falls asleep if all of its controllers allow it, see {@link ShipSleepManager}. Controllers that do
+     * allow it should call {@link PhysicsCalculations#wakeUp()} whenever their output changes, since they aren't
+     * ticked while the ship is asleep.
+     */
+    default boolean canShipSleep() {
+        return false;
+    }
+
     /**
      * Returns the position of the TileEntity that is behind this interface.
      */
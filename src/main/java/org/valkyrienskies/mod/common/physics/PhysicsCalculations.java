@@ -19,6 +19,7 @@ import org.valkyrienskies.mod.common.collision.WorldPhysicsCollider;
 import org.valkyrienskies.mod.common.collision.WorldWaterCollider;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.ships.ship_world.ShipPilot;
 import valkyrienwarfare.api.TransformType;
@@ -27,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Random;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -34,6 +36,9 @@ public class PhysicsCalculations {
 
     public static final double DRAG_CONSTANT = .99D;
     public static final double EPSILON = .00000001;
+    // Below these speeds, in m/s and rad/s, a ship counts as resting
+    private static final double SLEEP_LINEAR_SPEED = .05;
+    private static final double SLEEP_ANGULAR_SPEED = .02;
 
     private final PhysicsObject parent;
     private final WorldPhysicsCollider worldCollision;
@@ -51,6 +56,11 @@ public class PhysicsCalculations {
     private double physTickTimeDelta;
     private Matrix3dc physMOITensor;
     private Matrix3dc physInvMOITensor;
+    // The rotation and body frame inertia physMOITensor was calculated from, so it's only calculated again when one of
+    // them changes.
+    private final Matrix3d framedMOIRotation;
+    private final Matrix3d currentRotation;
+    private Matrix3dc framedMOIBodyTensor;
     private Quaterniondc physRotation;
     private double physX, physY, physZ;
 
@@ -58,18 +68,55 @@ public class PhysicsCalculations {
     private final Vector3d linearVelocity;
     @Getter
     private final Vector3d angularVelocity;
+    /**
+     * All the randomness in the physics of this ship comes from here, so that {@link PhysicsReplay} can make a run
+     * repeatable by seeding it. Only used by the physics thread.
+     */
+    @Getter
+    private final Random physicsRandom;
 
     // If (forceToUseGameTransform == true) then reset the physics transform to the ShipData transform.
     @Setter
     private boolean forceToUseGameTransform;
 
+    /**
+     * A sleeping ship isn't ticked until something disturbs it, see {@link ShipSleepManager}. Only changed by the
+     * physics thread.
+     */
+    @Getter
+    private volatile boolean asleep;
+    private volatile boolean wakeUpRequested;
+    // How many seconds this ship has been resting for. Only used by the physics thread.
+    private double restingTime;
+    // The body frame inertia the last time this ship was checked for disturbances, it's replaced whenever a block on
+    // the ship changes.
+    private Matrix3dc restingMOITensor;
+
+    /**
+     * How often this ship is simulated. Only changed by the physics thread.
+     */
+    @Getter
+    private volatile PhysicsLod physicsLod = PhysicsLod.FULL;
+    // The physics ticks and seconds since this ship was last ticked. Only used by the physics thread.
+    private int ticksSinceLodTick;
+    private double secondsSinceLodTick;
+    /**
+     * The seconds to simulate this ship for when it is ticked, set by {@link #advanceLod(PhysicsLod, double)}.
+     */
+    @Getter
+    private double lodTimeStep;
+
     public PhysicsCalculations(PhysicsObject parent) {
         this.parent = parent;
+        this.physicsRandom = new Random();
         this.worldCollision = new WorldPhysicsCollider(this);
         this.worldWaterCollider = new WorldWaterCollider(this);
 
         this.physMOITensor = null;
         this.physInvMOITensor = null;
+        this.framedMOIRotation = new Matrix3d();
+        this.currentRotation = new Matrix3d();
+        this.framedMOIBodyTensor = null;
 
         this.linearVelocity = new Vector3d(parent.getPhysicsData().getLinearVelocity());
         this.angularVelocity = new Vector3d(parent.getPhysicsData().getAngularVelocity());
@@ -98,6 +145,140 @@ public class PhysicsCalculations {
                 .updatePreviousPhysicsTransform();
     }
 
+    /**
+     * @return The state of the physics simulation of this ship, to be restored later with {@link
+     * #restoreState(PhysicsState)}. Must be called on the physics thread.
+     */
+    public PhysicsState saveState() {
+        final ShipTransformationManager transformationManager = getParent().getShipTransformationManager();
+        return new PhysicsState(physX, physY, physZ, physRotation, physCenterOfMass,
+            new Vector3d(linearVelocity), new Vector3d(angularVelocity),
+            transformationManager.getCurrentPhysicsTransform(), transformationManager.getPrevPhysicsTransform(),
+            getParent().getShipData().isPhysicsEnabled());
+    }
+
+    /**
+     * Puts the physics simulation of this ship back to the given state. The collision caches are thrown away as well,
+     * so that the ship simulates the same way every time it is restored to the same state. Must be called on the
+     * physics thread.
+     */
+    public void restoreState(PhysicsState state) {
+        physX = state.getPhysX();
+        physY = state.getPhysY();
+        physZ = state.getPhysZ();
+        physRotation = state.getPhysRotation();
+        physCenterOfMass = state.getPhysCenterOfMass();
+        linearVelocity.set(state.getLinearVelocity());
+        angularVelocity.set(state.getAngularVelocity());
+        force.zero();
+        torque.zero();
+
+        final ShipTransformationManager transformationManager = getParent().getShipTransformationManager();
+        transformationManager.setCurrentPhysicsTransform(state.getCurrentPhysicsTransform());
+        transformationManager.setPrevPhysicsTransform(state.getPrevPhysicsTransform());
+        getParent().getShipData().getPhysicsData().setLinearVelocity(new Vector3d(linearVelocity));
+        getParent().getShipData().getPhysicsData().setAngularVelocity(new Vector3d(angularVelocity));
+        if (getParent().getShipData().isPhysicsEnabled() != state.isPhysicsEnabled()) {
+            getParent().getShipData().setPhysicsEnabled(state.isPhysicsEnabled());
+        }
+
+        worldCollision.resetCollisionCache();
+        worldWaterCollider.resetCollisionCache();
+    }
+
+    /**
+     * Wakes this ship up if it is asleep, and restarts the time it has to rest for before it can fall asleep. Can be
+     * called from any thread.
+     */
+    public void wakeUp() {
+        wakeUpRequested = true;
+    }
+
+    /**
+     * Called by the physics thread before every tick.
+     *
+     * @return True if this ship was disturbed since the last call, in which case it has to be awake.
+     */
+    boolean checkDisturbed() {
+        final Matrix3dc inertiaBodyFrame = parent.getInertiaData().getGameMoITensor();
+        final boolean disturbed = wakeUpRequested || inertiaBodyFrame != restingMOITensor || !canSleep();
+        wakeUpRequested = false;
+        restingMOITensor = inertiaBodyFrame;
+        if (disturbed) {
+            restingTime = 0;
+        }
+        return disturbed;
+    }
+
+    /**
+     * Called by the physics thread after every tick this ship was awake for.
+     *
+     * @return True if this ship has been resting for long enough to fall asleep.
+     */
+    boolean updateRestingTime(double timeStep) {
+        if (linearVelocity.lengthSquared() < SLEEP_LINEAR_SPEED * SLEEP_LINEAR_SPEED
+            && angularVelocity.lengthSquared() < SLEEP_ANGULAR_SPEED * SLEEP_ANGULAR_SPEED) {
+            restingTime += timeStep;
+        } else {
+            restingTime = 0;
+        }
+        return restingTime >= VSConfig.shipSleepDelay;
+    }
+
+    void fallAsleep() {
+        asleep = true;
+        restingTime = 0;
+        linearVelocity.zero();
+        angularVelocity.zero();
+        getParent().getShipData().getPhysicsData().setLinearVelocity(new Vector3d());
+        getParent().getShipData().getPhysicsData().setAngularVelocity(new Vector3d());
+    }
+
+    void wakeUpNow() {
+        asleep = false;
+        // The time spent asleep isn't simulated
+        ticksSinceLodTick = 0;
+        secondsSinceLodTick = 0;
+        // The world may have changed around the ship while it was asleep
+        worldCollision.resetCollisionCache();
+        worldWaterCollider.resetCollisionCache();
+    }
+
+    /**
+     * Called by the physics thread before every tick this ship is awake for.
+     *
+     * @param lod   The level of detail this ship should be simulated at.
+     * @param delta The seconds the physics tick is for.
+     * @return True if this ship is due to be ticked this tick, for {@link #getLodTimeStep()} seconds.
+     */
+    public boolean advanceLod(PhysicsLod lod, double delta) {
+        ticksSinceLodTick++;
+        secondsSinceLodTick += delta;
+        // Moving to a finer level of detail catches up right away, moving to a coarser one waits for the next tick
+        if (ticksSinceLodTick < physicsLod.getTickInterval() && lod.compareTo(physicsLod) >= 0) {
+            return false;
+        }
+        physicsLod = lod;
+        lodTimeStep = secondsSinceLodTick;
+        ticksSinceLodTick = 0;
+        secondsSinceLodTick = 0;
+        return true;
+    }
+
+    // Ships that are being controlled can't sleep, since nothing would wake them up once the controls change
+    private boolean canSleep() {
+        if (!VSConfig.shipSleeping || forceToUseGameTransform || parent.isShipAligningToGrid()
+            || parent.getShipPilot() != null || !parent.getShipData().activeForcePositions.isEmpty()) {
+            return false;
+        }
+        for (final IPhysicsBlockController controller : parent.getPhysicsControllersInShip()) {
+            if (!controller.canShipSleep()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void rawPhysTickPreCol(double physTickTimeDelta) {
         updatePhysSpeedAndIters(physTickTimeDelta);
         updatePhysCenterOfMass();
@@ -192,25 +373,32 @@ public class PhysicsCalculations {
      * = R * I * R-transpose; where I' is the rotated inertia, I is un-rotated interim, and R is the
      * rotation matrix.
      * Reference: https://en.wikipedia.org/wiki/Moment_of_inertia#Inertia_matrix_in_different_reference_frames
+     * <p>
+     * Does nothing if neither the rotation nor the body frame inertia changed since the last call.
      */
     private void calculateFramedMOITensor() {
         // physCenterOfMass = new Vector(parent.getCenterCoord());
         physTickMass = parent.getInertiaData().getGameTickMass();
 
         // Copy the rotation matrix, ignore the translation and scaling parts.
-        Matrix3dc rotationMatrix = getParent().getShipTransformationManager()
-                .getCurrentPhysicsTransform().createRotationMatrix(TransformType.SUBSPACE_TO_GLOBAL);
+        getParent().getShipTransformationManager().getCurrentPhysicsTransform().getSubspaceToGlobal()
+                .get3x3(currentRotation);
 
         Matrix3dc inertiaBodyFrame = parent.getInertiaData().getGameMoITensor();
 
+        // The body frame inertia is replaced rather than modified whenever it changes
+        if (physMOITensor != null && inertiaBodyFrame == framedMOIBodyTensor
+                && currentRotation.equals(framedMOIRotation)) {
+            return;
+        }
+        framedMOIRotation.set(currentRotation);
+        framedMOIBodyTensor = inertiaBodyFrame;
 
-        Matrix3d rotationMatrixTranspose = rotationMatrix.transpose(new Matrix3d());
-
-
-        Matrix3d finalInertia = new Matrix3d(rotationMatrix);
+        // Other threads may hold on to the old tensors, so make new ones instead of changing them.
+        Matrix3d finalInertia = new Matrix3d(currentRotation);
         finalInertia.mul(inertiaBodyFrame);
-        finalInertia.mul(rotationMatrixTranspose);
-
+        // currentRotation is only scratch space from here on
+        finalInertia.mul(framedMOIRotation.transpose(currentRotation));
 
         physMOITensor = finalInertia;
         physInvMOITensor = physMOITensor.invert(new Matrix3d());
@@ -245,7 +433,7 @@ public class PhysicsCalculations {
                 IBlockState state = getParent().getChunkAt(mutablePos.getX() >> 4, mutablePos.getZ() >> 4).getBlockState(mutablePos);
                 Block blockAt = state.getBlock();
 
-                if (blockAt instanceof IBlockForceProvider) {
+                if (BlockPhysicsDetails.isBlockForceProvider(state)) {
                     try {
                         BlockPhysicsDetails.getForceFromState(state, mutablePos, worldObj,
                                 getPhysicsTimeDeltaPerPhysTick(),
@@ -273,7 +461,7 @@ public class PhysicsCalculations {
                         e.printStackTrace();
                     }
                 }
-                if (blockAt instanceof IBlockTorqueProvider) {
+                if (BlockPhysicsDetails.isBlockTorqueProvider(state)) {
                     // Add it to the torque sorted map; we do this so the torque dampeners can run
                     // after the gyroscope stabilizers.
                     IBlockTorqueProvider torqueProviderBlock = (IBlockTorqueProvider) blockAt;
@@ -524,6 +712,9 @@ public class PhysicsCalculations {
     }
 
     public void addForceAndTorque(final Vector3dc addedForce, final Vector3dc addedTorque) {
+        if (asleep) {
+            wakeUp();
+        }
         final double timeStep = getPhysicsTimeDeltaPerPhysTick();
         this.force.add(addedForce.x() * timeStep, addedForce.y() * timeStep, addedForce.z() * timeStep);
         this.torque.add(addedTorque.x() * timeStep, addedTorque.y() * timeStep, addedTorque.z() * timeStep);
@@ -0,0 +1,49 @@
+package org.valkyrienskies.mod.common.physics;
+
+import lombok.Getter;
+import org.valkyrienskies.mod.common.config.VSConfig;
+
+/**
+ * How often a ship is simulated, depending on how close the nearest player watching it is. A ship that isn't ticked
+ * every physics tick is ticked for the time of all the ticks it skipped at once, which also makes its collision caches
+ * update less often.
+ */
+@Getter
+public enum PhysicsLod {
+    // Ships near a player watching them, or touching another ship
+    FULL(1),
+    // Ships watched from further away
+    REDUCED(2),
+    // Ships no player watches
+    FAR(4);
+
+    // A ship has to be this many blocks past the full rate distance to leave FULL, so that ships near that distance
+    // don't keep switching back and forth.
+    private static final double HYSTERESIS = 16;
+
+    // The number of physics ticks between two ticks of a ship at this level of detail
+    private final int tickInterval;
+
+    PhysicsLod(int tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    /**
+     * @param current                  The level of detail of the ship right now.
+     * @param nearestWatcherDistanceSq The squared XZ distance to the nearest player watching the ship, or infinity if
+     *                                 no player watches it.
+     * @param touchingAnotherShip      Ship collisions are only simulated between ships that are ticked together, so
+     *                                 ships touching other ships are always simulated at the full rate.
+     */
+    public static PhysicsLod get(PhysicsLod current, double nearestWatcherDistanceSq, boolean touchingAnotherShip) {
+        if (!VSConfig.PHYSICS_LOD_SETTINGS.enabled || touchingAnotherShip) {
+            return FULL;
+        }
+        if (nearestWatcherDistanceSq == Double.POSITIVE_INFINITY) {
+            return FAR;
+        }
+        final double fullRateDistance = VSConfig.PHYSICS_LOD_SETTINGS.fullRateDistance
+            + (current == FULL ? HYSTERESIS : 0);
+        return nearestWatcherDistanceSq < fullRateDistance * fullRateDistance ? FULL : REDUCED;
+    }
+}
@@ -0,0 +1,70 @@
+package org.valkyrienskies.mod.common.physics;
+
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
+
+/**
+ * Keeps track of how long each {@link PhysicsTickPhase} took over the latest physics ticks, for either a single ship
+ * or a whole world.
+ * <p>
+ * Phase times are accumulated during a tick with {@link #addPhaseTime(PhysicsTickPhase, long)} and then committed to
+ * the ring buffers by {@link #endTick()}. Only the physics thread may write to this; any thread may read from it.
+ */
+public class PhysicsProfiler {
+
+    // The number of physics ticks kept for each phase.
+    public static final int SAMPLE_COUNT = 128;
+
+    private static final PhysicsTickPhase[] PHASES = PhysicsTickPhase.values();
+
+    private final LongRingBuffer[] phaseTimes;
+    private final LongRingBuffer totalTimes;
+    // The time spent in each phase during the current tick, only used by the physics thread.
+    private final long[] currentTickPhaseTimes;
+
+    public PhysicsProfiler() {
+        this.phaseTimes = new LongRingBuffer[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            this.phaseTimes[i] = new LongRingBuffer(SAMPLE_COUNT);
+        }
+        this.totalTimes = new LongRingBuffer(SAMPLE_COUNT);
+        this.currentTickPhaseTimes = new long[PHASES.length];
+    }
+
+    /**
+     * Adds time to the given phase of the current tick.
+     */
+    public void addPhaseTime(PhysicsTickPhase phase, long timeNano) {
+        currentTickPhaseTimes[phase.ordinal()] += timeNano;
+    }
+
+    /**
+     * @return The time spent in the given phase so far during the current tick.
+     */
+    public long getCurrentPhaseTime(PhysicsTickPhase phase) {
+        return currentTickPhaseTimes[phase.ordinal()];
+    }
+
+    /**
+     * Commits the phase times of the current tick into the ring buffers, and resets them for the next tick.
+     */
+    public void endTick() {
+        long total = 0;
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseTimes[i].add(currentTickPhaseTimes[i]);
+            total += currentTickPhaseTimes[i];
+            currentTickPhaseTimes[i] = 0;
+        }
+        totalTimes.add(total);
+    }
+
+    public LongRingBuffer getPhaseTimes(PhysicsTickPhase phase) {
+        return phaseTimes[phase.ordinal()];
+    }
+
+    /**
+     * @return The sum of all phase times, for each of the latest ticks.
+     */
+    public LongRingBuffer getTotalTimes() {
+        return totalTimes;
+    }
+}
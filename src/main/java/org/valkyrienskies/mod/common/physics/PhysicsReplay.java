@@ -0,0 +1,106 @@
+package org.valkyrienskies.mod.common.physics;
+
+import lombok.Value;
+import org.joml.Quaterniondc;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
+import org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Steps the physics of some ships for a number of ticks with a fixed time step, as fast as possible, and then puts them
+ * back the way they were. Every run from the same state with the same seed simulates the same way, so the hash of the
+ * final state shows whether a change to the physics code changed the simulation, and the tick times show how long the
+ * ships take to simulate.
+ * <p>
+ * State kept by the physics blocks of the ships, like the throttle of an engine, isn't saved or restored.
+ */
+public class PhysicsReplay {
+
+    /**
+     * Must be called on the physics thread of the world the ships are in, see {@link
+     * VSWorldPhysicsLoop#addScheduledTask(Runnable)}.
+     *
+     * @param ships The ships to step, see {@link VSWorldPhysicsLoop#getShipsToTick(Iterable)}.
+     */
+    public static Result run(VSWorldPhysicsLoop physicsLoop, List<PhysicsObject> ships, int ticks, double timeStep,
+        long seed) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Must replay at least one tick, got " + ticks);
+        }
+        // So that the result doesn't depend on the order the ships were loaded in
+        final List<PhysicsObject> sortedShips = new ArrayList<>(ships);
+        sortedShips.sort(Comparator.comparing(ship -> ship.getShipData().getUuid()));
+
+        final List<PhysicsState> savedStates = new ArrayList<>(sortedShips.size());
+        for (final PhysicsObject ship : sortedShips) {
+            savedStates.add(ship.getPhysicsCalculations().saveState());
+        }
+
+        final LongRingBuffer tickTimes = new LongRingBuffer(ticks);
+        final long stateHash;
+        try {
+            // Restoring throws away the collision caches, so that they don't depend on what happened before
+            for (int i = 0; i < sortedShips.size(); i++) {
+                final PhysicsCalculations calculations = sortedShips.get(i).getPhysicsCalculations();
+                calculations.restoreState(savedStates.get(i));
+                final UUID uuid = sortedShips.get(i).getShipData().getUuid();
+                calculations.getPhysicsRandom()
+                    .setSeed(seed ^ uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits());
+            }
+
+            for (int tick = 0; tick < ticks; tick++) {
+                final long tickStartTime = System.nanoTime();
+                physicsLoop.tickThePhysicsAndCollision(sortedShips, timeStep);
+                tickTimes.add(System.nanoTime() - tickStartTime);
+            }
+            stateHash = hashState(sortedShips);
+        } finally {
+            for (int i = 0; i < sortedShips.size(); i++) {
+                sortedShips.get(i).getPhysicsCalculations().restoreState(savedStates.get(i));
+            }
+        }
+        return new Result(sortedShips.size(), tickTimes, stateHash);
+    }
+
+    private static long hashState(List<PhysicsObject> ships) {
+        long hash = 0xCBF29CE484222325L;
+        for (final PhysicsObject ship : ships) {
+            final PhysicsState state = ship.getPhysicsCalculations().saveState();
+            hash = hash(hash, state.getPhysX());
+            hash = hash(hash, state.getPhysY());
+            hash = hash(hash, state.getPhysZ());
+            final Quaterniondc rotation = state.getPhysRotation();
+            hash = hash(hash, rotation.x());
+            hash = hash(hash, rotation.y());
+            hash = hash(hash, rotation.z());
+            hash = hash(hash, rotation.w());
+            hash = hash(hash, state.getLinearVelocity());
+            hash = hash(hash, state.getAngularVelocity());
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, Vector3dc vector) {
+        return hash(hash(hash(hash, vector.x()), vector.y()), vector.z());
+    }
+
+    // FNV-1a, but on a whole double at a time. Any difference in the simulation changes the hash.
+    private static long hash(long hash, double value) {
+        return (hash ^ Double.doubleToLongBits(value)) * 0x100000001B3L;
+    }
+
+    @Value
+    public static class Result {
+
+        int shipCount;
+        // The time each tick took, in nanoseconds
+        LongRingBuffer tickTimes;
+        long stateHash;
+    }
+}
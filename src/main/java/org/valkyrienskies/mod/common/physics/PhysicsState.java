@@ -0,0 +1,24 @@
+package org.valkyrienskies.mod.common.physics;
+
+import lombok.Value;
+import org.joml.Quaterniondc;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+
+/**
+ * The state of the physics simulation of a ship at the end of a physics tick.
+ *
+ * @see PhysicsCalculations#saveState()
+ */
+@Value
+public class PhysicsState {
+
+    double physX, physY, physZ;
+    Quaterniondc physRotation;
+    Vector3dc physCenterOfMass;
+    Vector3dc linearVelocity;
+    Vector3dc angularVelocity;
+    ShipTransform currentPhysicsTransform;
+    ShipTransform prevPhysicsTransform;
+    boolean physicsEnabled;
+}
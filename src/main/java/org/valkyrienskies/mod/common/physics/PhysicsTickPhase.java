@@ -0,0 +1,24 @@
+package org.valkyrienskies.mod.common.physics;
+
+import lombok.Getter;
+
+/**
+ * The phases of a physics tick, in the order they run in
+ * {@link org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop}.
+ */
+@Getter
+public enum PhysicsTickPhase {
+    PRE_COLLISION_FORCES("pre-collision forces"),
+    COLLISION_CACHE_UPDATE("collision cache update"),
+    COLLISION_TASKS("collision tasks"),
+    WATER_TASKS("water tasks"),
+    SHIP_COLLISION_TASKS("ship collision tasks"),
+    IMPULSE_RESOLUTION("impulse resolution"),
+    POST_COLLISION_INTEGRATION("post-collision integration");
+
+    private final String displayName;
+
+    PhysicsTickPhase(String displayName) {
+        this.displayName = displayName;
+    }
+}
@@ -0,0 +1,121 @@
+package org.valkyrienskies.mod.common.physics;
+
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.ships.ship_world.ShipBroadphase;
+import org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Puts ships that have stopped moving to sleep, so that they skip the physics tick and transform updates until
+ * something disturbs them: a block change on or around the ship, an explosion, a pilot, a force or another ship
+ * touching it. Ships whose bounding boxes overlap form an island, and an island only falls asleep or wakes up as a
+ * whole, so a ship resting against an awake ship stays awake.
+ * <p>
+ * Only used by the physics thread.
+ */
+public class ShipSleepManager {
+
+    private ShipBroadphase broadphase = ShipBroadphase.EMPTY;
+    // The ships of the current tick, and the island of each of them as the index of one of the ships in it
+    private List<PhysicsObject> ships = Collections.emptyList();
+    private Map<PhysicsObject, Integer> shipIndices = Collections.emptyMap();
+    private int[] islands = new int[0];
+    private int[] islandSizes = new int[0];
+
+    /**
+     * Wakes up the islands that have a disturbed or awake ship in them.
+     *
+     * @param shipsToTick The ships that could be ticked, see {@link VSWorldPhysicsLoop#getShipsToTick(Iterable)}.
+     * @return The ships that are awake, and have to be ticked.
+     */
+    public List<PhysicsObject> wakeUpShips(List<PhysicsObject> shipsToTick) {
+        ships = shipsToTick;
+        findIslands();
+
+        final boolean[] islandAwake = new boolean[ships.size()];
+        for (int i = 0; i < ships.size(); i++) {
+            final PhysicsCalculations calculations = ships.get(i).getPhysicsCalculations();
+            // Always check, so that disturbances from before the ship fell asleep are forgotten
+            if (calculations.checkDisturbed() || !calculations.isAsleep()) {
+                islandAwake[islands[i]] = true;
+            }
+        }
+
+        final List<PhysicsObject> awakeShips = new ArrayList<>(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            if (islandAwake[islands[i]]) {
+                final PhysicsCalculations calculations = ships.get(i).getPhysicsCalculations();
+                if (calculations.isAsleep()) {
+                    calculations.wakeUpNow();
+                }
+                awakeShips.add(ships.get(i));
+            }
+        }
+        return awakeShips;
+    }
+
+    /**
+     * Puts the islands that have been resting for long enough to sleep. Must be called after the ships returned by
+     * {@link #wakeUpShips(List)} were ticked.
+     */
+    public void putRestingShipsToSleep(double timeStep) {
+        final boolean[] islandMoving = new boolean[ships.size()];
+        for (int i = 0; i < ships.size(); i++) {
+            final PhysicsCalculations calculations = ships.get(i).getPhysicsCalculations();
+            // Every ship has to be checked, so that all of their resting times are updated
+            if (!calculations.isAsleep() && !calculations.updateRestingTime(timeStep)) {
+                islandMoving[islands[i]] = true;
+            }
+        }
+        for (int i = 0; i < ships.size(); i++) {
+            final PhysicsCalculations calculations = ships.get(i).getPhysicsCalculations();
+            if (!islandMoving[islands[i]] && !calculations.isAsleep()) {
+                calculations.fallAsleep();
+            }
+        }
+    }
+
+    /**
+     * @return True if the bounding box of ship overlaps that of another ship this tick. Must be called after {@link
+     * #wakeUpShips(List)}.
+     */
+    public boolean isTouchingAnotherShip(PhysicsObject ship) {
+        final Integer index = shipIndices.get(ship);
+        return index != null && islandSizes[islands[index]] > 1;
+    }
+
+    private void findIslands() {
+        islands = new int[ships.size()];
+        islandSizes = new int[ships.size()];
+        final Map<PhysicsObject, Integer> indices = new IdentityHashMap<>(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            islands[i] = i;
+            indices.put(ships.get(i), i);
+        }
+        shipIndices = indices;
+        broadphase = broadphase.update(ships, PhysicsObject::getPhysicsTransformAABB);
+        broadphase.forEachOverlappingPair((shipA, shipABounds, shipB, shipBBounds) -> {
+            final int islandA = findIsland(indices.get(shipA));
+            final int islandB = findIsland(indices.get(shipB));
+            islands[Math.max(islandA, islandB)] = Math.min(islandA, islandB);
+        });
+        for (int i = 0; i < islands.length; i++) {
+            islands[i] = findIsland(i);
+            islandSizes[islands[i]]++;
+        }
+    }
+
+    private int findIsland(int ship) {
+        while (islands[ship] != ship) {
+            // Path halving, keeps the trees flat
+            islands[ship] = islands[islands[ship]];
+            ship = islands[ship];
+        }
+        return ship;
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.resultset.ResultSet;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import mcp.MethodsReturnNonnullByDefault;
 import net.minecraft.util.math.BlockPos;
@@ -19,7 +20,9 @@ import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
 import org.valkyrienskies.mod.common.util.cqengine.UpdatableHashIndex;
 import org.valkyrienskies.mod.common.util.cqengine.UpdatableUniqueIndex;
+import org.valkyrienskies.mod.common.util.datastructures.ConcurrentLongObjectMap;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.function.BiConsumer;
@@ -39,6 +42,15 @@ public class QueryableShipData implements Iterable<ShipData> {
     // loaded in the World or not.
     private ConcurrentUpdatableIndexedCollection<ShipData> allShips;
 
+    // The ship claiming each chunk, keyed by ChunkPos.asLong(). Kept in sync with the CHUNKS index of allShips, but
+    // without the cost of a query, because getShipFromChunk() runs on every block change in the shipyard.
+    private final transient ConcurrentLongObjectMap<ShipData> chunkToShip = new ConcurrentLongObjectMap<>();
+
+    // Where the block positions of the ships are saved, null on the client.
+    @Setter
+    @Nullable
+    private transient ShipBlockDataStorage blockDataStorage;
+
     public QueryableShipData() {
         this(new ConcurrentUpdatableIndexedCollection<>());
     }
@@ -72,6 +84,7 @@ public class QueryableShipData implements Iterable<ShipData> {
         this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.UUID));
         this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.CHUNKS));
 
+        this.allShips.forEach(this::indexChunks);
     }
 
     /**
@@ -105,19 +118,7 @@ public class QueryableShipData implements Iterable<ShipData> {
     }
 
     public Optional<ShipData> getShipFromChunk(long chunkLong) {
-        Query<ShipData> query = equal(ShipData.CHUNKS, chunkLong);
-        try (ResultSet<ShipData> resultSet = allShips.retrieve(query)) {
-            if (resultSet.size() > 1) {
-                throw new IllegalStateException(
-                    "How the heck did we get 2 or more ships both managing the chunk at "
-                        + chunkLong);
-            }
-            if (resultSet.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(resultSet.uniqueResult());
-            }
-        }
+        return Optional.ofNullable(chunkToShip.get(chunkLong));
     }
 
     public Optional<ShipData> getShip(UUID uuid) {
@@ -143,11 +144,27 @@ public class QueryableShipData implements Iterable<ShipData> {
     }
 
     public void removeShip(UUID uuid) {
-        getShip(uuid).ifPresent(ship -> allShips.remove(ship));
+        getShip(uuid).ifPresent(this::removeShip);
     }
 
     public void removeShip(ShipData data) {
         allShips.remove(data);
+        unindexChunks(data);
+    }
+
+    /**
+     * Adds a chunk to the chunk claim of a ship in this collection, and updates the chunk index.
+     *
+     * @return True if the chunk wasn't already claimed
+     */
+    public boolean claimChunk(ShipData ship, int chunkX, int chunkZ) {
+        if (!ship.getChunkClaim().addChunkClaim(chunkX, chunkZ)) {
+            return false;
+        }
+        allShips.updateObjectIndices(ship, ShipData.CHUNKS);
+        chunkToShip.put(ChunkPos.asLong(chunkX, chunkZ), ship);
+        ship.markChunkClaimDirty();
+        return true;
     }
 
     public void addShip(ShipData ship) {
@@ -155,6 +172,7 @@ public class QueryableShipData implements Iterable<ShipData> {
             System.out.println(ship.getName());
         }
         allShips.add(ship);
+        indexChunks(ship);
     }
 
     /**
@@ -182,13 +200,26 @@ public class QueryableShipData implements Iterable<ShipData> {
             old.get().getInertiaData().setGameMoITensor(ship.getInertiaData().getGameMoITensor());
             old.get().getInertiaData().setGameTickMass(ship.getInertiaData().getGameTickMass());
             old.get().getInertiaData().setGameTickCenterOfMass(ship.getInertiaData().getGameTickCenterOfMass());
+            // Chunk claims only ever grow
+            ship.getChunkClaim().forEach((x, z) -> claimChunk(old.get(), x, z));
             return old.get();
         } else {
             this.allShips.add(ship);
+            indexChunks(ship);
             return ship;
         }
     }
 
+    /**
+     * Reads the block positions of the ship from disk if they haven't been read yet. Must be called before the block
+     * positions of a ship are used on the server.
+     */
+    public void ensureBlockDataLoaded(ShipData shipData) {
+        if (shipData.blockPositions == null && blockDataStorage != null) {
+            blockDataStorage.ensureLoaded(shipData);
+        }
+    }
+
     public void registerUpdateListener(
         BiConsumer<Iterable<ShipData>, Iterable<ShipData>> updateListener) {
         allShips.registerUpdateListener(updateListener);
@@ -202,6 +233,8 @@ public class QueryableShipData implements Iterable<ShipData> {
      */
     public void updateShipData(Iterable<ShipData> oldData, Iterable<ShipData> newData) {
         this.allShips.update(oldData, newData);
+        oldData.forEach(this::unindexChunks);
+        newData.forEach(this::indexChunks);
     }
 
     /**
@@ -214,6 +247,21 @@ public class QueryableShipData implements Iterable<ShipData> {
         this.updateShipData(Collections.singleton(oldData), Collections.singleton(newData));
     }
 
+    private void indexChunks(ShipData ship) {
+        for (final long chunkPos : ship.getChunkClaim().getClaimedChunks()) {
+            chunkToShip.put(chunkPos, ship);
+        }
+    }
+
+    private void unindexChunks(ShipData ship) {
+        for (final long chunkPos : ship.getChunkClaim().getClaimedChunks()) {
+            // Don't remove the chunks that have already been given to another ship
+            if (chunkToShip.get(chunkPos) == ship) {
+                chunkToShip.remove(chunkPos);
+            }
+        }
+    }
+
     @Override
     public Iterator<ShipData> iterator() {
         return allShips.iterator();
@@ -0,0 +1,155 @@
+package org.valkyrienskies.mod.common.ships;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.world.World;
+import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSet;
+import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSetAABB;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Saves the block positions of every ship in a file of its own, instead of in the world's ship index. This way saving
+ * the world only has to write the ships whose blocks changed since the last save, and the blocks of a ship are only
+ * read once the ship is loaded.
+ */
+@Log4j2
+public class ShipBlockDataStorage {
+
+    private static final String FILE_EXTENSION = ".vsblocks";
+
+    private final ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+    private final File directory;
+    // Ships whose block files exist but couldn't be read. Their files are never written or deleted, so that a read
+    // error can't turn into data loss.
+    private final Set<UUID> unreadableShips;
+
+    public ShipBlockDataStorage(@Nonnull File directory) {
+        this.directory = directory;
+        this.unreadableShips = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * @return The storage for the given server world, in the valkyrienskies/ships folder of its dimension.
+     */
+    @Nonnull
+    public static ShipBlockDataStorage forWorld(@Nonnull World world) {
+        File dimensionDirectory = world.getSaveHandler().getWorldDirectory();
+        String saveFolder = world.provider.getSaveFolder();
+        if (saveFolder != null) {
+            dimensionDirectory = new File(dimensionDirectory, saveFolder);
+        }
+        return new ShipBlockDataStorage(new File(dimensionDirectory, "valkyrienskies" + File.separator + "ships"));
+    }
+
+    /**
+     * Reads the block positions of shipData from its file, if we haven't already.
+     */
+    public void ensureLoaded(@Nonnull ShipData shipData) {
+        if (shipData.blockPositions != null) {
+            return;
+        }
+        final File file = getFile(shipData.getUuid());
+        if (file.exists()) {
+            try {
+                final ShipBlockData blockData = mapper.readValue(file, ShipBlockData.class);
+                shipData.blockPositions = blockData.blockPositions;
+                shipData.activeForcePositions = blockData.activeForcePositions;
+                shipData.setBlockDataDirty(false);
+                return;
+            } catch (IOException e) {
+                unreadableShips.add(shipData.getUuid());
+                log.fatal("Failed to read the blocks of " + shipData + ", the ship will be empty and its block file "
+                    + "won't be touched until the server restarts", e);
+            }
+        } else {
+            log.fatal("No block file found for " + shipData + ", the ship will be empty");
+        }
+        final int centerX = shipData.getChunkClaim().getCenterPos().getXStart();
+        final int centerZ = shipData.getChunkClaim().getCenterPos().getZStart();
+        shipData.blockPositions = new SmallBlockPosSetAABB(centerX, 0, centerZ, 1024, 1024, 1024);
+        shipData.activeForcePositions = new SmallBlockPosSet(centerX, centerZ);
+        // Nothing was read, so there is nothing new to write
+        shipData.setBlockDataDirty(false);
+    }
+
+    /**
+     * Writes the blocks of every ship whose blocks changed since the last save, and deletes the files of ships that
+     * don't exist anymore.
+     */
+    public void saveChanged(@Nonnull QueryableShipData queryableShipData) {
+        final long startTime = System.currentTimeMillis();
+        int shipsWritten = 0;
+        final Set<String> expectedFiles = new HashSet<>();
+        for (final ShipData shipData : queryableShipData) {
+            expectedFiles.add(getFile(shipData.getUuid()).getName());
+            if (shipData.blockPositions == null || !shipData.isBlockDataDirty()
+                || unreadableShips.contains(shipData.getUuid())) {
+                // Either never loaded, unchanged, or we'd be replacing a file we couldn't read
+                continue;
+            }
+            // Clear the flag first, so changes made while we're writing aren't lost
+            shipData.setBlockDataDirty(false);
+            try {
+                write(shipData);
+                shipsWritten++;
+            } catch (IOException e) {
+                shipData.setBlockDataDirty(true);
+                log.error("Failed to save the blocks of " + shipData, e);
+            }
+        }
+
+        for (final UUID unreadableShip : unreadableShips) {
+            expectedFiles.add(getFile(unreadableShip).getName());
+        }
+        // Delete the files of ships that were destroyed
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files != null) {
+            for (final File file : files) {
+                if (!expectedFiles.contains(file.getName()) && !file.delete()) {
+                    log.error("Failed to delete " + file);
+                }
+            }
+        }
+        log.debug("Saved the blocks of {} ships in {} ms", shipsWritten, System.currentTimeMillis() - startTime);
+    }
+
+    private void write(ShipData shipData) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        final ShipBlockData blockData = new ShipBlockData();
+        blockData.blockPositions = (SmallBlockPosSetAABB) shipData.blockPositions;
+        blockData.activeForcePositions = (SmallBlockPosSet) shipData.activeForcePositions;
+        final File file = getFile(shipData.getUuid());
+        // Write to a temporary file first, so a crash while saving can't leave a half written file behind
+        final File tempFile = new File(directory, file.getName() + ".tmp");
+        mapper.writeValue(tempFile, blockData);
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File getFile(UUID shipID) {
+        return new File(directory, shipID + FILE_EXTENSION);
+    }
+
+    /**
+     * What's in the file of each ship.
+     */
+    private static class ShipBlockData {
+        @Nullable
+        SmallBlockPosSetAABB blockPositions;
+        @Nullable
+        SmallBlockPosSet activeForcePositions;
+    }
+}
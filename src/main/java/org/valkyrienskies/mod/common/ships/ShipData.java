@@ -19,11 +19,14 @@ import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSetAABB;
 import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSet;
 import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSetAABB;
 import org.valkyrienskies.mod.common.util.jackson.annotations.PacketIgnore;
+import org.valkyrienskies.mod.common.util.jackson.annotations.StoredSeparately;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.googlecode.cqengine.query.QueryFactory.attribute;
 import static com.googlecode.cqengine.query.QueryFactory.nullableAttribute;
@@ -36,12 +39,24 @@ import static com.googlecode.cqengine.query.QueryFactory.nullableAttribute;
 @NoArgsConstructor(access = AccessLevel.PRIVATE, force = true) // For Jackson
 public class ShipData {
 
+    // Bits returned by pollDirtyFields(), for the fields that are sent to clients every tick they change.
+    public static final int DIRTY_TRANSFORM = 1;
+    public static final int DIRTY_PHYSICS_ENABLED = 1 << 1;
+    public static final int DIRTY_INERTIA = 1 << 2;
+    public static final int DIRTY_CHUNK_CLAIM = 1 << 3;
+
     /**
      * The {@link QueryableShipData} that manages this
      */
     @Getter(AccessLevel.NONE)
     private final transient ConcurrentUpdatableIndexedCollection<ShipData> owner;
 
+    /**
+     * The DIRTY_ bits of the fields that changed since the last call to {@link #pollDirtyFields()}
+     */
+    @Getter(AccessLevel.NONE)
+    private final transient AtomicInteger dirtyFields = new AtomicInteger();
+
     // region Data Fields
 
     /**
@@ -54,9 +69,11 @@ public class ShipData {
 
     /**
      * Do not use this for anything client side! Contains all of the non-air block positions on the ship.
-     * This is used for generating AABBs and deconstructing the ship.
+     * This is used for generating AABBs and deconstructing the ship. Null until the ship is first
+     * loaded, see {@link QueryableShipData#ensureBlockDataLoaded(ShipData)}.
      */
     @PacketIgnore
+    @StoredSeparately
     @Nullable
     @JsonSerialize(as = SmallBlockPosSetAABB.class)
     @JsonDeserialize(as = SmallBlockPosSetAABB.class)
@@ -66,24 +83,21 @@ public class ShipData {
      * Do not use this for anything client side! Contains all the positions of force producing blocks on the ship.
      */
     @PacketIgnore
+    @StoredSeparately
     @Nullable
     @JsonSerialize(as = SmallBlockPosSet.class)
     @JsonDeserialize(as = SmallBlockPosSet.class)
     public IBlockPosSet activeForcePositions;
 
-    @Setter
     private ShipTransform shipTransform;
 
-    @Setter
     private ShipTransform prevTickShipTransform;
 
-    @Setter
     private AxisAlignedBB shipBB;
 
     /**
      * Whether or not physics are enabled on this physo
      */
-    @Setter
     private boolean physicsEnabled;
 
     /**
@@ -101,6 +115,13 @@ public class ShipData {
      */
     private String name;
 
+    /**
+     * True if blockPositions or activeForcePositions changed since they were last saved by
+     * {@link ShipBlockDataStorage}. New ships have never been saved.
+     */
+    @Setter
+    private transient volatile boolean blockDataDirty = true;
+
     // endregion
 
     private ShipData(@NonNull ConcurrentUpdatableIndexedCollection<ShipData> owner,
@@ -139,6 +160,68 @@ public class ShipData {
         return this;
     }
 
+    public void setShipTransform(ShipTransform shipTransform) {
+        if (this.shipTransform == shipTransform) {
+            return;
+        }
+        this.shipTransform = shipTransform;
+        markDirty(DIRTY_TRANSFORM);
+    }
+
+    public void setPrevTickShipTransform(ShipTransform prevTickShipTransform) {
+        if (this.prevTickShipTransform == prevTickShipTransform) {
+            return;
+        }
+        this.prevTickShipTransform = prevTickShipTransform;
+        markDirty(DIRTY_TRANSFORM);
+    }
+
+    public void setShipBB(AxisAlignedBB shipBB) {
+        if (Objects.equals(this.shipBB, shipBB)) {
+            return;
+        }
+        this.shipBB = shipBB;
+        markDirty(DIRTY_TRANSFORM);
+    }
+
+    public void setPhysicsEnabled(boolean physicsEnabled) {
+        if (this.physicsEnabled == physicsEnabled) {
+            return;
+        }
+        this.physicsEnabled = physicsEnabled;
+        markDirty(DIRTY_PHYSICS_ENABLED);
+    }
+
+    // endregion
+
+    // region Dirty tracking
+
+    /**
+     * Called by {@link QueryableShipData#claimChunk(ShipData, int, int)} after the chunk claim grew.
+     */
+    void markChunkClaimDirty() {
+        markDirty(DIRTY_CHUNK_CLAIM);
+    }
+
+    private void markDirty(int fields) {
+        int current;
+        do {
+            current = dirtyFields.get();
+        } while ((current & fields) != fields && !dirtyFields.compareAndSet(current, current | fields));
+    }
+
+    /**
+     * Returns the DIRTY_ bits of every field that changed since the last time this was called, and resets them. Used by
+     * the server to only send the clients what changed.
+     */
+    public int pollDirtyFields() {
+        int polled = dirtyFields.getAndSet(0);
+        if (inertiaData.pollDirty()) {
+            polled |= DIRTY_INERTIA;
+        }
+        return polled;
+    }
+
     // endregion
 
     // region Attributes
@@ -42,6 +42,8 @@ public class ShipDataMethods {
             shipData.activeForcePositions.remove(pos);
         }
 
+        shipData.setBlockDataDirty(true);
+
         centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), pos, oldState, newState);
     }
 }
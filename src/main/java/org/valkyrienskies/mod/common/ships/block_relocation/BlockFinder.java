@@ -7,6 +7,18 @@ public class BlockFinder {
 
     public static SpatialDetector getBlockFinderFor(BlockFinderType id, BlockPos start, World worldIn, int maximum,
                                                     boolean checkCorners) {
+        SpatialDetector detector = createBlockFinderFor(id, start, worldIn, maximum, checkCorners);
+        detector.startDetection();
+        return detector;
+    }
+
+    /**
+     * Same as {@link #getBlockFinderFor(BlockFinderType, BlockPos, World, int, boolean)}, but leaves calling
+     * {@link SpatialDetector#startDetection()} to the caller. The detector only reads the chunks it gets here, so
+     * detection can run on another thread.
+     */
+    public static SpatialDetector createBlockFinderFor(BlockFinderType id, BlockPos start, World worldIn, int maximum,
+                                                       boolean checkCorners) {
         switch (id) {
             case FIND_ALLOWED_BLOCKS:
                 return new ShipSpawnDetector(start, worldIn, maximum, checkCorners);
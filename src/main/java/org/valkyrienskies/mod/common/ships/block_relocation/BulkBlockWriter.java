@@ -0,0 +1,207 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Writes block states straight into the chunk sections of a world, without any of the side effects of {@link
+ * World#setBlockState(BlockPos, IBlockState)}. The octrees and block counts of every section written to are only
+ * rebuilt once in {@link #finishSections()}, and the changed columns are relit together in {@link #relight()}.
+ * <p>
+ * Only sends the block changes to clients, it doesn't touch tile entities.
+ */
+public class BulkBlockWriter {
+
+    private final World world;
+    private final Set<ExtendedBlockStorage> changedSections;
+    private final TLongSet changedChunks;
+    // The lowest and highest y changed in each column, keyed by ChunkPos.asLong(x, z) of the column.
+    private final TLongIntMap columnMinY, columnMaxY;
+    // The columns relight() hasn't gotten to yet, null if it hasn't started.
+    private long[] columnsToRelight;
+    private int columnsRelit;
+    private Chunk lastReadChunk, lastWriteChunk;
+
+    public BulkBlockWriter(World world) {
+        this.world = world;
+        this.changedSections = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.changedChunks = new TLongHashSet();
+        this.columnMinY = new TLongIntHashMap();
+        this.columnMaxY = new TLongIntHashMap();
+    }
+
+    /**
+     * Sets a block of a section that isn't in the world yet, without updating its octrees or block counts. Call
+     * {@link #finishSection(ExtendedBlockStorage)} once done with it.
+     */
+    public static void setWithoutUpdates(ExtendedBlockStorage storage, int x, int y, int z, IBlockState state) {
+        final BlockStateContainer data = storage.getData();
+        // Same order as BlockStateContainer.set(). idFor() replaces data.storage when the palette has to grow, so it
+        // must be called before data.storage is read.
+        final int id = data.palette.idFor(state);
+        data.storage.setAt(x | z << 4 | y << 8, id);
+    }
+
+    /**
+     * Rebuilds the octrees and the block counts of a section that was written to by {@link
+     * #setWithoutUpdates(ExtendedBlockStorage, int, int, int, IBlockState)}.
+     */
+    public static void finishSection(ExtendedBlockStorage storage) {
+        ((ITerrainOctreeProvider) storage.getData()).rebuildOctrees();
+        storage.recalculateRefCounts();
+    }
+
+    public IBlockState getBlockState(BlockPos pos) {
+        final int chunkX = pos.getX() >> 4;
+        final int chunkZ = pos.getZ() >> 4;
+        if (lastReadChunk == null || lastReadChunk.x != chunkX || lastReadChunk.z != chunkZ) {
+            lastReadChunk = world.getChunk(chunkX, chunkZ);
+        }
+        final int storageIndex = pos.getY() >> 4;
+        if (storageIndex < 0 || storageIndex >= lastReadChunk.storageArrays.length
+            || lastReadChunk.storageArrays[storageIndex] == Chunk.NULL_BLOCK_STORAGE) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return lastReadChunk.storageArrays[storageIndex].get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+    }
+
+    /**
+     * Sets the block at pos, and sends the change to the players watching it.
+     */
+    public void setBlockState(BlockPos pos, IBlockState state) {
+        if (pos.getY() < 0 || pos.getY() > 255) {
+            return;
+        }
+        final ExtendedBlockStorage storage = getStorageForWrite(pos, state != Blocks.AIR.getDefaultState());
+        if (storage == Chunk.NULL_BLOCK_STORAGE) {
+            // Setting air in an empty section, nothing to do
+            return;
+        }
+        final IBlockState oldState = storage.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+        if (oldState == state) {
+            return;
+        }
+        setWithoutUpdates(storage, pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15, state);
+        changedSections.add(storage);
+        changedChunks.add(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+
+        final long column = ChunkPos.asLong(pos.getX(), pos.getZ());
+        if (!columnMinY.containsKey(column)) {
+            columnMinY.put(column, pos.getY());
+            columnMaxY.put(column, pos.getY());
+        } else {
+            columnMinY.put(column, Math.min(columnMinY.get(column), pos.getY()));
+            columnMaxY.put(column, Math.max(columnMaxY.get(column), pos.getY()));
+        }
+
+        // Only want to send the update to clients and nothing else, so we use flag 2.
+        world.notifyBlockUpdate(pos, oldState, state, 2);
+    }
+
+    /**
+     * Rebuilds the octrees and block counts of every section changed since the last call, and marks their chunks as
+     * needing to be saved. Must be called before the world is ticked again.
+     */
+    public void finishSections() {
+        for (final ExtendedBlockStorage storage : changedSections) {
+            finishSection(storage);
+        }
+        changedSections.clear();
+        changedChunks.forEach(chunkPos -> {
+            world.getChunk(getX(chunkPos), getZ(chunkPos)).markDirty();
+            return true;
+        });
+    }
+
+    /**
+     * Relights every column changed since the last call. The heightmap of each chunk is regenerated once, then each
+     * column is relit from just above the highest block changed to just below the lowest, and further down for as
+     * long as there is sky light left over from before the column was covered.
+     */
+    public void relight() {
+        relight(Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #relight()}, but stops once System.nanoTime() passes deadline.
+     *
+     * @return True if every column has been relit.
+     */
+    public boolean relight(long deadline) {
+        if (columnsToRelight == null) {
+            changedChunks.forEach(chunkPos -> {
+                world.getChunk(getX(chunkPos), getZ(chunkPos)).generateSkylightMap();
+                return true;
+            });
+            changedChunks.clear();
+            columnsToRelight = columnMinY.keys();
+            columnsRelit = 0;
+        }
+        final MutableBlockPos pos = new MutableBlockPos();
+        while (columnsRelit < columnsToRelight.length) {
+            if (columnsRelit % 32 == 0 && System.nanoTime() > deadline) {
+                return false;
+            }
+            final long column = columnsToRelight[columnsRelit++];
+            final int x = getX(column);
+            final int z = getZ(column);
+            final int minY = Math.max(columnMinY.get(column) - 1, 0);
+            final int maxY = Math.min(columnMaxY.get(column) + 1, 255);
+            for (int y = maxY; y >= minY; y--) {
+                world.checkLight(pos.setPos(x, y, z));
+            }
+            final Chunk chunk = world.getChunk(x >> 4, z >> 4);
+            for (int y = minY - 1; y >= 0; y--) {
+                pos.setPos(x, y, z);
+                if (chunk.canSeeSky(pos)
+                    || chunk.getLightFor(EnumSkyBlock.SKY, pos) != EnumSkyBlock.SKY.defaultLightValue) {
+                    break;
+                }
+                world.checkLightFor(EnumSkyBlock.SKY, pos);
+            }
+        }
+        columnsToRelight = null;
+        columnMinY.clear();
+        columnMaxY.clear();
+        return true;
+    }
+
+    private ExtendedBlockStorage getStorageForWrite(BlockPos pos, boolean create) {
+        final int chunkX = pos.getX() >> 4;
+        final int chunkZ = pos.getZ() >> 4;
+        if (lastWriteChunk == null || lastWriteChunk.x != chunkX || lastWriteChunk.z != chunkZ) {
+            lastWriteChunk = world.getChunk(chunkX, chunkZ);
+        }
+        final int storageIndex = pos.getY() >> 4;
+        if (create && lastWriteChunk.storageArrays[storageIndex] == Chunk.NULL_BLOCK_STORAGE) {
+            lastWriteChunk.storageArrays[storageIndex] = new ExtendedBlockStorage(storageIndex << 4,
+                world.provider.hasSkyLight());
+        }
+        return lastWriteChunk.storageArrays[storageIndex];
+    }
+
+    private static int getX(long chunkPos) {
+        return (int) (chunkPos & 4294967295L);
+    }
+
+    private static int getZ(long chunkPos) {
+        return (int) ((chunkPos >> 32) & 4294967295L);
+    }
+}
@@ -4,6 +4,8 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.util.math.Vec3i;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
@@ -12,6 +14,8 @@ import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class MoveBlocks {
@@ -46,12 +50,40 @@ public class MoveBlocks {
         // If this block is force block, then add it to the activeForcePositions list of the ship.
         if (physicsObject != null && BlockPhysicsDetails.isBlockProvidingForce(newState)) {
             physicsObject.getShipData().activeForcePositions.add(newPos);
+            physicsObject.getShipData().setBlockDataDirty(true);
         }
 
         // Now that we've copied the block to the position, copy the tile entity
         copyTileEntityToPos(world, oldPos, newPos, physicsObject);
     }
 
+    /**
+     * Copies the blocks at positions to the same positions plus offset, for moving a whole ship at once. Unlike calling
+     * {@link #copyBlockToPos(World, BlockPos, BlockPos, PhysicsObject)} for every block, the octrees of each section
+     * are only rebuilt once, and the changed columns are relit in a single pass at the end.
+     */
+    public static void copyBlocks(World world, Iterable<BlockPos> positions, Vec3i offset) {
+        final BulkBlockWriter writer = new BulkBlockWriter(world);
+        final MutableBlockPos newPos = new MutableBlockPos();
+        final List<BlockPos> tilePositions = new ArrayList<>();
+        for (final BlockPos oldPos : positions) {
+            final IBlockState state = writer.getBlockState(oldPos);
+            newPos.setPos(oldPos.getX() + offset.getX(), oldPos.getY() + offset.getY(), oldPos.getZ() + offset.getZ());
+            writer.setBlockState(newPos, state);
+            if (state.getBlock().hasTileEntity(state)) {
+                tilePositions.add(oldPos.toImmutable());
+            }
+        }
+        writer.finishSections();
+
+        // The tile entities can only be copied once their blocks are there
+        for (final BlockPos oldPos : tilePositions) {
+            copyTileEntityToPos(world, oldPos, oldPos.add(offset), null);
+        }
+
+        writer.relight();
+    }
+
     public static void copyTileEntityToPos(World world, BlockPos oldPos, BlockPos newPos, PhysicsObject physicsObject) {
         // Make a copy of the tile entity at oldPos to newPos
         TileEntity worldTile = world.getTileEntity(oldPos);
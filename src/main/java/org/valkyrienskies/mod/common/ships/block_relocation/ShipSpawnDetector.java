@@ -7,7 +7,6 @@ import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.world.World;
 import org.valkyrienskies.mod.common.config.VSConfig;
 
@@ -33,18 +32,14 @@ public class ShipSpawnDetector extends SpatialDetector {
             .forEach(blacklist::add);
     }
 
-    private final MutableBlockPos mutablePos = new MutableBlockPos();
-
     ShipSpawnDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners) {
         super(start, worldIn, maximum, checkCorners);
         // syncWithConfig();
-        startDetection();
     }
 
     @Override
     public boolean isValidExpansion(int x, int y, int z) {
-        mutablePos.setPos(x, y, z);
-        IBlockState state = cache.getBlockState(mutablePos);
+        IBlockState state = getBlockState(x, y, z);
         if (state.getBlock() == Blocks.BEDROCK) {
             cleanHouse = true;
             return false;
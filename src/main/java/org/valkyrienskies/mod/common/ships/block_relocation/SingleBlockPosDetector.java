@@ -12,7 +12,6 @@ public class SingleBlockPosDetector extends SpatialDetector {
 
     public SingleBlockPosDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners) {
         super(start, worldIn, maximum, false);
-        startDetection();
     }
 
     @Override
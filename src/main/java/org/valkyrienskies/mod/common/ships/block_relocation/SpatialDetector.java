@@ -1,17 +1,23 @@
 package org.valkyrienskies.mod.common.ships.block_relocation;
 
 import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TIntHashSet;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 /**
- * Used to efficiently detect a connected set of blocks TODO: Incorporate a scanline technique to
- * improve detection speed
+ * Used to efficiently detect a connected set of blocks. Only blocks in the chunks within {@link #CACHE_RADIUS} of the
+ * first block can be detected.
  *
  * @author thebest108
  */
@@ -20,6 +26,13 @@ public abstract class SpatialDetector {
     public static final int maxRange = 512;
     public static final int maxRangeHalved = maxRange / 2;
     public static final int maxRangeSquared = maxRange * maxRange;
+    // How far the chunks we read go from the first block, in blocks
+    public static final int CACHE_RADIUS = 128;
+    private static final int MAX_Y = 255;
+    // The neighbours of a column, as pairs of x and z offsets
+    private static final int[] SIDE_NEIGHBOURS = {1, 0, -1, 0, 0, 1, 0, -1};
+    private static final int[] ALL_NEIGHBOURS = {1, 0, -1, 0, 0, 1, 0, -1, 1, 1, 1, -1, -1, 1, -1, -1};
+
     public final TIntHashSet foundSet = new TIntHashSet(250);
     public final BlockPos firstBlock;
     public final MutableBlockPos tempPos = new MutableBlockPos();
@@ -27,18 +40,65 @@ public abstract class SpatialDetector {
     public final World worldObj;
     public final int maxSize;
     public final boolean corners;
-    public TIntHashSet nextQueue = new TIntHashSet();
     // public int totalCalls = 0;
     public boolean cleanHouse = false;
 
+    // The block storages of the chunks in the detection bounds, indexed by (chunkX - minChunkX) * chunksZ + chunkZ -
+    // minChunkZ. We read them directly rather than going through the cache, because it's much faster.
+    private final ExtendedBlockStorage[][] chunkStorages;
+    private final int minChunkX, minChunkZ, chunksX, chunksZ;
+    // One bit per block in the detection bounds, set once the block has been added to foundSet. Each 16x16x16 section
+    // gets its own 4096 bits, which are only allocated when the fill gets there.
+    private final long[][] visitedSections;
+
     public SpatialDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners) {
+        this(start, worldIn, maximum, checkCorners,
+            new ChunkCache(worldIn, new BlockPos(start.getX() - CACHE_RADIUS, 0, start.getZ() - CACHE_RADIUS),
+                new BlockPos(start.getX() + CACHE_RADIUS, MAX_Y, start.getZ() + CACHE_RADIUS), 0),
+            getChunkStorages(worldIn, start));
+    }
+
+    /**
+     * @param chunkStorages The block storages of the chunks within {@link #CACHE_RADIUS} of start, see {@link
+     *                      #getChunkStorages(World, BlockPos)}.
+     */
+    SpatialDetector(BlockPos start, @Nullable World worldIn, int maximum, boolean checkCorners,
+        @Nullable ChunkCache cache, ExtendedBlockStorage[][] chunkStorages) {
         firstBlock = start;
         worldObj = worldIn;
         maxSize = maximum;
         corners = checkCorners;
-        BlockPos minPos = new BlockPos(start.getX() - 128, 0, start.getZ() - 128);
-        BlockPos maxPos = new BlockPos(start.getX() + 128, 255, start.getZ() + 128);
-        cache = new ChunkCache(worldIn, minPos, maxPos, 0);
+        this.cache = cache;
+        this.minChunkX = (start.getX() - CACHE_RADIUS) >> 4;
+        this.minChunkZ = (start.getZ() - CACHE_RADIUS) >> 4;
+        this.chunksX = ((start.getX() + CACHE_RADIUS) >> 4) - minChunkX + 1;
+        this.chunksZ = ((start.getZ() + CACHE_RADIUS) >> 4) - minChunkZ + 1;
+        if (chunkStorages.length != chunksX * chunksZ) {
+            throw new IllegalArgumentException("Expected the storages of " + chunksX * chunksZ + " chunks, got "
+                + chunkStorages.length);
+        }
+        this.chunkStorages = chunkStorages;
+        this.visitedSections = new long[chunksX * 16 * chunksZ][];
+    }
+
+    /**
+     * Loads the chunks within {@link #CACHE_RADIUS} of start, and returns their block storages in the order {@link
+     * SpatialDetector} expects. Must be called on the game thread.
+     */
+    static ExtendedBlockStorage[][] getChunkStorages(World world, BlockPos start) {
+        final int minChunkX = (start.getX() - CACHE_RADIUS) >> 4;
+        final int minChunkZ = (start.getZ() - CACHE_RADIUS) >> 4;
+        final int maxChunkX = (start.getX() + CACHE_RADIUS) >> 4;
+        final int maxChunkZ = (start.getZ() + CACHE_RADIUS) >> 4;
+        final int chunksZ = maxChunkZ - minChunkZ + 1;
+        final ExtendedBlockStorage[][] chunkStorages = new ExtendedBlockStorage[(maxChunkX - minChunkX + 1) * chunksZ][];
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                chunkStorages[(chunkX - minChunkX) * chunksZ + chunkZ - minChunkZ] = world.getChunk(chunkX, chunkZ)
+                    .getBlockStorageArray();
+            }
+        }
+        return chunkStorages;
     }
 
     public static int getHashWithRespectTo(int realX, int realY, int realZ, BlockPos start) {
@@ -87,107 +147,152 @@ public abstract class SpatialDetector {
         return detectedBlockPos;
     }
 
+    /**
+     * Reads the block storages of the chunks directly, so this is safe to call from the thread running the detection.
+     *
+     * @return The block state at the given position, or air if it is outside the detection bounds.
+     */
+    public final IBlockState getBlockState(int x, int y, int z) {
+        final int chunkX = (x >> 4) - minChunkX;
+        final int chunkZ = (z >> 4) - minChunkZ;
+        if (chunkX < 0 || chunkX >= chunksX || chunkZ < 0 || chunkZ >= chunksZ || y < 0 || y > MAX_Y) {
+            return Blocks.AIR.getDefaultState();
+        }
+        final ExtendedBlockStorage storage = chunkStorages[chunkX * chunksZ + chunkZ][y >> 4];
+        if (storage == Chunk.NULL_BLOCK_STORAGE) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return storage.get(x & 15, y & 15, z & 15);
+    }
+
+    public final IBlockState getBlockState(BlockPos pos) {
+        return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * A scanline flood fill: every seed is grown up and down into the longest column of valid blocks, and then the
+     * columns next to it are walked to find the seeds of the next columns. Stops as soon as maxSize blocks are found,
+     * or once cleanHouse is set.
+     */
     protected void calculateSpatialOccupation() {
-        nextQueue
-            .add(firstBlock.getY() + maxRange * maxRangeHalved + maxRangeSquared * maxRangeHalved);
-        MutableBlockPos inRealWorld = new MutableBlockPos();
-        int hash;
-        while (!nextQueue.isEmpty() && !cleanHouse) {
-            TIntIterator queueIter = nextQueue.iterator();
-            foundSet.addAll(nextQueue);
-            nextQueue = new TIntHashSet();
-            while (queueIter.hasNext()) {
-                hash = queueIter.next();
-                setPosWithRespectTo(hash, firstBlock, inRealWorld);
-                if (corners) {
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() - 1,
-                        hash - maxRange - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - maxRange - 1);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() + 1,
-                        hash - maxRange - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRange - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash - maxRange);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash - maxRange + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() - 1,
-                        hash - maxRange + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash - maxRange + 1);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() + 1,
-                        hash - maxRange + 1 + maxRangeSquared);
-
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ() - 1,
-                        hash - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ() + 1,
-                        hash - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ() - 1,
-                        hash + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ() + 1,
-                        hash + 1 + maxRangeSquared);
-
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() - 1,
-                        hash + maxRange - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash + maxRange - 1);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() + 1,
-                        hash + maxRange - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash + maxRange - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash + maxRange);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRange + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() - 1,
-                        hash + maxRange + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + maxRange + 1);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() + 1,
-                        hash + maxRange + 1 + maxRangeSquared);
-                } else {
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash + maxRange);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash - maxRange);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRangeSquared);
+        final int[] neighbours = corners ? ALL_NEIGHBOURS : SIDE_NEIGHBOURS;
+        final TIntArrayList seeds = new TIntArrayList();
+        // The first block is always part of the set, even if it isn't a valid expansion
+        seeds.add(packSeed(firstBlock.getX(), firstBlock.getY(), firstBlock.getZ()));
+
+        while (!seeds.isEmpty() && !cleanHouse && foundSet.size() < maxSize) {
+            final int seed = seeds.removeAt(seeds.size() - 1);
+            final int x = unpackSeedX(seed);
+            final int y = unpackSeedY(seed);
+            final int z = unpackSeedZ(seed);
+            if (!isInBounds(x, y, z) || isVisited(x, y, z)) {
+                continue;
+            }
+
+            // Grow the seed into a column
+            int minY = y;
+            while (minY > 0 && !isVisited(x, minY - 1, z) && isValidExpansion(x, minY - 1, z)) {
+                minY--;
+            }
+            int maxY = y;
+            while (maxY < MAX_Y && !isVisited(x, maxY + 1, z) && isValidExpansion(x, maxY + 1, z)) {
+                maxY++;
+            }
+            if (cleanHouse) {
+                return;
+            }
+
+            for (int columnY = minY; columnY <= maxY; columnY++) {
+                if (foundSet.size() >= maxSize) {
+                    // Give up, the caller only needs to know there are too many blocks
+                    return;
+                }
+                setVisited(x, columnY, z);
+                foundSet.add(getHashWithRespectTo(x, columnY, z, firstBlock));
+            }
+
+            // Then look for new seeds in the neighbouring columns. With corners the blocks diagonally above and below
+            // the column count too.
+            final int scanMinY = corners ? Math.max(minY - 1, 0) : minY;
+            final int scanMaxY = corners ? Math.min(maxY + 1, MAX_Y) : maxY;
+            for (int i = 0; i < neighbours.length; i += 2) {
+                final int neighbourX = x + neighbours[i];
+                final int neighbourZ = z + neighbours[i + 1];
+                if (!isInBounds(neighbourX, 0, neighbourZ)) {
+                    continue;
+                }
+                boolean inRun = false;
+                for (int neighbourY = scanMinY; neighbourY <= scanMaxY; neighbourY++) {
+                    if (!isVisited(neighbourX, neighbourY, neighbourZ)
+                        && isValidExpansion(neighbourX, neighbourY, neighbourZ)) {
+                        // Only the first block of each run needs to be a seed, growing it finds the rest
+                        if (!inRun) {
+                            seeds.add(packSeed(neighbourX, neighbourY, neighbourZ));
+                            inRun = true;
+                        }
+                    } else {
+                        inRun = false;
+                    }
                 }
             }
         }
     }
 
-    protected void tryExpanding(int x, int y, int z, int hash) {
-        if (isValidExpansion(x, y, z)) {
-            // totalCalls++;
-            if (!foundSet.contains(hash) && (foundSet.size() + nextQueue.size() < maxSize)) {
-                nextQueue.add(hash);
-            }
+    private boolean isInBounds(int x, int y, int z) {
+        final int chunkX = (x >> 4) - minChunkX;
+        final int chunkZ = (z >> 4) - minChunkZ;
+        return chunkX >= 0 && chunkX < chunksX && chunkZ >= 0 && chunkZ < chunksZ && y >= 0 && y <= MAX_Y;
+    }
+
+    private int getSectionIndex(int x, int y, int z) {
+        return (((x >> 4) - minChunkX) * chunksZ + (z >> 4) - minChunkZ) * 16 + (y >> 4);
+    }
+
+    // Blocks in the same column are next to each other, so growing a column touches as few longs as possible.
+    private static int getIndexInSection(int x, int y, int z) {
+        return (y & 15) | (z & 15) << 4 | (x & 15) << 8;
+    }
+
+    private boolean isVisited(int x, int y, int z) {
+        final long[] section = visitedSections[getSectionIndex(x, y, z)];
+        if (section == null) {
+            return false;
         }
+        final int index = getIndexInSection(x, y, z);
+        return (section[index >> 6] & (1L << index)) != 0;
+    }
+
+    private void setVisited(int x, int y, int z) {
+        final int sectionIndex = getSectionIndex(x, y, z);
+        long[] section = visitedSections[sectionIndex];
+        if (section == null) {
+            section = new long[4096 / 64];
+            visitedSections[sectionIndex] = section;
+        }
+        final int index = getIndexInSection(x, y, z);
+        section[index >> 6] |= 1L << index;
+    }
+
+    // Positions are relative to the first block, each coordinate gets 10 bits
+    private int packSeed(int x, int y, int z) {
+        return (x - firstBlock.getX() + maxRangeHalved) | (y << 10) | (z - firstBlock.getZ() + maxRangeHalved) << 20;
+    }
+
+    private int unpackSeedX(int seed) {
+        return (seed & 1023) - maxRangeHalved + firstBlock.getX();
+    }
+
+    private static int unpackSeedY(int seed) {
+        return (seed >> 10) & 1023;
+    }
+
+    private int unpackSeedZ(int seed) {
+        return ((seed >> 20) & 1023) - maxRangeHalved + firstBlock.getZ();
     }
 
+    /**
+     * Called from the thread running the detection, so implementations must use {@link #getBlockState(int, int, int)}
+     * rather than the world.
+     */
     public abstract boolean isValidExpansion(int x, int y, int z);
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package org.valkyrienskies.mod.common.ships.chunk_claims;
 
 import lombok.extern.log4j.Log4j2;
+import net.minecraft.client.multiplayer.ChunkProviderClient;
 import net.minecraft.server.management.PlayerChunkMap;
 import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.util.math.BlockPos;
@@ -30,9 +31,9 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
     private final World world;
 
     // private final Map<Long, Chunk> claimedChunks;
+    // Covers the whole region of the claim, since the claim can grow.
     private final Chunk[][] claimedChunks;
     private final int chunkBottomX, chunkBottomZ;
-    private final int radius;
 
     /**
      * This constructor is expensive; it loads all the chunks when it's called. Be warned.
@@ -42,11 +43,9 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
     public ClaimedChunkCacheController(PhysicsObject parent) {
         this.world = parent.getWorld();
         this.parent = parent;
-        // TODO: Bad :(
-        this.radius = 7;
-        this.claimedChunks = new Chunk[radius * 2 + 1][radius * 2 + 1];
-        this.chunkBottomX = parent.getChunkClaim().getCenterPos().x - radius;
-        this.chunkBottomZ = parent.getChunkClaim().getCenterPos().z - radius;
+        this.claimedChunks = new Chunk[ShipChunkAllocator.REGION_LENGTH][ShipChunkAllocator.REGION_LENGTH];
+        this.chunkBottomX = parent.getChunkClaim().getCenterPos().x - ShipChunkAllocator.REGION_LENGTH / 2;
+        this.chunkBottomZ = parent.getChunkClaim().getCenterPos().z - ShipChunkAllocator.REGION_LENGTH / 2;
         loadChunksIntoCache();
     }
 
@@ -89,7 +88,8 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
         final int relativeChunkX = chunkX - chunkBottomX;
         final int relativeChunkZ = chunkZ - chunkBottomZ;
 
-        if (relativeChunkX < 0 || relativeChunkX >= radius * 2 + 1 || relativeChunkZ < 0 || relativeChunkZ >= radius * 2 + 1) {
+        if (relativeChunkX < 0 || relativeChunkX >= ShipChunkAllocator.REGION_LENGTH || relativeChunkZ < 0
+            || relativeChunkZ >= ShipChunkAllocator.REGION_LENGTH) {
             throw new ChunkNotInClaimException(chunkX, chunkZ);
         }
     }
@@ -106,35 +106,56 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
         claim.forEach((x, z) -> {
             // Added try catch to prevent ships deleting themselves because of a failed tile entity load.
             try {
-                Chunk chunk = world.getChunk(x, z);
+                Chunk chunk = world.isRemote ? getOrCreateClientChunk(x, z) : world.getChunk(x, z);
                 if (chunk.isEmpty()) { // if (chunk instanceof EmptyChunk) { [Changed because EmptyChunk is a 'client' class]
                     if (VSConfig.showAnnoyingDebugOutput) {
                         System.out.println("Why did we put an empty chunk at (" + x + "," + z + ")?");
                     }
                 }
-
-                // Do this to get it re-integrated into the world
-                if (!world.isRemote) {
-                    // Inject the entry into the player chunk map.
-                    PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
-                    PlayerChunkMapEntry entry = map.getOrCreateEntry(x, z);
-                    // Very important! We must update the chunk field of the entry to prevent old chunk objects from living on.
-                    // If this entry already existed and we forget, then we will corrupt the entry by having different chunks
-                    // in the world vs in the entries!
-                    entry.chunk = chunk;
-                    entry.sentToPlayers = true;
-                    entry.players = parent.getWatchingPlayers();
-                }
-
-                chunk.tileEntities.forEach(parent::onSetTileEntity);
-
-                setChunkAt(x, z, chunk);
+                cacheChunk(x, z, chunk);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         });
     }
 
+    /**
+     * Puts a chunk into the cache, used for the chunks the claim grows into. Must be called before the chunk is added
+     * to the claim, so that nothing can see the chunk claimed but not cached.
+     */
+    public void addChunk(Chunk chunk) {
+        cacheChunk(chunk.x, chunk.z, chunk);
+    }
+
+    private void cacheChunk(int x, int z, Chunk chunk) {
+        // Do this to get it re-integrated into the world
+        if (!world.isRemote) {
+            // Inject the entry into the player chunk map.
+            PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
+            PlayerChunkMapEntry entry = map.getOrCreateEntry(x, z);
+            // Very important! We must update the chunk field of the entry to prevent old chunk objects from living on.
+            // If this entry already existed and we forget, then we will corrupt the entry by having different chunks
+            // in the world vs in the entries!
+            entry.chunk = chunk;
+            entry.sentToPlayers = true;
+            entry.players = parent.getWatchingPlayers();
+        }
+
+        chunk.tileEntities.forEach(parent::onSetTileEntity);
+
+        setChunkAt(x, z, chunk);
+    }
+
+    /**
+     * The server doesn't send the claimed chunks that are empty, so the client makes them itself. The chunks that do
+     * have blocks replace these when they arrive, see {@link PhysicsObject#updateChunk(Chunk)}.
+     */
+    public Chunk getOrCreateClientChunk(int x, int z) {
+        ChunkProviderClient provider = (ChunkProviderClient) world.getChunkProvider();
+        Chunk chunk = provider.getLoadedChunk(x, z);
+        return chunk != null ? chunk : provider.loadChunk(x, z);
+    }
+
     public void deleteShipChunksFromWorld() {
         PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
 
@@ -166,10 +187,9 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
     @Override
     public Iterator<Chunk> iterator() {
         final List<Chunk> chunksList = new ArrayList<>();
-        for (Chunk[] chunks : claimedChunks) {
-            for (Chunk chunk : chunks) {
-                if (chunk != null) chunksList.add(chunk);
-            }
+        for (ChunkPos chunkPos : parent.getChunkClaim()) {
+            final Chunk chunk = getChunkAt(chunkPos.x, chunkPos.z);
+            if (chunk != null) chunksList.add(chunk);
         }
         return chunksList.iterator();
     }
@@ -6,6 +6,9 @@ import lombok.extern.log4j.Log4j2;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * <p />
  * This class allocates chunks for usage in ships. Chunks in these ship chunks, (oftentimes referred
@@ -16,8 +19,12 @@ import net.minecraft.util.math.ChunkPos;
  * This "shipyard" is necessary because TileEntities expect that they are in the same world as other
  * entities that are interacting with them.
  * <p />
- * The coordinate of the center of chunks allocated * for ship # N would be ({@link #CHUNK_X_START},
- * {@link #CHUNK_Z_START} + N*{@link #MAX_CHUNK_LENGTH}).
+ * The shipyard is packed into a grid of regions of {@link #REGION_LENGTH} x {@link #REGION_LENGTH} chunks, one region
+ * per ship, and {@link #REGIONS_PER_ROW} regions per row. The regions of destroyed ships are reused by new ships. A
+ * ship only claims the chunks of its region that it needs, see {@link VSChunkClaim}.
+ * <p />
+ * Ships created before the grid existed were centered on ({@link #CHUNK_X_START}, {@link #CHUNK_Z_START} +
+ * N*{@link #MAX_CHUNK_LENGTH}) instead, so the grid starts {@link #MAX_CHUNK_LENGTH} chunks further along x.
  */
 @Log4j2
 @NonNull
@@ -32,11 +39,25 @@ public class ShipChunkAllocator {
     public static final int CHUNK_X_START = 320000;
     public static final int CHUNK_Z_START = 0;
 
+    /**
+     * The length of the square of chunks a ship can claim chunks in. Matches the size of ShipData.blockPositions.
+     */
+    public static final int REGION_LENGTH = 64;
+    public static final int REGIONS_PER_ROW = 1024;
+    public static final int REGION_GRID_X_START = CHUNK_X_START + MAX_CHUNK_LENGTH;
+    public static final int REGION_GRID_Z_START = CHUNK_Z_START;
+
+    // Only used by worlds from before the region grid, kept so they still load.
     @Getter
     private int lastChunkX = CHUNK_X_START;
     @Getter
     private int lastChunkZ = CHUNK_Z_START;
 
+    @Getter
+    private int nextRegionIndex = 0;
+    // The regions of destroyed ships, which are given out again before any new ones.
+    private final List<Integer> freeRegions = new ArrayList<>();
+
     /**
      * Determines whether or not a chunk is in the shipyard
      * @param chunkX The z position of the chunk
@@ -66,11 +87,38 @@ public class ShipChunkAllocator {
     }
 
     /**
-     * This finds the next empty chunkSet for use, currently only increases the xPos to get new
-     * positions
+     * Gives out an unused region of the shipyard, preferring the regions of destroyed ships. The returned claim
+     * doesn't claim any chunks yet.
      */
     public VSChunkClaim allocateNextChunkClaim() {
-        return new VSChunkClaim(new ChunkPos(lastChunkX, lastChunkZ += MAX_CHUNK_LENGTH));
+        final int regionIndex = freeRegions.isEmpty() ? nextRegionIndex++ : freeRegions.remove(freeRegions.size() - 1);
+        return new VSChunkClaim(getRegionCenter(regionIndex));
+    }
+
+    /**
+     * Lets the region of claim be given out again. Its chunks must have been emptied first.
+     */
+    public void freeChunkClaim(VSChunkClaim claim) {
+        final ChunkPos centerPos = claim.getCenterPos();
+        final int column = (centerPos.x - REGION_GRID_X_START) / REGION_LENGTH;
+        final int row = (centerPos.z - REGION_GRID_Z_START) / REGION_LENGTH;
+        final int regionIndex = row * REGIONS_PER_ROW + column;
+        // Ships from before the region grid don't have a region we can reuse
+        if (centerPos.x < REGION_GRID_X_START || !getRegionCenter(regionIndex).equals(centerPos)) {
+            return;
+        }
+        if (freeRegions.contains(regionIndex)) {
+            log.error("Tried freeing the shipyard region " + regionIndex + " twice!");
+            return;
+        }
+        freeRegions.add(regionIndex);
+    }
+
+    private static ChunkPos getRegionCenter(int regionIndex) {
+        final int column = regionIndex % REGIONS_PER_ROW;
+        final int row = regionIndex / REGIONS_PER_ROW;
+        return new ChunkPos(REGION_GRID_X_START + column * REGION_LENGTH + REGION_LENGTH / 2,
+            REGION_GRID_Z_START + row * REGION_LENGTH + REGION_LENGTH / 2);
     }
 
 }
@@ -3,14 +3,24 @@ package org.valkyrienskies.mod.common.ships.chunk_claims;
 import lombok.Getter;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.ChunkCache;
+import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
+/**
+ * Keeps the {@link SurroundingChunks} of a ship up to date. The window covers the chunks of the ship's AABB plus a
+ * margin, and is only replaced when the ship leaves it or it has gotten much bigger than the ship needs. The physics
+ * threads may still be reading the old window, which is why it isn't moved in place.
+ */
 public class SurroundingChunkCacheController {
 
+    // The chunks added around the ship's AABB on every side, so that small movements don't move the window.
+    private static final int MARGIN = 1;
+    // The window is made again if it's more than this many chunks wider than the ship needs, after a ship shrinks.
+    private static final int MAX_EXTRA_SIZE = 4 * MARGIN;
+
     @Getter
-    private ChunkCache cachedChunks;
+    private volatile SurroundingChunks cachedChunks;
     private PhysicsObject physicsObject;
 
     public SurroundingChunkCacheController(PhysicsObject physicsObject) {
@@ -25,32 +35,37 @@ public class SurroundingChunkCacheController {
         BlockPos min = new BlockPos(cacheBB.minX, Math.max(cacheBB.minY, 0), cacheBB.minZ);
         BlockPos max = new BlockPos(cacheBB.maxX, Math.min(cacheBB.maxY, 255), cacheBB.maxZ);
 
-        if (!physicsObject.getWorld().isRemote) {
-            ChunkProviderServer serverChunkProvider = (ChunkProviderServer) physicsObject.getWorld()
-                .getChunkProvider();
+        int chunkMinX = min.getX() >> 4;
+        int chunkMaxX = max.getX() >> 4;
+        int chunkMinZ = min.getZ() >> 4;
+        int chunkMaxZ = max.getZ() >> 4;
 
-            int chunkMinX = min.getX() >> 4;
-            int chunkMaxX = max.getX() >> 4;
-            int chunkMinZ = min.getZ() >> 4;
-            int chunkMaxZ = max.getZ() >> 4;
+        IChunkProvider chunkProvider = physicsObject.getWorld().getChunkProvider();
 
-            boolean areSurroundingChunksLoaded = true;
+        if (!physicsObject.getWorld().isRemote) {
+            ChunkProviderServer serverChunkProvider = (ChunkProviderServer) chunkProvider;
 
-            outer:
             for (int chunkX = chunkMinX; chunkX <= chunkMaxX; chunkX++) {
                 for (int chunkZ = chunkMinZ; chunkZ <= chunkMaxZ; chunkZ++) {
-                    areSurroundingChunksLoaded = serverChunkProvider.chunkExists(chunkX, chunkZ);
-                    if (!areSurroundingChunksLoaded) {
-                        break outer;
+                    if (!serverChunkProvider.chunkExists(chunkX, chunkZ)) {
+                        // Keep the old chunks until these are loaded
+                        return;
                     }
                 }
             }
+        }
 
-            if (areSurroundingChunksLoaded) {
-                cachedChunks = new ChunkCache(physicsObject.getWorld(), min, max, 0);
-            }
+        SurroundingChunks current = cachedChunks;
+        int neededSizeX = chunkMaxX - chunkMinX + 1 + 2 * MARGIN;
+        int neededSizeZ = chunkMaxZ - chunkMinZ + 1 + 2 * MARGIN;
+        if (current == null || !current.containsChunks(chunkMinX, chunkMinZ, chunkMaxX, chunkMaxZ)
+            || current.getSizeX() > neededSizeX + MAX_EXTRA_SIZE || current.getSizeZ() > neededSizeZ + MAX_EXTRA_SIZE) {
+            SurroundingChunks moved = new SurroundingChunks(chunkMinX - MARGIN, chunkMinZ - MARGIN, neededSizeX,
+                neededSizeZ);
+            moved.updateChunks(chunkProvider);
+            cachedChunks = moved;
         } else {
-            cachedChunks = new ChunkCache(physicsObject.getWorld(), min, max, 0);
+            current.updateChunks(chunkProvider);
         }
     }
 }
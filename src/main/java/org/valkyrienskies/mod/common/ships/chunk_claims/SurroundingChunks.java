@@ -0,0 +1,102 @@
+package org.valkyrienskies.mod.common.ships.chunk_claims;
+
+import lombok.Getter;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.ITerrainOctreeProvider;
+
+import javax.annotation.Nullable;
+
+/**
+ * A fixed window of world chunks around a ship, read by the colliders on the physics threads. The window never moves,
+ * {@link SurroundingChunkCacheController} makes a new one when the ship leaves it, and otherwise only swaps the chunks
+ * inside it in place.
+ */
+public class SurroundingChunks {
+
+    @Getter
+    private final int minChunkX, minChunkZ, sizeX, sizeZ;
+    // Indexed by relativeChunkX * sizeZ + relativeChunkZ, null for chunks that weren't loaded.
+    private final Chunk[] chunks;
+
+    SurroundingChunks(int minChunkX, int minChunkZ, int sizeX, int sizeZ) {
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.sizeX = sizeX;
+        this.sizeZ = sizeZ;
+        this.chunks = new Chunk[sizeX * sizeZ];
+    }
+
+    /**
+     * @return The chunk at (chunkX, chunkZ), or null if it's outside of this window or wasn't loaded.
+     */
+    @Nullable
+    public Chunk getChunk(int chunkX, int chunkZ) {
+        final int relativeX = chunkX - minChunkX;
+        final int relativeZ = chunkZ - minChunkZ;
+        if (relativeX < 0 || relativeX >= sizeX || relativeZ < 0 || relativeZ >= sizeZ) {
+            return null;
+        }
+        return chunks[relativeX * sizeZ + relativeZ];
+    }
+
+    /**
+     * @return The section sectionY of the chunk at (chunkX, chunkZ), or null if there are no blocks in it.
+     */
+    @Nullable
+    public ExtendedBlockStorage getSection(int chunkX, int sectionY, int chunkZ) {
+        if (sectionY < 0 || sectionY >= 16) {
+            return null;
+        }
+        final Chunk chunk = getChunk(chunkX, chunkZ);
+        return chunk == null ? null : chunk.storageArrays[sectionY];
+    }
+
+    /**
+     * @return The octree of the solid blocks of a section, or null if there are no blocks in it.
+     */
+    @Nullable
+    public IBitOctree getSolidOctree(int chunkX, int sectionY, int chunkZ) {
+        final ExtendedBlockStorage section = getSection(chunkX, sectionY, chunkZ);
+        return section == null ? null : ((ITerrainOctreeProvider) section.data).getSolidOctree();
+    }
+
+    /**
+     * @return The octree of the liquid blocks of a section, or null if there are no blocks in it.
+     */
+    @Nullable
+    public IBitOctree getLiquidOctree(int chunkX, int sectionY, int chunkZ) {
+        final ExtendedBlockStorage section = getSection(chunkX, sectionY, chunkZ);
+        return section == null ? null : ((ITerrainOctreeProvider) section.data).getLiquidOctree();
+    }
+
+    /**
+     * @return True if the block at (x, y, z) is in this window and is solid.
+     */
+    public boolean isSolid(int x, int y, int z) {
+        final IBitOctree octree = getSolidOctree(x >> 4, y >> 4, z >> 4);
+        return octree != null && octree.get(x & 15, y & 15, z & 15);
+    }
+
+    boolean containsChunks(int chunkMinX, int chunkMinZ, int chunkMaxX, int chunkMaxZ) {
+        return chunkMinX >= minChunkX && chunkMinZ >= minChunkZ && chunkMaxX < minChunkX + sizeX
+            && chunkMaxZ < minChunkZ + sizeZ;
+    }
+
+    /**
+     * Replaces the chunks that got loaded or reloaded since the last call. Chunks that got unloaded are kept.
+     */
+    void updateChunks(IChunkProvider chunkProvider) {
+        for (int relativeX = 0; relativeX < sizeX; relativeX++) {
+            for (int relativeZ = 0; relativeZ < sizeZ; relativeZ++) {
+                final Chunk chunk = chunkProvider.getLoadedChunk(minChunkX + relativeX, minChunkZ + relativeZ);
+                final int index = relativeX * sizeZ + relativeZ;
+                if (chunk != null && chunks[index] != chunk) {
+                    chunks[index] = chunk;
+                }
+            }
+        }
+    }
+}
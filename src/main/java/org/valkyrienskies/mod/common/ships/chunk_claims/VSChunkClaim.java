@@ -3,6 +3,8 @@ package org.valkyrienskies.mod.common.ships.chunk_claims;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.math.BlockPos;
@@ -10,15 +12,20 @@ import net.minecraft.util.math.ChunkPos;
 
 import javax.annotation.concurrent.Immutable;
 import java.beans.ConstructorProperties;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 /**
  * This stores the chunk claims for a PhysicsObject; not the chunks themselves.
+ * <p>
+ * Every claim lives in a square region of {@link ShipChunkAllocator#REGION_LENGTH} chunks around its center, but only
+ * the chunks the ship actually uses are claimed. The claim starts out as the chunks the ship was assembled into, and
+ * grows as blocks get placed near its edges.
  *
  * @author tri0de
  */
@@ -29,18 +36,24 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
 
     private final ChunkPos centerPos;
     private final Set<Long> claimedChunks;
+    // One bit for every chunk of the region, so that containsChunk() is fast and safe to call from the physics threads.
+    @Getter(AccessLevel.NONE)
+    private final transient AtomicLongArray claimedBits;
 
     public VSChunkClaim(ChunkPos centerPos) {
         this.centerPos = centerPos;
-        this.claimedChunks = new HashSet<>();
+        this.claimedChunks = ConcurrentHashMap.newKeySet();
+        this.claimedBits = new AtomicLongArray(REGION_BITS_LENGTH);
     }
 
     @JsonCreator // This annotation tells Jackson to use this constructor for the class
     // The below annotation says which JSON properties correspond to which constructor arguments
     @ConstructorProperties({"centerPos", "claimedChunks"})
     private VSChunkClaim(ChunkPos centerPos, Set<Long> claimedChunks) {
-        this.centerPos = centerPos;
-        this.claimedChunks = claimedChunks;
+        this(centerPos);
+        for (long chunkPos : claimedChunks) {
+            addChunkClaim(getChunkX(chunkPos), getChunkZ(chunkPos));
+        }
     }
 
     public void writeToNBT(NBTTagCompound toSave) {
@@ -64,18 +77,8 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
      * @return True if the specified chunk is contained within this {@link VSChunkClaim}
      */
     public boolean containsChunk(int chunkX, int chunkZ) {
-        // long chunkLong = getChunkPos(chunkX, chunkZ);
-        // return claimedChunks.contains(chunkLong);
-        // Bad :(
-        final int radius = 7;
-
-        final int relativeChunkX = chunkX - centerPos.x + radius;
-        final int relativeChunkZ = chunkZ - centerPos.z + radius;
-
-        if (relativeChunkX < 0 || relativeChunkX >= radius * 2 + 1 || relativeChunkZ < 0 || relativeChunkZ >= radius * 2 + 1) {
-            return false;
-        }
-        return true;
+        final int bitIndex = getBitIndex(chunkX, chunkZ);
+        return bitIndex != -1 && (claimedBits.get(bitIndex >> 6) & (1L << bitIndex)) != 0;
     }
 
     public boolean containsChunk(ChunkPos pos) {
@@ -91,14 +94,35 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         return containsChunk(pos.getX() >> 4, pos.getZ() >> 4);
     }
 
+    /**
+     * Checks if a chunk is inside the region of this {@link VSChunkClaim}, which are the only chunks it can claim.
+     */
+    public boolean isChunkInRegion(int chunkX, int chunkZ) {
+        return getBitIndex(chunkX, chunkZ) != -1;
+    }
+
+    /**
+     * @return True if the chunk wasn't already claimed
+     * @throws IllegalArgumentException If the chunk isn't inside the region of this claim
+     */
     public boolean addChunkClaim(int chunkX, int chunkZ) {
-        long chunkPos = getChunkPos(chunkX, chunkZ);
-        return claimedChunks.add(chunkPos);
+        final int bitIndex = getBitIndex(chunkX, chunkZ);
+        if (bitIndex == -1) {
+            throw new IllegalArgumentException("Chunk (" + chunkX + ", " + chunkZ + ") is outside of the region of "
+                + this);
+        }
+        // Set the bit last, so that nobody sees the chunk as claimed before it's in claimedChunks
+        final boolean added = claimedChunks.add(getChunkPos(chunkX, chunkZ));
+        setBit(bitIndex, true);
+        return added;
     }
 
     public boolean removeChunkClaim(int chunkX, int chunkZ) {
-        long chunkPos = getChunkPos(chunkX, chunkZ);
-        return claimedChunks.remove(chunkPos);
+        final int bitIndex = getBitIndex(chunkX, chunkZ);
+        if (bitIndex != -1) {
+            setBit(bitIndex, false);
+        }
+        return claimedChunks.remove(getChunkPos(chunkX, chunkZ));
     }
 
     @Override
@@ -156,6 +180,30 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
     }
 
     // Helper functions, not meant to be exposed outside of VSChunkClaim
+    private static final int REGION_RADIUS = ShipChunkAllocator.REGION_LENGTH / 2;
+    private static final int REGION_BITS_LENGTH = ShipChunkAllocator.REGION_LENGTH * ShipChunkAllocator.REGION_LENGTH / 64;
+
+    /**
+     * @return The index of the bit of chunk in claimedBits, or -1 if the chunk isn't in the region of this claim.
+     */
+    private int getBitIndex(int chunkX, int chunkZ) {
+        final int relativeX = chunkX - centerPos.x + REGION_RADIUS;
+        final int relativeZ = chunkZ - centerPos.z + REGION_RADIUS;
+        if (relativeX < 0 || relativeX >= ShipChunkAllocator.REGION_LENGTH || relativeZ < 0
+            || relativeZ >= ShipChunkAllocator.REGION_LENGTH) {
+            return -1;
+        }
+        return relativeX * ShipChunkAllocator.REGION_LENGTH + relativeZ;
+    }
+
+    private void setBit(int bitIndex, boolean value) {
+        final long mask = 1L << bitIndex;
+        long current;
+        do {
+            current = claimedBits.get(bitIndex >> 6);
+        } while (!claimedBits.compareAndSet(bitIndex >> 6, current, value ? current | mask : current & ~mask));
+    }
+
     private static int getChunkX(long chunkPos) {
         return (int) (chunkPos & 4294967295L);
     }
@@ -0,0 +1,114 @@
+package org.valkyrienskies.mod.common.ships.load_test;
+
+import com.google.common.collect.ImmutableSet;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.EnumConnectionState;
+import net.minecraft.network.EnumPacketDirection;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.NetworkManager;
+import net.minecraft.network.Packet;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
+import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The connection of a fake player, backed by a netty channel that only exists in memory. Every packet sent to the
+ * player is serialized to count the bytes it would have taken on a real connection, without compression, and then
+ * thrown away.
+ * <p>
+ * Packets are sent from both the game thread and the physics thread, so the counters are atomic.
+ */
+class LoadTestConnection extends ChannelOutboundHandlerAdapter {
+
+    // The network channels ShipData and ship transforms are sent on, see ValkyrienSkiesMod.registerNetworks()
+    private static final Set<String> SHIP_CHANNELS = ImmutableSet.of("valkyrien_skies", "vs_ship_transforms");
+
+    private final EmbeddedChannel channel;
+    private final AtomicLong bytesSent;
+    private final AtomicLong shipBytesSent;
+
+    /**
+     * Connects player to a new in-memory channel, and sets its {@link EntityPlayerMP#connection}.
+     */
+    LoadTestConnection(@Nonnull MinecraftServer server, @Nonnull EntityPlayerMP player) {
+        this.bytesSent = new AtomicLong();
+        this.shipBytesSent = new AtomicLong();
+        final NetworkManager networkManager = new NetworkManager(EnumPacketDirection.CLIENTBOUND);
+        // Registering the channel makes it active, which gives the NetworkManager its channel
+        this.channel = new EmbeddedChannel(this, networkManager);
+        networkManager.setConnectionState(EnumConnectionState.PLAY);
+        // Forge only sends mod packets to players that have a dispatcher, it hands them to the NetworkManager as is
+        NetworkDispatcher.allocAndSet(networkManager, server.getPlayerList());
+        new NetHandlerPlayServer(server, networkManager, player);
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return The bytes of the ShipData and ship transform packets, a part of {@link #getBytesSent()}. Ship chunks are
+     * sent as vanilla chunk packets, so they are only counted in {@link #getBytesSent()}.
+     */
+    long getShipBytesSent() {
+        return shipBytesSent.get();
+    }
+
+    void resetCounters() {
+        bytesSent.set(0);
+        shipBytesSent.set(0);
+    }
+
+    void close() {
+        channel.close();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws IOException {
+        try {
+            if (msg instanceof FMLProxyPacket) {
+                final FMLProxyPacket packet = (FMLProxyPacket) msg;
+                // Sent as a custom payload packet, which is the channel name followed by the payload
+                final int size = getFramedSize(PacketBuffer.getVarIntSize(packet.channel().length())
+                    + packet.channel().length() + packet.payload().readableBytes());
+                bytesSent.addAndGet(size);
+                if (SHIP_CHANNELS.contains(packet.channel())) {
+                    shipBytesSent.addAndGet(size);
+                }
+            } else if (msg instanceof Packet) {
+                final PacketBuffer buffer = new PacketBuffer(Unpooled.buffer());
+                ((Packet<?>) msg).writePacketData(buffer);
+                bytesSent.addAndGet(getFramedSize(buffer.readableBytes()));
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+        promise.setSuccess();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        // Nothing is ever written past this handler, so there's nothing to flush
+    }
+
+    /**
+     * @return The size of a packet with dataSize bytes of data, once its id and length are added.
+     */
+    private static int getFramedSize(int dataSize) {
+        // Every clientbound packet id fits in a single byte
+        final int idAndData = 1 + dataSize;
+        return PacketBuffer.getVarIntSize(idAndData) + idAndData;
+    }
+}
@@ -0,0 +1,571 @@
+package org.valkyrienskies.mod.common.ships.load_test;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.authlib.GameProfile;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.init.Blocks;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.management.PlayerInteractionManager;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.joml.Vector3d;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.block_relocation.BlockFinder;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject.DeconstructState;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldServerShipManager;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
+import org.valkyrienskies.mod.common.util.multithreaded.IPhysTimeTask;
+import org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Spawns procedurally generated ships and fake players in a world, and moves them along scripted paths for a number of
+ * ticks while measuring how long the server and physics ticks take and how many bytes each player is sent.
+ * <p>
+ * The ships are spread on a grid high above the center, and the whole grid turns around the center like a wheel so
+ * that they never run into each other. The players fly in circles of different sizes around the center, the other way
+ * around, so that they keep starting and stopping to watch ships and ships keep getting loaded and unloaded. The fake
+ * players are real {@link EntityPlayerMP}s in the world, with a {@link LoadTestConnection} instead of a client.
+ * <p>
+ * Once the test is over the ships are deleted and the players removed. Ships that got unloaded are deleted by moving a
+ * player next to them until they are loaded again.
+ */
+@Log4j2
+public class ShipLoadTest implements IPhysTimeTask {
+
+    public enum Phase {
+        /**
+         * Waiting for the ships to be assembled.
+         */
+        SPAWNING,
+        /**
+         * Moving the ships and players, and measuring.
+         */
+        RUNNING,
+        /**
+         * Deleting the ships.
+         */
+        CLEANING_UP,
+        /**
+         * The players are gone, and so are the ships unless cleaning up took too long.
+         */
+        DONE
+    }
+
+    // The height the ships and players move at
+    public static final int HEIGHT = 180;
+    // How fast the outermost ships and the players move, in blocks per second
+    private static final double SHIP_SPEED = 10, PLAYER_SPEED = 8;
+    // How strongly ships that drifted off their path are pulled back onto it, per second, and how fast at most
+    private static final double PATH_CORRECTION = 2, MAX_CORRECTION_SPEED = 10;
+    // Give up on spawning or deleting the ships after this many ticks
+    private static final int MAX_SPAWN_TICKS = 1200, MAX_CLEANUP_TICKS = 1200;
+    private static final double TICKS_PER_SECOND = 20;
+
+    // The load tests that are running, by world. Only used by the game thread.
+    private static final Map<World, ShipLoadTest> RUNNING_TESTS = new HashMap<>();
+
+    private final ICommandSender sender;
+    private final WorldServer world;
+    private final WorldServerShipManager shipManager;
+    private final VSWorldPhysicsLoop physicsLoop;
+    private final double centerX, centerZ;
+    private final int ticks;
+    private final List<TestShip> ships;
+    private final List<TestPlayer> players;
+    // How fast the grid of ships turns, in radians per second. Set before the physics thread first sees this test.
+    private double shipAngularSpeed;
+    @Getter
+    private Phase phase;
+    private int phaseTicks;
+    private int failedShipCount;
+
+    // What was measured during the RUNNING phase, in nanoseconds. Written by the game thread, except for the physics
+    // tick times which are written by the physics thread.
+    private final LongRingBuffer serverTickTimes;
+    private final LongRingBuffer shipManagerTickTimes;
+    private final LongRingBuffer loadingTimes;
+    private final LongRingBuffer playerUpdateTimes;
+    private final LongRingBuffer physicsTickTimes;
+
+    // The loaded ships, published by the game thread every tick for the physics thread to move them.
+    private volatile ImmutableList<DrivenShip> drivenShips;
+    private volatile boolean measuringPhysics;
+    private volatile boolean movingShips;
+    // Physics thread only. How long the ships have been moving along their paths, in seconds.
+    private double pathTime;
+    // Written by the physics thread while measuring. The most load test ships that were asleep during one physics tick,
+    // which should stay 0 since the ships are woken up every tick.
+    private volatile int mostShipsAsleep;
+
+    private ShipLoadTest(ICommandSender sender, WorldServer world, double centerX, double centerZ, int ticks,
+        int shipCount, int playerCount) {
+        this.sender = sender;
+        this.world = world;
+        this.shipManager = ValkyrienUtils.getServerShipManager(world);
+        this.physicsLoop = shipManager.getPhysicsLoop();
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.ticks = ticks;
+        this.ships = new ArrayList<>(shipCount);
+        this.players = new ArrayList<>(playerCount);
+        this.phase = Phase.SPAWNING;
+        this.phaseTicks = 0;
+        this.failedShipCount = 0;
+
+        this.serverTickTimes = new LongRingBuffer(ticks);
+        this.shipManagerTickTimes = new LongRingBuffer(ticks);
+        this.loadingTimes = new LongRingBuffer(ticks);
+        this.playerUpdateTimes = new LongRingBuffer(ticks);
+        this.physicsTickTimes = new LongRingBuffer(
+            (int) Math.ceil(ticks * VSConfig.targetTps / TICKS_PER_SECOND) + 1);
+
+        this.drivenShips = ImmutableList.of();
+        this.measuringPhysics = false;
+        this.movingShips = false;
+        this.pathTime = 0;
+        this.shipAngularSpeed = 0;
+    }
+
+    /**
+     * Starts a load test in world around (centerX, centerZ), that runs for the given number of game ticks once all the
+     * ships are spawned. The results are sent to sender. Must be called on the game thread.
+     *
+     * @param shipSize     Roughly half the length of the ships, in blocks.
+     * @param playerRadius The radius of the biggest circle the players fly in.
+     * @throws IllegalStateException If there already is a load test running in world.
+     */
+    public static ShipLoadTest start(@Nonnull ICommandSender sender, @Nonnull WorldServer world, double centerX,
+        double centerZ, int shipCount, int shipSize, int playerCount, double playerRadius, int ticks, long seed) {
+        if (RUNNING_TESTS.containsKey(world)) {
+            throw new IllegalStateException("There already is a load test running in this world");
+        }
+        if (shipCount < 0 || shipSize < 1 || HEIGHT + shipSize + 2 > 255 || playerCount < 1 || ticks < 1
+            || playerRadius <= 0) {
+            throw new IllegalArgumentException("Invalid load test settings");
+        }
+        final ShipLoadTest test = new ShipLoadTest(sender, world, centerX, centerZ, ticks, shipCount, playerCount);
+        final Random random = new Random(seed);
+        test.spawnShips(random, shipCount, shipSize);
+        test.spawnPlayers(random, playerCount, playerRadius);
+
+        RUNNING_TESTS.put(world, test);
+        test.physicsLoop.addRecurringTask(test);
+        MinecraftForge.EVENT_BUS.register(test);
+        return test;
+    }
+
+    private void spawnShips(Random random, int shipCount, int shipSize) {
+        // Far enough apart that ships next to each other can't touch, even diagonally
+        final int spacing = 3 * shipSize + 6;
+        final int gridSide = (int) Math.ceil(Math.sqrt(shipCount));
+        double maxShipRadius = 0;
+        for (int i = 0; i < shipCount; i++) {
+            final double offsetX = (i % gridSide - (gridSide - 1) / 2D) * spacing;
+            final double offsetZ = (i / gridSide - (gridSide - 1) / 2D) * spacing;
+            final BlockPos origin = new BlockPos(centerX + offsetX, HEIGHT, centerZ + offsetZ);
+            final Map<BlockPos, IBlockState> blocks = generateShipBlocks(random, shipSize, origin);
+
+            if (!blocks.keySet().stream().allMatch(world::isAirBlock)) {
+                log.warn("Not spawning a load test ship at {}, something is in the way", origin);
+                failedShipCount++;
+                continue;
+            }
+            blocks.forEach(world::setBlockState);
+
+            final ShipData shipData = ValkyrienUtils.createNewShip(world, origin);
+            shipManager.queueShipSpawn(shipData, origin, BlockFinder.BlockFinderType.FIND_ALL_BLOCKS);
+            final TestShip ship = new TestShip(shipData, blocks, Math.hypot(offsetX, offsetZ),
+                Math.atan2(offsetZ, offsetX));
+            ships.add(ship);
+            maxShipRadius = Math.max(maxShipRadius, ship.pathRadius);
+        }
+        this.shipAngularSpeed = maxShipRadius > 0 ? SHIP_SPEED / maxShipRadius : 0;
+    }
+
+    /**
+     * Generates a flat hull with a railing, some cargo and a few masts on it. Every block touches the deck so the whole
+     * thing is assembled as one ship.
+     *
+     * @return The blocks of the ship, with the middle of the deck at origin.
+     */
+    private static Map<BlockPos, IBlockState> generateShipBlocks(Random random, int size, BlockPos origin) {
+        final Map<BlockPos, IBlockState> blocks = new LinkedHashMap<>();
+        final IBlockState deck = Blocks.PLANKS.getDefaultState();
+        final IBlockState mast = Blocks.LOG.getDefaultState();
+        final int halfWidth = Math.max(1, size / 2);
+        for (int x = -size; x <= size; x++) {
+            for (int z = -halfWidth; z <= halfWidth; z++) {
+                blocks.put(origin.add(x, 0, z), deck);
+                final boolean edge = Math.abs(x) == size || Math.abs(z) == halfWidth;
+                if (edge || random.nextInt(5) == 0) {
+                    blocks.put(origin.add(x, 1, z), deck);
+                }
+            }
+        }
+        final int mastCount = 1 + random.nextInt(1 + size / 4);
+        for (int i = 0; i < mastCount; i++) {
+            final int x = random.nextInt(2 * size - 1) - size + 1;
+            final int height = 2 + random.nextInt(size);
+            for (int y = 1; y <= height; y++) {
+                blocks.put(origin.add(x, y, 0), mast);
+            }
+        }
+        return blocks;
+    }
+
+    private void spawnPlayers(Random random, int playerCount, double playerRadius) {
+        final MinecraftServer server = world.getMinecraftServer();
+        for (int i = 0; i < playerCount; i++) {
+            final GameProfile profile = new GameProfile(UUID.randomUUID(), "VSLoadTest" + i);
+            final EntityPlayerMP player = new EntityPlayerMP(server, world, profile,
+                new PlayerInteractionManager(world));
+            final LoadTestConnection connection = new LoadTestConnection(server, player);
+            player.capabilities.disableDamage = true;
+            player.capabilities.allowFlying = true;
+            player.capabilities.isFlying = true;
+
+            final double radius = playerRadius * (i + 1) / playerCount;
+            // Flying the other way around than the ships, with the same speed on every circle
+            final TestPlayer testPlayer = new TestPlayer(player, connection, radius,
+                random.nextDouble() * 2 * Math.PI, -PLAYER_SPEED / radius);
+            players.add(testPlayer);
+            movePlayer(testPlayer, 0);
+
+            world.spawnEntity(player);
+            // Like a real player, this one loads and gets sent the terrain around it
+            world.getPlayerChunkMap().addPlayer(player);
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if (event.world != world || event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        phaseTicks++;
+        switch (phase) {
+            case SPAWNING:
+                tickSpawning();
+                break;
+            case RUNNING:
+                tickRunning();
+                break;
+            case CLEANING_UP:
+                tickCleaningUp();
+                break;
+            default:
+                break;
+        }
+        publishDrivenShips();
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        if (event.getWorld() == world && phase != Phase.DONE) {
+            sendMessage("The world was unloaded, stopping the load test");
+            finish();
+        }
+    }
+
+    private void tickSpawning() {
+        boolean spawning = false;
+        for (final TestShip ship : ships) {
+            if (ship.failed) {
+                continue;
+            }
+            if (shipManager.getShipSpawnTask(ship.shipData.getUuid()) != null) {
+                spawning = true;
+            } else if (!isShipInWorld(ship)) {
+                // The assembly failed, so the blocks are still where we put them
+                removeBlocks(ship);
+                ship.failed = true;
+                failedShipCount++;
+            } else if (!ship.shipData.isPhysicsEnabled()) {
+                ship.shipData.setPhysicsEnabled(true);
+            }
+        }
+        if (!spawning || phaseTicks >= MAX_SPAWN_TICKS) {
+            // Start measuring from here, spawning the ships isn't part of the test
+            for (final TestPlayer player : players) {
+                player.connection.resetCounters();
+            }
+            setPhase(Phase.RUNNING);
+            movingShips = true;
+            measuringPhysics = true;
+        }
+    }
+
+    private void tickRunning() {
+        final MinecraftServer server = world.getMinecraftServer();
+        // The current tick isn't over yet, so record the one before it
+        serverTickTimes.add(server.tickTimeArray[(server.getTickCounter() + server.tickTimeArray.length - 1)
+            % server.tickTimeArray.length]);
+        shipManagerTickTimes.add(shipManager.getTickTimes().getLatest());
+        loadingTimes.add(shipManager.getLoadingTimes().getLatest());
+        playerUpdateTimes.add(shipManager.getPlayerUpdateTimes().getLatest());
+
+        for (final TestPlayer player : players) {
+            movePlayer(player, phaseTicks / TICKS_PER_SECOND);
+        }
+
+        if (phaseTicks >= ticks) {
+            measuringPhysics = false;
+            sendResults();
+            setPhase(Phase.CLEANING_UP);
+        }
+    }
+
+    private void tickCleaningUp() {
+        final List<TestShip> unloadedShips = new ArrayList<>();
+        for (final TestShip ship : ships) {
+            if (ship.failed || !isShipInWorld(ship)) {
+                continue;
+            }
+            final PhysicsObject physicsObject = shipManager.getPhysObjectFromUUID(ship.shipData.getUuid());
+            if (physicsObject != null) {
+                physicsObject.setDeconstructState(DeconstructState.DECONSTRUCT_IMMEDIATE_NO_COPY);
+            } else if (shipManager.getShipSpawnTask(ship.shipData.getUuid()) == null) {
+                unloadedShips.add(ship);
+            }
+        }
+
+        final boolean allDeleted = ships.stream().allMatch(ship -> ship.failed || !isShipInWorld(ship));
+        if (allDeleted || phaseTicks >= MAX_CLEANUP_TICKS) {
+            if (!allDeleted) {
+                sendMessage("Gave up on deleting the load test ships, some of them are still in the world");
+            }
+            finish();
+            return;
+        }
+
+        // Go and get the unloaded ships loaded again, so that they can be deleted
+        for (int i = 0; i < players.size() && i < unloadedShips.size(); i++) {
+            final ShipTransform transform = unloadedShips.get(i).shipData.getShipTransform();
+            final EntityPlayerMP player = players.get(i).player;
+            player.setPosition(transform.getPosX(), HEIGHT, transform.getPosZ());
+            world.getPlayerChunkMap().updateMovingPlayer(player);
+        }
+    }
+
+    private void setPhase(Phase phase) {
+        this.phase = phase;
+        this.phaseTicks = 0;
+    }
+
+    private void finish() {
+        for (final TestPlayer player : players) {
+            world.getPlayerChunkMap().removePlayer(player.player);
+            world.removeEntity(player.player);
+            player.connection.close();
+        }
+        physicsLoop.removeRecurringTask(this);
+        MinecraftForge.EVENT_BUS.unregister(this);
+        RUNNING_TESTS.remove(world);
+        movingShips = false;
+        measuringPhysics = false;
+        drivenShips = ImmutableList.of();
+        setPhase(Phase.DONE);
+    }
+
+    private boolean isShipInWorld(TestShip ship) {
+        return QueryableShipData.get(world).getShip(ship.shipData.getUuid()).isPresent();
+    }
+
+    private void removeBlocks(TestShip ship) {
+        ship.blocks.forEach((pos, state) -> {
+            if (world.getBlockState(pos) == state) {
+                world.setBlockToAir(pos);
+            }
+        });
+    }
+
+    private void movePlayer(TestPlayer player, double time) {
+        final double angle = player.startAngle + player.angularSpeed * time;
+        player.player.setPosition(centerX + player.pathRadius * Math.cos(angle), HEIGHT,
+            centerZ + player.pathRadius * Math.sin(angle));
+        world.getPlayerChunkMap().updateMovingPlayer(player.player);
+    }
+
+    private void publishDrivenShips() {
+        if (phase == Phase.DONE) {
+            return;
+        }
+        final ImmutableList.Builder<DrivenShip> driven = ImmutableList.builder();
+        for (final TestShip ship : ships) {
+            if (ship.failed) {
+                continue;
+            }
+            final PhysicsObject physicsObject = shipManager.getPhysObjectFromUUID(ship.shipData.getUuid());
+            if (physicsObject != null) {
+                driven.add(new DrivenShip(ship, physicsObject));
+            }
+        }
+        drivenShips = driven.build();
+    }
+
+    /**
+     * Called by the physics thread before every physics tick, to move the ships along their paths.
+     */
+    @Override
+    public void runTask(double physTimeDelta) {
+        if (measuringPhysics) {
+            // The previous physics tick, this one hasn't happened yet
+            physicsTickTimes.add(physicsLoop.getWorldProfiler().getTotalTimes().getLatest());
+            int shipsAsleep = 0;
+            for (final DrivenShip driven : drivenShips) {
+                if (driven.physicsObject.getPhysicsCalculations().isAsleep()) {
+                    shipsAsleep++;
+                }
+            }
+            mostShipsAsleep = Math.max(mostShipsAsleep, shipsAsleep);
+        }
+        if (movingShips) {
+            pathTime += physTimeDelta;
+        }
+        final Vector3d correction = new Vector3d();
+        for (final DrivenShip driven : drivenShips) {
+            final TestShip ship = driven.testShip;
+            final PhysicsCalculations calculations = driven.physicsObject.getPhysicsCalculations();
+            final ShipTransform transform = driven.physicsObject.getShipTransformationManager()
+                .getCurrentPhysicsTransform();
+            final double angle = ship.startAngle + shipAngularSpeed * pathTime;
+            final double speed = movingShips ? shipAngularSpeed * ship.pathRadius : 0;
+
+            correction.set(centerX + ship.pathRadius * Math.cos(angle) - transform.getPosX(),
+                HEIGHT + 1 - transform.getPosY(),
+                centerZ + ship.pathRadius * Math.sin(angle) - transform.getPosZ())
+                .mul(PATH_CORRECTION);
+            if (correction.lengthSquared() > MAX_CORRECTION_SPEED * MAX_CORRECTION_SPEED) {
+                correction.mul(MAX_CORRECTION_SPEED / correction.length());
+            }
+            // Overriding the velocity every tick also cancels out gravity
+            calculations.getLinearVelocity()
+                .set(-speed * Math.sin(angle), 0, speed * Math.cos(angle))
+                .add(correction);
+            calculations.getAngularVelocity().zero();
+            // Setting the velocity directly doesn't count as a disturbance, and the ships hover in place while the
+            // others spawn. Without this they'd fall asleep and be skipped by the physics tick.
+            calculations.wakeUp();
+        }
+    }
+
+    private void sendResults() {
+        final double seconds = ticks / TICKS_PER_SECOND;
+        final long[] bytesSent = new long[players.size()];
+        final long[] shipBytesSent = new long[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            bytesSent[i] = players.get(i).connection.getBytesSent();
+            shipBytesSent[i] = players.get(i).connection.getShipBytesSent();
+        }
+
+        final StringBuilder message = new StringBuilder(String.format(
+            "Load test of %d ships (%d failed to spawn) and %d players over %d ticks, times in ms (p50 / p95 / p99 / max):",
+            ships.stream().filter(ship -> !ship.failed).count(), failedShipCount, players.size(), ticks));
+        appendPercentiles(message, "server tick", serverTickTimes);
+        appendPercentiles(message, "ship manager tick", shipManagerTickTimes);
+        appendPercentiles(message, "  deciding which ships to load", loadingTimes);
+        appendPercentiles(message, "  sending ship updates", playerUpdateTimes);
+        appendPercentiles(message, "physics tick", physicsTickTimes);
+        final LongRingBuffer sendTimes = physicsLoop.getTransformStreamer().getSendTimes();
+        appendPercentiles(message, "transform sends (last " + sendTimes.size() + ")", sendTimes);
+        message.append(String.format("\n  most ships asleep during a physics tick: %d", mostShipsAsleep));
+        appendBytes(message, "kB sent per player per second", bytesSent, seconds);
+        appendBytes(message, "  of which ShipData and transforms", shipBytesSent, seconds);
+
+        final String results = message.toString();
+        log.info(results);
+        sendMessage(results);
+    }
+
+    private void sendMessage(String message) {
+        sender.sendMessage(new TextComponentString(message));
+    }
+
+    private static void appendPercentiles(StringBuilder message, String name, LongRingBuffer times) {
+        final long[] percentiles = times.getPercentiles(50, 95, 99, 100);
+        message.append(String.format("\n  %s: %.3f / %.3f / %.3f / %.3f", name,
+            percentiles[0] / 1000000D, percentiles[1] / 1000000D, percentiles[2] / 1000000D,
+            percentiles[3] / 1000000D));
+    }
+
+    private static void appendBytes(StringBuilder message, String name, long[] bytes, double seconds) {
+        long min = Long.MAX_VALUE, max = 0, total = 0;
+        for (final long playerBytes : bytes) {
+            min = Math.min(min, playerBytes);
+            max = Math.max(max, playerBytes);
+            total += playerBytes;
+        }
+        message.append(String.format("\n  %s (min / avg / max): %.1f / %.1f / %.1f", name,
+            min / seconds / 1000, (double) total / bytes.length / seconds / 1000, max / seconds / 1000));
+    }
+
+    private static class TestShip {
+        final ShipData shipData;
+        // The blocks the ship was made from, in the world
+        final Map<BlockPos, IBlockState> blocks;
+        // Where the ship is on its circle around the center when the test starts
+        final double pathRadius, startAngle;
+        // Game thread only
+        boolean failed;
+
+        TestShip(ShipData shipData, Map<BlockPos, IBlockState> blocks, double pathRadius, double startAngle) {
+            this.shipData = shipData;
+            this.blocks = blocks;
+            this.pathRadius = pathRadius;
+            this.startAngle = startAngle;
+            this.failed = false;
+        }
+    }
+
+    private static class TestPlayer {
+        final EntityPlayerMP player;
+        final LoadTestConnection connection;
+        final double pathRadius, startAngle;
+        // In radians per second
+        final double angularSpeed;
+
+        TestPlayer(EntityPlayerMP player, LoadTestConnection connection, double pathRadius, double startAngle,
+            double angularSpeed) {
+            this.player = player;
+            this.connection = connection;
+            this.pathRadius = pathRadius;
+            this.startAngle = startAngle;
+            this.angularSpeed = angularSpeed;
+        }
+    }
+
+    private static class DrivenShip {
+        final TestShip testShip;
+        final PhysicsObject physicsObject;
+
+        DrivenShip(TestShip testShip, PhysicsObject physicsObject) {
+            this.testShip = testShip;
+            this.physicsObject = physicsObject;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.valkyrienskies.mod.common.ships.physics_data;
+
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+
+/**
+ * The raw moments of a set of point masses: their total mass, the sum of mass * position, and the sum of mass *
+ * position * position-transpose. Adding or removing a mass is O(1) and doesn't allocate, and the center of mass and the
+ * inertia tensor around it can be derived from the moments at any time.
+ * <p>
+ * Positions are stored relative to the first mass added, because the shipyard is millions of blocks from the origin
+ * and squaring positions that big would lose too much precision.
+ */
+public class MassMoments {
+
+    // Below this the moments are considered empty, to avoid dividing by zero
+    private static final double MIN_MASS = .0001;
+
+    private double originX, originY, originZ;
+    private double mass;
+    private double firstX, firstY, firstZ;
+    private double secondXX, secondYY, secondZZ, secondXY, secondXZ, secondYZ;
+
+    /**
+     * Adds mass at (x, y, z), or removes it if mass is negative.
+     *
+     * @param spreadSq How spread out the mass is around (x, y, z), as the mean of the squared distance along each axis.
+     *                 0 for a point mass.
+     */
+    public void add(double x, double y, double z, double mass, double spreadSq) {
+        if (isEmpty()) {
+            clear();
+            originX = Math.floor(x);
+            originY = Math.floor(y);
+            originZ = Math.floor(z);
+        }
+        final double px = x - originX;
+        final double py = y - originY;
+        final double pz = z - originZ;
+
+        this.mass += mass;
+        firstX += mass * px;
+        firstY += mass * py;
+        firstZ += mass * pz;
+        secondXX += mass * (px * px + spreadSq);
+        secondYY += mass * (py * py + spreadSq);
+        secondZZ += mass * (pz * pz + spreadSq);
+        secondXY += mass * px * py;
+        secondXZ += mass * px * pz;
+        secondYZ += mass * py * pz;
+
+        if (isEmpty()) {
+            // Removed everything, throw away the rounding errors
+            clear();
+        }
+    }
+
+    /**
+     * Replaces the moments with those of a body with the given mass, center of mass and inertia tensor around the
+     * center of mass.
+     */
+    public void set(double mass, Vector3dc centerOfMass, Matrix3dc inertiaTensor) {
+        clear();
+        if (mass < MIN_MASS) {
+            return;
+        }
+        originX = centerOfMass.x();
+        originY = centerOfMass.y();
+        originZ = centerOfMass.z();
+        this.mass = mass;
+        // The second moments around the center of mass are tr(I) / 2 - I
+        final double halfTrace = (inertiaTensor.m00() + inertiaTensor.m11() + inertiaTensor.m22()) / 2;
+        secondXX = halfTrace - inertiaTensor.m00();
+        secondYY = halfTrace - inertiaTensor.m11();
+        secondZZ = halfTrace - inertiaTensor.m22();
+        secondXY = -inertiaTensor.m10();
+        secondXZ = -inertiaTensor.m20();
+        secondYZ = -inertiaTensor.m21();
+    }
+
+    public void clear() {
+        originX = originY = originZ = 0;
+        mass = 0;
+        firstX = firstY = firstZ = 0;
+        secondXX = secondYY = secondZZ = secondXY = secondXZ = secondYZ = 0;
+    }
+
+    public boolean isEmpty() {
+        return mass < MIN_MASS;
+    }
+
+    /**
+     * @return The total mass, or 0 if {@link #isEmpty()}.
+     */
+    public double getMass() {
+        return isEmpty() ? 0 : mass;
+    }
+
+    /**
+     * Sets dest to the center of mass. Does nothing if {@link #isEmpty()}.
+     *
+     * @return dest
+     */
+    public Vector3d getCenterOfMass(Vector3d dest) {
+        if (!isEmpty()) {
+            dest.set(originX + firstX / mass, originY + firstY / mass, originZ + firstZ / mass);
+        }
+        return dest;
+    }
+
+    /**
+     * Sets dest to the inertia tensor around the center of mass, or to zero if {@link #isEmpty()}.
+     *
+     * @return dest
+     */
+    public Matrix3d getInertiaTensor(Matrix3d dest) {
+        if (isEmpty()) {
+            return dest.zero();
+        }
+        final double cx = firstX / mass;
+        final double cy = firstY / mass;
+        final double cz = firstZ / mass;
+        // The second moments around the center of mass, from the parallel axis theorem
+        final double xx = secondXX - mass * cx * cx;
+        final double yy = secondYY - mass * cy * cy;
+        final double zz = secondZZ - mass * cz * cz;
+        final double xy = secondXY - mass * cx * cy;
+        final double xz = secondXZ - mass * cx * cz;
+        final double yz = secondYZ - mass * cy * cz;
+        return dest.set(
+            yy + zz, -xy, -xz,
+            -xy, xx + zz, -yz,
+            -xz, -yz, xx + yy);
+    }
+}
@@ -1,6 +1,9 @@
 package org.valkyrienskies.mod.common.ships.physics_data;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.joml.Matrix3d;
 import org.joml.Matrix3dc;
 import org.joml.Vector3d;
@@ -19,4 +22,97 @@ public class ShipInertiaData {
     Matrix3dc gameMoITensor = new Matrix3d();
     @Nonnull
     Vector3dc gameTickCenterOfMass = new Vector3d();
+
+    // Set whenever one of the fields above changes, so the server knows to send them to clients.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile boolean dirty = false;
+
+    // The moments the fields above are derived from when mass is added, null until then and after the fields are set
+    // directly. Only used by the game thread.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient MassMoments moments = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int batchDepth = 0;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean momentsChanged = false;
+
+    public void setGameTickMass(double gameTickMass) {
+        this.gameTickMass = gameTickMass;
+        this.moments = null;
+        this.dirty = true;
+    }
+
+    public void setGameMoITensor(@Nonnull Matrix3dc gameMoITensor) {
+        this.gameMoITensor = gameMoITensor;
+        this.moments = null;
+        this.dirty = true;
+    }
+
+    public void setGameTickCenterOfMass(@Nonnull Vector3dc gameTickCenterOfMass) {
+        this.gameTickCenterOfMass = gameTickCenterOfMass;
+        this.moments = null;
+        this.dirty = true;
+    }
+
+    /**
+     * Adds mass at (x, y, z), or removes it if mass is negative, and updates the mass, center of mass and inertia
+     * tensor to match. Doesn't allocate anything between {@link #beginBatch()} and {@link #endBatch()}.
+     *
+     * @param spreadSq See {@link MassMoments#add(double, double, double, double, double)}
+     */
+    public void addMassAt(double x, double y, double z, double mass, double spreadSq) {
+        if (moments == null) {
+            moments = new MassMoments();
+            moments.set(gameTickMass, gameTickCenterOfMass, gameMoITensor);
+        }
+        moments.add(x, y, z, mass, spreadSq);
+        momentsChanged = true;
+        if (batchDepth == 0) {
+            updateFromMoments();
+        }
+    }
+
+    /**
+     * Holds off on updating the mass, center of mass and inertia tensor until the matching {@link #endBatch()}, so
+     * that adding lots of blocks at once only updates them once. Batches can be nested.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch started by {@link #beginBatch()}, updating the mass, center of mass and inertia tensor if this was
+     * the outermost batch.
+     */
+    public void endBatch() {
+        if (batchDepth <= 0) {
+            throw new IllegalStateException("endBatch() called without beginBatch()");
+        }
+        batchDepth--;
+        if (batchDepth == 0 && momentsChanged) {
+            updateFromMoments();
+        }
+    }
+
+    private void updateFromMoments() {
+        // Other threads read these, so make new ones instead of changing the old ones
+        this.gameTickMass = moments.getMass();
+        this.gameTickCenterOfMass = moments.getCenterOfMass(new Vector3d(gameTickCenterOfMass));
+        this.gameMoITensor = moments.getInertiaTensor(new Matrix3d());
+        this.momentsChanged = false;
+        this.dirty = true;
+    }
+
+    /**
+     * @return True if this changed since the last time this was called.
+     */
+    public boolean pollDirty() {
+        final boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
 }
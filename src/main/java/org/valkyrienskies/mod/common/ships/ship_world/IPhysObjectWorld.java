@@ -49,6 +49,13 @@ public interface IPhysObjectWorld {
     @Nonnull
     ImmutableList<PhysicsObject> getAllLoadedThreadSafe();
 
+    /**
+     * Can be called from any thread. The index is rebuilt at the end of every tick, so it reflects the ship AABBs as of
+     * the last tick.
+     */
+    @Nonnull
+    ShipBroadphase getShipBroadphase();
+
     /**
      * Queues a ship load, must be called on the game thread.
      */
@@ -9,10 +9,8 @@ import net.minecraft.network.play.server.SPacketUnloadChunk;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.gen.ChunkProviderServer;
@@ -25,10 +23,12 @@ import org.valkyrienskies.mod.client.render.PhysObjectRenderManager;
 import org.valkyrienskies.mod.common.collision.Polygon;
 import org.valkyrienskies.mod.common.physics.IPhysicsBlockController;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.physics.PhysicsProfiler;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.block_relocation.MoveBlocks;
 import org.valkyrienskies.mod.common.ships.chunk_claims.ClaimedChunkCacheController;
 import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunkCacheController;
+import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunks;
 import org.valkyrienskies.mod.common.ships.interpolation.ITransformInterpolator;
 import org.valkyrienskies.mod.common.ships.interpolation.SimpleEMATransformInterpolator;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
@@ -40,7 +40,6 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -73,6 +72,11 @@ public class PhysicsObject implements IPhysicsEntity {
     private final ShipTransformationManager shipTransformationManager;
     @Getter
     private final PhysicsCalculations physicsCalculations;
+    /**
+     * Keeps track of the time spent in each phase of the physics tick for this ship.
+     */
+    @Getter
+    private final PhysicsProfiler physicsProfiler;
 
     // The closest Chunks to the Ship cached in here
     private final SurroundingChunkCacheController cachedSurroundingChunks;
@@ -129,6 +133,21 @@ public class PhysicsObject implements IPhysicsEntity {
     @Setter @Getter
     private ShipPilot shipPilot;
 
+    /**
+     * A short id the server uses to refer to this ship in network messages instead of its UUID. Only unique among the
+     * ships loaded in the same world, and only assigned on the server.
+     */
+    @Setter @Getter
+    private volatile int sessionId;
+
+    /**
+     * True while {@link org.valkyrienskies.mod.common.physics.PhysicsReplay} steps this ship on the physics thread.
+     * The physics transform isn't the real one in the meantime, so the game thread doesn't take it. Only changed by the
+     * game thread.
+     */
+    @Setter @Getter
+    private volatile boolean physicsReplaying;
+
     // endregion
 
     // region Methods
@@ -152,6 +171,7 @@ public class PhysicsObject implements IPhysicsEntity {
         this.shipTransformationManager = new ShipTransformationManager(this,
             getShipData().getShipTransform());
         this.physicsCalculations = new PhysicsCalculations(this);
+        this.physicsProfiler = new PhysicsProfiler();
         this.shipAligningToGrid = false;
         this.deconstructState = DeconstructState.NOT_DECONSTRUCTING;
         this.forceToUseShipDataTransform = false;
@@ -173,27 +193,29 @@ public class PhysicsObject implements IPhysicsEntity {
     void onTick() {
         if (!world.isRemote) {
             cachedSurroundingChunks.updateChunkCache();
+            ticksSinceShipTeleport++;
 
-            final boolean forceToUseShipDataTransformLocalCopy = forceToUseShipDataTransform;
-            forceToUseShipDataTransform = false;
-            if (forceToUseShipDataTransformLocalCopy) {
-                final ShipTransform forcedTransform = shipData.getShipTransform();
+            // Keep the transforms from before a replay until the replay has put the ship back
+            if (!physicsReplaying) {
+                final boolean forceToUseShipDataTransformLocalCopy = forceToUseShipDataTransform;
+                forceToUseShipDataTransform = false;
+                if (forceToUseShipDataTransformLocalCopy) {
+                    final ShipTransform forcedTransform = shipData.getShipTransform();
+
+                    // This is BAD! Race condition! But I don't think this will cause any problems (I hope).
+                    getShipTransformationManager().setPrevPhysicsTransform(forcedTransform);
+                    getShipTransformationManager().setCurrentPhysicsTransform(forcedTransform);
+                    getShipTransformationManager().setPrevTickTransform(forcedTransform);
+                    getShipTransformationManager().setCurrentTickTransform(forcedTransform);
+                }
 
-                // This is BAD! Race condition! But I don't think this will cause any problems (I hope).
-                getShipTransformationManager().setPrevPhysicsTransform(forcedTransform);
-                getShipTransformationManager().setCurrentPhysicsTransform(forcedTransform);
-                getShipTransformationManager().setPrevTickTransform(forcedTransform);
-                getShipTransformationManager().setCurrentTickTransform(forcedTransform);
+                ShipTransform physicsTransform = getShipTransformationManager()
+                    .getCurrentPhysicsTransform();
+                getShipTransformationManager().updateAllTransforms(physicsTransform, false, true);
+                // Copy the current and prev transforms into ShipData
+                getShipData().setShipTransform(getShipTransformationManager().getCurrentTickTransform());
+                getShipData().setPrevTickShipTransform(getShipTransformationManager().getPrevTickTransform());
             }
-
-            ticksSinceShipTeleport++;
-
-            ShipTransform physicsTransform = getShipTransformationManager()
-                .getCurrentPhysicsTransform();
-            getShipTransformationManager().updateAllTransforms(physicsTransform, false, true);
-            // Copy the current and prev transforms into ShipData
-            getShipData().setShipTransform(getShipTransformationManager().getCurrentTickTransform());
-            getShipData().setPrevTickShipTransform(getShipTransformationManager().getPrevTickTransform());
         } else {
             transformInterpolator.tickTransformInterpolator();
             ShipTransform newTransform = transformInterpolator.getCurrentTickTransform();
@@ -218,7 +240,7 @@ public class PhysicsObject implements IPhysicsEntity {
     /**
      * @return the cachedSurroundingChunks
      */
-    public ChunkCache getCachedSurroundingChunks() {
+    public SurroundingChunks getCachedSurroundingChunks() {
         return cachedSurroundingChunks.getCachedChunks();
     }
 
@@ -281,8 +303,6 @@ public class PhysicsObject implements IPhysicsEntity {
         // Finally, copy all the blocks from the ship to the world
         if (!getBlockPositions().isEmpty()) {
             if (deconstructState.copyBlocks) {
-                MutableBlockPos newPos = new MutableBlockPos();
-
                 ShipTransform currentTransform = getShipTransformationManager().getCurrentTickTransform();
                 Vector3dc position = new Vector3d(currentTransform.getPosX(), currentTransform.getPosY(),
                         currentTransform.getPosZ());
@@ -292,30 +312,9 @@ public class PhysicsObject implements IPhysicsEntity {
                         Math.round(getCenterCoord().y() - position.y()),
                         Math.round(getCenterCoord().z() - position.z()));
 
-                for (BlockPos oldPos : this.getBlockPositions()) {
-                    newPos.setPos(oldPos.getX() - centerDifference.getX(),
-                            oldPos.getY() - centerDifference.getY(), oldPos.getZ() - centerDifference.getZ());
-                    MoveBlocks.copyBlockToPos(getWorld(), oldPos, newPos, null);
-                }
-
-                // Then relight the chunks we just copied the blocks to
-                {
-                    Set<Long> chunksRelit = new HashSet<>();
-                    for (BlockPos changedPos : this.getBlockPositions()) {
-                        int changedChunkX = (changedPos.getX() - centerDifference.getX()) >> 4;
-                        int changedChunkZ = (changedPos.getZ() - centerDifference.getZ()) >> 4;
-                        long changedChunkPos = ChunkPos.asLong(changedChunkX, changedChunkZ);
-
-                        if (chunksRelit.contains(changedChunkPos)) {
-                            continue;
-                        }
-                        final Chunk chunk = world.getChunk(changedChunkX, changedChunkZ);
-                        chunk.generateSkylightMap();
-                        chunk.checkLight();
-                        chunk.markDirty();
-                        chunksRelit.add(changedChunkPos);
-                    }
-                }
+                // Copy the blocks to the world, and then relight the columns we copied them to
+                MoveBlocks.copyBlocks(getWorld(), this.getBlockPositions(),
+                        new BlockPos(-centerDifference.getX(), -centerDifference.getY(), -centerDifference.getZ()));
             }
 
             // Just delete the tile entities in ship to prevent any dupe bugs.
@@ -400,6 +399,20 @@ public class PhysicsObject implements IPhysicsEntity {
         shipRenderer.updateChunk(chunk);
     }
 
+    /**
+     * Caches the chunks that got claimed since this was made, since the claim grows on the server as blocks get placed.
+     */
+    @SideOnly(Side.CLIENT)
+    public void cacheNewlyClaimedChunks() {
+        for (ChunkPos chunkPos : getChunkClaim()) {
+            Chunk cached = claimedChunkCache.getChunkAt(chunkPos.x, chunkPos.z);
+            // The client gives out an empty placeholder chunk for chunks it doesn't have
+            if (cached == null || cached.isEmpty()) {
+                updateChunk(claimedChunkCache.getOrCreateClientChunk(chunkPos.x, chunkPos.z));
+            }
+        }
+    }
+
     @Getter
     public enum DeconstructState {
         NOT_DECONSTRUCTING(false, false, false),
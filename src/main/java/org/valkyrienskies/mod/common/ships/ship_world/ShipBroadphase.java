@@ -0,0 +1,164 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.util.math.AxisAlignedBB;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable sweep-and-prune index over the AABBs of the loaded ships, sorted along the x axis.
+ * <p>
+ * A new index is built from the previous one every tick by {@link #update(Collection)}, which keeps the previous
+ * ordering and insertion sorts it. Because ships barely move between ticks that is close to linear in the number of
+ * ships. Since it is immutable it can be shared with any thread without copying.
+ */
+public final class ShipBroadphase {
+
+    public static final ShipBroadphase EMPTY = new ShipBroadphase(new PhysicsObject[0], new AxisAlignedBB[0]);
+
+    // Sorted by the minX of their bounds.
+    private final PhysicsObject[] ships;
+    // The ship AABBs at the time this index was built, in the same order as ships.
+    private final AxisAlignedBB[] bounds;
+    private final double[] minXs;
+    // The widest ship along the x axis, used to know how far back from the query minX we have to start looking.
+    private final double maxWidthX;
+
+    private ShipBroadphase(PhysicsObject[] ships, AxisAlignedBB[] bounds) {
+        this.ships = ships;
+        this.bounds = bounds;
+        this.minXs = new double[ships.length];
+        double maxWidth = 0;
+        for (int i = 0; i < ships.length; i++) {
+            minXs[i] = bounds[i].minX;
+            maxWidth = Math.max(maxWidth, bounds[i].maxX - bounds[i].minX);
+        }
+        this.maxWidthX = maxWidth;
+    }
+
+    /**
+     * Creates a new index of the given ships using their game tick AABBs, reusing the ordering of this index.
+     */
+    @Nonnull
+    public ShipBroadphase update(@Nonnull Collection<PhysicsObject> loadedShips) {
+        return update(loadedShips, PhysicsObject::getShipBB);
+    }
+
+    /**
+     * Creates a new index of the given ships, reusing the ordering of this index. Ships whose bounds are null are left
+     * out of the index.
+     */
+    @Nonnull
+    public ShipBroadphase update(@Nonnull Collection<PhysicsObject> loadedShips,
+        @Nonnull Function<PhysicsObject, AxisAlignedBB> boundsGetter) {
+        if (loadedShips.isEmpty()) {
+            return EMPTY;
+        }
+        final Set<PhysicsObject> toAdd = Collections.newSetFromMap(new IdentityHashMap<>());
+        toAdd.addAll(loadedShips);
+
+        final PhysicsObject[] newShips = new PhysicsObject[toAdd.size()];
+        final AxisAlignedBB[] newBounds = new AxisAlignedBB[newShips.length];
+        int size = 0;
+        // Keep the ships that are still loaded in their previous order, then append the new ones.
+        for (final PhysicsObject ship : ships) {
+            if (toAdd.remove(ship)) {
+                size = addIfBounded(ship, boundsGetter.apply(ship), newShips, newBounds, size);
+            }
+        }
+        for (final PhysicsObject ship : toAdd) {
+            size = addIfBounded(ship, boundsGetter.apply(ship), newShips, newBounds, size);
+        }
+
+        // Insertion sort by minX, the input is almost always already sorted.
+        for (int i = 1; i < size; i++) {
+            final PhysicsObject ship = newShips[i];
+            final AxisAlignedBB bb = newBounds[i];
+            int j = i - 1;
+            while (j >= 0 && newBounds[j].minX > bb.minX) {
+                newShips[j + 1] = newShips[j];
+                newBounds[j + 1] = newBounds[j];
+                j--;
+            }
+            newShips[j + 1] = ship;
+            newBounds[j + 1] = bb;
+        }
+        if (size < newShips.length) {
+            return new ShipBroadphase(Arrays.copyOf(newShips, size), Arrays.copyOf(newBounds, size));
+        }
+        return new ShipBroadphase(newShips, newBounds);
+    }
+
+    private static int addIfBounded(PhysicsObject ship, AxisAlignedBB bb, PhysicsObject[] ships,
+        AxisAlignedBB[] bounds, int size) {
+        if (bb == null) {
+            return size;
+        }
+        ships[size] = ship;
+        bounds[size] = bb;
+        return size + 1;
+    }
+
+    /**
+     * @return A list of all the ships whose AABB (at the time this index was built) intersects toCheck.
+     */
+    @Nonnull
+    public List<PhysicsObject> getShipsIntersecting(@Nonnull AxisAlignedBB toCheck) {
+        final List<PhysicsObject> nearby = new ArrayList<>();
+        // No ship starting before this can reach toCheck along the x axis.
+        for (int i = firstIndexWithMinX(toCheck.minX - maxWidthX); i < ships.length && minXs[i] < toCheck.maxX; i++) {
+            if (toCheck.intersects(bounds[i])) {
+                nearby.add(ships[i]);
+            }
+        }
+        return nearby;
+    }
+
+    /**
+     * Calls consumer once for every pair of ships whose AABBs intersect, by sweeping along the x axis. This only
+     * looks at the ships whose x intervals overlap, so it's O(n + k) rather than O(n^2) when ships are spread out.
+     */
+    public void forEachOverlappingPair(@Nonnull OverlappingPairConsumer consumer) {
+        for (int i = 0; i < ships.length; i++) {
+            final AxisAlignedBB bb = bounds[i];
+            for (int j = i + 1; j < ships.length && minXs[j] < bb.maxX; j++) {
+                if (bb.intersects(bounds[j])) {
+                    consumer.accept(ships[i], bb, ships[j], bounds[j]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return ships.length;
+    }
+
+    /**
+     * @return The index of the first entry whose minX is greater than or equal to minX.
+     */
+    private int firstIndexWithMinX(double minX) {
+        int low = 0;
+        int high = minXs.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (minXs[mid] < minX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @FunctionalInterface
+    public interface OverlappingPairConsumer {
+        void accept(PhysicsObject shipA, AxisAlignedBB shipABounds, PhysicsObject shipB, AxisAlignedBB shipBBounds);
+    }
+}
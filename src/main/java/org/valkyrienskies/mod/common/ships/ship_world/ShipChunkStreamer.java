@@ -0,0 +1,146 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ShipData;
+
+import javax.annotation.Nonnull;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Sends the chunks of ships to the players that start watching them, from the game thread.
+ * <p>
+ * Only the chunks that have blocks in them are sent, the client makes the empty claimed chunks itself. Every player has
+ * a queue of chunks ordered by how far they are from the center of their ship, so the middle of every ship shows up
+ * first, and only {@link VSConfig.ShipLoadingSettings#shipChunkBytesPerTick} bytes of it are sent to each player per
+ * tick. That way a player that logs in next to a lot of ships doesn't get all of their chunks at once.
+ */
+class ShipChunkStreamer {
+
+    private static final Comparator<QueuedChunk> NEAREST_FIRST = Comparator.comparingDouble(
+        queuedChunk -> queuedChunk.distanceSq);
+
+    private final WorldServer world;
+    private final Map<EntityPlayerMP, PriorityQueue<QueuedChunk>> playerQueues;
+
+    ShipChunkStreamer(@Nonnull WorldServer world) {
+        this.world = world;
+        this.playerQueues = new HashMap<>();
+    }
+
+    /**
+     * Queues the chunks of ship that have blocks in them to be sent to player.
+     */
+    void queueShipChunks(@Nonnull EntityPlayerMP player, @Nonnull PhysicsObject ship) {
+        final PriorityQueue<QueuedChunk> queue = playerQueues.computeIfAbsent(player,
+            k -> new PriorityQueue<>(NEAREST_FIRST));
+        final Vector3dc centerCoord = ship.getShipData().getShipTransform().getCenterCoord();
+        for (final Chunk chunk : ship.getClaimedChunkCache()) {
+            if (getNonEmptySectionMask(chunk) == 0) {
+                continue;
+            }
+            final double xDif = (chunk.x << 4) + 8 - centerCoord.x();
+            final double zDif = (chunk.z << 4) + 8 - centerCoord.z();
+            queue.add(new QueuedChunk(ship, chunk.x, chunk.z, xDif * xDif + zDif * zDif));
+        }
+    }
+
+    /**
+     * Stops sending the chunks of a ship to a player that isn't watching it anymore.
+     */
+    void removeShip(@Nonnull EntityPlayerMP player, @Nonnull ShipData shipData) {
+        final PriorityQueue<QueuedChunk> queue = playerQueues.get(player);
+        if (queue != null) {
+            queue.removeIf(queuedChunk -> queuedChunk.ship.getShipData() == shipData);
+        }
+    }
+
+    /**
+     * Sends every player the next chunks in their queue, until they've been sent their budget for this tick.
+     */
+    void sendQueuedChunks() {
+        final int bytesPerTick = VSConfig.SHIP_LOADING_SETTINGS.shipChunkBytesPerTick;
+        final Iterator<Map.Entry<EntityPlayerMP, PriorityQueue<QueuedChunk>>> iterator =
+            playerQueues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<EntityPlayerMP, PriorityQueue<QueuedChunk>> entry = iterator.next();
+            final EntityPlayerMP player = entry.getKey();
+            final PriorityQueue<QueuedChunk> queue = entry.getValue();
+            if (player.hasDisconnected()) {
+                iterator.remove();
+                continue;
+            }
+            int bytesSent = 0;
+            while (bytesSent < bytesPerTick && !queue.isEmpty()) {
+                final QueuedChunk queuedChunk = queue.poll();
+                final Chunk chunk = queuedChunk.ship.getChunkAt(queuedChunk.chunkX, queuedChunk.chunkZ);
+                // The chunk may have been emptied since it was queued
+                final int sectionMask = chunk == null ? 0 : getNonEmptySectionMask(chunk);
+                if (sectionMask == 0) {
+                    continue;
+                }
+                // Full chunk packets only contain the sections that aren't empty
+                player.connection.sendPacket(new SPacketChunkData(chunk, 65535));
+                world.getEntityTracker().sendLeashedEntitiesInChunk(player, chunk);
+                bytesSent += estimatePacketSize(chunk, sectionMask);
+            }
+            if (queue.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return A mask with bit i set if section i of chunk has blocks in it.
+     */
+    private static int getNonEmptySectionMask(Chunk chunk) {
+        int mask = 0;
+        final ExtendedBlockStorage[] storageArrays = chunk.getBlockStorageArray();
+        for (int i = 0; i < storageArrays.length; i++) {
+            if (storageArrays[i] != Chunk.NULL_BLOCK_STORAGE && !storageArrays[i].isEmpty()) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private int estimatePacketSize(Chunk chunk, int sectionMask) {
+        // Biomes
+        int size = 256;
+        final ExtendedBlockStorage[] storageArrays = chunk.getBlockStorageArray();
+        for (int i = 0; i < storageArrays.length; i++) {
+            if ((sectionMask & (1 << i)) != 0) {
+                // Blocks, then block light, then sky light
+                size += storageArrays[i].getData().getSerializedSize() + 2048;
+                if (world.provider.hasSkyLight()) {
+                    size += 2048;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static class QueuedChunk {
+
+        final PhysicsObject ship;
+        final int chunkX, chunkZ;
+        // The squared XZ distance from the center of the chunk to the center of mass of the ship
+        final double distanceSq;
+
+        QueuedChunk(PhysicsObject ship, int chunkX, int chunkZ, double distanceSq) {
+            this.ship = ship;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.distanceSq = distanceSq;
+        }
+    }
+}
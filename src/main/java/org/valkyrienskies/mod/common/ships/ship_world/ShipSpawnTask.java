@@ -0,0 +1,408 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.block_relocation.BlockFinder;
+import org.valkyrienskies.mod.common.ships.block_relocation.BulkBlockWriter;
+import org.valkyrienskies.mod.common.ships.block_relocation.IRelocationAwareTile;
+import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+
+/**
+ * A ship being assembled by {@link WorldServerShipManager}.
+ * <p>
+ * Finding the blocks of the ship and copying them into the ship chunks is done on a worker thread, using the chunks
+ * the detector gets on the game thread. The rest has to change the world, so it is done by the game thread. Building
+ * the ship chunks and relighting take as many ticks as it takes to stay within {@link
+ * VSConfig#shipAssemblyMillisPerTick}. Players can't edit the blocks of the ship until they are removed, see {@link
+ * #isBlockLocked(BlockPos)}. The ship is put into the world in the same tick as its blocks are removed, so the world
+ * is never saved with only one of the two done.
+ * <p>
+ * The worker reads the chunks while the world keeps ticking, so fluids, pistons, fire and the like can change the
+ * blocks of the ship behind its back. The blocks are checked against what the worker copied right before they are
+ * removed from the world, and the assembly fails if any of them changed.
+ */
+@Log4j2
+public class ShipSpawnTask {
+
+    public enum Stage {
+        /**
+         * Finding the blocks of the ship and copying them into the ship chunks, on a worker thread.
+         */
+        DETECTING,
+        /**
+         * Making the ship chunks.
+         */
+        BUILDING_CHUNKS,
+        /**
+         * Checking that the blocks of the ship haven't changed, copying the tile entities into the ship chunks and
+         * removing the blocks of the ship from the world. All done in one tick, so that nothing can change the blocks
+         * or use a tile entity that was already copied in between.
+         */
+        REMOVING_BLOCKS,
+        /**
+         * Relighting the columns the blocks of the ship were removed from. The ship chunks are already in the world
+         * and the ship is loaded.
+         */
+        RELIGHTING,
+        /**
+         * The ship is loaded and the world is relit.
+         */
+        DONE,
+        /**
+         * The ship was too big, attached to bedrock, or its blocks changed while it was assembled. Nothing was changed.
+         */
+        FAILED
+    }
+
+    // How many blocks or chunks are processed between checks of the time budget.
+    private static final int ITEMS_PER_BUDGET_CHECK = 32;
+
+    private final WorldServer world;
+    @Getter
+    private final ShipData shipData;
+    private final BlockPos physicsInfuserPos;
+    private final SpatialDetector detector;
+    private final CompletableFuture<Void> detectionFuture;
+    @Getter
+    private volatile Stage stage;
+
+    // Written by the worker thread before detectionFuture completes, then only used by the game thread.
+    private int[] blockHashes;
+    // The state of each block in blockHashes, as it was copied into the ship chunks
+    private IBlockState[] blockStates;
+    private TLongObjectMap<ExtendedBlockStorage[]> shipChunkStorages;
+    private long[] shipChunkPositions;
+    private BlockPos centerDifference;
+
+    // Game thread only.
+    private final TLongObjectMap<Chunk> shipChunks;
+    // Removes the blocks of the ship from the world, and then relights where they were
+    private final BulkBlockWriter sourceBlockWriter;
+    private int stageProgress;
+    private int itemsDoneInPreviousStages;
+
+    /**
+     * Must be called on the game thread, the detector gets the chunks it reads here.
+     */
+    ShipSpawnTask(@Nonnull WorldServer world, @Nonnull ShipData shipData, @Nonnull BlockPos physicsInfuserPos,
+        @Nonnull BlockFinder.BlockFinderType blockFinderType) {
+        this.world = world;
+        this.shipData = shipData;
+        this.physicsInfuserPos = physicsInfuserPos;
+        this.detector = BlockFinder.createBlockFinderFor(blockFinderType, physicsInfuserPos, world,
+            VSConfig.maxDetectedShipSize + 1, true);
+        this.stage = Stage.DETECTING;
+        this.shipChunks = new TLongObjectHashMap<>();
+        this.sourceBlockWriter = new BulkBlockWriter(world);
+        this.detectionFuture = CompletableFuture.runAsync(this::detectAndCopyBlocks,
+            ValkyrienSkiesMod.getPhysicsThreadPool());
+    }
+
+    /**
+     * @return Roughly how much of the ship has been assembled, from 0 to 1.
+     */
+    public double getProgress() {
+        switch (stage) {
+            case DETECTING:
+            case FAILED:
+                return 0;
+            case DONE:
+                return 1;
+            default:
+                // Relighting counts as one item, we don't know how many columns there are until it starts
+                final int totalItems = shipChunkPositions.length + blockHashes.length + 1;
+                return (itemsDoneInPreviousStages + stageProgress) / (double) totalItems;
+        }
+    }
+
+    /**
+     * @return True if pos might be part of this ship, and so must not be changed until it is done.
+     */
+    public boolean isBlockLocked(@Nonnull BlockPos pos) {
+        final BlockPos firstBlock = detector.firstBlock;
+        final int xDif = pos.getX() - firstBlock.getX();
+        final int zDif = pos.getZ() - firstBlock.getZ();
+        if (xDif < -SpatialDetector.maxRangeHalved || xDif >= SpatialDetector.maxRangeHalved
+            || zDif < -SpatialDetector.maxRangeHalved || zDif >= SpatialDetector.maxRangeHalved
+            || pos.getY() < 0 || pos.getY() >= SpatialDetector.maxRange) {
+            return false;
+        }
+        switch (stage) {
+            case DETECTING:
+                // We don't know the blocks yet, so lock everything the detector could find.
+                return true;
+            case RELIGHTING:
+            case DONE:
+            case FAILED:
+                return false;
+            default:
+                return detector.foundSet.contains(SpatialDetector.getHashWithRespectTo(pos.getX(), pos.getY(),
+                    pos.getZ(), firstBlock));
+        }
+    }
+
+    /**
+     * Called by the game thread every tick until the task is DONE or FAILED. Returns true once, in the tick the blocks
+     * of the ship were removed from the world, and then {@link WorldServerShipManager} must put the ship chunks in the
+     * world before the tick ends.
+     *
+     * @param deadline The System.nanoTime() by which we should stop.
+     */
+    boolean tick(long deadline) {
+        if (stage == Stage.DETECTING) {
+            if (!detectionFuture.isDone()) {
+                return false;
+            }
+            try {
+                detectionFuture.join();
+            } catch (CompletionException e) {
+                log.error("Failed to detect the blocks of " + shipData, e);
+                stage = Stage.FAILED;
+                return false;
+            }
+            if (blockHashes == null) {
+                stage = Stage.FAILED;
+                return false;
+            }
+            startStage(Stage.BUILDING_CHUNKS, 0);
+        }
+        final MutableBlockPos srcPos = new MutableBlockPos();
+        final MutableBlockPos pastePos = new MutableBlockPos();
+        if (stage == Stage.BUILDING_CHUNKS) {
+            if (!runStage(shipChunkPositions.length, deadline, i -> buildShipChunk(shipChunkPositions[i]))) {
+                return false;
+            }
+            startStage(Stage.REMOVING_BLOCKS, shipChunkPositions.length);
+        }
+        if (stage == Stage.REMOVING_BLOCKS) {
+            // Ignores the deadline, see Stage.REMOVING_BLOCKS
+            for (int i = 0; i < blockHashes.length; i++) {
+                SpatialDetector.setPosWithRespectTo(blockHashes[i], detector.firstBlock, srcPos);
+                if (sourceBlockWriter.getBlockState(srcPos) != blockStates[i]) {
+                    log.warn("The block at {} changed while {} was being assembled, giving up", srcPos, shipData);
+                    stage = Stage.FAILED;
+                    return false;
+                }
+            }
+            for (int i = 0; i < blockHashes.length; i++) {
+                removeSourceBlock(i, srcPos, pastePos);
+            }
+            sourceBlockWriter.finishSections();
+            startStage(Stage.RELIGHTING, blockHashes.length);
+            return true;
+        }
+        if (stage == Stage.RELIGHTING && sourceBlockWriter.relight(deadline)) {
+            stage = Stage.DONE;
+        }
+        return false;
+    }
+
+    /**
+     * @return The ship chunk made for the given position, or null if no blocks were copied into it.
+     */
+    @Nullable
+    Chunk getShipChunk(int chunkX, int chunkZ) {
+        return shipChunks.get(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Runs on a worker thread. Does everything that doesn't have to touch the world; the detector only reads the
+     * chunks it cached, and the ship chunk storages aren't in the world yet.
+     */
+    private void detectAndCopyBlocks() {
+        detector.startDetection();
+
+        if (VSConfig.showAnnoyingDebugOutput) {
+            System.out.println("Attempting to spawn " + shipData + " on the thread " + Thread.currentThread().getName());
+        }
+        if (detector.foundSet.size() > VSConfig.maxDetectedShipSize || detector.cleanHouse) {
+            System.err.println("Ship too big or bedrock detected!");
+            return; // Skip ship construction
+        }
+
+        // When copying the ship chunks we want to keep track of the inertia and center of mass.
+        final IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
+        final BlockPos centerDifference = shipData.getChunkClaim().getRegionCenter().subtract(physicsInfuserPos);
+        final MutableBlockPos srcLocationPos = new MutableBlockPos();
+        final MutableBlockPos pasteLocationPos = new MutableBlockPos();
+        final int[] blockHashes = detector.foundSet.toArray();
+        final IBlockState[] blockStates = new IBlockState[blockHashes.length];
+        final TLongObjectMap<ExtendedBlockStorage[]> shipChunkStorages = new TLongObjectHashMap<>();
+
+        // Only work out the center of mass and inertia once every block has been added
+        shipData.getInertiaData().beginBatch();
+        for (int i = 0; i < blockHashes.length; i++) {
+            SpatialDetector.setPosWithRespectTo(blockHashes[i], detector.firstBlock, srcLocationPos);
+            pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(),
+                srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
+
+            // Then add it to the ShipData block positions set
+            shipData.blockPositions.add(pasteLocationPos.getX(), pasteLocationPos.getY(), pasteLocationPos.getZ());
+
+            // Then get the storages of the ship chunk this block goes into
+            final long newChunkPosLong = ChunkPos.asLong(pasteLocationPos.getX() >> 4, pasteLocationPos.getZ() >> 4);
+            ExtendedBlockStorage[] newChunkStorages = shipChunkStorages.get(newChunkPosLong);
+            if (newChunkStorages == null) {
+                newChunkStorages = new ExtendedBlockStorage[16];
+                shipChunkStorages.put(newChunkPosLong, newChunkStorages);
+            }
+
+            final IBlockState srcState = detector.getBlockState(srcLocationPos);
+            blockStates[i] = srcState;
+
+            // Then paste that IBlockState into the new ship chunk
+            final int newChunkStorageIndex = pasteLocationPos.getY() >> 4;
+            if (newChunkStorages[newChunkStorageIndex] == Chunk.NULL_BLOCK_STORAGE) {
+                newChunkStorages[newChunkStorageIndex] = new ExtendedBlockStorage(newChunkStorageIndex << 4, true);
+            }
+            // The octrees and block counts are rebuilt once every block is in
+            BulkBlockWriter.setWithoutUpdates(newChunkStorages[newChunkStorageIndex],
+                pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15, pasteLocationPos.getZ() & 15, srcState);
+
+            // If this block is force block, then add it to the activeForcePositions list of the ship.
+            if (BlockPhysicsDetails.isBlockProvidingForce(srcState)) {
+                shipData.activeForcePositions.add(pasteLocationPos);
+            }
+
+            // Also update the center of mass and inertia provider
+            centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), pasteLocationPos, Blocks.AIR.getDefaultState(), srcState);
+        }
+        shipData.getInertiaData().endBatch();
+
+        // Claim the chunks the ship was pasted into, and the chunks around them so that the ship has room to grow. The
+        // claim keeps growing the same way as blocks get placed, see WorldServerShipManager.claimChunksAround().
+        final VSChunkClaim chunkClaim = shipData.getChunkClaim();
+        shipChunkStorages.forEachKey(chunkPosLong -> {
+            final int chunkX = getChunkX(chunkPosLong);
+            final int chunkZ = getChunkZ(chunkPosLong);
+            for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+                for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+                    if (chunkClaim.isChunkInRegion(x, z)) {
+                        chunkClaim.addChunkClaim(x, z);
+                    }
+                }
+            }
+            return true;
+        });
+
+        for (final ExtendedBlockStorage[] newChunkStorages : shipChunkStorages.valueCollection()) {
+            for (final ExtendedBlockStorage storage : newChunkStorages) {
+                if (storage != Chunk.NULL_BLOCK_STORAGE) {
+                    BulkBlockWriter.finishSection(storage);
+                }
+            }
+        }
+
+        this.blockHashes = blockHashes;
+        this.blockStates = blockStates;
+        this.shipChunkStorages = shipChunkStorages;
+        this.shipChunkPositions = shipChunkStorages.keys();
+        this.centerDifference = centerDifference;
+    }
+
+    private void startStage(Stage stage, int itemsDoneInPreviousStage) {
+        this.stage = stage;
+        this.itemsDoneInPreviousStages += itemsDoneInPreviousStage;
+        this.stageProgress = 0;
+    }
+
+    /**
+     * Calls action with the index of every item in the current stage that hasn't been done yet, until we run out of
+     * time.
+     *
+     * @return True if the stage is done.
+     */
+    private boolean runStage(int itemCount, long deadline, IntConsumer action) {
+        while (stageProgress < itemCount) {
+            if (stageProgress % ITEMS_PER_BUDGET_CHECK == 0 && System.nanoTime() > deadline) {
+                return false;
+            }
+            action.accept(stageProgress++);
+        }
+        return true;
+    }
+
+    private void buildShipChunk(long chunkPosLong) {
+        // Chunks fire capability events when they're made, so they have to be made on the game thread.
+        final Chunk chunk = new Chunk(world, getChunkX(chunkPosLong), getChunkZ(chunkPosLong));
+        final ExtendedBlockStorage[] storages = shipChunkStorages.get(chunkPosLong);
+        System.arraycopy(storages, 0, chunk.storageArrays, 0, storages.length);
+        chunk.generateSkylightMap();
+        shipChunks.put(chunkPosLong, chunk);
+    }
+
+    private void copyTileEntity(BlockPos srcLocationPos, MutableBlockPos pasteLocationPos) {
+        pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(),
+            srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
+
+        TileEntity srcTile = world.getTileEntity(srcLocationPos);
+        if (srcTile != null) {
+            TileEntity pasteTile;
+            if (srcTile instanceof IRelocationAwareTile) {
+                pasteTile = ((IRelocationAwareTile) srcTile).createRelocatedTile(pasteLocationPos.toImmutable(), shipData);
+            } else {
+                NBTTagCompound tileEntNBT = srcTile.writeToNBT(new NBTTagCompound());
+                // Change the block position to be inside of the Ship
+                tileEntNBT.setInteger("x", pasteLocationPos.getX());
+                tileEntNBT.setInteger("y", pasteLocationPos.getY());
+                tileEntNBT.setInteger("z", pasteLocationPos.getZ());
+                pasteTile = TileEntity.create(world, tileEntNBT);
+            }
+
+            // Finally, add the new TileEntity to the new ship chunk.
+            if (pasteTile != null) {
+                getShipChunk(pasteLocationPos.getX() >> 4, pasteLocationPos.getZ() >> 4).addTileEntity(pasteTile);
+            }
+        }
+    }
+
+    private void removeSourceBlock(int index, MutableBlockPos srcLocationPos, MutableBlockPos pasteLocationPos) {
+        SpatialDetector.setPosWithRespectTo(blockHashes[index], detector.firstBlock, srcLocationPos);
+        final IBlockState srcState = blockStates[index];
+        final boolean hasTileEntity = srcState.getBlock().hasTileEntity(srcState);
+        // The tile entity is copied right before its block is removed, so it can't be used in between
+        if (hasTileEntity) {
+            copyTileEntity(srcLocationPos, pasteLocationPos);
+        }
+
+        sourceBlockWriter.setBlockState(srcLocationPos, Blocks.AIR.getDefaultState());
+
+        // Delete the TileEntity at this pos (if there is one)
+        if (hasTileEntity) {
+            world.removeTileEntity(srcLocationPos);
+        }
+    }
+
+    private static int getChunkX(long chunkPos) {
+        return (int) (chunkPos & 4294967295L);
+    }
+
+    private static int getChunkZ(long chunkPos) {
+        return (int) ((chunkPos >> 32) & 4294967295L);
+    }
+}
@@ -0,0 +1,243 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.world.World;
+import org.joml.Matrix4dc;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.network.ShipTransformUpdateMessage;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends the physics transforms of the loaded ships to the players watching them, from the physics thread.
+ * <p>
+ * Every player gets their own ShipTransformUpdateMessage that only contains the ships they watch. Ships far away from a
+ * player are sent less often than ships close to them, and ships that haven't moved since the last transform we sent to
+ * that player are skipped, so that bandwidth scales with what each player can actually see.
+ */
+public class ShipTransformStreamer {
+
+    // Ships past the full rate distance are sent every this many transform packets.
+    private static final int REDUCED_RATE_INTERVAL = 2;
+    // Watched ships past the watch distance are sent every this many transform packets.
+    private static final int FAR_RATE_INTERVAL = 4;
+    // Send a ship at least this often even if it hasn't moved, in case the client missed the last one.
+    private static final int KEEP_ALIVE_INTERVAL = 25;
+    // Sleeping ships don't move at all, so they're only resent this rarely.
+    private static final int SLEEPING_KEEP_ALIVE_INTERVAL = 250;
+    // Ships that moved less than this many blocks, and rotated less than roughly this many radians, are not resent.
+    private static final double POSITION_THRESHOLD = 1e-3;
+    private static final double ROTATION_THRESHOLD = 1e-5;
+    // The number of sends the send times are kept for.
+    private static final int SEND_TIME_SAMPLES = 100;
+
+    private final World world;
+    // The players and the ships they watch, published by the game thread every tick.
+    private volatile ImmutableList<PlayerWatchSnapshot> watchSnapshots;
+    // The squared XZ distance from each watched ship to the nearest player watching it, published by the game thread
+    // every tick.
+    private volatile Map<PhysicsObject, Double> nearestWatcherDistancesSq;
+    // Physics thread only. What we last sent each player about each ship.
+    private final Map<EntityPlayerMP, Map<PhysicsObject, SentShipState>> sentStates;
+    // Physics thread only. The subspace AABBs of the ships during the current send, so we only make them once.
+    private final Map<PhysicsObject, AxisAlignedBB> subspaceBBs;
+    private int transformPacketIndex;
+    // How long the latest calls to sendTransformUpdates() took, in nanoseconds.
+    @Getter
+    private final LongRingBuffer sendTimes;
+
+    public ShipTransformStreamer(@Nonnull World world) {
+        this.world = world;
+        this.watchSnapshots = ImmutableList.of();
+        this.nearestWatcherDistancesSq = Collections.emptyMap();
+        this.sentStates = new HashMap<>();
+        this.subspaceBBs = new IdentityHashMap<>();
+        this.transformPacketIndex = 0;
+        this.sendTimes = new LongRingBuffer(SEND_TIME_SAMPLES);
+    }
+
+    /**
+     * Called by the game thread after the watching players of every ship have been updated.
+     */
+    void updateWatchingPlayers(@Nonnull Iterable<PhysicsObject> loadedShips,
+        @Nonnull Map<ShipData, Set<EntityPlayerMP>> shipToWatchingPlayers) {
+        final Map<EntityPlayerMP, ImmutableList.Builder<PhysicsObject>> watchedShips = new HashMap<>();
+        final Map<PhysicsObject, Double> distancesSq = new IdentityHashMap<>();
+        for (final PhysicsObject ship : loadedShips) {
+            final Set<EntityPlayerMP> watchers = shipToWatchingPlayers.get(ship.getShipData());
+            if (watchers == null) {
+                continue;
+            }
+            final ShipTransform transform = ship.getShipData().getShipTransform();
+            double nearestDistanceSq = Double.POSITIVE_INFINITY;
+            for (final EntityPlayerMP watcher : watchers) {
+                watchedShips.computeIfAbsent(watcher, k -> ImmutableList.builder()).add(ship);
+                final double xDif = transform.getPosX() - watcher.posX;
+                final double zDif = transform.getPosZ() - watcher.posZ;
+                nearestDistanceSq = Math.min(nearestDistanceSq, xDif * xDif + zDif * zDif);
+            }
+            distancesSq.put(ship, nearestDistanceSq);
+        }
+        this.nearestWatcherDistancesSq = Collections.unmodifiableMap(distancesSq);
+        final ImmutableList.Builder<PlayerWatchSnapshot> snapshots = ImmutableList.builder();
+        for (final EntityPlayer player : world.playerEntities) {
+            final ImmutableList.Builder<PhysicsObject> ships = watchedShips.get(player);
+            if (ships != null) {
+                snapshots.add(new PlayerWatchSnapshot((EntityPlayerMP) player, ships.build()));
+            }
+        }
+        this.watchSnapshots = snapshots.build();
+    }
+
+    /**
+     * Can be called from any thread, the distances are updated every game tick.
+     *
+     * @return The squared XZ distance from ship to the nearest player watching it, or infinity if no player watches it.
+     */
+    public double getNearestWatcherDistanceSq(@Nonnull PhysicsObject ship) {
+        return nearestWatcherDistancesSq.getOrDefault(ship, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Called by the physics thread to send every player the transforms of the ships they need updates for.
+     */
+    public void sendTransformUpdates() {
+        final long sendStartTime = System.nanoTime();
+        final int dimensionID = world.provider.getDimension();
+        final ImmutableList<PlayerWatchSnapshot> snapshots = this.watchSnapshots;
+        final double fullRateDistanceSq = VSConfig.SHIP_LOADING_SETTINGS.fullRateTransformDistance
+            * VSConfig.SHIP_LOADING_SETTINGS.fullRateTransformDistance;
+        final double watchDistanceSq = VSConfig.SHIP_LOADING_SETTINGS.watchDistance
+            * VSConfig.SHIP_LOADING_SETTINGS.watchDistance;
+
+        for (final PlayerWatchSnapshot snapshot : snapshots) {
+            final EntityPlayerMP player = snapshot.player;
+            if (player.hasDisconnected()) {
+                continue;
+            }
+            final Map<PhysicsObject, SentShipState> playerSentStates =
+                sentStates.computeIfAbsent(player, k -> new IdentityHashMap<>());
+            final ShipTransformUpdateMessage message = new ShipTransformUpdateMessage();
+            message.setDimensionID(dimensionID);
+
+            for (final PhysicsObject ship : snapshot.watchedShips) {
+                final ShipTransform transform = ship.getShipTransformationManager().getCurrentPhysicsTransform();
+                SentShipState sentState = playerSentStates.get(ship);
+                if (sentState == null) {
+                    sentState = new SentShipState();
+                    playerSentStates.put(ship, sentState);
+                } else {
+                    final int packetsSinceSent = transformPacketIndex - sentState.sentPacketIndex;
+                    final double xDif = transform.getPosX() - snapshot.posX;
+                    final double zDif = transform.getPosZ() - snapshot.posZ;
+                    final double distanceSq = xDif * xDif + zDif * zDif;
+                    final int interval = distanceSq < fullRateDistanceSq ? 1
+                        : distanceSq < watchDistanceSq ? REDUCED_RATE_INTERVAL : FAR_RATE_INTERVAL;
+                    sentState.seenPacketIndex = transformPacketIndex;
+                    if (packetsSinceSent < interval) {
+                        continue;
+                    }
+                    final int keepAliveInterval = ship.getPhysicsCalculations().isAsleep()
+                        ? SLEEPING_KEEP_ALIVE_INTERVAL : KEEP_ALIVE_INTERVAL;
+                    if (packetsSinceSent < keepAliveInterval && !hasTransformChanged(sentState.transform, transform)) {
+                        continue;
+                    }
+                }
+                final AxisAlignedBB subspaceBB = subspaceBBs.computeIfAbsent(ship, k -> k.getBlockPositions().makeAABB());
+                // Only send the subspace AABB when it changed since the last one this player got, or once in a while in
+                // case the client dropped it
+                final boolean sendSubspaceBB = subspaceBB != null && (!subspaceBB.equals(sentState.subspaceBB)
+                    || transformPacketIndex - sentState.subspaceBBSentPacketIndex >= KEEP_ALIVE_INTERVAL);
+                message.addData(ship.getSessionId(), transform, sendSubspaceBB ? subspaceBB : null);
+
+                sentState.transform = transform;
+                if (sendSubspaceBB) {
+                    sentState.subspaceBB = subspaceBB;
+                    sentState.subspaceBBSentPacketIndex = transformPacketIndex;
+                }
+                sentState.sentPacketIndex = transformPacketIndex;
+                sentState.seenPacketIndex = transformPacketIndex;
+            }
+
+            if (!message.isEmpty()) {
+                ValkyrienSkiesMod.physWrapperTransformUpdateNetwork.sendTo(message, player);
+            }
+            // Forget about ships this player doesn't watch anymore, so they get everything again if they start watching
+            playerSentStates.values().removeIf(state -> state.seenPacketIndex != transformPacketIndex);
+        }
+
+        // Forget about players that don't watch any ships anymore
+        final Set<EntityPlayerMP> watchingPlayers = new HashSet<>();
+        for (final PlayerWatchSnapshot snapshot : snapshots) {
+            watchingPlayers.add(snapshot.player);
+        }
+        sentStates.keySet().retainAll(watchingPlayers);
+        subspaceBBs.clear();
+        transformPacketIndex++;
+        sendTimes.add(System.nanoTime() - sendStartTime);
+    }
+
+    private static boolean hasTransformChanged(ShipTransform sent, ShipTransform current) {
+        if (sent == current) {
+            return false;
+        }
+        final double xDif = current.getPosX() - sent.getPosX();
+        final double yDif = current.getPosY() - sent.getPosY();
+        final double zDif = current.getPosZ() - sent.getPosZ();
+        if (xDif * xDif + yDif * yDif + zDif * zDif > POSITION_THRESHOLD * POSITION_THRESHOLD) {
+            return true;
+        }
+        if (!sent.getCenterCoord().equals(current.getCenterCoord())) {
+            return true;
+        }
+        // Compare the rotation parts of the matrices, their elements change by about the angle rotated.
+        final Matrix4dc sentMatrix = sent.getSubspaceToGlobal();
+        final Matrix4dc currentMatrix = current.getSubspaceToGlobal();
+        return Math.abs(sentMatrix.m00() - currentMatrix.m00()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m01() - currentMatrix.m01()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m02() - currentMatrix.m02()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m10() - currentMatrix.m10()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m11() - currentMatrix.m11()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m12() - currentMatrix.m12()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m20() - currentMatrix.m20()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m21() - currentMatrix.m21()) > ROTATION_THRESHOLD
+            || Math.abs(sentMatrix.m22() - currentMatrix.m22()) > ROTATION_THRESHOLD;
+    }
+
+    private static class PlayerWatchSnapshot {
+        final EntityPlayerMP player;
+        // Copied on the game thread, the physics thread shouldn't read the player position directly.
+        final double posX, posZ;
+        final List<PhysicsObject> watchedShips;
+
+        PlayerWatchSnapshot(EntityPlayerMP player, List<PhysicsObject> watchedShips) {
+            this.player = player;
+            this.posX = player.posX;
+            this.posZ = player.posZ;
+            this.watchedShips = watchedShips;
+        }
+    }
+
+    private static class SentShipState {
+        ShipTransform transform;
+        AxisAlignedBB subspaceBB;
+        int subspaceBBSentPacketIndex;
+        int sentPacketIndex;
+        int seenPacketIndex;
+    }
+}
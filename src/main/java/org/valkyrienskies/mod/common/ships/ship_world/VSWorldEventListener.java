@@ -11,6 +11,7 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.play.server.SPacketBlockBreakAnim;
 import net.minecraft.util.SoundCategory;
 import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.IWorldEventListener;
 import net.minecraft.world.World;
@@ -22,6 +23,7 @@ import valkyrienwarfare.api.TransformType;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
 import java.util.Optional;
 
 @ParametersAreNonnullByDefault
@@ -35,7 +37,15 @@ public class VSWorldEventListener implements IWorldEventListener {
 
     @Override
     public void notifyBlockUpdate(World worldIn, BlockPos pos, IBlockState oldState, IBlockState newState, int flags) {
-
+        if (!worldObj.isRemote) {
+            // Wake up the ships this block could be holding up or pushing against. Blocks can be set from other
+            // threads, so use the broadphase directly rather than getPhysObjectsInAABB().
+            final List<PhysicsObject> shipsNear = ValkyrienUtils.getPhysObjWorld(worldObj).getShipBroadphase()
+                .getShipsIntersecting(new AxisAlignedBB(pos).grow(1));
+            for (final PhysicsObject ship : shipsNear) {
+                ship.getPhysicsCalculations().wakeUp();
+            }
+        }
     }
 
     @Override
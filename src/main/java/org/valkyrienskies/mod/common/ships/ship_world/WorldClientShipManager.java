@@ -1,6 +1,8 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
 import com.google.common.collect.ImmutableList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import net.minecraft.client.Minecraft;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
@@ -23,6 +25,12 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<UUID> loadQueue, unloadQueue;
     private ImmutableList<PhysicsObject> threadSafeLoadedShips;
+    private volatile ShipBroadphase shipBroadphase;
+    // Maps the session ids the server uses to refer to ships in network messages to the ship UUIDs.
+    private final TIntObjectMap<UUID> sessionIdToShipId;
+    private final Map<UUID, Integer> shipIdToSessionId;
+    // The latest subspace block AABB the server sent for each session id.
+    private final TIntObjectMap<AxisAlignedBB> sessionIdToSubspaceBB;
     private static final Logger logger = LogManager.getLogger();
 
     public WorldClientShipManager(World world) {
@@ -31,6 +39,10 @@ public class WorldClientShipManager implements IPhysObjectWorld {
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
         this.threadSafeLoadedShips = ImmutableList.of();
+        this.shipBroadphase = ShipBroadphase.EMPTY;
+        this.sessionIdToShipId = new TIntObjectHashMap<>();
+        this.shipIdToSessionId = new HashMap<>();
+        this.sessionIdToSubspaceBB = new TIntObjectHashMap<>();
     }
 
     private void enforceGameThread() throws CalledFromWrongThreadException {
@@ -49,6 +61,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
 
         // Update the thread safe ship list.
         this.threadSafeLoadedShips = ImmutableList.copyOf(loadedShips.values());
+        this.shipBroadphase = shipBroadphase.update(threadSafeLoadedShips);
     }
 
     private void loadAndUnloadShips() {
@@ -98,6 +111,58 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     @Override
     public void onWorldUnload() {
         loadedShips.clear();
+        shipBroadphase = ShipBroadphase.EMPTY;
+        sessionIdToShipId.clear();
+        shipIdToSessionId.clear();
+        sessionIdToSubspaceBB.clear();
+    }
+
+    /**
+     * Called when the server tells us which session id it will use for the ship with the given UUID.
+     */
+    public void registerSessionId(int sessionId, @Nonnull UUID shipID) {
+        enforceGameThread();
+        unregisterSessionId(shipID);
+        final UUID previousShipID = sessionIdToShipId.put(sessionId, shipID);
+        if (previousShipID != null) {
+            shipIdToSessionId.remove(previousShipID);
+        }
+        shipIdToSessionId.put(shipID, sessionId);
+        sessionIdToSubspaceBB.remove(sessionId);
+    }
+
+    /**
+     * Called when the server unloads the ship with the given UUID, after which its session id may be reused.
+     */
+    public void unregisterSessionId(@Nonnull UUID shipID) {
+        enforceGameThread();
+        final Integer sessionId = shipIdToSessionId.remove(shipID);
+        if (sessionId != null) {
+            sessionIdToShipId.remove(sessionId);
+            sessionIdToSubspaceBB.remove(sessionId);
+        }
+    }
+
+    @Nullable
+    public UUID getShipIdFromSessionId(int sessionId) {
+        enforceGameThread();
+        return sessionIdToShipId.get(sessionId);
+    }
+
+    /**
+     * @return The latest subspace block AABB the server sent for the given session id, or null if we don't know it yet.
+     */
+    @Nullable
+    public AxisAlignedBB getSubspaceBB(int sessionId) {
+        enforceGameThread();
+        return sessionIdToSubspaceBB.get(sessionId);
+    }
+
+    public void setSubspaceBB(int sessionId, @Nonnull AxisAlignedBB subspaceBB) {
+        enforceGameThread();
+        if (sessionIdToShipId.containsKey(sessionId)) {
+            sessionIdToSubspaceBB.put(sessionId, subspaceBB);
+        }
     }
 
     @Nullable
@@ -111,13 +176,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     @Override
     public List<PhysicsObject> getPhysObjectsInAABB(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject physicsObject : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(physicsObject.getShipBB())) {
-                nearby.add(physicsObject);
-            }
-        }
-        return nearby;
+        return shipBroadphase.getShipsIntersecting(toCheck);
     }
 
     @Nonnull
@@ -133,6 +192,12 @@ public class WorldClientShipManager implements IPhysObjectWorld {
         return threadSafeLoadedShips;
     }
 
+    @Nonnull
+    @Override
+    public ShipBroadphase getShipBroadphase() {
+        return shipBroadphase;
+    }
+
     @Override
     public void queueShipLoad(@Nonnull UUID shipID) {
         enforceGameThread();
@@ -1,39 +1,40 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
 import com.google.common.collect.ImmutableList;
-import gnu.trove.iterator.TIntIterator;
 import lombok.Getter;
-import net.minecraft.block.state.IBlockState;
-import net.minecraft.init.Blocks;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.tileentity.TileEntity;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.play.server.SPacketChunkData;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
-import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.valkyrienskies.mod.common.config.VSConfig;
-import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.block_relocation.BlockFinder;
-import org.valkyrienskies.mod.common.ships.block_relocation.IRelocationAwareTile;
-import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
-import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
-import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
 import org.valkyrienskies.mod.common.util.multithreaded.VSWorldPhysicsLoop;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
 
+@Log4j2
 public class WorldServerShipManager implements IPhysObjectWorld {
 
+    // Session ids are sent to clients as unsigned shorts.
+    private static final int MAX_SESSION_IDS = 1 << 16;
+    // The number of ticks the tick times are kept for.
+    private static final int TICK_TIME_SAMPLES = 100;
+
     @Getter
     private final WorldServer world;
     @Getter
@@ -43,9 +44,23 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     private final Map<UUID, PhysicsObject> loadedShips;
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<ImmutableTriple<BlockPos, ShipData, BlockFinder.BlockFinderType>> spawnQueue;
+    // The ships being assembled, in the order they were queued
+    private final Map<UUID, ShipSpawnTask> spawnTasks;
     private final LinkedHashSet<UUID> loadQueue, unloadQueue, backgroundLoadQueue;
     private final Set<UUID> loadingInBackground;
     private ImmutableList<PhysicsObject> threadSafeLoadedShips;
+    private volatile ShipBroadphase shipBroadphase;
+    // The session ids assigned to the loaded ships, see PhysicsObject.getSessionId()
+    private final BitSet usedSessionIds;
+    private int nextSessionId;
+    // How long the latest calls to tick() took in total, and how much of that was spent deciding which ships to load
+    // and sending ship updates to players. In nanoseconds.
+    @Getter
+    private final LongRingBuffer tickTimes;
+    @Getter
+    private final LongRingBuffer loadingTimes;
+    @Getter
+    private final LongRingBuffer playerUpdateTimes;
 
     public WorldServerShipManager(World world) {
         this.world = (WorldServer) world;
@@ -53,11 +68,18 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         this.loadingController = new WorldShipLoadingController(this);
         this.loadedShips = new HashMap<>();
         this.spawnQueue = new LinkedHashSet<>();
+        this.spawnTasks = new LinkedHashMap<>();
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
         this.backgroundLoadQueue = new LinkedHashSet<>();
         this.loadingInBackground = new HashSet<>();
         this.threadSafeLoadedShips = ImmutableList.of();
+        this.shipBroadphase = ShipBroadphase.EMPTY;
+        this.usedSessionIds = new BitSet(MAX_SESSION_IDS);
+        this.nextSessionId = 0;
+        this.tickTimes = new LongRingBuffer(TICK_TIME_SAMPLES);
+        this.loadingTimes = new LongRingBuffer(TICK_TIME_SAMPLES);
+        this.playerUpdateTimes = new LongRingBuffer(TICK_TIME_SAMPLES);
 
         this.physicsThread = new Thread(physicsLoop);
         this.physicsThread.start();
@@ -84,16 +106,11 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     @Override
     public List<PhysicsObject> getPhysObjectsInAABB(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject ship : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(ship.getShipBB())) {
-                nearby.add(ship);
-            }
-        }
-        return nearby;
+        return shipBroadphase.getShipsIntersecting(toCheck);
     }
 
     public void tick() {
+        final long tickStartTime = System.nanoTime();
         // First destroy any ships that want to be destroyed (copy blocks from ship to world, and then unload)
         Iterator<Map.Entry<UUID, PhysicsObject>> iterator = loadedShips.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -103,7 +120,10 @@ public class WorldServerShipManager implements IPhysObjectWorld {
                 physicsObject.destroyShip();
                 // Then remove the ship from the world, and the ship map.
                 QueryableShipData.get(world).removeShip(physicsObject.getShipData());
+                // Its chunks are empty now, so its region of the shipyard can be given to another ship
+                ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(physicsObject.getChunkClaim());
                 iterator.remove();
+                releaseSessionId(physicsObject);
             }
         }
 
@@ -111,7 +131,9 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         spawnNewShips();
 
         // Then determine which ships to load and unload
+        final long loadingStartTime = System.nanoTime();
         loadingController.determineLoadAndUnload();
+        loadingTimes.add(System.nanoTime() - loadingStartTime);
 
         // Then execute queued ship load and unload operations
         loadAndUnloadShips();
@@ -122,10 +144,14 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         }
 
         // Finally, send the players updates about the ships.
+        final long playerUpdateStartTime = System.nanoTime();
         loadingController.sendUpdatesToPlayers();
+        playerUpdateTimes.add(System.nanoTime() - playerUpdateStartTime);
 
         // And then update the thread safe ship list.
         this.threadSafeLoadedShips = ImmutableList.copyOf(loadedShips.values());
+        this.shipBroadphase = shipBroadphase.update(threadSafeLoadedShips);
+        tickTimes.add(System.nanoTime() - tickStartTime);
     }
 
     private void spawnNewShips() {
@@ -134,227 +160,149 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             final ShipData toSpawn = spawnData.getMiddle();
             final BlockFinder.BlockFinderType blockBlockFinderType = spawnData.getRight();
 
-            if (loadedShips.containsKey(toSpawn.getUuid())) {
+            if (loadedShips.containsKey(toSpawn.getUuid()) || spawnTasks.containsKey(toSpawn.getUuid())) {
                 throw new IllegalStateException("Tried spawning a ShipData that was already loaded?\n" + toSpawn);
             }
-
-            final SpatialDetector detector = BlockFinder.getBlockFinderFor(
-                    blockBlockFinderType,
-                    physicsInfuserPos,
-                    world,
-                    VSConfig.maxDetectedShipSize + 1,
-                    true
-            );
-
-            if (VSConfig.showAnnoyingDebugOutput) {
-                System.out.println("Attempting to spawn " + toSpawn + " on the thread " + Thread.currentThread().getName());
-            }
-            if (detector.foundSet.size() > VSConfig.maxDetectedShipSize || detector.cleanHouse) {
-                System.err.println("Ship too big or bedrock detected!");
-
-                /*
-                if (creator != null) {
-                    creator.sendMessage(new TextComponentString(
-                            "Ship construction canceled because its exceeding the ship size limit; "
-                                    +
-                                    "or because it's attached to bedrock. " +
-                                    "Raise it with /physsettings maxshipsize [number]"));
-                }
-
-                 */
-                continue; // Skip ship construction
-            }
-
-            // Fill the chunk claims
-            int radius = 7;
-
-            // TEMP CODE
-            // Eventually want to create mechanisms that control how many chunks are allocated to a ship
-            // But for now, lets just give them a bunch of chunks.
-            ChunkPos centerPos = toSpawn.getChunkClaim().getCenterPos();
-            for (int chunkX = -radius; chunkX <= radius; chunkX++) {
-                for (int chunkZ = -radius; chunkZ <= radius; chunkZ++) {
-                    toSpawn.getChunkClaim().addChunkClaim(centerPos.x + chunkX, centerPos.z + chunkZ);
-                }
+            // Don't let two ships take the same blocks
+            if (isBlockLockedByShipSpawn(physicsInfuserPos)) {
+                log.warn("Tried spawning a ship from blocks that are already being made into a ship!");
+                abandonSpawn(toSpawn);
+                continue;
             }
 
-            // When copying the ship chunks we want to keep track of the inertia and center of mass.
-            IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
-
-            // Then create the ship chunks
-            MutableBlockPos srcLocationPos = new MutableBlockPos();
-            BlockPos centerDifference = toSpawn.getChunkClaim().getRegionCenter().subtract(physicsInfuserPos);
-
-            MutableBlockPos pasteLocationPos = new MutableBlockPos();
-
-            Map<Long, Chunk> copiedChunksMap = new HashMap<>();
-
-            // First, copy the blocks and tiles to the new chunks
-            TIntIterator blocksIterator = detector.foundSet.iterator();
-            while (blocksIterator.hasNext()) {
-                int hashedPos = blocksIterator.next();
-                SpatialDetector.setPosWithRespectTo(hashedPos, detector.firstBlock, srcLocationPos);
-                // Get the BlockPos from the hashedPos
-                pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(), srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
-
-                // Then add it to the ShipData block positions set
-                toSpawn.blockPositions.add(pasteLocationPos.getX(), pasteLocationPos.getY(), pasteLocationPos.getZ());
-
-                // Then create a chunk to accommodate this block (if one does not already exist).
-                int newChunkX = pasteLocationPos.getX() >> 4;
-                int newChunkZ = pasteLocationPos.getZ() >> 4;
-
-                long newChunkPosLong = ChunkPos.asLong(newChunkX, newChunkZ);
-
-                if (!copiedChunksMap.containsKey(newChunkPosLong)) {
-                    Chunk chunk = new Chunk(world, newChunkX, newChunkZ);
-                    copiedChunksMap.put(newChunkPosLong, chunk);
-                }
-
-                // Then copy the IBlockState & TileEntity to the new Chunk
-                // Get the old world Chunk
-                Chunk chunkToSet = world.getChunk(srcLocationPos);
-
-                // Get the new Chunk
-                Chunk newChunk = copiedChunksMap.get(newChunkPosLong);
-
-                // Then get the old IBlockState, as efficiently as possible
-                int storageIndex = srcLocationPos.getY() >> 4;
-                // Check that we're placing the block in a valid position
-                if (storageIndex < 0 || storageIndex >= chunkToSet.storageArrays.length) {
-                    // Invalid position, abort!
-                    throw new IllegalStateException("Incorrect block copy!\n" + srcLocationPos);
-                }
-
-                IBlockState srcState = chunkToSet.storageArrays[storageIndex]
-                        .get(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15);
-
-                // Then paste that IBlockState into the new ship chunk
-                int newChunkStorageIndex = pasteLocationPos.getY() >> 4;
-
-                if (newChunk.storageArrays[newChunkStorageIndex] == Chunk.NULL_BLOCK_STORAGE) {
-                    newChunk.storageArrays[newChunkStorageIndex] = new ExtendedBlockStorage(newChunkStorageIndex << 4,
-                            true);
-                }
-                newChunk.storageArrays[newChunkStorageIndex]
-                        .set(pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15, pasteLocationPos.getZ() & 15, srcState);
-
-                // If this block is force block, then add it to the activeForcePositions list of the ship.
-                if (BlockPhysicsDetails.isBlockProvidingForce(srcState)) {
-                    toSpawn.activeForcePositions.add(pasteLocationPos);
-                }
-
-                // Also update the center of mass and inertia provider
-                centerOfMassProvider.onSetBlockState(toSpawn.getInertiaData(), pasteLocationPos, Blocks.AIR.getDefaultState(), srcState);
-
-                // Then copy the TileEntity (if there is one)
-                TileEntity srcTile = world.getTileEntity(srcLocationPos);
-                if (srcTile != null) {
-                    TileEntity pasteTile;
-                    if (srcTile instanceof IRelocationAwareTile) {
-                        pasteTile = ((IRelocationAwareTile) srcTile).createRelocatedTile(pasteLocationPos, toSpawn);
-                    } else {
-                        NBTTagCompound tileEntNBT = srcTile.writeToNBT(new NBTTagCompound());
-                        // Change the block position to be inside of the Ship
-                        tileEntNBT.setInteger("x", pasteLocationPos.getX());
-                        tileEntNBT.setInteger("y", pasteLocationPos.getY());
-                        tileEntNBT.setInteger("z", pasteLocationPos.getZ());
-                        pasteTile = TileEntity.create(world, tileEntNBT);
-                    }
+            spawnTasks.put(toSpawn.getUuid(), new ShipSpawnTask(world, toSpawn, physicsInfuserPos, blockBlockFinderType));
+        }
+        spawnQueue.clear();
 
-                    // Finally, add the new TileEntity to the new ship chunk.
-                    newChunk.addTileEntity(pasteTile);
-                }
+        // All the ships being assembled share the same time budget
+        final long deadline = System.nanoTime() + VSConfig.shipAssemblyMillisPerTick * 1_000_000L;
+        final Iterator<ShipSpawnTask> taskIterator = spawnTasks.values().iterator();
+        while (taskIterator.hasNext()) {
+            final ShipSpawnTask task = taskIterator.next();
+            // The ship goes into the world in the same tick its blocks are removed from it, so that the world is
+            // never saved with the blocks gone but no ship
+            if (task.tick(deadline)) {
+                finishSpawn(task);
             }
-
-            for (final Chunk chunk : copiedChunksMap.values()) {
-                chunk.generateSkylightMap();
+            if (task.getStage() == ShipSpawnTask.Stage.FAILED) {
+                abandonSpawn(task.getShipData());
+                taskIterator.remove();
+            } else if (task.getStage() == ShipSpawnTask.Stage.DONE) {
+                taskIterator.remove();
             }
+        }
+    }
 
-            // Then delete the copied blocks from the old chunks
-            blocksIterator = detector.foundSet.iterator();
-            while (blocksIterator.hasNext()) {
-                int hashedPos = blocksIterator.next();
-                SpatialDetector.setPosWithRespectTo(hashedPos, detector.firstBlock, srcLocationPos);
-
-                Chunk chunkToSet = world.getChunk(srcLocationPos);
-
-                // Then get the old IBlockState, as efficiently as possible
-                int storageIndex = srcLocationPos.getY() >> 4;
-                // Check that we're placing the block in a valid position
-                if (storageIndex < 0 || storageIndex >= chunkToSet.storageArrays.length) {
-                    // Invalid position, abort!
-                    throw new IllegalStateException("Incorrect block copy!\n" + srcLocationPos);
-                }
-
-                IBlockState srcState = chunkToSet.storageArrays[storageIndex]
-                        .get(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15);
-
-                // THIS IS TEMP because its extremely inefficient.
-                // Come up with a clever way to let clients figure this out in the future.
-                world.notifyBlockUpdate(srcLocationPos, srcState, Blocks.AIR.getDefaultState(), 3);
-
-                // Finally, delete the old IBlockState and TileEntity from the old Chunk
-                chunkToSet.storageArrays[storageIndex]
-                        .set(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15, Blocks.AIR.getDefaultState());
-
-                // Delete the TileEntity at this pos (if there is one)
-                world.removeTileEntity(srcLocationPos);
+    /**
+     * Puts the ship chunks of an assembled ship into the world, and then loads the ship.
+     */
+    private void finishSpawn(@Nonnull ShipSpawnTask task) {
+        final ShipData toSpawn = task.getShipData();
+
+        // Inject the ship chunks into the world
+        toSpawn.getChunkClaim().forEach((x, z) -> {
+            final Chunk shipChunk = task.getShipChunk(x, z);
+            injectChunkIntoWorldServer(shipChunk != null ? shipChunk : new Chunk(world, x, z), x, z);
+        });
+
+        // Add shipData to the ShipData storage
+        QueryableShipData.get(world).addShip(toSpawn);
+
+        // Finally, instantiate the PhysicsObject representation of this ShipData
+        PhysicsObject physicsObject = new PhysicsObject(world, toSpawn);
+        assignSessionId(physicsObject);
+        loadedShips.put(toSpawn.getUuid(), physicsObject);
+    }
 
-                chunkToSet.markDirty();
-            }
+    /**
+     * Cleans up after a ship that will never be spawned, the world itself wasn't changed.
+     */
+    private void abandonSpawn(@Nonnull ShipData toSpawn) {
+        QueryableShipData.get(world).removeShip(toSpawn.getUuid());
+        ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(toSpawn.getChunkClaim());
+    }
 
-            // Then relight the original chunks
-            {
-                Set<Long> chunksRelit = new HashSet<>();
-                blocksIterator = detector.foundSet.iterator();
-                while (blocksIterator.hasNext()) {
-                    int hashedPos = blocksIterator.next();
-                    SpatialDetector.setPosWithRespectTo(hashedPos, detector.firstBlock, srcLocationPos);
+    /**
+     * @return The assembly of the given ship, or null if it isn't being assembled.
+     */
+    @Nullable
+    public ShipSpawnTask getShipSpawnTask(@Nonnull UUID shipID) {
+        enforceGameThread();
+        return spawnTasks.get(shipID);
+    }
 
-                    int changedChunkX = pasteLocationPos.getX() >> 4;
-                    int changedChunkZ = pasteLocationPos.getZ() >> 4;
-                    long changedChunkPos = ChunkPos.asLong(changedChunkX, changedChunkZ);
+    @Nonnull
+    public List<ShipSpawnTask> getShipSpawnTasks() {
+        enforceGameThread();
+        return new ArrayList<>(spawnTasks.values());
+    }
 
-                    if (chunksRelit.contains(changedChunkPos)) {
-                        continue;
-                    }
-                    final Chunk chunk = world.getChunk(changedChunkX, changedChunkZ);
-                    chunk.generateSkylightMap();
-                    chunk.checkLight();
-                    chunk.markDirty();
-                    chunksRelit.add(changedChunkPos);
-                }
+    /**
+     * @return True if pos might be part of a ship that is being assembled, in which case it must not be changed.
+     */
+    public boolean isBlockLockedByShipSpawn(@Nonnull BlockPos pos) {
+        enforceGameThread();
+        for (final ShipSpawnTask task : spawnTasks.values()) {
+            if (task.isBlockLocked(pos)) {
+                return true;
             }
-
-            // Then inject the ship chunks into the world
-            toSpawn.getChunkClaim().forEach((x, z) -> {
-                long chunkLong = ChunkPos.asLong(x, z);
-                if (copiedChunksMap.containsKey(chunkLong)) {
-                    injectChunkIntoWorldServer(copiedChunksMap.get(chunkLong), x, z);
-                } else {
-                    injectChunkIntoWorldServer(new Chunk(world, x, z), x, z);
-                }
-            });
-
-            // Add shipData to the ShipData storage
-            QueryableShipData.get(world).addShip(toSpawn);
-
-            // Finally, instantiate the PhysicsObject representation of this ShipData
-            PhysicsObject physicsObject = new PhysicsObject(world, toSpawn);
-            loadedShips.put(toSpawn.getUuid(), physicsObject);
         }
-        spawnQueue.clear();
+        return false;
     }
 
+    /**
+     * Puts chunk into the world in place of whatever chunk is loaded at (x, z).
+     */
     private void injectChunkIntoWorldServer(@Nonnull Chunk chunk, int x, int z) {
         ChunkProviderServer provider = world.getChunkProvider();
-        provider.loadedChunks.put(ChunkPos.asLong(x, z), chunk);
+        final Chunk oldChunk = provider.loadedChunks.put(ChunkPos.asLong(x, z), chunk);
+        if (oldChunk != null && oldChunk != chunk) {
+            // Regions of destroyed ships are given out again, and a chunk of the old ship may still be loaded here.
+            // Unload it without saving, otherwise it would stay loaded forever and could be saved over this chunk.
+            oldChunk.onUnload();
+        }
         chunk.onLoad();
         chunk.checkLight();
         chunk.markDirty();
     }
 
+    /**
+     * Claims the chunk at (chunkX, chunkZ) and the 8 chunks around it for the ship, if they aren't already. Called
+     * whenever a block is placed in a ship, so that the claim always has room for the ship to grow into.
+     */
+    public void claimChunksAround(@Nonnull ShipData shipData, int chunkX, int chunkZ) {
+        enforceGameThread();
+        final VSChunkClaim claim = shipData.getChunkClaim();
+        for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+            for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+                if (!claim.containsChunk(x, z) && claim.isChunkInRegion(x, z)) {
+                    claimChunk(shipData, x, z);
+                }
+            }
+        }
+    }
+
+    private void claimChunk(@Nonnull ShipData shipData, int x, int z) {
+        // Unclaimed shipyard chunks never belong to this ship, so there's no need to load them from disk. A chunk that
+        // is loaded here is left over from a ship that used this region before, and gets replaced.
+        final Chunk chunk = new Chunk(world, x, z);
+        injectChunkIntoWorldServer(chunk, x, z);
+        final PhysicsObject physicsObject = loadedShips.get(shipData.getUuid());
+        // Cache the chunk before claiming it, the physics threads assume claimed chunks are cached
+        if (physicsObject != null) {
+            physicsObject.getClaimedChunkCache().addChunk(chunk);
+        }
+        QueryableShipData.get(world).claimChunk(shipData, x, z);
+        // Watchers get the new chunk right away even though it's empty, the block changes in it that are about to be
+        // sent to them would be dropped if they didn't have it yet.
+        if (physicsObject != null) {
+            final SPacketChunkData data = new SPacketChunkData(chunk, 65535);
+            for (EntityPlayerMP player : physicsObject.getWatchingPlayers()) {
+                player.connection.sendPacket(data);
+            }
+        }
+    }
+
     private void loadAndUnloadShips() {
         QueryableShipData queryableShipData = QueryableShipData.get(world);
         // Load the ships that are required immediately.
@@ -374,7 +322,9 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Attempting to load ship " + toLoad);
             }
+            queryableShipData.ensureBlockDataLoaded(toLoad);
             PhysicsObject physicsObject = new PhysicsObject(world, toLoad);
+            assignSessionId(physicsObject);
             PhysicsObject old = loadedShips.put(toLoad.getUuid(), physicsObject);
             if (old != null) {
                 throw new IllegalStateException("How did we already have a ship loaded for " + toLoad);
@@ -403,6 +353,8 @@ public class WorldServerShipManager implements IPhysObjectWorld {
 
             ShipData toLoad = toLoadOptional.get();
             loadingInBackground.add(toLoadID);
+            // Read the ship blocks now, rather than on the tick the ship finishes loading
+            queryableShipData.ensureBlockDataLoaded(toLoad);
 
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Attempting to load " + toLoad + " in the background.");
@@ -438,10 +390,30 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (!success) {
                 throw new IllegalStateException("How did we fail to unload " + physicsObject.getShipData());
             }
+            releaseSessionId(physicsObject);
         }
         unloadQueue.clear();
     }
 
+    private void assignSessionId(@Nonnull PhysicsObject physicsObject) {
+        // Keep counting up instead of reusing the lowest free id, so that transform packets still in flight for an
+        // unloaded ship can't be mistaken for the ship that replaced it.
+        int sessionId = usedSessionIds.nextClearBit(nextSessionId);
+        if (sessionId >= MAX_SESSION_IDS) {
+            sessionId = usedSessionIds.nextClearBit(0);
+            if (sessionId >= MAX_SESSION_IDS) {
+                throw new IllegalStateException("Ran out of ship session ids, too many ships are loaded");
+            }
+        }
+        usedSessionIds.set(sessionId);
+        nextSessionId = (sessionId + 1) % MAX_SESSION_IDS;
+        physicsObject.setSessionId(sessionId);
+    }
+
+    private void releaseSessionId(@Nonnull PhysicsObject physicsObject) {
+        usedSessionIds.clear(physicsObject.getSessionId());
+    }
+
     @Nonnull
     @Override
     public Iterable<PhysicsObject> getAllLoadedPhysObj() throws CalledFromWrongThreadException {
@@ -455,6 +427,12 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         return threadSafeLoadedShips;
     }
 
+    @Nonnull
+    @Override
+    public ShipBroadphase getShipBroadphase() {
+        return shipBroadphase;
+    }
+
     /**
      * Thread safe way to queue a ship spawn. (Not the same as {@link #queueShipLoad(UUID)}.
      */
@@ -2,10 +2,8 @@ package org.valkyrienskies.mod.common.ships.ship_world;
 
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
-import net.minecraft.network.play.server.SPacketChunkData;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.network.ShipIndexDataMessage;
@@ -18,16 +16,26 @@ import java.util.*;
 /**
  * This class is responsible determining which ships will be loaded/unloaded.
  *
- * It also keeps track of which players are watching a ship, and sending update packets to players.
+ * It also keeps track of which players are watching a ship, and sending update packets to players. Ship transforms are
+ * sent by the ShipTransformStreamer on the physics thread, only to the players watching each ship. Ship chunks are sent
+ * to new watchers over several ticks by the {@link ShipChunkStreamer}.
  */
 class WorldShipLoadingController {
 
+    // Every loaded ship is sent in full to its watchers once every this many ticks, instead of just the fields that
+    // changed, so that clients can't drift out of sync forever.
+    private static final int FULL_RESYNC_TICKS = 100;
+
     private final WorldServerShipManager shipManager;
+    private final ShipChunkStreamer chunkStreamer;
     private Map<ShipData, Set<EntityPlayerMP>> shipToWatchingPlayers;
+    private int ticksExisted;
 
     WorldShipLoadingController(WorldServerShipManager shipManager) {
         this.shipManager = shipManager;
+        this.chunkStreamer = new ShipChunkStreamer(shipManager.getWorld());
         this.shipToWatchingPlayers = new HashMap<>();
+        this.ticksExisted = 0;
     }
 
     /**
@@ -63,13 +71,18 @@ class WorldShipLoadingController {
         Map<ShipData, Set<EntityPlayerMP>> newWatching = updateWatchingPlayers();
         // Then send updates to players based on the old watching map and new watching map
         sendUpdatesPackets(shipToWatchingPlayers, newWatching);
+        chunkStreamer.sendQueuedChunks();
         // Then update the watching map
         shipToWatchingPlayers = newWatching;
+        ticksExisted++;
         // Then update the watching player map of the ship chunks
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
             ship.getWatchingPlayers().clear();
             ship.getWatchingPlayers().addAll(shipToWatchingPlayers.get(ship.getShipData()));
         }
+        // Then let the physics thread know which ships to send to which players
+        shipManager.getPhysicsLoop().getTransformStreamer()
+            .updateWatchingPlayers(shipManager.getAllLoadedPhysObj(), shipToWatchingPlayers);
     }
 
     /**
@@ -116,28 +129,40 @@ class WorldShipLoadingController {
      * Send load/unload/update packets accordingly.
      */
     private void sendUpdatesPackets(Map<ShipData, Set<EntityPlayerMP>> oldWatching, Map<ShipData, Set<EntityPlayerMP>> newWatching) {
-        // First send the update packets
-        // Create a map for every player to the ship data updates it will receive
-        Map<EntityPlayerMP, List<ShipData>> updatesMap = new HashMap<>();
-        shipManager.getWorld().playerEntities.forEach((player) -> updatesMap.put((EntityPlayerMP) player, new ArrayList<>()));
+        Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap = new HashMap<>();
 
+        // First add the ShipData updates. Each ship is only encoded once, then shared by the packets of every watcher.
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
             ShipData shipData = ship.getShipData();
+            // Always poll, so that changes made while nobody was watching don't get sent later
+            int dirtyFields = shipData.pollDirtyFields();
             Set<EntityPlayerMP> currentWatchers = newWatching.get(shipData);
-            currentWatchers.forEach((player) -> updatesMap.get(player).add(shipData));
-        }
-
-        Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap = new HashMap<>();
-
-        // Then send those updates
-        updatesMap.forEach((player, updates) -> {
-            ShipIndexDataMessage indexDataMessage = new ShipIndexDataMessage();
-            indexDataMessage.setDimensionID(shipManager.getWorld().provider.getDimension());
-            if (!updates.isEmpty()) {
-                indexDataMessage.addData(updates);
+            if (currentWatchers.isEmpty()) {
+                continue;
             }
-            playerPacketMap.put(player, indexDataMessage);
-        });
+            Set<EntityPlayerMP> oldWatchers = oldWatching.getOrDefault(shipData, Collections.emptySet());
+            // Spread the full resyncs of different ships over different ticks
+            boolean fullResync = (ticksExisted + (shipData.getUuid().hashCode() & Integer.MAX_VALUE)) % FULL_RESYNC_TICKS == 0;
+            byte[] encodedData = null;
+            byte[] encodedDelta = null;
+            for (EntityPlayerMP player : currentWatchers) {
+                ShipIndexDataMessage indexDataMessage = getOrCreatePacket(playerPacketMap, player);
+                if (fullResync || !oldWatchers.contains(player)) {
+                    // New watchers need the full ShipData before they can load the ship
+                    if (encodedData == null) {
+                        encodedData = ShipIndexDataMessage.encodeShipData(shipData);
+                    }
+                    if (encodedData != null) {
+                        indexDataMessage.addEncodedData(encodedData);
+                    }
+                } else if (dirtyFields != 0) {
+                    if (encodedDelta == null) {
+                        encodedDelta = ShipIndexDataMessage.encodeShipDataDelta(shipData, dirtyFields);
+                    }
+                    indexDataMessage.addEncodedDelta(encodedDelta);
+                }
+            }
+        }
 
         // Then send ship loads to the packets
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
@@ -147,16 +172,12 @@ class WorldShipLoadingController {
                 newWatchers.removeAll(oldWatching.get(shipData));
             }
             if (!newWatchers.isEmpty()) {
-                // First send the ship chunks to the new watchers
-                for (Chunk chunk : ship.getClaimedChunkCache()) {
-                    SPacketChunkData data = new SPacketChunkData(chunk, 65535);
-                    for (EntityPlayerMP player : newWatchers) {
-                        player.connection.sendPacket(data);
-                        shipManager.getWorld().getEntityTracker().sendLeashedEntitiesInChunk(player, chunk);
-                    }
+                // First queue the ship chunks to be sent to the new watchers
+                for (EntityPlayerMP player : newWatchers) {
+                    chunkStreamer.queueShipChunks(player, ship);
                 }
 
-                newWatchers.forEach(player -> playerPacketMap.get(player).addLoadUUID(shipData.getUuid()));
+                newWatchers.forEach(player -> getOrCreatePacket(playerPacketMap, player).addLoadUUID(shipData.getUuid(), ship.getSessionId()));
             }
         }
 
@@ -167,24 +188,30 @@ class WorldShipLoadingController {
                 removedWatchers.removeAll(newWatching.get(shipData));
             }
             for (EntityPlayerMP player : removedWatchers) {
-                // Handles the case of players who left the world/dimension. Basically just prevents crashes with
-                // BetterPortals.
-                if (!playerPacketMap.containsKey(player)) {
-                    playerPacketMap.put(player, new ShipIndexDataMessage());
-                    playerPacketMap.get(player).setDimensionID(shipManager.getWorld().provider.getDimension());
-                }
-                playerPacketMap.get(player).addUnloadUUID(shipData.getUuid());
+                chunkStreamer.removeShip(player, shipData);
+                // This also handles the case of players who left the world/dimension. Basically just prevents crashes
+                // with BetterPortals.
+                getOrCreatePacket(playerPacketMap, player).addUnloadUUID(shipData.getUuid());
             }
         }
 
         // Finally, send each player their update packet
         playerPacketMap.forEach((player, packet) -> {
-            if (!player.hasDisconnected()) {
+            if (!player.hasDisconnected() && !packet.isEmpty()) {
                 ValkyrienSkiesMod.physWrapperNetwork.sendTo(packet, player);
             }
         });
     }
 
+    private ShipIndexDataMessage getOrCreatePacket(Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap,
+        EntityPlayerMP player) {
+        return playerPacketMap.computeIfAbsent(player, k -> {
+            ShipIndexDataMessage indexDataMessage = new ShipIndexDataMessage();
+            indexDataMessage.setDimensionID(shipManager.getWorld().provider.getDimension());
+            return indexDataMessage;
+        });
+    }
+
     /**
      * Returns true if player is within distance of pos, only using XZ coordinates
      */
@@ -323,6 +323,63 @@ public class VSMath {
             .getNormalizedRotation(new Quaterniond());
     }
 
+    // The number of bits used for each of the 3 smallest components of a packed quaternion.
+    private static final int PACKED_QUAT_COMPONENT_BITS = 20;
+    private static final long PACKED_QUAT_COMPONENT_MASK = (1L << PACKED_QUAT_COMPONENT_BITS) - 1;
+    // Use an even scale so that a component of 0 is stored exactly.
+    private static final long PACKED_QUAT_COMPONENT_SCALE = PACKED_QUAT_COMPONENT_MASK - 1;
+    private static final double PACKED_QUAT_COMPONENT_RANGE = 1 / Math.sqrt(2);
+
+    /**
+     * Packs a unit quaternion into a long using the "smallest three" encoding. The largest component is dropped (it can
+     * be recomputed because the quaternion has length 1), and the other three are stored with 20 bits each, which is
+     * more than precise enough to send over the network.
+     *
+     * @see #unpackQuaternion(long, Quaterniond)
+     */
+    public static long packQuaternion(Quaterniondc quat) {
+        final double[] components = {quat.x(), quat.y(), quat.z(), quat.w()};
+        int largestIndex = 0;
+        for (int i = 1; i < 4; i++) {
+            if (Math.abs(components[i]) > Math.abs(components[largestIndex])) {
+                largestIndex = i;
+            }
+        }
+        // q and -q are the same rotation, so flip the sign to make the dropped component positive
+        final double sign = components[largestIndex] < 0 ? -1 : 1;
+        long packed = largestIndex;
+        for (int i = 0; i < 4; i++) {
+            if (i != largestIndex) {
+                // The other 3 components are always within [-1/sqrt(2), 1/sqrt(2)]
+                final double normalized = (sign * components[i] / PACKED_QUAT_COMPONENT_RANGE + 1) / 2;
+                final long quantized = Math.round(Math.min(Math.max(normalized, 0), 1) * PACKED_QUAT_COMPONENT_SCALE);
+                packed = (packed << PACKED_QUAT_COMPONENT_BITS) | quantized;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Reverses {@link #packQuaternion(Quaterniondc)}.
+     *
+     * @return dest
+     */
+    public static Quaterniond unpackQuaternion(long packed, Quaterniond dest) {
+        final int largestIndex = (int) (packed >>> (3 * PACKED_QUAT_COMPONENT_BITS));
+        final double[] components = new double[4];
+        double sumOfSquares = 0;
+        for (int i = 3; i >= 0; i--) {
+            if (i != largestIndex) {
+                final double normalized = (packed & PACKED_QUAT_COMPONENT_MASK) / (double) PACKED_QUAT_COMPONENT_SCALE;
+                components[i] = (normalized * 2 - 1) * PACKED_QUAT_COMPONENT_RANGE;
+                sumOfSquares += components[i] * components[i];
+                packed >>>= PACKED_QUAT_COMPONENT_BITS;
+            }
+        }
+        components[largestIndex] = Math.sqrt(Math.max(0, 1 - sumOfSquares));
+        return dest.set(components[0], components[1], components[2], components[3]).normalize();
+    }
+
     public interface IntTernaryFunction<T> {
         T apply(int x, int y, int z);
     }
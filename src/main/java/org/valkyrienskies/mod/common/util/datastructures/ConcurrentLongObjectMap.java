@@ -0,0 +1,168 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing hash map from primitive longs to objects, with linear probing.
+ * <p>
+ * {@link #get(long)} never locks or allocates, so it can be called from any thread as often as needed. Writes are
+ * synchronized with each other. A reader running at the same time as a write sees the map either before or after that
+ * write.
+ * <p>
+ * Removed keys are left in the table so that probing goes past them, until the table is rebuilt.
+ * <p>
+ * {@link Long#MIN_VALUE} can't be used as a key.
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    // Marks free slots, so it can't be used as a key. This is ChunkPos.asLong(0, Integer.MIN_VALUE), which is far
+    // outside of the world border.
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table<V> table;
+    // The number of keys mapped to a value, only modified while synchronized.
+    private int size;
+
+    public ConcurrentLongObjectMap() {
+        this.table = new Table<>(MIN_CAPACITY);
+        this.size = 0;
+    }
+
+    /**
+     * @return The value mapped to key, or null if there isn't one.
+     */
+    @Nullable
+    public V get(long key) {
+        final Table<V> table = this.table;
+        final int mask = table.keys.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final long slotKey = table.keys.get(i);
+            if (slotKey == key) {
+                return table.values.get(i);
+            }
+            if (slotKey == EMPTY_KEY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Maps key to value, replacing the old value of key if there was one.
+     *
+     * @throws IllegalArgumentException If key is {@link Long#MIN_VALUE}, or value is null.
+     */
+    public synchronized void put(long key, V value) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Cannot use " + EMPTY_KEY + " as a key");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Cannot map a key to null, use remove() instead");
+        }
+        Table<V> table = this.table;
+        if ((table.usedSlots + 1) * 2 > table.keys.length()) {
+            // Rebuild the table without the removed keys, and grow it if it's still too full
+            table = rebuild(table, size + 1);
+            this.table = table;
+        }
+        final int mask = table.keys.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final long slotKey = table.keys.get(i);
+            if (slotKey == key) {
+                if (table.values.getAndSet(i, value) == null) {
+                    size++;
+                }
+                return;
+            }
+            if (slotKey == EMPTY_KEY) {
+                // Write the value first so that readers never see the key without it
+                table.values.set(i, value);
+                table.keys.set(i, key);
+                table.usedSlots++;
+                size++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping of key, if there is one.
+     */
+    public synchronized void remove(long key) {
+        final Table<V> table = this.table;
+        final int mask = table.keys.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final long slotKey = table.keys.get(i);
+            if (slotKey == key) {
+                if (table.values.getAndSet(i, null) != null) {
+                    size--;
+                }
+                return;
+            }
+            if (slotKey == EMPTY_KEY) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes every mapping.
+     */
+    public synchronized void clear() {
+        this.table = new Table<>(MIN_CAPACITY);
+        this.size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static <V> Table<V> rebuild(Table<V> old, int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        final Table<V> rebuilt = new Table<>(capacity);
+        final int mask = capacity - 1;
+        for (int oldIndex = 0; oldIndex < old.keys.length(); oldIndex++) {
+            final V value = old.values.get(oldIndex);
+            if (value == null) {
+                continue;
+            }
+            final long key = old.keys.get(oldIndex);
+            int i = hash(key) & mask;
+            while (rebuilt.keys.get(i) != EMPTY_KEY) {
+                i = (i + 1) & mask;
+            }
+            rebuilt.values.set(i, value);
+            rebuilt.keys.set(i, key);
+            rebuilt.usedSlots++;
+        }
+        return rebuilt;
+    }
+
+    private static int hash(long key) {
+        // Chunk positions are very regular, so mix the bits before using them as an index
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static class Table<V> {
+
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<V> values;
+        // The number of slots with a key in them, including removed keys. Only modified while synchronized.
+        int usedSlots;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY_KEY);
+            }
+            this.usedSlots = 0;
+        }
+    }
+}
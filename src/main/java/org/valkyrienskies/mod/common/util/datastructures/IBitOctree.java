@@ -1,5 +1,7 @@
 package org.valkyrienskies.mod.common.util.datastructures;
 
+import org.valkyrienskies.mod.common.util.VSIterationUtils.IntTernaryConsumer;
+
 public interface IBitOctree {
 
     int BLOCKS_TOTAL = 4096;
@@ -14,6 +16,12 @@ public interface IBitOctree {
 
     boolean getAtIndex(int index);
 
+    /**
+     * Sets every bit to the value given by bits, and then rebuilds the higher levels of the octree in one pass. Much
+     * faster than calling {@link #set(int, int, int, boolean)} for every bit.
+     */
+    void setAll(BitSource bits);
+
     int getOctreeLevelOneIndex(int levelTwoIndex, int offset);
 
     int getOctreeLevelTwoIndex(int levelThreeIndex, int offset);
@@ -37,4 +45,115 @@ public interface IBitOctree {
         }
         return count;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calls consumer with the position of every set bit, in no particular order. Empty 8x8x8, 4x4x4 and 2x2x2 nodes are
+     * skipped using the higher levels of the octree, and so is every node that nodeFilter rejects.
+     */
+    default void forEachSetBit(OctreeNodeFilter nodeFilter, IntTernaryConsumer consumer) {
+        for (int levelThreeOffset = 0; levelThreeOffset < 8; levelThreeOffset++) {
+            final int levelThreeIndex = getOctreeLevelThreeIndex(levelThreeOffset);
+            final int x3 = (levelThreeOffset & 1) << 3;
+            final int y3 = (levelThreeOffset & 2) << 2;
+            final int z3 = (levelThreeOffset & 4) << 1;
+            if (!getAtIndex(levelThreeIndex) || !nodeFilter.shouldVisit(x3, y3, z3, 8)) {
+                continue;
+            }
+            for (int levelTwoOffset = 0; levelTwoOffset < 8; levelTwoOffset++) {
+                final int levelTwoIndex = getOctreeLevelTwoIndex(levelThreeIndex, levelTwoOffset);
+                final int x2 = x3 | ((levelTwoOffset & 1) << 2);
+                final int y2 = y3 | ((levelTwoOffset & 2) << 1);
+                final int z2 = z3 | (levelTwoOffset & 4);
+                if (!getAtIndex(levelTwoIndex) || !nodeFilter.shouldVisit(x2, y2, z2, 4)) {
+                    continue;
+                }
+                for (int levelOneOffset = 0; levelOneOffset < 8; levelOneOffset++) {
+                    final int levelOneIndex = getOctreeLevelOneIndex(levelTwoIndex, levelOneOffset);
+                    final int x1 = x2 | ((levelOneOffset & 1) << 1);
+                    final int y1 = y2 | (levelOneOffset & 2);
+                    final int z1 = z2 | ((levelOneOffset & 4) >> 1);
+                    if (!getAtIndex(levelOneIndex) || !nodeFilter.shouldVisit(x1, y1, z1, 2)) {
+                        continue;
+                    }
+                    for (int blockOffset = 0; blockOffset < 8; blockOffset++) {
+                        final int x = x1 | (blockOffset & 1);
+                        final int y = y1 | ((blockOffset & 2) >> 1);
+                        final int z = z1 | ((blockOffset & 4) >> 2);
+                        if (get(x, y, z)) {
+                            consumer.accept(x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as <code>getCountInRange(minX, minY, minZ, maxX, maxY, maxZ) != 0</code>, but uses the higher levels of the
+     * octree to skip empty nodes, and returns as soon as it finds a non-empty node that is inside the range.
+     */
+    default boolean isAnySetInRange(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        for (int levelThreeOffset = 0; levelThreeOffset < 8; levelThreeOffset++) {
+            final int levelThreeIndex = getOctreeLevelThreeIndex(levelThreeOffset);
+            final int x3 = (levelThreeOffset & 1) << 3;
+            final int y3 = (levelThreeOffset & 2) << 2;
+            final int z3 = (levelThreeOffset & 4) << 1;
+            if (!getAtIndex(levelThreeIndex) || x3 > maxX || x3 + 7 < minX || y3 > maxY || y3 + 7 < minY
+                || z3 > maxZ || z3 + 7 < minZ) {
+                continue;
+            }
+            if (x3 >= minX && x3 + 7 <= maxX && y3 >= minY && y3 + 7 <= maxY && z3 >= minZ && z3 + 7 <= maxZ) {
+                return true;
+            }
+            for (int levelTwoOffset = 0; levelTwoOffset < 8; levelTwoOffset++) {
+                final int levelTwoIndex = getOctreeLevelTwoIndex(levelThreeIndex, levelTwoOffset);
+                final int x2 = x3 | ((levelTwoOffset & 1) << 2);
+                final int y2 = y3 | ((levelTwoOffset & 2) << 1);
+                final int z2 = z3 | (levelTwoOffset & 4);
+                if (!getAtIndex(levelTwoIndex) || x2 > maxX || x2 + 3 < minX || y2 > maxY || y2 + 3 < minY
+                    || z2 > maxZ || z2 + 3 < minZ) {
+                    continue;
+                }
+                if (x2 >= minX && x2 + 3 <= maxX && y2 >= minY && y2 + 3 <= maxY && z2 >= minZ && z2 + 3 <= maxZ) {
+                    return true;
+                }
+                for (int levelOneOffset = 0; levelOneOffset < 8; levelOneOffset++) {
+                    final int levelOneIndex = getOctreeLevelOneIndex(levelTwoIndex, levelOneOffset);
+                    final int x1 = x2 | ((levelOneOffset & 1) << 1);
+                    final int y1 = y2 | (levelOneOffset & 2);
+                    final int z1 = z2 | ((levelOneOffset & 4) >> 1);
+                    if (!getAtIndex(levelOneIndex) || x1 > maxX || x1 + 1 < minX || y1 > maxY || y1 + 1 < minY
+                        || z1 > maxZ || z1 + 1 < minZ) {
+                        continue;
+                    }
+                    for (int blockOffset = 0; blockOffset < 8; blockOffset++) {
+                        final int x = x1 | (blockOffset & 1);
+                        final int y = y1 | ((blockOffset & 2) >> 1);
+                        final int z = z1 | ((blockOffset & 4) >> 2);
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+                            && get(x, y, z)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    interface BitSource {
+
+        boolean get(int x, int y, int z);
+    }
+
+    @FunctionalInterface
+    interface OctreeNodeFilter {
+
+        /**
+         * @return False if none of the bits in the node from (x, y, z) inclusive to (x + size, y + size, z + size)
+         * exclusive need to be visited.
+         */
+        boolean shouldVisit(int x, int y, int z, int size);
+    }
+}
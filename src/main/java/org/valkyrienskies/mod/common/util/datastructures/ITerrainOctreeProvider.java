@@ -5,4 +5,9 @@ public interface ITerrainOctreeProvider {
     IBitOctree getSolidOctree();
 
     IBitOctree getLiquidOctree();
+
+    /**
+     * Rebuilds both octrees from the block states, for after many blocks were set without updating them.
+     */
+    void rebuildOctrees();
 }
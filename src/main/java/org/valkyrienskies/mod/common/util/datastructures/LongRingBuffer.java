@@ -0,0 +1,114 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size ring buffer of primitive longs, that keeps the latest {@link #getCapacity()} samples written to it.
+ * <p>
+ * Safe for exactly one writer thread and any number of reader threads, without locking. Readers may observe a sample
+ * that is being overwritten concurrently, which is fine for the statistics this is used for.
+ */
+public class LongRingBuffer {
+
+    private final long[] samples;
+    // The total number of samples ever written, only ever modified by the writer thread.
+    private volatile long writeCount;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.samples = new long[capacity];
+        this.writeCount = 0;
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest sample if the buffer is full. Must only be called by one thread.
+     */
+    public void add(long sample) {
+        final long index = writeCount;
+        samples[(int) (index % samples.length)] = sample;
+        writeCount = index + 1;
+    }
+
+    /**
+     * Removes all samples. Must only be called by the writer thread.
+     */
+    public void clear() {
+        writeCount = 0;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /**
+     * @return The number of samples currently in the buffer.
+     */
+    public int size() {
+        return (int) Math.min(writeCount, samples.length);
+    }
+
+    /**
+     * @return The most recently added sample, or 0 if the buffer is empty.
+     */
+    public long getLatest() {
+        final long count = writeCount;
+        if (count == 0) {
+            return 0;
+        }
+        return samples[(int) ((count - 1) % samples.length)];
+    }
+
+    /**
+     * @return The average of the samples in the buffer, or 0 if the buffer is empty.
+     */
+    public long getAverage() {
+        final int size = size();
+        if (size == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += samples[i];
+        }
+        return sum / size;
+    }
+
+    /**
+     * Copies the samples currently in the buffer into a new array, in no particular order.
+     */
+    public long[] snapshot() {
+        return Arrays.copyOf(samples, size());
+    }
+
+    /**
+     * Computes a percentile of a snapshot of the buffer using the nearest-rank method.
+     *
+     * @param percentile A value in the range (0, 100]
+     * @return The percentile of the samples in the buffer, or 0 if the buffer is empty.
+     */
+    public long getPercentile(double percentile) {
+        return getPercentiles(percentile)[0];
+    }
+
+    /**
+     * Same as {@link #getPercentile(double)}, but only sorts the snapshot once for all the given percentiles.
+     */
+    public long[] getPercentiles(double... percentiles) {
+        final long[] sorted = snapshot();
+        Arrays.sort(sorted);
+        final long[] result = new long[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            if (percentiles[i] <= 0 || percentiles[i] > 100) {
+                throw new IllegalArgumentException("Percentile must be in (0, 100], got " + percentiles[i]);
+            }
+            final int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length);
+            result[i] = sorted[Math.max(rank, 1) - 1];
+        }
+        return result;
+    }
+}
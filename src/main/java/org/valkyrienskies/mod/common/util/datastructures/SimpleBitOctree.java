@@ -29,6 +29,46 @@ public class SimpleBitOctree implements IBitOctree {
         return bitbuffer.get(index);
     }
 
+    @Override
+    public void setAll(BitSource bits) {
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    bitbuffer.set(getBlockIndex(x, y, z), bits.get(x, y, z));
+                }
+            }
+        }
+        // Then rebuild the octree levels from the bottom up
+        for (int levelThreeOffset = 0; levelThreeOffset < 8; levelThreeOffset++) {
+            final int levelThreeIndex = getOctreeLevelThreeIndex(levelThreeOffset);
+            final int x3 = (levelThreeOffset & 1) << 3;
+            final int y3 = (levelThreeOffset & 2) << 2;
+            final int z3 = (levelThreeOffset & 4) << 1;
+            boolean isLevelThreeSet = false;
+            for (int levelTwoOffset = 0; levelTwoOffset < 8; levelTwoOffset++) {
+                final int levelTwoIndex = getOctreeLevelTwoIndex(levelThreeIndex, levelTwoOffset);
+                final int x2 = x3 | ((levelTwoOffset & 1) << 2);
+                final int y2 = y3 | ((levelTwoOffset & 2) << 1);
+                final int z2 = z3 | (levelTwoOffset & 4);
+                boolean isLevelTwoSet = false;
+                for (int levelOneOffset = 0; levelOneOffset < 8; levelOneOffset++) {
+                    final int levelOneIndex = getOctreeLevelOneIndex(levelTwoIndex, levelOneOffset);
+                    final int x1 = x2 | ((levelOneOffset & 1) << 1);
+                    final int y1 = y2 | (levelOneOffset & 2);
+                    final int z1 = z2 | ((levelOneOffset & 4) >> 1);
+                    final boolean isLevelOneSet = get(x1, y1, z1) || get(x1, y1, z1 + 1) || get(x1, y1 + 1, z1)
+                        || get(x1, y1 + 1, z1 + 1) || get(x1 + 1, y1, z1) || get(x1 + 1, y1, z1 + 1)
+                        || get(x1 + 1, y1 + 1, z1) || get(x1 + 1, y1 + 1, z1 + 1);
+                    bitbuffer.set(levelOneIndex, isLevelOneSet);
+                    isLevelTwoSet |= isLevelOneSet;
+                }
+                bitbuffer.set(levelTwoIndex, isLevelTwoSet);
+                isLevelThreeSet |= isLevelTwoSet;
+            }
+            bitbuffer.set(levelThreeIndex, isLevelThreeSet);
+        }
+    }
+
     @Override
     public int getOctreeLevelOneIndex(int levelTwoIndex, int offset) {
         return levelTwoIndex + offset + 1;
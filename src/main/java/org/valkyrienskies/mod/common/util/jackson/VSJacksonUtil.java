@@ -10,6 +10,7 @@ public class VSJacksonUtil {
 
     private static CBORMapper defaultMapper;
     private static CBORMapper packetMapper;
+    private static CBORMapper worldIndexMapper;
 
     /**
      * Returns the default mapper for the standard Valkyrien Skies configuration * for serializing
@@ -37,6 +38,22 @@ public class VSJacksonUtil {
         return packetMapper;
     }
 
+    /**
+     * Returns the mapper used to write the ship index of a world (e.g., it ignores
+     * {@link org.valkyrienskies.mod.common.util.jackson.annotations.StoredSeparately} annotated fields).
+     * Use {@link #getDefaultMapper()} to read it back, so that worlds saved before those fields were
+     * stored separately still load.
+     */
+    public static ObjectMapper getWorldIndexMapper() {
+        if (worldIndexMapper == null) {
+            CBORMapper mapper = new CBORMapper();
+            configureMapper(mapper);
+            mapper.setAnnotationIntrospector(VSAnnotationIntrospector.worldIndexInstance);
+            worldIndexMapper = mapper;
+        }
+        return worldIndexMapper;
+    }
+
     public static void configurePacketMapper(ObjectMapper mapper) {
         configureMapper(mapper);
 
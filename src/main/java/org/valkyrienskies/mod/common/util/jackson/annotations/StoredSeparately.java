@@ -0,0 +1,18 @@
+package org.valkyrienskies.mod.common.util.jackson.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This is just like {@link com.fasterxml.jackson.annotation.JsonIgnore}, but the property is
+ * specifically only ignored when saving the world's ship index, because it is saved in a file of
+ * its own (see {@link org.valkyrienskies.mod.common.ships.ShipBlockDataStorage}).
+ */
+@Target({ElementType.ANNOTATION_TYPE, ElementType.METHOD, ElementType.CONSTRUCTOR,
+    ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StoredSeparately {
+
+}
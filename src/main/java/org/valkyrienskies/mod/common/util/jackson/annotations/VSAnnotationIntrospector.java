@@ -3,15 +3,24 @@ package org.valkyrienskies.mod.common.util.jackson.annotations;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 
+import java.lang.annotation.Annotation;
+
 public class VSAnnotationIntrospector extends JacksonAnnotationIntrospector {
 
-    public static final VSAnnotationIntrospector instance = new VSAnnotationIntrospector();
+    // Ignores @PacketIgnore properties
+    public static final VSAnnotationIntrospector instance = new VSAnnotationIntrospector(PacketIgnore.class);
+    // Ignores @StoredSeparately properties
+    public static final VSAnnotationIntrospector worldIndexInstance = new VSAnnotationIntrospector(StoredSeparately.class);
+
+    private final Class<? extends Annotation> ignoreAnnotation;
 
-    private VSAnnotationIntrospector() {}
+    private VSAnnotationIntrospector(Class<? extends Annotation> ignoreAnnotation) {
+        this.ignoreAnnotation = ignoreAnnotation;
+    }
 
     @Override
     public boolean hasIgnoreMarker(AnnotatedMember m) {
-        if (m.hasAnnotation(PacketIgnore.class)) return true;
+        if (m.hasAnnotation(ignoreAnnotation)) return true;
         return super.hasIgnoreMarker(m);
     }
 
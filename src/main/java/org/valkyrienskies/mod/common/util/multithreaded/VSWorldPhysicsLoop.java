@@ -5,22 +5,30 @@ import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.client.Minecraft;
 import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.collision.ShipCollisionTask;
+import org.valkyrienskies.mod.common.collision.ShipShipCollisionTask;
 import org.valkyrienskies.mod.common.collision.WaterForcesTask;
 import org.valkyrienskies.mod.common.config.VSConfig;
-import org.valkyrienskies.mod.common.network.ShipTransformUpdateMessage;
-import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.physics.PhysicsLod;
+import org.valkyrienskies.mod.common.physics.PhysicsProfiler;
+import org.valkyrienskies.mod.common.physics.PhysicsTickPhase;
+import org.valkyrienskies.mod.common.physics.ShipSleepManager;
 import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.ships.ship_world.ShipBroadphase;
+import org.valkyrienskies.mod.common.ships.ship_world.ShipTransformStreamer;
+import org.valkyrienskies.mod.common.util.datastructures.LongRingBuffer;
 
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Handles the physics for a given world. This is run on a separate thread, not on the game tick.
@@ -29,11 +37,13 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public class VSWorldPhysicsLoop implements Runnable {
 
     // The number of physics ticks to be considered in the average tick time.
-    private final static long TICK_TIME_QUEUE = 100;
+    private final static int TICK_TIME_QUEUE = 100;
+    // When waiting for the next tick, stop parking and start yielding once we're this close to the deadline.
+    private final static long PARK_SPIN_THRESHOLD_NANO = 100_000L;
     // Used to give each VS thread a unique name
     private static int worldPhysicsLoopId = 0;
     private final World hostWorld;
-    private final Queue<Long> latestPhysicsTickTimes;
+    private final LongRingBuffer latestPhysicsTickTimes;
     // The ships we will be ticking physics for every tick, and sending those
     // updates to players.
     // Used by the game thread to mark this thread for death.
@@ -41,20 +51,42 @@ public class VSWorldPhysicsLoop implements Runnable {
 
     private final Queue<Runnable> taskQueue;
     private ImmutableList<PhysicsObject> immutableShipsList;
+    // The physics transform AABBs of the ships with physics, used to find the pairs of ships that might be colliding.
+    private ShipBroadphase physicsBroadphase;
+    private final ShipSleepManager sleepManager;
     private final ConcurrentLinkedQueue<IPhysTimeTask> recurringTasks;
+    // The number of physics ticks that took longer than the ideal tick time to run.
+    private volatile long overrunTickCount;
+    // The sum of the time by which every overrun tick exceeded the ideal tick time.
+    private volatile long totalOverrunTimeNano;
+    // The number of physics ticks that were skipped because we fell too far behind to catch up.
+    private volatile long droppedTickCount;
 
     @Getter
     private final String name;
+    // Keeps track of the time spent in each phase of the physics tick, for all ships in this world combined.
+    @Getter
+    private final PhysicsProfiler worldProfiler;
+    // Sends the ship transforms to the players watching them.
+    @Getter
+    private final ShipTransformStreamer transformStreamer;
 
     public VSWorldPhysicsLoop(World host) {
         name = "VS World Physics Task " + worldPhysicsLoopId;
         worldPhysicsLoopId++;
         this.hostWorld = host;
         this.threadRunning = true;
-        this.latestPhysicsTickTimes = new ConcurrentLinkedQueue<>();
+        this.latestPhysicsTickTimes = new LongRingBuffer(TICK_TIME_QUEUE);
+        this.worldProfiler = new PhysicsProfiler();
+        this.transformStreamer = new ShipTransformStreamer(host);
         this.taskQueue = new ConcurrentLinkedQueue<>();
         this.immutableShipsList = ImmutableList.of();
+        this.physicsBroadphase = ShipBroadphase.EMPTY;
+        this.sleepManager = new ShipSleepManager();
         this.recurringTasks = new ConcurrentLinkedQueue<>();
+        this.overrunTickCount = 0;
+        this.totalOverrunTimeNano = 0;
+        this.droppedTickCount = 0;
         log.trace(name + " created.");
     }
 
@@ -74,6 +106,10 @@ public class VSWorldPhysicsLoop implements Runnable {
     public void addRecurringTask(IPhysTimeTask physTask) {
         recurringTasks.add(physTask);
     }
+
+    public void removeRecurringTask(IPhysTimeTask physTask) {
+        recurringTasks.remove(physTask);
+    }
     /*
      * (non-Javadoc)
      *
@@ -81,6 +117,11 @@ public class VSWorldPhysicsLoop implements Runnable {
      */
     @Override
     public void run() {
+        // The System.nanoTime() at which the next physics tick is scheduled to start
+        long nextTickStartTime = System.nanoTime();
+        // The System.nanoTime() at which the last physics tick started, used to measure the real tick period
+        long lastTickStartTime = -1;
+
         while (threadRunning) {
             final MinecraftServer mcServer = hostWorld.getMinecraftServer();
             assert mcServer != null;
@@ -88,10 +129,18 @@ public class VSWorldPhysicsLoop implements Runnable {
             final boolean tickPhysics = mcServer.isServerRunning() && (mcServer.isDedicatedServer() || !isSinglePlayerPaused());
 
             if (tickPhysics) {
+                // The number of nanoseconds we want our physics engine tick to take
+                final long idealTickTime = getNsPerTick();
+
+                // Wait until the next tick is due. Parking gives us sub-millisecond precision, unlike Thread.sleep().
+                final long timeUntilNextTick = nextTickStartTime - System.nanoTime();
+                if (timeUntilNextTick > 0) {
+                    parkUntil(nextTickStartTime);
+                    continue;
+                }
+
                 // The number of seconds the physics engine will move forward
                 final double timeToSimulate = VSConfig.getTimeSimulatedPerTick();
-                // The number of nanoseconds we want our physics engine tick to take
-                final long idealTickTime = (long) (1E9 / VSConfig.targetTps);
 
                 final long physTickStartTime = System.nanoTime();
                 // Run the physics engine tick
@@ -99,23 +148,31 @@ public class VSWorldPhysicsLoop implements Runnable {
                 final long physTickEndTime = System.nanoTime();
                 final long physTickDuration = physTickEndTime - physTickStartTime;
 
-                // If the physics tick ran faster than the ideal tick time, then pretend it took the ideal tick time by
-                // waiting.
-                if (physTickDuration < idealTickTime) {
-                    final long sleepMillis = (idealTickTime - physTickDuration) / 1_000_000L;
-                    try {
-                        Thread.sleep(sleepMillis);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                // Keep track of how much longer than the ideal tick time this tick took to run.
+                if (physTickDuration > idealTickTime) {
+                    overrunTickCount++;
+                    totalOverrunTimeNano += physTickDuration - idealTickTime;
                 }
 
-                // Keep track of the time it took to run the physics tick, including the time we spent sleeping.
-                final long physTickDurationIncludingSleep = System.nanoTime() - physTickStartTime;
-                latestPhysicsTickTimes.add(physTickDurationIncludingSleep);
-                // Ensure that latestPhysicsTickTimes only has TICK_TIME_QUEUE # of elements
-                if (latestPhysicsTickTimes.size() > TICK_TIME_QUEUE) {
-                    latestPhysicsTickTimes.remove();
+                // Keep track of the time between the starts of consecutive physics ticks, including the time we spent
+                // waiting.
+                if (lastTickStartTime != -1) {
+                    latestPhysicsTickTimes.add(physTickStartTime - lastTickStartTime);
+                }
+                lastTickStartTime = physTickStartTime;
+
+                // Advance the schedule by exactly one tick. If the tick ran long then the next tick is already due, and
+                // we will run it immediately to catch up.
+                nextTickStartTime += idealTickTime;
+
+                // If we fell too far behind then give up on catching up, otherwise a long lag spike would make ships
+                // fast forward through the missed time.
+                final long maxCatchUpTime = idealTickTime * VSConfig.maxPhysicsCatchUpTicks;
+                final long timeBehind = physTickEndTime - nextTickStartTime;
+                if (timeBehind > maxCatchUpTime) {
+                    final long ticksToDrop = (timeBehind - maxCatchUpTime) / idealTickTime;
+                    droppedTickCount += ticksToDrop;
+                    nextTickStartTime += ticksToDrop * idealTickTime;
                 }
             } else {
                 // If physics are disabled then sleep for 100 ms.
@@ -125,6 +182,9 @@ public class VSWorldPhysicsLoop implements Runnable {
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
+                // Don't try to catch up on the ticks we skipped while paused.
+                nextTickStartTime = System.nanoTime();
+                lastTickStartTime = -1;
             }
         }
         // If we get to this point of run(), then we are about to return and this thread
@@ -132,6 +192,22 @@ public class VSWorldPhysicsLoop implements Runnable {
         log.trace(name + " killed");
     }
 
+    /**
+     * Blocks this thread until System.nanoTime() reaches deadline. Parks for most of the wait, then yields for the
+     * last bit because parkNanos() tends to oversleep by a few dozen microseconds.
+     */
+    private static void parkUntil(final long deadline) {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            if (remaining > PARK_SPIN_THRESHOLD_NANO) {
+                LockSupport.parkNanos(remaining - PARK_SPIN_THRESHOLD_NANO);
+            } else {
+                Thread.yield();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
     private long lastPacketSendTime = 0;
 
     private void physicsTick(double delta) {
@@ -143,16 +219,14 @@ public class VSWorldPhysicsLoop implements Runnable {
         taskQueue.forEach(Runnable::run);
         taskQueue.clear();
 
-        // Make a sublist of physics objects to process physics on.
-        List<PhysicsObject> physicsEntitiesToDoPhysics = new ArrayList<>();
-        for (PhysicsObject physicsObject : immutableShipsList) {
-            if (physicsObject.isPhysicsReady() && physicsObject.isPhysicsEnabled() && physicsObject.getCachedSurroundingChunks() != null) {
-                physicsEntitiesToDoPhysics.add(physicsObject);
-            }
-        }
+        // Make a sublist of physics objects to process physics on, leaving out the ones that are asleep.
+        List<PhysicsObject> awakeShips = sleepManager.wakeUpShips(getShipsToTick(immutableShipsList));
+        // Ships far from players are only ticked every few ticks
+        List<PhysicsObject> physicsEntitiesToDoPhysics = getShipsDueThisTick(awakeShips, delta);
 
         // Finally, actually process the physics tick
-        tickThePhysicsAndCollision(physicsEntitiesToDoPhysics, delta);
+        tickThePhysicsAndCollision(physicsEntitiesToDoPhysics, ship -> ship.getPhysicsCalculations().getLodTimeStep());
+        sleepManager.putRestingShipsToSleep(delta);
 
         // Send ship position update packets around 20 times a second
         final long currentTimeMillis = System.currentTimeMillis();
@@ -165,18 +239,7 @@ public class VSWorldPhysicsLoop implements Runnable {
 
             try {
                 // At the end, send the transform update packets
-                final ShipTransformUpdateMessage shipTransformUpdateMessage = new ShipTransformUpdateMessage();
-                final int dimensionID = hostWorld.provider.getDimension();
-
-                shipTransformUpdateMessage.setDimensionID(dimensionID);
-                for (final PhysicsObject physicsObject : immutableShipsList) {
-                    final UUID shipUUID = physicsObject.getUuid();
-                    final ShipTransform shipTransform = physicsObject.getShipTransformationManager().getCurrentPhysicsTransform();
-                    final AxisAlignedBB shipBB = physicsObject.getPhysicsTransformAABB();
-
-                    shipTransformUpdateMessage.addData(shipUUID, shipTransform, shipBB);
-                }
-                ValkyrienSkiesMod.physWrapperTransformUpdateNetwork.sendToDimension(shipTransformUpdateMessage, shipTransformUpdateMessage.getDimensionID());
+                transformStreamer.sendTransformUpdates();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -184,16 +247,61 @@ public class VSWorldPhysicsLoop implements Runnable {
     }
 
     /**
-     * Ticks physics and collision for the List of PhysicsWrapperEntity passed in.
+     * @return The ships that are ready to be ticked by {@link #tickThePhysicsAndCollision(List, double)}.
+     */
+    public static List<PhysicsObject> getShipsToTick(Iterable<PhysicsObject> ships) {
+        final List<PhysicsObject> shipsToTick = new ArrayList<>();
+        for (PhysicsObject physicsObject : ships) {
+            if (physicsObject.isPhysicsReady() && physicsObject.isPhysicsEnabled() && physicsObject.getCachedSurroundingChunks() != null) {
+                shipsToTick.add(physicsObject);
+            }
+        }
+        return shipsToTick;
+    }
+
+    /**
+     * @return The awake ships that are due for a tick at their {@link PhysicsLod}.
+     */
+    private List<PhysicsObject> getShipsDueThisTick(List<PhysicsObject> awakeShips, double delta) {
+        final List<PhysicsObject> dueShips = new ArrayList<>(awakeShips.size());
+        for (final PhysicsObject ship : awakeShips) {
+            final PhysicsCalculations calculations = ship.getPhysicsCalculations();
+            final PhysicsLod lod = PhysicsLod.get(calculations.getPhysicsLod(),
+                transformStreamer.getNearestWatcherDistanceSq(ship), sleepManager.isTouchingAnotherShip(ship));
+            if (calculations.advanceLod(lod, delta)) {
+                dueShips.add(ship);
+            }
+        }
+        return dueShips;
+    }
+
+    /**
+     * Ticks physics and collision for the List of PhysicsWrapperEntity passed in. Must be called on the physics thread,
+     * also used by {@link org.valkyrienskies.mod.common.physics.PhysicsReplay} to step the ships on its own.
+     */
+    public void tickThePhysicsAndCollision(List<PhysicsObject> shipsWithPhysics, double timeStep) {
+        tickThePhysicsAndCollision(shipsWithPhysics, ship -> timeStep);
+    }
+
+    /**
+     * Same as {@link #tickThePhysicsAndCollision(List, double)}, but with a time step for each ship.
      */
-    private void tickThePhysicsAndCollision(List<PhysicsObject> shipsWithPhysics, double timeStep) {
+    public void tickThePhysicsAndCollision(List<PhysicsObject> shipsWithPhysics,
+        ToDoubleFunction<PhysicsObject> timeSteps) {
         final List<ShipCollisionTask> collisionTasks = new ArrayList<>(
             shipsWithPhysics.size() * 2);
         final List<WaterForcesTask> waterForcesTasks = new ArrayList<>();
+
+        long phaseStartTime = System.nanoTime();
         for (PhysicsObject wrapper : shipsWithPhysics) {
+            final PhysicsProfiler shipProfiler = wrapper.getPhysicsProfiler();
             // Update the physics simulation
             try {
-                wrapper.getPhysicsCalculations().rawPhysTickPreCol(timeStep);
+                final long shipStartTime = System.nanoTime();
+                wrapper.getPhysicsCalculations().rawPhysTickPreCol(timeSteps.applyAsDouble(wrapper));
+                final long forcesEndTime = System.nanoTime();
+                shipProfiler.addPhaseTime(PhysicsTickPhase.PRE_COLLISION_FORCES, forcesEndTime - shipStartTime);
+
                 // Do water collision and buoyancy
                 wrapper.getPhysicsCalculations().getWorldWaterCollider().tickUpdatingTheCollisionCache();
                 // Add water forces tasks to be processed in parallel
@@ -204,22 +312,70 @@ public class VSWorldPhysicsLoop implements Runnable {
                 // Take the big collision and split into tiny ones
                 wrapper.getPhysicsCalculations().getWorldCollision()
                         .splitIntoCollisionTasks(collisionTasks);
+                shipProfiler.addPhaseTime(PhysicsTickPhase.COLLISION_CACHE_UPDATE, System.nanoTime() - forcesEndTime);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+        // The pre-collision forces and the cache updates are interleaved per ship, so at the world level we count the
+        // whole loop as the cache update, minus the time the ships spent computing forces.
+        long phaseEndTime = System.nanoTime();
+        long worldForcesTime = 0;
+        for (PhysicsObject wrapper : shipsWithPhysics) {
+            worldForcesTime += wrapper.getPhysicsProfiler().getCurrentPhaseTime(PhysicsTickPhase.PRE_COLLISION_FORCES);
+        }
+        worldProfiler.addPhaseTime(PhysicsTickPhase.PRE_COLLISION_FORCES, worldForcesTime);
+        worldProfiler.addPhaseTime(PhysicsTickPhase.COLLISION_CACHE_UPDATE, phaseEndTime - phaseStartTime - worldForcesTime);
+
+        // Find the pairs of ships whose AABBs overlap, each pair gets its own ship collision task.
+        final List<ShipShipCollisionTask> shipCollisionTasks = new ArrayList<>();
+        if (VSConfig.doShipCollisions) {
+            physicsBroadphase = physicsBroadphase.update(shipsWithPhysics, PhysicsObject::getPhysicsTransformAABB);
+            physicsBroadphase.forEachOverlappingPair((shipA, shipABounds, shipB, shipBBounds) ->
+                shipCollisionTasks.add(new ShipShipCollisionTask(shipA, shipABounds, shipB, shipBBounds)));
+        }
 
         final List<Callable<Void>> allTasks = new ArrayList<>();
         allTasks.addAll(collisionTasks);
         allTasks.addAll(waterForcesTasks);
+        allTasks.addAll(shipCollisionTasks);
 
+        phaseStartTime = System.nanoTime();
         try {
             // Run all the block collision and water physics tasks
             ValkyrienSkiesMod.getPhysicsThreadPool().invokeAll(allTasks);
         } catch (Exception e) {
             e.printStackTrace();
         }
-
+        phaseEndTime = System.nanoTime();
+
+        // The collision, water and ship collision tasks run at the same time, so split the wall time between them by how
+        // much cpu time each kind of task used.
+        long collisionTasksTime = 0;
+        for (final ShipCollisionTask task : collisionTasks) {
+            task.getToTask().getParent().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.COLLISION_TASKS, task.getComputeTimeNano());
+            collisionTasksTime += task.getComputeTimeNano();
+        }
+        long waterTasksTime = 0;
+        for (final WaterForcesTask task : waterForcesTasks) {
+            task.getParent().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.WATER_TASKS, task.getComputeTimeNano());
+            waterTasksTime += task.getComputeTimeNano();
+        }
+        long shipCollisionTasksTime = 0;
+        for (final ShipShipCollisionTask task : shipCollisionTasks) {
+            task.getShipA().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.SHIP_COLLISION_TASKS, task.getComputeTimeNano());
+            task.getShipB().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.SHIP_COLLISION_TASKS, task.getComputeTimeNano());
+            shipCollisionTasksTime += task.getComputeTimeNano();
+        }
+        final long tasksWallTime = phaseEndTime - phaseStartTime;
+        final long tasksCpuTime = collisionTasksTime + waterTasksTime + shipCollisionTasksTime;
+        final long worldCollisionTasksTime = tasksCpuTime == 0 ? 0 : (long) (tasksWallTime * ((double) collisionTasksTime / tasksCpuTime));
+        final long worldShipCollisionTasksTime = tasksCpuTime == 0 ? 0 : (long) (tasksWallTime * ((double) shipCollisionTasksTime / tasksCpuTime));
+        worldProfiler.addPhaseTime(PhysicsTickPhase.COLLISION_TASKS, worldCollisionTasksTime);
+        worldProfiler.addPhaseTime(PhysicsTickPhase.SHIP_COLLISION_TASKS, worldShipCollisionTasksTime);
+        worldProfiler.addPhaseTime(PhysicsTickPhase.WATER_TASKS, tasksWallTime - worldCollisionTasksTime - worldShipCollisionTasksTime);
+
+        phaseStartTime = System.nanoTime();
         // Handle the results of water force tasks
         for (final WaterForcesTask waterForcesTask : waterForcesTasks) {
             waterForcesTask.addForcesToShip();
@@ -228,16 +384,34 @@ public class VSWorldPhysicsLoop implements Runnable {
         // Then those collision points have to be processed sequentially afterwards, all in
         // this thread. Thankfully this step is not cpu intensive.
         for (ShipCollisionTask task : collisionTasks) {
+            final long taskStartTime = System.nanoTime();
             task.getToTask().processCollisionTask(task);
+            task.getToTask().getParent().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.IMPULSE_RESOLUTION, System.nanoTime() - taskStartTime);
+        }
+
+        // Same for the collisions between ships.
+        for (final ShipShipCollisionTask task : shipCollisionTasks) {
+            final long taskStartTime = System.nanoTime();
+            task.applyCollisionImpulses();
+            final long taskTime = System.nanoTime() - taskStartTime;
+            task.getShipA().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.IMPULSE_RESOLUTION, taskTime);
+            task.getShipB().getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.IMPULSE_RESOLUTION, taskTime);
         }
+        phaseEndTime = System.nanoTime();
+        worldProfiler.addPhaseTime(PhysicsTickPhase.IMPULSE_RESOLUTION, phaseEndTime - phaseStartTime);
 
         for (PhysicsObject wrapper : shipsWithPhysics) {
             try {
+                final long shipStartTime = System.nanoTime();
                 wrapper.getPhysicsCalculations().rawPhysTickPostCol();
+                wrapper.getPhysicsProfiler().addPhaseTime(PhysicsTickPhase.POST_COLLISION_INTEGRATION, System.nanoTime() - shipStartTime);
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            wrapper.getPhysicsProfiler().endTick();
         }
+        worldProfiler.addPhaseTime(PhysicsTickPhase.POST_COLLISION_INTEGRATION, System.nanoTime() - phaseEndTime);
+        worldProfiler.endTick();
     }
 
     /**
@@ -254,14 +428,36 @@ public class VSWorldPhysicsLoop implements Runnable {
      */
     public long getAveragePhysicsTickTimeNano() {
         if (latestPhysicsTickTimes.size() >= TICK_TIME_QUEUE) {
-            long average = 0;
-            for (Long tickTime : latestPhysicsTickTimes) {
-                average += tickTime;
-            }
-            return average / TICK_TIME_QUEUE;
+            return latestPhysicsTickTimes.getAverage();
         }
         // If we don't have enough data to get an average, just assume its the ideal
         // tick time.
         return getNsPerTick();
     }
+
+    /**
+     * @return The number of physics ticks that took longer than the ideal tick time to run.
+     */
+    public long getOverrunPhysicsTickCount() {
+        return overrunTickCount;
+    }
+
+    /**
+     * @return The average time in nanoseconds by which overrun physics ticks exceeded the ideal tick time.
+     */
+    public long getAveragePhysicsTickOverrunNano() {
+        final long overrunTicks = overrunTickCount;
+        if (overrunTicks == 0) {
+            return 0;
+        }
+        return totalOverrunTimeNano / overrunTicks;
+    }
+
+    /**
+     * @return The number of physics ticks that were skipped because the physics thread fell more than
+     * {@link VSConfig#maxPhysicsCatchUpTicks} ticks behind.
+     */
+    public long getDroppedPhysicsTickCount() {
+        return droppedTickCount;
+    }
 }
@@ -0,0 +1,138 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
+
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.valkyrienskies.mod.common.network.ShipTransformUpdateMessageTest.assertTransformsClose;
+
+public class ShipDataDeltaTest {
+
+    private static final int ALL_FIELDS = ShipData.DIRTY_TRANSFORM | ShipData.DIRTY_PHYSICS_ENABLED
+        | ShipData.DIRTY_INERTIA | ShipData.DIRTY_CHUNK_CLAIM;
+
+    private static final ChunkPos CENTER = new ChunkPos(-20000, 40000);
+    private static final AxisAlignedBB ORIGINAL_BB = new AxisAlignedBB(0, 0, 0, 1, 1, 1);
+
+    @Test
+    public void testEveryFieldCombination() {
+        for (int changedFields = 0; changedFields <= ALL_FIELDS; changedFields++) {
+            testRoundTrip(changedFields, false);
+        }
+    }
+
+    @Test
+    public void testEveryFieldCombinationWithPhysObj() {
+        for (int changedFields = 0; changedFields <= ALL_FIELDS; changedFields++) {
+            testRoundTrip(changedFields, true);
+        }
+    }
+
+    private static void testRoundTrip(int changedFields, boolean hasPhysObj) {
+        final UUID shipID = UUID.randomUUID();
+        final ShipData source = createServerShip(shipID);
+
+        final ByteBuf buf = Unpooled.wrappedBuffer(ShipDataDelta.encode(source, changedFields));
+        final ShipDataDelta delta = ShipDataDelta.read(buf);
+        assertThat(buf.readableBytes(), equalTo(0));
+        assertThat(delta.shipID, equalTo(shipID));
+        assertThat(delta.changedFields, equalTo(changedFields));
+
+        final QueryableShipData clientWorldData = new QueryableShipData();
+        final ShipData client = createClientShip(clientWorldData, shipID);
+        final ShipTransform originalTransform = client.getShipTransform();
+        final ShipInertiaData originalInertia = new ShipInertiaData();
+        delta.applyTo(clientWorldData, client, hasPhysObj);
+
+        if ((changedFields & ShipData.DIRTY_TRANSFORM) != 0 && !hasPhysObj) {
+            assertTransformsClose(client.getShipTransform(), source.getShipTransform());
+            assertTransformsClose(client.getPrevTickShipTransform(), source.getPrevTickShipTransform());
+            assertThat(client.getShipBB(), equalTo(source.getShipBB()));
+        } else {
+            // The PhysicsObject owns the transforms when there is one
+            assertThat(client.getShipTransform(), sameInstance(originalTransform));
+            assertThat(client.getPrevTickShipTransform(), sameInstance(originalTransform));
+            assertThat(client.getShipBB(), equalTo(ORIGINAL_BB));
+        }
+
+        final boolean physicsEnabledChanged = (changedFields & ShipData.DIRTY_PHYSICS_ENABLED) != 0;
+        assertThat(client.isPhysicsEnabled(), equalTo(physicsEnabledChanged));
+
+        final ShipInertiaData expectedInertia = (changedFields & ShipData.DIRTY_INERTIA) != 0
+            ? source.getInertiaData() : originalInertia;
+        final ShipInertiaData inertia = client.getInertiaData();
+        assertThat(inertia.getGameTickMass(), equalTo(expectedInertia.getGameTickMass()));
+        assertThat(inertia.getGameTickCenterOfMass(), equalTo(expectedInertia.getGameTickCenterOfMass()));
+        assertThat(inertia.getGameMoITensor(), equalTo(expectedInertia.getGameMoITensor()));
+
+        if ((changedFields & ShipData.DIRTY_CHUNK_CLAIM) != 0) {
+            assertThat(new HashSet<>(client.getChunkClaim().getClaimedChunks()),
+                equalTo(new HashSet<>(source.getChunkClaim().getClaimedChunks())));
+            for (final ChunkPos pos : source.getChunkClaim()) {
+                assertThat(clientWorldData.getShipFromChunk(pos.x, pos.z).orElse(null), sameInstance(client));
+            }
+        } else {
+            assertThat(client.getChunkClaim().getClaimedChunks().size(), equalTo(1));
+        }
+    }
+
+    /**
+     * @return A ship with every field that a delta can carry set to something other than its default.
+     */
+    private static ShipData createServerShip(UUID shipID) {
+        final VSChunkClaim claim = new VSChunkClaim(CENTER);
+        claim.addChunkClaim(CENTER.x, CENTER.z);
+        claim.addChunkClaim(CENTER.x - 1, CENTER.z);
+        claim.addChunkClaim(CENTER.x, CENTER.z + 2);
+
+        final ShipTransform transform = new ShipTransform(-320000.5, 80.25, 640000.125,
+            new Quaterniond().rotateXYZ(0.5, 1.5, -0.25), new Vector3d(CENTER.x * 16 + 8.5, 128, CENTER.z * 16 + 8.5));
+        final ShipData shipData = ShipData.createData(new ConcurrentUpdatableIndexedCollection<>(), "server", claim,
+            shipID, transform, new AxisAlignedBB(-320010, 70, 639990, -319990, 90, 640010));
+        shipData.setPrevTickShipTransform(new ShipTransform(-320000, 80, 640000,
+            new Quaterniond().rotateXYZ(0.45, 1.5, -0.25), transform.getCenterCoord()));
+        shipData.setPhysicsEnabled(true);
+
+        final ShipInertiaData inertiaData = shipData.getInertiaData();
+        inertiaData.setGameTickMass(1234.5);
+        final Vector3dc centerOfMass = new Vector3d(CENTER.x * 16 + 7.25, 129.5, CENTER.z * 16 + 9.75);
+        inertiaData.setGameTickCenterOfMass(centerOfMass);
+        // Not symmetric, so that swapping rows and columns would fail
+        final Matrix3dc moITensor = new Matrix3d(1, 2, 3, 4, 5, 6, 7, 8, 9);
+        inertiaData.setGameMoITensor(moITensor);
+        return shipData;
+    }
+
+    /**
+     * @return A ship like the client would have before the delta, with default values and only the center chunk.
+     */
+    private static ShipData createClientShip(QueryableShipData worldData, UUID shipID) {
+        final VSChunkClaim claim = new VSChunkClaim(CENTER);
+        claim.addChunkClaim(CENTER.x, CENTER.z);
+        final ShipTransform transform = new ShipTransform(new Vector3d(), new Vector3d());
+        final ShipData shipData = ShipData.createData(worldData.getAllShips(), "client", claim, shipID, transform,
+            ORIGINAL_BB);
+        worldData.addShip(shipData);
+        return shipData;
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import valkyrienwarfare.api.TransformType;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShipTransformUpdateMessageTest {
+
+    @Test
+    public void testRoundTrip() {
+        final ShipTransform first = new ShipTransform(12.5, 64.25, -3000000.75,
+            new Quaterniond().rotateXYZ(0.3, -1.2, 2.5), new Vector3d(-28999984.5, 128.5, 7.25));
+        final ShipTransform second = new ShipTransform(new Vector3d(0, 0, 0), new Vector3d(8, 8, 8));
+        final AxisAlignedBB subspaceBB = new AxisAlignedBB(-28999990, 0, 2, -28999970, 255, 30);
+
+        final ShipTransformUpdateMessage message = new ShipTransformUpdateMessage();
+        message.setDimensionID(-1);
+        message.addData(0, first, subspaceBB);
+        message.addData(65535, second, null);
+
+        final ByteBuf buf = Unpooled.buffer();
+        message.toBytes(buf);
+        final ShipTransformUpdateMessage read = new ShipTransformUpdateMessage();
+        read.fromBytes(buf);
+
+        assertThat(buf.readableBytes(), equalTo(0));
+        assertThat(read.getDimensionID(), equalTo(-1));
+        assertThat(read.shipTransforms.size(), equalTo(2));
+
+        final ShipTransformUpdateMessage.ShipTransformData firstData = read.shipTransforms.get(0);
+        assertThat(firstData.sessionId, equalTo(0));
+        assertTransformsClose(firstData.shipTransform, first);
+        assertThat(firstData.subspaceBB, equalTo(subspaceBB));
+
+        final ShipTransformUpdateMessage.ShipTransformData secondData = read.shipTransforms.get(1);
+        assertThat(secondData.sessionId, equalTo(65535));
+        assertTransformsClose(secondData.shipTransform, second);
+        assertThat(secondData.subspaceBB, nullValue());
+    }
+
+    @Test
+    public void testEmptyRoundTrip() {
+        final ShipTransformUpdateMessage message = new ShipTransformUpdateMessage();
+        message.setDimensionID(7);
+
+        final ByteBuf buf = Unpooled.buffer();
+        message.toBytes(buf);
+        final ShipTransformUpdateMessage read = new ShipTransformUpdateMessage();
+        read.fromBytes(buf);
+
+        assertThat(buf.readableBytes(), equalTo(0));
+        assertThat(read.getDimensionID(), equalTo(7));
+        assertThat(read.isEmpty(), equalTo(true));
+    }
+
+    /**
+     * The position and center coord are sent as doubles and must match exactly, the rotation is packed so it only has
+     * to be close.
+     */
+    static void assertTransformsClose(ShipTransform actual, ShipTransform expected) {
+        assertThat(actual.getPosX(), equalTo(expected.getPosX()));
+        assertThat(actual.getPosY(), equalTo(expected.getPosY()));
+        assertThat(actual.getPosZ(), equalTo(expected.getPosZ()));
+        assertThat(actual.getCenterCoord(), equalTo(expected.getCenterCoord()));
+
+        final Quaterniond actualRotation = actual.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL);
+        final Quaterniond expectedRotation = expected.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL);
+        // q and -q are the same rotation
+        assertThat(Math.abs(actualRotation.dot(expectedRotation)), closeTo(1, 1e-9));
+    }
+
+}
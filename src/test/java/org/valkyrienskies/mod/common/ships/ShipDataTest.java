@@ -1,8 +1,18 @@
 package org.valkyrienskies.mod.common.ships;
 
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
 import org.junit.jupiter.api.Test;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
 
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ShipDataTest {
@@ -15,4 +25,21 @@ public class ShipDataTest {
         });
     }
 
+    @Test
+    public void testSettingSameValueIsNotDirty() {
+        ShipTransform transform = new ShipTransform(new Vector3d(1, 2, 3), new Vector3d());
+        ShipData shipData = ShipData.createData(new ConcurrentUpdatableIndexedCollection<>(), "test",
+            new VSChunkClaim(new ChunkPos(0, 0)), UUID.randomUUID(), transform, new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        shipData.pollDirtyFields();
+
+        shipData.setShipTransform(transform);
+        shipData.setPrevTickShipTransform(transform);
+        shipData.setShipBB(new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        shipData.setPhysicsEnabled(false);
+        assertThat(shipData.pollDirtyFields(), equalTo(0));
+
+        shipData.setPhysicsEnabled(true);
+        assertThat(shipData.pollDirtyFields(), equalTo(ShipData.DIRTY_PHYSICS_ENABLED));
+    }
+
 }
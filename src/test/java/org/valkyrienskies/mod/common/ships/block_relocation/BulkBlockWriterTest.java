@@ -0,0 +1,44 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.item.EnumDyeColor;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BulkBlockWriterTest {
+
+    @BeforeAll
+    public static void bootstrap() {
+        Bootstrap.register();
+    }
+
+    @Test
+    public void testPaletteResize() {
+        // 48 distinct states, so the section palette has to grow past 16 and again past 32 entries
+        final List<IBlockState> states = new ArrayList<>();
+        for (final Block block : new Block[]{Blocks.WOOL, Blocks.STAINED_GLASS, Blocks.STAINED_HARDENED_CLAY}) {
+            for (final EnumDyeColor color : EnumDyeColor.values()) {
+                states.add(block.getStateFromMeta(color.getMetadata()));
+            }
+        }
+
+        final ExtendedBlockStorage storage = new ExtendedBlockStorage(0, true);
+        for (int i = 0; i < states.size(); i++) {
+            BulkBlockWriter.setWithoutUpdates(storage, i & 15, i >> 4, 7, states.get(i));
+        }
+        for (int i = 0; i < states.size(); i++) {
+            assertThat(storage.get(i & 15, i >> 4, 7), sameInstance(states.get(i)));
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class SpatialDetectorTest {
+
+    private static final BlockPos START = new BlockPos(1000, 64, -1000);
+
+    @Test
+    public void testFindsSameBlocksAsBreadthFirstSearch() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            final TIntHashSet blocks = makeRandomStructure(random, 2000);
+            for (final boolean corners : new boolean[]{false, true}) {
+                final TestDetector detector = new TestDetector(blocks, Integer.MAX_VALUE, corners);
+                detector.startDetection();
+                assertThat(detector.foundSet, equalTo(breadthFirstSearch(blocks, corners)));
+            }
+        }
+    }
+
+    @Test
+    public void testStopsAtMaxSize() {
+        final TIntHashSet blocks = makeRandomStructure(new Random(7), 5000);
+        final TestDetector detector = new TestDetector(blocks, 1000, true);
+        detector.startDetection();
+        assertThat(detector.foundSet.size(), equalTo(1000));
+        assertThat(blocks.containsAll(detector.foundSet), equalTo(true));
+    }
+
+    /**
+     * A random walk from START, thickened a bit so that there are columns to scan.
+     */
+    private static TIntHashSet makeRandomStructure(Random random, int steps) {
+        final TIntHashSet blocks = new TIntHashSet();
+        int x = START.getX(), y = START.getY(), z = START.getZ();
+        for (int i = 0; i < steps; i++) {
+            blocks.add(SpatialDetector.getHashWithRespectTo(x, y, z, START));
+            if (random.nextInt(4) == 0) {
+                blocks.add(SpatialDetector.getHashWithRespectTo(x, y + 1, z, START));
+            }
+            // Sometimes step diagonally, which only connects with corners
+            if (random.nextInt(20) == 0) {
+                x += random.nextBoolean() ? 1 : -1;
+                y = random.nextBoolean() ? Math.min(y + 1, 200) : Math.max(y - 1, 1);
+                z += random.nextBoolean() ? 1 : -1;
+                continue;
+            }
+            switch (random.nextInt(6)) {
+                case 0: x++; break;
+                case 1: x--; break;
+                case 2: y = Math.min(y + 1, 200); break;
+                case 3: y = Math.max(y - 1, 1); break;
+                case 4: z++; break;
+                default: z--; break;
+            }
+        }
+        return blocks;
+    }
+
+    private static TIntHashSet breadthFirstSearch(TIntHashSet blocks, boolean corners) {
+        final TIntHashSet found = new TIntHashSet();
+        final TIntArrayList queue = new TIntArrayList();
+        final int first = SpatialDetector.getHashWithRespectTo(START.getX(), START.getY(), START.getZ(), START);
+        found.add(first);
+        queue.add(first);
+        for (int i = 0; i < queue.size(); i++) {
+            final BlockPos pos = SpatialDetector.getPosWithRespectTo(queue.get(i), START);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        if (!corners && Math.abs(dx) + Math.abs(dy) + Math.abs(dz) != 1) {
+                            continue;
+                        }
+                        final int hash = SpatialDetector.getHashWithRespectTo(pos.getX() + dx, pos.getY() + dy,
+                            pos.getZ() + dz, START);
+                        if (blocks.contains(hash) && found.add(hash)) {
+                            queue.add(hash);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static class TestDetector extends SpatialDetector {
+
+        private final TIntHashSet blocks;
+
+        TestDetector(TIntHashSet blocks, int maximum, boolean checkCorners) {
+            super(START, null, maximum, checkCorners, null, new ExtendedBlockStorage[17 * 17][16]);
+            this.blocks = blocks;
+        }
+
+        @Override
+        public boolean isValidExpansion(int x, int y, int z) {
+            return blocks.contains(getHashWithRespectTo(x, y, z, START));
+        }
+    }
+}
@@ -1,7 +1,55 @@
 package org.valkyrienskies.mod.common.ships.chunk_claims;
 
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class VSChunkClaimTest {
 
+    @Test
+    public void testContainsOnlyClaimedChunks() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(100, -100));
+        assertThat(claim.containsChunk(100, -100), equalTo(false));
+
+        assertThat(claim.addChunkClaim(100, -100), equalTo(true));
+        assertThat(claim.addChunkClaim(100, -100), equalTo(false));
+        assertThat(claim.addChunkClaim(68, -69), equalTo(true));
+        assertThat(claim.containsChunk(100, -100), equalTo(true));
+        assertThat(claim.containsChunk(68, -69), equalTo(true));
+        assertThat(claim.containsChunk(101, -100), equalTo(false));
+        assertThat(claim.getClaimedChunks().size(), equalTo(2));
+
+        assertThat(claim.removeChunkClaim(100, -100), equalTo(true));
+        assertThat(claim.containsChunk(100, -100), equalTo(false));
+        assertThat(claim.containsChunk(68, -69), equalTo(true));
+    }
+
+    @Test
+    public void testCannotClaimOutsideOfRegion() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(0, 0));
+        assertThat(claim.isChunkInRegion(-32, 31), equalTo(true));
+        assertThat(claim.isChunkInRegion(-33, 0), equalTo(false));
+        assertThat(claim.isChunkInRegion(0, 32), equalTo(false));
+        assertThrows(IllegalArgumentException.class, () -> claim.addChunkClaim(32, 0));
+        assertThat(claim.containsChunk(32, 0), equalTo(false));
+    }
+
+    @Test
+    public void testAllocatorReusesFreedRegions() {
+        ShipChunkAllocator allocator = new ShipChunkAllocator();
+        VSChunkClaim first = allocator.allocateNextChunkClaim();
+        VSChunkClaim second = allocator.allocateNextChunkClaim();
+        assertThat(first.isChunkInRegion(second.getCenterPos().x, second.getCenterPos().z), equalTo(false));
+        assertThat(ShipChunkAllocator.isChunkInShipyard(second.getCenterPos()), equalTo(true));
+
+        allocator.freeChunkClaim(first);
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(first.getCenterPos()));
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos().equals(second.getCenterPos()), equalTo(false));
+    }
+
     /*
     @Test
     public void testChunkLongs() {
@@ -0,0 +1,104 @@
+package org.valkyrienskies.mod.common.ships.physics_data;
+
+import org.joml.Matrix3d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class MassMomentsTest {
+
+    // In the shipyard, to make sure big coordinates don't cost precision
+    private static final double BASE_X = 5_000_000, BASE_Z = 50_000;
+
+    /**
+     * Compares against the inertia tensor of the same point masses, summed up directly around the center of mass.
+     */
+    @Test
+    public void testMatchesDirectSum() {
+        Random random = new Random(7);
+        int count = 500;
+        double[][] points = new double[count][4];
+        MassMoments moments = new MassMoments();
+        for (double[] point : points) {
+            point[0] = BASE_X + random.nextInt(64);
+            point[1] = random.nextInt(256);
+            point[2] = BASE_Z + random.nextInt(64);
+            point[3] = 1 + random.nextInt(1000);
+            moments.add(point[0], point[1], point[2], point[3], 0);
+        }
+
+        double mass = 0;
+        Vector3d centerOfMass = new Vector3d();
+        for (double[] point : points) {
+            mass += point[3];
+            centerOfMass.add((point[0] - BASE_X) * point[3], point[1] * point[3], (point[2] - BASE_Z) * point[3]);
+        }
+        centerOfMass.div(mass);
+        Matrix3d expected = new Matrix3d().zero();
+        for (double[] point : points) {
+            double rx = point[0] - BASE_X - centerOfMass.x;
+            double ry = point[1] - centerOfMass.y;
+            double rz = point[2] - BASE_Z - centerOfMass.z;
+            double m = point[3];
+            expected.m00 += m * (ry * ry + rz * rz);
+            expected.m11 += m * (rx * rx + rz * rz);
+            expected.m22 += m * (rx * rx + ry * ry);
+            expected.m01 -= m * rx * ry;
+            expected.m02 -= m * rx * rz;
+            expected.m12 -= m * ry * rz;
+        }
+        expected.m10 = expected.m01;
+        expected.m20 = expected.m02;
+        expected.m21 = expected.m12;
+        centerOfMass.add(BASE_X, 0, BASE_Z);
+
+        assertThat(moments.getMass(), closeTo(mass, 1e-6));
+        Vector3d actualCenterOfMass = moments.getCenterOfMass(new Vector3d());
+        assertThat(actualCenterOfMass.x, closeTo(centerOfMass.x, 1e-6));
+        assertThat(actualCenterOfMass.y, closeTo(centerOfMass.y, 1e-6));
+        assertThat(actualCenterOfMass.z, closeTo(centerOfMass.z, 1e-6));
+        Matrix3d actual = moments.getInertiaTensor(new Matrix3d());
+        for (int column = 0; column < 3; column++) {
+            for (int row = 0; row < 3; row++) {
+                assertThat(actual.get(column, row), closeTo(expected.get(column, row), 1e-3));
+            }
+        }
+    }
+
+    @Test
+    public void testSetThenRemove() {
+        MassMoments original = new MassMoments();
+        original.add(BASE_X, 10, BASE_Z, 100, .1);
+        original.add(BASE_X + 3, 12, BASE_Z - 2, 50, .1);
+
+        // Rebuilding the moments from the derived values should give the same moments back
+        MassMoments rebuilt = new MassMoments();
+        rebuilt.set(original.getMass(), original.getCenterOfMass(new Vector3d()),
+            original.getInertiaTensor(new Matrix3d()));
+        rebuilt.add(BASE_X + 3, 12, BASE_Z - 2, -50, .1);
+        original.add(BASE_X + 3, 12, BASE_Z - 2, -50, .1);
+
+        Vector3d centerOfMass = rebuilt.getCenterOfMass(new Vector3d());
+        assertThat(centerOfMass.x, closeTo(BASE_X, 1e-6));
+        assertThat(centerOfMass.y, closeTo(10, 1e-6));
+        assertThat(centerOfMass.z, closeTo(BASE_Z, 1e-6));
+        Matrix3d expected = original.getInertiaTensor(new Matrix3d());
+        Matrix3d actual = rebuilt.getInertiaTensor(new Matrix3d());
+        for (int column = 0; column < 3; column++) {
+            for (int row = 0; row < 3; row++) {
+                assertThat(actual.get(column, row), closeTo(expected.get(column, row), 1e-6));
+            }
+        }
+
+        // Removing the last mass empties it completely
+        rebuilt.add(BASE_X, 10, BASE_Z, -100, .1);
+        assertThat(rebuilt.isEmpty(), equalTo(true));
+        assertThat(rebuilt.getMass(), equalTo(0D));
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.valkyrienskies.mod.common.util;
+
+import org.joml.Quaterniond;
+import org.joml.Quaterniondc;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class VSMathTest {
+
+    // 20 bits per component gives steps of about 1.3e-6, so this leaves plenty of room
+    private static final double PACKED_QUAT_ERROR = 1e-5;
+
+    @Test
+    public void testPackIdentity() {
+        assertRoundTrip(new Quaterniond());
+    }
+
+    @Test
+    public void testPackNearIdentity() {
+        assertRoundTrip(new Quaterniond().rotateXYZ(1e-4, -2e-4, 3e-4));
+        assertRoundTrip(new Quaterniond().rotateY(1e-7));
+    }
+
+    @Test
+    public void testPackNegativeW() {
+        assertRoundTrip(new Quaterniond(0.1, 0.2, 0.3, -0.9).normalize());
+        assertRoundTrip(new Quaterniond(0, 0, 0, -1));
+    }
+
+    @Test
+    public void testPackEachLargestComponent() {
+        assertRoundTrip(new Quaterniond(0.9, 0.2, -0.3, 0.1).normalize());
+        assertRoundTrip(new Quaterniond(-0.2, 0.9, 0.3, -0.1).normalize());
+        assertRoundTrip(new Quaterniond(0.3, -0.1, -0.9, 0.2).normalize());
+        assertRoundTrip(new Quaterniond(-0.1, 0.3, 0.2, 0.9).normalize());
+        // The other three components are as large as they can get
+        assertRoundTrip(new Quaterniond(0.5, 0.5, 0.5, 0.5));
+        assertRoundTrip(new Quaterniond(Math.sqrt(0.5), -Math.sqrt(0.5), 0, 0));
+    }
+
+    @Test
+    public void testPackNegatedIsSame() {
+        final Quaterniond quat = new Quaterniond(0.1, -0.9, 0.3, 0.2).normalize();
+        final Quaterniond negated = new Quaterniond(-quat.x, -quat.y, -quat.z, -quat.w);
+        assertThat(VSMath.packQuaternion(negated), equalTo(VSMath.packQuaternion(quat)));
+    }
+
+    @Test
+    public void testPackRandom() {
+        final Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            assertRoundTrip(new Quaterniond(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(),
+                random.nextGaussian()).normalize());
+        }
+    }
+
+    private static void assertRoundTrip(Quaterniondc quat) {
+        final Quaterniond unpacked = VSMath.unpackQuaternion(VSMath.packQuaternion(quat), new Quaterniond());
+        // q and -q are the same rotation, and packing may return either
+        final double sign = quat.x() * unpacked.x + quat.y() * unpacked.y + quat.z() * unpacked.z
+            + quat.w() * unpacked.w < 0 ? -1 : 1;
+        assertThat(sign * unpacked.x, closeTo(quat.x(), PACKED_QUAT_ERROR));
+        assertThat(sign * unpacked.y, closeTo(quat.y(), PACKED_QUAT_ERROR));
+        assertThat(sign * unpacked.z, closeTo(quat.z(), PACKED_QUAT_ERROR));
+        assertThat(sign * unpacked.w, closeTo(quat.w(), PACKED_QUAT_ERROR));
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ConcurrentLongObjectMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        map.put(5L, "five");
+        map.put(-5L, "minus five");
+        assertThat(map.get(5L), equalTo("five"));
+        assertThat(map.get(-5L), equalTo("minus five"));
+        assertThat(map.get(6L), nullValue());
+
+        map.put(5L, "cinq");
+        assertThat(map.get(5L), equalTo("cinq"));
+        assertThat(map.size(), equalTo(2));
+
+        map.remove(5L);
+        assertThat(map.get(5L), nullValue());
+        assertThat(map.get(-5L), equalTo("minus five"));
+        assertThat(map.size(), equalTo(1));
+    }
+
+    /**
+     * Compares against a HashMap through enough puts and removes to rebuild the table many times.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // Chunk positions of a small area, so keys get removed and added again
+            long key = (random.nextInt(64) & 4294967295L) | ((random.nextInt(64) & 4294967295L) << 32);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, (long) i);
+                expected.put(key, (long) i);
+            }
+        }
+        assertThat(map.size(), equalTo(expected.size()));
+        for (int x = 0; x < 64; x++) {
+            for (int z = 0; z < 64; z++) {
+                long key = (x & 4294967295L) | ((z & 4294967295L) << 32);
+                assertThat(map.get(key), equalTo(expected.get(key)));
+            }
+        }
+    }
+
+}
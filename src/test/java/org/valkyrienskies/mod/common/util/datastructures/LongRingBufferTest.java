@@ -0,0 +1,47 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class LongRingBufferTest {
+
+    @Test
+    public void testOverwritesOldestSamples() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+        for (long i = 1; i <= 6; i++) {
+            buffer.add(i);
+        }
+        assertThat(buffer.size(), equalTo(4));
+        assertThat(buffer.getLatest(), equalTo(6L));
+        // Only 3, 4, 5, 6 should remain
+        assertThat(buffer.getAverage(), equalTo(4L));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LongRingBuffer buffer = new LongRingBuffer(100);
+        // Add in reverse order to make sure the percentiles don't depend on insertion order
+        for (long i = 100; i >= 1; i--) {
+            buffer.add(i);
+        }
+        long[] percentiles = buffer.getPercentiles(50, 95, 99, 100);
+        assertThat(percentiles[0], equalTo(50L));
+        assertThat(percentiles[1], equalTo(95L));
+        assertThat(percentiles[2], equalTo(99L));
+        assertThat(percentiles[3], equalTo(100L));
+    }
+
+    @Test
+    public void testEmpty() {
+        LongRingBuffer buffer = new LongRingBuffer(8);
+        assertThat(buffer.size(), equalTo(0));
+        assertThat(buffer.getAverage(), equalTo(0L));
+        assertThat(buffer.getPercentile(99), equalTo(0L));
+        buffer.add(7);
+        buffer.clear();
+        assertThat(buffer.size(), equalTo(0));
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class SimpleBitOctreeTest {
+
+    @Test
+    public void testForEachSetBitVisitsEverySetBit() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final SimpleBitOctree octree = new SimpleBitOctree();
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            final int x = random.nextInt(16), y = random.nextInt(16), z = random.nextInt(16);
+            octree.set(x, y, z, true);
+            expected.add(x | (y << 4) | (z << 8));
+        }
+        // Clear some of the bits again, to make sure the octree levels are updated on removal too.
+        for (int i = 0; i < 100; i++) {
+            final int x = random.nextInt(16), y = random.nextInt(16), z = random.nextInt(16);
+            octree.set(x, y, z, false);
+            expected.remove(x | (y << 4) | (z << 8));
+        }
+
+        final Set<Integer> visited = new HashSet<>();
+        octree.forEachSetBit((x, y, z, size) -> true, (x, y, z) -> visited.add(x | (y << 4) | (z << 8)));
+        assertThat(visited, equalTo(expected));
+    }
+
+    @Test
+    public void testForEachSetBitSkipsFilteredNodes() {
+        final SimpleBitOctree octree = new SimpleBitOctree();
+        octree.set(1, 1, 1, true);
+        octree.set(12, 3, 5, true);
+        octree.set(14, 15, 15, true);
+
+        // Only visit the nodes that contain some part of the x >= 12 half space
+        final Set<Integer> visited = new HashSet<>();
+        octree.forEachSetBit((x, y, z, size) -> x + size > 12, (x, y, z) -> visited.add(x));
+        assertThat(visited, equalTo(new HashSet<>(Arrays.asList(12, 14))));
+    }
+
+    @Test
+    public void testIsAnySetInRangeMatchesCount() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final SimpleBitOctree octree = new SimpleBitOctree();
+        for (int i = 0; i < 20; i++) {
+            octree.set(random.nextInt(16), random.nextInt(16), random.nextInt(16), true);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            final int minX = random.nextInt(16), minY = random.nextInt(16), minZ = random.nextInt(16);
+            final int maxX = minX + random.nextInt(16 - minX);
+            final int maxY = minY + random.nextInt(16 - minY);
+            final int maxZ = minZ + random.nextInt(16 - minZ);
+            assertThat(octree.isAnySetInRange(minX, minY, minZ, maxX, maxY, maxZ),
+                equalTo(octree.getCountInRange(minX, minY, minZ, maxX, maxY, maxZ) != 0));
+        }
+    }
+
+    @Test
+    public void testSetAllMatchesSettingEachBit() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final boolean[] bits = new boolean[4096];
+        for (int i = 0; i < 200; i++) {
+            bits[random.nextInt(4096)] = true;
+        }
+        final SimpleBitOctree expected = new SimpleBitOctree();
+        final SimpleBitOctree actual = new SimpleBitOctree();
+        // Start with different bits set, to make sure setAll also clears them
+        for (int i = 0; i < 200; i++) {
+            actual.set(random.nextInt(16), random.nextInt(16), random.nextInt(16), true);
+        }
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    expected.set(x, y, z, bits[x | y << 4 | z << 8]);
+                }
+            }
+        }
+        actual.setAll((x, y, z) -> bits[x | y << 4 | z << 8]);
+
+        for (int i = 0; i < IBitOctree.BITS_TOTAL; i++) {
+            assertThat(actual.getAtIndex(i), equalTo(expected.getAtIndex(i)));
+        }
+    }
+}